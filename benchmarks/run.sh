@@ -0,0 +1,15 @@
+#!/bin/sh
+# 构建并运行性能测试，结果保存在 results/<日期>-<提交>.csv 中
+# 额外的参数传给 JMH，例如只运行分析驱动程序：./run.sh 'LRParseBenchmark|LL1ParseBenchmark'
+# 比较两次结果：
+#   java -cp target/benchmarks.jar com.chaldea.visualparsing.benchmarks.CompareResults \
+#       results/旧.csv results/新.csv
+set -e
+cd "$(dirname "$0")"
+mvn -B -q package
+commit=$(git rev-parse --short HEAD)
+if [ -n "$(git status --porcelain -- ../src/main/java)" ]; then
+    commit="$commit-dirty"
+fi
+mkdir -p results
+java -jar target/benchmarks.jar -rf csv -rff "results/$(date +%Y%m%d)-$commit.csv" "$@"
@@ -0,0 +1,125 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 比较两次性能测试的结果
+ * <p>读取JMH以 {@code -rf csv} 输出的结果文件，按测试名与参数对应，输出分数的变化。
+ * 变化超过阈值且变差时记为回归：AverageTime 等模式分数越大越差，Throughput 模式分数越小越差。
+ * 存在回归时以状态码1退出。</p>
+ * <pre>
+ * java -cp target/benchmarks.jar com.chaldea.visualparsing.benchmarks.CompareResults
+ *         results/旧.csv results/新.csv [阈值百分比，默认10]
+ * </pre>
+ */
+public final class CompareResults {
+    private static final String PACKAGE_PREFIX = CompareResults.class.getPackageName() + ".";
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法：CompareResults 旧结果.csv 新结果.csv [阈值百分比]");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> current = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        int regressions = 0;
+        System.out.printf("%-64s %14s %14s %9s%n", "Benchmark", "旧", "新", "变化");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result result = entry.getValue();
+            Result old = baseline.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("%-64s %14s %14.3f %9s%n", entry.getKey(), "-",
+                        result.score, "新增");
+                continue;
+            }
+            double change = (result.score - old.score) / old.score * 100;
+            boolean worse = result.mode.equals("thrpt") ? change < -threshold : change > threshold;
+            boolean better = result.mode.equals("thrpt") ? change > threshold : change < -threshold;
+            if (worse) {
+                regressions++;
+            }
+            System.out.printf("%-64s %14.3f %14.3f %+8.1f%% %s%n", entry.getKey(), old.score,
+                    result.score, change, worse ? "回归" : better ? "提升" : "");
+        }
+        System.out.printf("单位：%s，%d 项回归（阈值 %.1f%%）%n",
+                current.isEmpty() ? "-" : current.values().iterator().next().unit,
+                regressions, threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 读取结果文件
+     *
+     * @return 键为测试名与各参数的值，按文件中的顺序
+     */
+    private static Map<String, Result> read(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Map<String, Result> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+        List<String> header = split(lines.get(0));
+        int benchmarkColumn = header.indexOf("Benchmark");
+        int modeColumn = header.indexOf("Mode");
+        int scoreColumn = header.indexOf("Score");
+        int unitColumn = header.indexOf("Unit");
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = split(line);
+            String benchmark = fields.get(benchmarkColumn);
+            if (benchmark.startsWith(PACKAGE_PREFIX)) {
+                benchmark = benchmark.substring(PACKAGE_PREFIX.length());
+            }
+            StringBuilder key = new StringBuilder(benchmark);
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring("Param: ".length()))
+                            .append('=').append(fields.get(i));
+                }
+            }
+            results.put(key.toString(), new Result(fields.get(modeColumn),
+                    Double.parseDouble(fields.get(scoreColumn)), fields.get(unitColumn)));
+        }
+        return results;
+    }
+
+    /**
+     * 按逗号切分一行，去掉字段两侧的引号
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Result(String mode, double score, String unit) {
+    }
+}
@@ -0,0 +1,231 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 性能测试使用的文法与输入
+ * <p>文法按规模分为三档：</p>
+ * <ul>
+ *     <li>小：expression，龙书文法4.1</li>
+ *     <li>中：json、java-subset、precedence-10、wide-50</li>
+ *     <li>大：precedence-40、wide-200</li>
+ * </ul>
+ * <p>precedence-N 是有N层优先级的左递归表达式文法，状态数随N线性增长，FOLLOW集与向前看符号集合随N增大；
+ * wide-N 有N个关键字开头的语句，每个语句有自己的列表非终结符，ACTION表很宽。json 与 wide-N 是LR(0)文法。</p>
+ * <p>输入不含空白字符，由 {@link com.chaldea.visualparsing.grammar.Tokenizer} 按最长匹配切分。</p>
+ */
+public final class GrammarCorpus {
+    public static final String EXPRESSION = "expression";
+    public static final String JSON = "json";
+    public static final String JAVA_SUBSET = "java-subset";
+
+    private GrammarCorpus() {
+    }
+
+    /**
+     * 按名称创建文法
+     *
+     * @param name expression、json、java-subset、precedence-N 或 wide-N
+     * @return 新创建的文法，可以被修改
+     */
+    public static Grammar create(String name) {
+        switch (name) {
+            case EXPRESSION:
+                return expression();
+            case JSON:
+                return json();
+            case JAVA_SUBSET:
+                return javaSubset();
+            default:
+                if (name.startsWith("precedence-")) {
+                    return precedence(Integer.parseInt(name.substring("precedence-".length())));
+                }
+                if (name.startsWith("wide-")) {
+                    return wide(Integer.parseInt(name.substring("wide-".length())));
+                }
+                throw new IllegalArgumentException("未知的文法：" + name);
+        }
+    }
+
+    /**
+     * 生成文法的一个句子，终结符数目约为 tokens
+     *
+     * @param name   文法的名称
+     * @param tokens 期望的终结符数目
+     * @return the string
+     */
+    public static String generateInput(String name, int tokens) {
+        StringBuilder builder = new StringBuilder();
+        switch (name) {
+            case EXPRESSION:
+                builder.append("id");
+                for (int count = 1; count < tokens; count += 6) {
+                    builder.append("+(id*id)");
+                }
+                return builder.toString();
+            case JSON:
+                // 每个对象17个终结符
+                builder.append('[');
+                for (int count = 2; count < tokens; count += 18) {
+                    if (count > 2) {
+                        builder.append(',');
+                    }
+                    builder.append("{string:number,string:[true,null],string:false}");
+                }
+                return builder.append(']').toString();
+            case JAVA_SUBSET:
+                return javaSubsetInput(tokens);
+            default:
+                if (name.startsWith("precedence-")) {
+                    int levels = Integer.parseInt(name.substring("precedence-".length()));
+                    builder.append("id");
+                    for (int count = 1, i = 0; count < tokens; count += 6, i++) {
+                        builder.append('o').append(i % levels).append("(id")
+                                .append('o').append(i * 7 % levels).append("id)");
+                    }
+                    return builder.toString();
+                }
+                if (name.startsWith("wide-")) {
+                    int keywords = Integer.parseInt(name.substring("wide-".length()));
+                    builder.append("begin");
+                    for (int count = 2, i = 0; count < tokens; count += 5, i++) {
+                        builder.append('k').append(i % keywords).append("id,id;");
+                    }
+                    return builder.append("end").toString();
+                }
+                throw new IllegalArgumentException("未知的文法：" + name);
+        }
+    }
+
+    /**
+     * 龙书文法4.1
+     */
+    private static Grammar expression() {
+        return build(
+                "E -> E + T | T",
+                "T -> T * F | F",
+                "F -> ( E ) | id");
+    }
+
+    private static Grammar json() {
+        return build(
+                "value -> object | array | string | number | true | false | null",
+                "object -> { } | { members }",
+                "members -> members , pair | pair",
+                "pair -> string : value",
+                "array -> [ ] | [ elements ]",
+                "elements -> elements , value | value");
+    }
+
+    /**
+     * Java的一个子集：类、字段、方法、语句与有优先级的表达式
+     * <p>if 语句的分支必须是语句块，不存在悬空else的冲突</p>
+     */
+    private static Grammar javaSubset() {
+        return build(
+                "Unit -> Unit ClassDecl | ClassDecl",
+                "ClassDecl -> class id { Members } | class id { }",
+                "Members -> Members Member | Member",
+                "Member -> Type id ; | Type id ( Params ) Block | Type id ( ) Block",
+                "Type -> int | boolean | void | id",
+                "Params -> Params , Param | Param",
+                "Param -> Type id",
+                "Block -> { Stmts } | { }",
+                "Stmts -> Stmts Stmt | Stmt",
+                "Stmt -> Type id = Expr ; | Type id ; | id = Expr ; | Expr ; | return Expr ; | return ;"
+                        + " | if ( Expr ) Block | if ( Expr ) Block else Block | while ( Expr ) Block",
+                "Expr -> Expr || And | And",
+                "And -> And && Eq | Eq",
+                "Eq -> Eq == Rel | Rel",
+                "Rel -> Rel < Add | Add",
+                "Add -> Add + Mul | Add - Mul | Mul",
+                "Mul -> Mul * Unary | Mul / Unary | Unary",
+                "Unary -> ! Unary | - Unary | Primary",
+                "Primary -> id | num | true | false | ( Expr ) | id ( Args ) | id ( ) | Primary . id",
+                "Args -> Args , Expr | Expr");
+    }
+
+    private static String javaSubsetInput(int tokens) {
+        String method = "intid(intid,booleanid){intid=id+num*id;"
+                + "if(id<num&&!id){id=id(id,num);}else{returnid.id;}"
+                + "while(id==num){id=id-num/id;}returnid;}";
+        int methodTokens = 65;
+        StringBuilder builder = new StringBuilder();
+        int count = 0;
+        while (count < tokens) {
+            builder.append("classid{intid;");
+            count += 7;
+            for (int i = 0; i < 8 && count < tokens; i++) {
+                builder.append(method);
+                count += methodTokens;
+            }
+            builder.append('}');
+        }
+        return builder.toString();
+    }
+
+    private static Grammar precedence(int levels) {
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < levels; i++) {
+            rules.add("E" + i + " -> E" + i + " o" + i + " E" + (i + 1) + " | E" + (i + 1));
+        }
+        rules.add("E" + levels + " -> ( E0 ) | id");
+        return build(rules.toArray(String[]::new));
+    }
+
+    private static Grammar wide(int keywords) {
+        List<String> rules = new ArrayList<>();
+        rules.add("S -> begin Stmts end");
+        rules.add("Stmts -> Stmts Stmt | Stmt");
+        StringBuilder stmt = new StringBuilder("Stmt ->");
+        for (int i = 0; i < keywords; i++) {
+            stmt.append(i == 0 ? " " : " | ").append('k').append(i).append(" L").append(i).append(" ;");
+            rules.add("L" + i + " -> L" + i + " , id | id");
+        }
+        rules.add(2, stmt.toString());
+        return build(rules.toArray(String[]::new));
+    }
+
+    /**
+     * 由形如 "A -> a B | c" 的规则创建文法，文法符号以空格分隔
+     * <p>第一条规则的产生式头为开始符号，出现在产生式头中的符号是非终结符，其余都是终结符</p>
+     */
+    private static Grammar build(String... rules) {
+        Set<String> heads = new LinkedHashSet<>();
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String rule : rules) {
+            String[] parts = rule.split("->");
+            heads.add(parts[0].trim());
+            for (String symbol : parts[1].trim().split("\\s+")) {
+                if (!symbol.equals("|")) {
+                    symbols.add(symbol);
+                }
+            }
+        }
+        Grammar grammar = new Grammar(heads.iterator().next());
+        for (String head : heads) {
+            if (!head.equals(grammar.getStartSymbol().getValue())) {
+                grammar.addNonterminal(head);
+            }
+        }
+        for (String symbol : symbols) {
+            if (!heads.contains(symbol)) {
+                grammar.addTerminal(symbol);
+            }
+        }
+        for (String rule : rules) {
+            String[] parts = rule.split("->");
+            // || 是终结符，只有两侧都是空格的 | 分隔产生式体
+            for (String body : parts[1].split("\\s\\|\\s")) {
+                grammar.addExpression(parts[0].trim(),
+                        grammar.generateExpression(body.trim().split("\\s+")));
+            }
+        }
+        return grammar;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.Grammars;
+import com.chaldea.visualparsing.parsing.LL1Parser;
+import com.chaldea.visualparsing.parsing.PredictiveParsingTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文法变换与LL(1)预测分析表的构造时间
+ * <p>消除左递归与提取左公因子会修改传入的文法，每次调用都在文法的副本上进行，
+ * 结果包括复制文法的时间，可以与 {@link TableConstructionBenchmark#cloneGrammar()} 比较。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrammarTransformationBenchmark {
+    @Param({"expression", "json", "java-subset", "precedence-10", "wide-50",
+            "precedence-40", "wide-200"})
+    public String grammarName;
+
+    private Grammar grammar;
+    /**
+     * 消除左递归后的文法
+     */
+    private Grammar nonLeftRecursiveGrammar;
+    /**
+     * 消除左递归并提取左公因子后的文法
+     */
+    private Grammar transformedGrammar;
+
+    @Setup
+    public void setup() {
+        grammar = GrammarCorpus.create(grammarName);
+        nonLeftRecursiveGrammar = (Grammar) grammar.clone();
+        Grammars.eliminateLeftRecursion(nonLeftRecursiveGrammar);
+        transformedGrammar = (Grammar) nonLeftRecursiveGrammar.clone();
+        Grammars.extractingLeftCommonFactors(transformedGrammar);
+    }
+
+    @Benchmark
+    public Grammar eliminateLeftRecursion() {
+        Grammar copy = (Grammar) grammar.clone();
+        Grammars.eliminateLeftRecursion(copy);
+        return copy;
+    }
+
+    /**
+     * 与消除左递归后再提取左公因子的顺序相同
+     */
+    @Benchmark
+    public Grammar extractingLeftCommonFactors() {
+        Grammar copy = (Grammar) nonLeftRecursiveGrammar.clone();
+        Grammars.extractingLeftCommonFactors(copy);
+        return copy;
+    }
+
+    /**
+     * 在变换后的文法上构造预测分析表，不是LL(1)文法时冲突的表项被覆盖
+     */
+    @Benchmark
+    public PredictiveParsingTable predictiveParsingTable() {
+        return new LL1Parser((Grammar) transformedGrammar.clone())
+                .generatePredictiveParsingTable();
+    }
+}
@@ -0,0 +1,107 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.debug.PredictiveAnalyticsAlgorithm;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.Grammars;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.grammar.TokenStream;
+import com.chaldea.visualparsing.parsing.LL1Parser;
+import com.chaldea.visualparsing.parsing.PredictiveParsingTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LL(1)预测分析驱动程序的时间
+ * <p>文法先消除左递归再提取左公因子，只有变换后是LL(1)文法的才能作为参数。
+ * {@link #stepwiseAlgorithm()} 是逐步执行的 {@link PredictiveAnalyticsAlgorithm}，
+ * 用于与 {@link LL1Parser} 比较；{@link #fastForward()} 是其快进。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LL1ParseBenchmark {
+    @Param({"expression", "json", "precedence-10"})
+    public String grammarName;
+
+    @Param({"1000", "100000"})
+    public int tokenCount;
+
+    private Grammar grammar;
+    private String input;
+    private int[] tokens;
+    private List<Terminal> terminals;
+    private LL1Parser parser;
+    private PredictiveParsingTable table;
+
+    @Setup
+    public void setup() {
+        grammar = GrammarCorpus.create(grammarName);
+        Grammars.eliminateLeftRecursion(grammar);
+        Grammars.extractingLeftCommonFactors(grammar);
+        parser = new LL1Parser(grammar);
+        table = parser.generatePredictiveParsingTable();
+        input = GrammarCorpus.generateInput(grammarName, tokenCount);
+        tokens = grammar.getTokenizer().tokenize(input);
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        terminals = new ArrayList<>(tokens.length);
+        for (int token : tokens) {
+            terminals.add(symbolTable.getTerminal(token));
+        }
+        if (!parser.accepts(tokens)) {
+            throw new IllegalStateException(grammarName + "：输入不是文法的句子");
+        }
+    }
+
+    @Benchmark
+    public int ll1Parser() {
+        return parser.parse(tokens, 0, tokens.length, null);
+    }
+
+    /**
+     * 从 Reader 读取字符，边切分边分析
+     */
+    @Benchmark
+    public long tokenStream() throws IOException {
+        return parser.parse(new TokenStream(grammar.getTokenizer(), new StringReader(input)),
+                null);
+    }
+
+    @Benchmark
+    public int stepwiseAlgorithm() {
+        PredictiveAnalyticsAlgorithm algorithm = new PredictiveAnalyticsAlgorithm(table,
+                grammar.getStartSymbol(), terminals);
+        algorithm.reset();
+        while (!algorithm.isExecutionComplete()) {
+            algorithm.executeStep();
+        }
+        return algorithm.getIp();
+    }
+
+    @Benchmark
+    public int fastForward() {
+        PredictiveAnalyticsAlgorithm algorithm = new PredictiveAnalyticsAlgorithm(table,
+                grammar.getStartSymbol(), terminals);
+        algorithm.reset();
+        algorithm.fastForward();
+        return algorithm.getIp();
+    }
+}
@@ -0,0 +1,46 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.parsing.LR0ParsingTable;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LR(0)分析表的构造时间
+ * <p>在非LR(0)文法上构造时抛出冲突异常，所以只使用语料中的LR(0)文法，
+ * 与 {@link TableConstructionBenchmark} 一样在文法的副本上构造。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LR0TableBenchmark {
+    @Param({"json", "wide-50", "wide-200"})
+    public String grammarName;
+
+    private Grammar grammar;
+
+    @Setup
+    public void setup() {
+        grammar = GrammarCorpus.create(grammarName);
+    }
+
+    @Benchmark
+    public LRParsingTable lr0Table() {
+        return new LR0ParsingTable((Grammar) grammar.clone());
+    }
+}
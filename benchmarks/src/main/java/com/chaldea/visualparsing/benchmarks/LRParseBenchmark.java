@@ -0,0 +1,123 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.debug.LRParsingAlgorithm;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.grammar.TokenBuffer;
+import com.chaldea.visualparsing.grammar.TokenStream;
+import com.chaldea.visualparsing.grammar.Tokenizer;
+import com.chaldea.visualparsing.parsing.CompressedParsingTable;
+import com.chaldea.visualparsing.parsing.LALRParsingTable;
+import com.chaldea.visualparsing.parsing.LRParser;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LR语法分析驱动程序与词法分析的时间
+ * <p>分析表为LALR表，在 setup 中构造。{@link #stepwiseAlgorithm()} 是逐步执行的
+ * {@link LRParsingAlgorithm}，用于与 {@link LRParser} 比较；{@link #fastForward()} 是其快进。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LRParseBenchmark {
+    @Param({"expression", "json", "java-subset", "precedence-10", "wide-50"})
+    public String grammarName;
+
+    @Param({"1000", "100000"})
+    public int tokenCount;
+
+    private String input;
+    private int[] tokens;
+    private List<Terminal> terminals;
+    private Tokenizer tokenizer;
+    private LRParsingTable table;
+    private LRParser parser;
+    private LRParser compressedParser;
+    private LRParser.StateStack stack;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setup() {
+        Grammar grammar = GrammarCorpus.create(grammarName);
+        table = new LALRParsingTable(grammar);
+        parser = new LRParser(table);
+        compressedParser = new LRParser(new CompressedParsingTable(table, true),
+                table.getGrammar().getProductionIndex());
+        stack = new LRParser.StateStack();
+        tokenizer = grammar.getTokenizer();
+        input = GrammarCorpus.generateInput(grammarName, tokenCount);
+        tokens = tokenizer.tokenize(input);
+        buffer = new TokenBuffer(tokens.length);
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        terminals = new ArrayList<>(tokens.length);
+        for (int token : tokens) {
+            terminals.add(symbolTable.getTerminal(token));
+        }
+        if (!parser.accepts(tokens) || !compressedParser.accepts(tokens)) {
+            throw new IllegalStateException(grammarName + "：输入不是文法的句子");
+        }
+    }
+
+    @Benchmark
+    public int lrParser() {
+        return parser.parse(stack, tokens, 0, tokens.length, null);
+    }
+
+    @Benchmark
+    public int compressedLRParser() {
+        return compressedParser.parse(stack, tokens, 0, tokens.length, null);
+    }
+
+    @Benchmark
+    public int tokenize() {
+        buffer.clear();
+        return tokenizer.tokenize(input, 0, input.length(), buffer);
+    }
+
+    /**
+     * 从 Reader 读取字符，边切分边分析
+     */
+    @Benchmark
+    public long tokenStream() throws IOException {
+        return parser.parse(stack, new TokenStream(tokenizer, new StringReader(input)), null);
+    }
+
+    @Benchmark
+    public int stepwiseAlgorithm() {
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, terminals);
+        algorithm.reset();
+        while (!algorithm.isExecutionComplete()) {
+            algorithm.executeStep();
+        }
+        return algorithm.getSymbolIndex();
+    }
+
+    @Benchmark
+    public int fastForward() {
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, terminals);
+        algorithm.reset();
+        algorithm.fastForward();
+        return algorithm.getSymbolIndex();
+    }
+}
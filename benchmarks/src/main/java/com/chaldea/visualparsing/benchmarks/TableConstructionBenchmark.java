@@ -0,0 +1,104 @@
+package com.chaldea.visualparsing.benchmarks;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.parsing.CanonicalLR0Collection;
+import com.chaldea.visualparsing.parsing.CompressedParsingTable;
+import com.chaldea.visualparsing.parsing.DeRemerPennelloLALRParsingTable;
+import com.chaldea.visualparsing.parsing.LALRParsingTable;
+import com.chaldea.visualparsing.parsing.LR1Collection;
+import com.chaldea.visualparsing.parsing.LR1ParsingTable;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import com.chaldea.visualparsing.parsing.MinimalLR1ParsingTable;
+import com.chaldea.visualparsing.parsing.SLRParsingTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LR项集族与各种LR语法分析表的构造时间
+ * <p>文法会缓存符号表与FIRST、FOLLOW集，每次调用都在文法的副本上构造，
+ * 副本不包含这些缓存，所以结果包括文法分析的时间。复制文法本身的时间见 {@link #cloneGrammar()}。</p>
+ * <p>LR(0)分析表只能在LR(0)文法上构造，见 {@link LR0TableBenchmark}。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableConstructionBenchmark {
+    @Param({"expression", "json", "java-subset", "precedence-10", "wide-50",
+            "precedence-40", "wide-200"})
+    public String grammarName;
+
+    private Grammar grammar;
+    private LRParsingTable lalrTable;
+
+    @Setup
+    public void setup() {
+        grammar = GrammarCorpus.create(grammarName);
+        lalrTable = new LALRParsingTable(fresh());
+    }
+
+    private Grammar fresh() {
+        return (Grammar) grammar.clone();
+    }
+
+    @Benchmark
+    public Grammar cloneGrammar() {
+        return fresh();
+    }
+
+    @Benchmark
+    public CanonicalLR0Collection canonicalLR0Collection() {
+        return new CanonicalLR0Collection(fresh());
+    }
+
+    @Benchmark
+    public LR1Collection lr1Collection() {
+        return new LR1Collection(fresh());
+    }
+
+    @Benchmark
+    public LRParsingTable slrTable() {
+        return new SLRParsingTable(fresh());
+    }
+
+    @Benchmark
+    public LRParsingTable lalrTable() {
+        return new LALRParsingTable(fresh());
+    }
+
+    @Benchmark
+    public LRParsingTable deRemerPennelloLALRTable() {
+        return new DeRemerPennelloLALRParsingTable(fresh());
+    }
+
+    @Benchmark
+    public LRParsingTable lr1Table() {
+        return new LR1ParsingTable(fresh());
+    }
+
+    @Benchmark
+    public LRParsingTable minimalLR1Table() {
+        return new MinimalLR1ParsingTable(fresh());
+    }
+
+    /**
+     * 只包括压缩的时间，LALR表在 setup 中构造
+     */
+    @Benchmark
+    public CompressedParsingTable compressLALRTable() {
+        return new CompressedParsingTable(lalrTable, true);
+    }
+}
@@ -0,0 +1,135 @@
+package com.chaldea.visualparsing;
+
+/**
+ * 以 {@code long[]} 表示的位集合的工具方法
+ */
+public class BitSetHelper {
+
+    private BitSetHelper() {
+    }
+
+    /**
+     * 创建能容纳 size 个元素的位集合
+     *
+     * @param size the size
+     * @return the long [ ]
+     */
+    public static long[] create(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    public static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 将 source 并入 target
+     *
+     * @param target the target
+     * @param source the source
+     * @return 若 target 发生了变化则返回 true
+     */
+    public static boolean union(long[] target, long[] source) {
+        boolean changed = false;
+        for (int i = 0; i < source.length; i++) {
+            long merged = target[i] | source[i];
+            if (merged != target[i]) {
+                target[i] = merged;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 判断 bits 是否是 other 的子集
+     *
+     * @param bits  the bits
+     * @param other the other
+     * @return the boolean
+     */
+    public static boolean isSubset(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((bits[i] & ~other[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断两个位集合是否有交集
+     *
+     * @param bits  the bits
+     * @param other the other
+     * @return the boolean
+     */
+    public static boolean intersects(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((bits[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 获取 fromIndex 及之后的第一个元素
+     *
+     * @param bits      the bits
+     * @param fromIndex the from index
+     * @return 元素的值，若不存在则返回-1
+     */
+    public static int nextSetBit(long[] bits, int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= bits.length) {
+            return -1;
+        }
+        long word = bits[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == bits.length) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    /**
+     * 获取所有元素，按从小到大排列
+     *
+     * @param bits the bits
+     * @return the int [ ]
+     */
+    public static int[] toArray(long[] bits) {
+        int[] elements = new int[cardinality(bits)];
+        int index = 0;
+        for (int i = nextSetBit(bits, 0); i >= 0; i = nextSetBit(bits, i + 1)) {
+            elements[index++] = i;
+        }
+        return elements;
+    }
+}
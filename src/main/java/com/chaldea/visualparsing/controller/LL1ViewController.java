@@ -7,6 +7,7 @@ import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
 import com.chaldea.visualparsing.grammar.*;
 import com.chaldea.visualparsing.gui.DialogShower;
 import com.chaldea.visualparsing.gui.PredictiveParsingStepData;
+import com.chaldea.visualparsing.gui.TableBuildTask;
 import com.chaldea.visualparsing.parsing.LL1Parser;
 import com.chaldea.visualparsing.debug.PredictiveAnalyticsAlgorithm;
 import com.chaldea.visualparsing.parsing.PredictiveParsingTable;
@@ -75,12 +76,24 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
     private Button resumeButton;
     @FXML
     private Button stepButton;
+    @FXML
+    private Button stepBackButton;
+    @FXML
+    private TextField seekTextField;
 
     private Grammar grammar;
     private LL1Parser ll1Parser;
     private PredictiveParsingTable parsingTable;
+    /**
+     * 正在后台构造的预测分析表，构造完成或失败后为null
+     */
+    private TableBuildTask<PredictiveParsingTable> tableBuildTask;
 
     private final StepwiseAlgorithmDebugger algorithmDebugger;
+    /**
+     * 当前执行轨迹中每个动作的步骤，后退或跳转时表格中只显示其中已经采取的部分
+     */
+    private final List<PredictiveParsingStepData> stepDataHistory = new ArrayList<>();
     /**
      * The Table column list.存放预测分析表中输入符号的列
      */
@@ -117,23 +130,55 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
 
     /**
      * Load grammar. 加载文法
+     * <p>预测分析表在后台线程中由文法的副本构造，完成后才一起替换当前的文法与分析表；
+     * 再次加载时取消还没有完成的构造。</p>
      */
     void loadGrammar() {
-        grammar = ControllerMediator.getInstance().getGrammar();
-        ll1Parser = new LL1Parser(grammar);
-        parsingTable = ll1Parser.generatePredictiveParsingTable();
-        // 生成对应列
-        tableColumnList = new ArrayList<>(grammar.getTerminals().size() + 1);
-        addInputSymbolColumns();
-        // 添加子列
-        inputSymbolColumn.getColumns().setAll(tableColumnList);
-        // 添加数据
-        Set<Pair<Nonterminal, Expression[]>> tableData = new HashSet<>();
-        for (Map.Entry<Nonterminal, Integer> entry : parsingTable.getNonterminalMap().entrySet()) {
-            tableData.add(new Pair<>(entry.getKey(), parsingTable.getTable()[entry.getValue()]));
+        if (tableBuildTask != null) {
+            tableBuildTask.cancel();
         }
+        Grammar snapshot = (Grammar) ControllerMediator.getInstance().getGrammar().clone();
+        LL1Parser parser = new LL1Parser(snapshot);
+        TableBuildTask<PredictiveParsingTable> task =
+                new TableBuildTask<>(parser::generatePredictiveParsingTable);
+        tableBuildTask = task;
+        parsingTable = null;
+        Label placeholder = new Label();
+        placeholder.textProperty().bind(task.messageProperty());
+        tableView.setPlaceholder(placeholder);
         tableView.getItems().clear();
-        tableView.getItems().addAll(tableData);
+        task.setOnSucceeded(event -> {
+            // 已经被之后的构造取代的任务，结果可能在取消之前就已经排入JavaFX应用线程
+            if (tableBuildTask != task) {
+                return;
+            }
+            tableBuildTask = null;
+            grammar = snapshot;
+            ll1Parser = parser;
+            parsingTable = task.getValue();
+            // 生成对应列
+            tableColumnList = new ArrayList<>(grammar.getTerminals().size() + 1);
+            addInputSymbolColumns();
+            // 添加子列
+            inputSymbolColumn.getColumns().setAll(tableColumnList);
+            // 添加数据
+            Set<Pair<Nonterminal, Expression[]>> tableData = new HashSet<>();
+            for (Map.Entry<Nonterminal, Integer> entry : parsingTable.getNonterminalMap().entrySet()) {
+                tableData.add(new Pair<>(entry.getKey(), parsingTable.getTable()[entry.getValue()]));
+            }
+            tableView.getItems().addAll(tableData);
+        });
+        task.setOnFailed(event -> {
+            if (tableBuildTask != task) {
+                return;
+            }
+            tableBuildTask = null;
+            placeholder.textProperty().unbind();
+            placeholder.setText("预测分析表构建失败");
+            logger.error(task.getException().toString());
+            DialogShower.showErrorDialog("预测分析表构建失败：" + task.getException());
+        });
+        task.start();
     }
 
     @Override
@@ -141,11 +186,15 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
         // 向预测预测表中添加一个步骤
         PredictiveAnalyticsAlgorithm algorithm = (PredictiveAnalyticsAlgorithm)
                 algorithmDebugger.getStepwiseAlgorithm();
+        int number = stepView.getItems().size();
+        // 从后退或跳转到的步继续执行，之后的步骤会重新记录
+        stepDataHistory.subList(number, stepDataHistory.size()).clear();
         PredictiveParsingStepData stepData = new PredictiveParsingStepData(
-                algorithm.getIp(), stepView.getItems().size() + 1,
+                algorithm.getIp(), number + 1,
                 algorithm.getStack(), action, head, expression
         );
         logger.debug("stepData: {}", stepData);
+        stepDataHistory.add(stepData);
         stepView.getItems().add(stepData);
     }
 
@@ -187,9 +236,19 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
             DialogShower.showErrorDialog("输入不能为空");
             return;
         }
+        if (parsingTable == null) {
+            DialogShower.showErrorDialog("预测分析表尚未构造完成");
+            return;
+        }
         // 将输入字符串转换为Terminal的列表
-        List<Terminal> inputSymbolList = Grammars
-                .convertStringToTerminalList(grammar, inputStringTextField.getText());
+        List<Terminal> inputSymbolList;
+        try {
+            inputSymbolList = Grammars
+                    .convertStringToTerminalList(grammar, inputStringTextField.getText());
+        } catch (UnknownSymbolException e) {
+            DialogShower.showErrorDialog(e.getMessage());
+            return;
+        }
         PredictiveAnalyticsAlgorithm algorithm = new PredictiveAnalyticsAlgorithm(
                 parsingTable, grammar.getStartSymbol(), inputSymbolList
         );
@@ -198,8 +257,11 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
         PredictiveParsingStepData.setInputSymbols(inputSymbolList);
         // 清除原先的数据
         stepView.getItems().clear();
+        stepDataHistory.clear();
         resumeButton.setDisable(false);
         stepButton.setDisable(false);
+        stepBackButton.setDisable(false);
+        seekTextField.setDisable(false);
         // 开始执行debugger
         algorithmDebugger.start();
     }
@@ -220,6 +282,46 @@ public class LL1ViewController implements PredictiveAnalyticsObserver {
         algorithmDebugger.step();
     }
 
+    /**
+     * Step back debugger.
+     */
+    @FXML
+    private void stepBackDebugger() {
+        algorithmDebugger.stepBack();
+        showRestoredSteps();
+    }
+
+    /**
+     * Seek debugger.
+     * 跳转到步骤表中第n个动作刚采取时的状态，0为开始执行之前
+     */
+    @FXML
+    private void seekDebugger() {
+        String text = seekTextField.getText().strip();
+        if (text.isEmpty()) {
+            return;
+        }
+        algorithmDebugger.completeTrace();
+        int actionCount = algorithmDebugger.getTrace().getActionCount();
+        if (!text.matches("\\d{1,9}") || Integer.parseInt(text) > actionCount) {
+            DialogShower.showErrorDialog("只能跳转到第0至" + actionCount + "步");
+            return;
+        }
+        int number = Integer.parseInt(text);
+        algorithmDebugger.seek(number == 0 ? 0 :
+                algorithmDebugger.getTrace().getActionStep(number - 1));
+        showRestoredSteps();
+    }
+
+    /**
+     * 后退或跳转之后，表格中只保留已经采取的动作
+     */
+    private void showRestoredSteps() {
+        int actionCount = algorithmDebugger.getTrace()
+                .countActions(algorithmDebugger.getCurrentStep());
+        stepView.getItems().setAll(stepDataHistory.subList(0, actionCount));
+    }
+
     /**
      * Add input symbol columns.
      * 添加输入符号对应的列
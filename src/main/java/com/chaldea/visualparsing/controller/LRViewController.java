@@ -1,18 +1,19 @@
 package com.chaldea.visualparsing.controller;
 
-import com.chaldea.visualparsing.ArrayHelper;
 import com.chaldea.visualparsing.debug.LRParsingAlgorithm;
 import com.chaldea.visualparsing.debug.LRParsingObserver;
 import com.chaldea.visualparsing.debug.StepwiseAlgorithmDebugger;
 import com.chaldea.visualparsing.exception.LRConflictException;
 import com.chaldea.visualparsing.exception.LRParsingException;
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
 import com.chaldea.visualparsing.grammar.*;
 import com.chaldea.visualparsing.gui.DialogShower;
+import com.chaldea.visualparsing.gui.GraphEventBuffer;
 import com.chaldea.visualparsing.gui.LRParsingStepData;
+import com.chaldea.visualparsing.gui.ParsingTableGrid;
+import com.chaldea.visualparsing.gui.TableBuildTask;
 import com.chaldea.visualparsing.parsing.*;
 import javafx.application.Platform;
-import javafx.beans.property.ReadOnlyObjectWrapper;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.concurrent.Worker;
@@ -24,11 +25,11 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
-import javafx.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 public class LRViewController implements LRParsingObserver {
     @FXML
@@ -47,23 +48,18 @@ public class LRViewController implements LRParsingObserver {
     private Button resumeButton;
     @FXML
     private Button stepButton;
+    @FXML
+    private Button stepBackButton;
+    @FXML
+    private TextField seekTextField;
 
     /**
-     * The Table view.
-     * Integer 是状态，ActionItem 是表项。在 GOTO 列的表项，
-     * ActionItem 中的 action 无效，只使用 number 代表转换的状态
-     *
-     * <p>也许应该将ActionItem换为LRParsingTable，这样就可以更方便
-     * 的添加表格数据和设置每列的显示</p>
+     * 虚拟化的分析表，只绘制可见的状态与符号
      */
     @FXML
-    private TableView<Pair<Integer, ActionItem[]>> parsingTableView;
-    @FXML
-    private TableColumn<Pair<Integer, ActionItem[]>, Integer> stateColumn;
-    @FXML
-    private TableColumn<Pair<Integer, ActionItem[]>, String> actionColumn;
+    private ParsingTableGrid parsingTableGrid;
     @FXML
-    private TableColumn<Pair<Integer, ActionItem[]>, Integer> gotoColumn;
+    private TextField jumpTextField;
 
     @FXML
     private VBox algorithmVBox;
@@ -85,8 +81,26 @@ public class LRViewController implements LRParsingObserver {
 
     private Grammar grammar;
     private LRParsingTable lrParsingTable;
+    /**
+     * 正在后台构造的分析表，构造完成或失败后为null
+     */
+    private TableBuildTask<LRParsingTable> tableBuildTask;
     private final StepwiseAlgorithmDebugger algorithmDebugger;
     private static final Logger logger = LoggerFactory.getLogger(LRViewController.class);
+    /**
+     * 缓冲的事件达到这个数目时立即刷新，不等到下一帧
+     */
+    private static final int MAX_BUFFERED_EVENTS = 8192;
+    /**
+     * 语法分析树与状态图的事件，以及还没有加入表格的步骤，在下一帧或达到一定数目时一起刷新
+     */
+    private final GraphEventBuffer graphEventBuffer = new GraphEventBuffer();
+    private final List<LRParsingStepData> pendingStepData = new ArrayList<>();
+    /**
+     * 当前执行轨迹中每个动作的步骤，后退或跳转时表格中只显示其中已经采取的部分
+     */
+    private final List<LRParsingStepData> stepDataHistory = new ArrayList<>();
+    private boolean flushScheduled;
 
 
     public LRViewController() {
@@ -97,7 +111,6 @@ public class LRViewController implements LRParsingObserver {
 
     @FXML
     private void initialize() {
-        setStateColumnCellFactory();
         setStepDataColumnsCellFactory();
         Platform.runLater(this::setLayout);
         bindCheckBoxOnAction();
@@ -106,43 +119,88 @@ public class LRViewController implements LRParsingObserver {
 
     /**
      * Sets grammar. 设置相应文法及具体LR文法处理技术
+     * <p>分析表在后台线程中由文法的副本构造，构造期间表格中显示进度，
+     * 完成后才一起替换当前的文法与分析表；再次调用时取消还没有完成的构造。</p>
      */
     void setLRType(LRParsingTable.Type parsingTableType) {
-        grammar = ControllerMediator.getInstance().getGrammar();
-        LRParsingStepData.setGrammar(grammar);
-        try {
-            switch (parsingTableType) {
-                case SLR:
-                    grammarTypeLabel.setText("SLR");
-                    lrParsingTable = new SLRParsingTable(grammar);
-                    break;
-                case LR0:
-                    grammarTypeLabel.setText("LR(0)");
-                    lrParsingTable = new LR0ParsingTable(grammar);
-                    break;
-                case LR1:
-                    grammarTypeLabel.setText("LR(1)");
-                    lrParsingTable = new LR1ParsingTable(grammar);
-                    break;
-                case LALR:
-                    grammarTypeLabel.setText("LALR");
-                    lrParsingTable = new LALRParsingTable(grammar);
-                    break;
-                default:
-                    DialogShower.showErrorDialog("未知的LR类型" + parsingTableType);
-                    break;
-            }
-            setActionColumns();
-            setGotoColumns();
-            setTableViewDate();
-        } catch (LRConflictException e) {
-            logger.error(e.toString());
-            DialogShower.showErrorDialog(grammarTypeLabel.getText() + "分析表构建冲突");
+        Grammar snapshot = (Grammar) ControllerMediator.getInstance().getGrammar().clone();
+        Supplier<LRParsingTable> builder;
+        switch (parsingTableType) {
+            case SLR:
+                grammarTypeLabel.setText("SLR");
+                builder = () -> new SLRParsingTable(snapshot);
+                break;
+            case LR0:
+                grammarTypeLabel.setText("LR(0)");
+                builder = () -> new LR0ParsingTable(snapshot);
+                break;
+            case LR1:
+                grammarTypeLabel.setText("LR(1)");
+                builder = () -> new LR1ParsingTable(snapshot);
+                break;
+            case LALR:
+                grammarTypeLabel.setText("LALR");
+                builder = () -> new LALRParsingTable(snapshot);
+                break;
+            case MINIMAL_LR1:
+                grammarTypeLabel.setText("最小LR(1)");
+                builder = () -> new MinimalLR1ParsingTable(snapshot);
+                break;
+            default:
+                DialogShower.showErrorDialog("未知的LR类型" + parsingTableType);
+                return;
         }
+        if (tableBuildTask != null) {
+            tableBuildTask.cancel();
+        }
+        String tableType = grammarTypeLabel.getText();
+        // 构造完成后压缩存放并释放稠密的数组，不使用默认规约，分析的每一步与压缩前相同
+        TableBuildTask<LRParsingTable> task = new TableBuildTask<>(() -> {
+            LRParsingTable table = builder.get();
+            table.compress(false);
+            return table;
+        });
+        tableBuildTask = task;
+        lrParsingTable = null;
+        parsingTableGrid.setTable(null);
+        parsingTableGrid.placeholderProperty().bind(task.messageProperty());
+        task.setOnSucceeded(event -> {
+            // 已经被之后的构造取代的任务，结果可能在取消之前就已经排入JavaFX应用线程
+            if (tableBuildTask != task) {
+                return;
+            }
+            tableBuildTask = null;
+            grammar = snapshot;
+            LRParsingStepData.setGrammar(grammar);
+            lrParsingTable = task.getValue();
+            parsingTableGrid.placeholderProperty().unbind();
+            parsingTableGrid.setTable(lrParsingTable);
+        });
+        task.setOnFailed(event -> {
+            if (tableBuildTask != task) {
+                return;
+            }
+            tableBuildTask = null;
+            parsingTableGrid.placeholderProperty().unbind();
+            Throwable exception = task.getException();
+            logger.error(exception.toString());
+            if (exception instanceof LRConflictException) {
+                parsingTableGrid.setPlaceholder(tableType + "分析表构建冲突");
+                DialogShower.showErrorDialog(tableType + "分析表构建冲突");
+            } else {
+                parsingTableGrid.setPlaceholder(tableType + "分析表构建失败");
+                DialogShower.showErrorDialog(tableType + "分析表构建失败：" + exception);
+            }
+        });
+        task.start();
     }
 
     @FXML
     private void showLrCollection() {
+        if (lrParsingTable == null) {
+            DialogShower.showErrorDialog("分析表尚未构造完成");
+            return;
+        }
         DialogShower.showInformationDialog(lrParsingTable.getLrCollection().toString());
     }
 
@@ -152,21 +210,36 @@ public class LRViewController implements LRParsingObserver {
             DialogShower.showErrorDialog("输入不能为空");
             return;
         }
+        if (lrParsingTable == null) {
+            DialogShower.showErrorDialog("分析表尚未构造完成");
+            return;
+        }
         // 清除原先的数据
         resetWebView();
+        graphEventBuffer.clear();
+        pendingStepData.clear();
+        stepDataHistory.clear();
         stepDataTableView.getItems().clear();
         // 将输入字符串转换为Terminal的列表
-        List<Terminal> inputSymbolList = Grammars
-                .convertStringToTerminalList(grammar, inputStringTextField.getText());
+        List<Terminal> inputSymbolList;
+        try {
+            inputSymbolList = Grammars
+                    .convertStringToTerminalList(grammar, inputStringTextField.getText());
+        } catch (UnknownSymbolException e) {
+            DialogShower.showErrorDialog(e.getMessage());
+            return;
+        }
         LRParsingAlgorithm algorithm = new LRParsingAlgorithm(
                 lrParsingTable, inputSymbolList
         );
         algorithm.addObserver(this);
         algorithmDebugger.setStepwiseAlgorithm(algorithm);
         LRParsingStepData.setInputSymbols(inputSymbolList);
-        // 设置 继续按钮、向前一步按钮 可点击
+        // 设置 继续按钮、向前一步按钮、后退一步按钮与跳转输入框 可点击
         resumeButton.setDisable(false);
         stepButton.setDisable(false);
+        stepBackButton.setDisable(false);
+        seekTextField.setDisable(false);
         // 开始执行debugger
         algorithmDebugger.start();
     }
@@ -181,95 +254,54 @@ public class LRViewController implements LRParsingObserver {
         algorithmDebugger.step();
     }
 
-    /**
-     * Sets state column cell factory.
-     * 设置表格状态列的数据显示格式
-     */
-    private void setStateColumnCellFactory() {
-        stateColumn.setCellValueFactory(cellData ->
-                new ReadOnlyObjectWrapper<>(cellData.getValue().getKey()));
+    @FXML
+    private void stepBackDebugger() {
+        algorithmDebugger.stepBack();
+        showRestoredState();
     }
 
     /**
-     * Sets action columns.
+     * 跳转到步骤表中第n个动作刚采取时的状态，0为开始执行之前
      */
-    private void setActionColumns() {
-        List<TableColumn<Pair<Integer, ActionItem[]>, String>> actionColumnsList
-                = new ArrayList<>(grammar.getTerminals().size() + 1);
-        Terminal[] actionColumnsHeader = lrParsingTable.getActionColumnsHeader();
-        for (Terminal terminal : actionColumnsHeader) {
-            TableColumn<Pair<Integer, ActionItem[]>, String> temp =
-                    new TableColumn<>(terminal.getValue());
-            temp.setCellValueFactory(cellData -> {
-                int index = ArrayHelper.findIndex(actionColumnsHeader, terminal);
-                ActionItem actionItem = cellData.getValue().getValue()[index];
-                if (actionItem == null) {
-                    return null;
-                }
-                String displayText = switch (actionItem.action()) {
-                    case SHIFT -> "s" + actionItem.number();
-                    case REDUCE -> "r" + actionItem.number();
-                    case ACCEPT -> "acc";
-                };
-                return new SimpleStringProperty(displayText);
-            });
-            temp.setEditable(false);
-            temp.setSortable(false);
-            actionColumnsList.add(temp);
+    @FXML
+    private void seekDebugger() {
+        String text = seekTextField.getText().strip();
+        if (text.isEmpty()) {
+            return;
         }
-        actionColumn.getColumns().clear();
-        actionColumn.getColumns().addAll(actionColumnsList);
-    }
-
-    private void setGotoColumns() {
-        List<TableColumn<Pair<Integer, ActionItem[]>, Integer>> gotoColumnsList
-                = new ArrayList<>(grammar.getNonterminals().size());
-        Nonterminal[] gotoColumnsHeader = lrParsingTable.getGotoColumnsHeader();
-        for (Nonterminal nonterminal : gotoColumnsHeader) {
-            TableColumn<Pair<Integer, ActionItem[]>, Integer> temp = getGotoNonterminalColumn(nonterminal, gotoColumnsHeader);
-            gotoColumnsList.add(temp);
+        algorithmDebugger.completeTrace();
+        int actionCount = algorithmDebugger.getTrace().getActionCount();
+        if (!text.matches("\\d{1,9}") || Integer.parseInt(text) > actionCount) {
+            DialogShower.showErrorDialog("只能跳转到第0至" + actionCount + "步");
+            return;
         }
-        gotoColumn.getColumns().clear();
-        gotoColumn.getColumns().addAll(gotoColumnsList);
+        int number = Integer.parseInt(text);
+        algorithmDebugger.seek(number == 0 ? 0 :
+                algorithmDebugger.getTrace().getActionStep(number - 1));
+        showRestoredState();
     }
 
-    private TableColumn<Pair<Integer, ActionItem[]>, Integer> getGotoNonterminalColumn(Nonterminal nonterminal, Nonterminal[] gotoColumnsHeader) {
-        TableColumn<Pair<Integer, ActionItem[]>, Integer> temp =
-                new TableColumn<>(nonterminal.getValue());
-        int index = ArrayHelper.findIndex(gotoColumnsHeader, nonterminal)
-                + actionColumn.getColumns().size();
-        temp.setCellValueFactory(cellData -> {
-            ActionItem actionItem = cellData.getValue().getValue()[index];
-            return actionItem.number() == -1 ?
-                    null : new ReadOnlyObjectWrapper<>(actionItem.number());
-        });
-        temp.setEditable(false);
-        temp.setSortable(false);
-        return temp;
-    }
-
-    private void setTableViewDate() {
-        Collection<Pair<Integer, ActionItem[]>> dataCollection = new LinkedList<>();
-        for (int i = 0; i < lrParsingTable.getLrCollection().size(); i++) {
-            ActionItem[] actionItems = new ActionItem[actionColumn.getColumns().size()
-                    + gotoColumn.getColumns().size()];
-            System.arraycopy(lrParsingTable.getActionTable()[i], 0,
-                    actionItems, 0, lrParsingTable.getActionTable()[i].length);
-            int index = lrParsingTable.getActionTable()[i].length;
-            for (ItemSet itemSet : lrParsingTable.getGotoTable()[i]) {
-                int number = lrParsingTable.getLrCollection().getItemSetNumber(itemSet);
-                actionItems[index++] = new ActionItem(null, number);
-            }
-            dataCollection.add(new Pair<>(i, actionItems));
+    /**
+     * 在分析表中跳转到输入的状态编号或文法符号，先将输入作为状态编号
+     */
+    @FXML
+    private void jumpInParsingTable() {
+        String text = jumpTextField.getText().strip();
+        if (text.isEmpty() || lrParsingTable == null) {
+            return;
+        }
+        if (text.matches("\\d{1,9}") && parsingTableGrid.scrollToState(Integer.parseInt(text))) {
+            return;
+        }
+        if (!parsingTableGrid.scrollToSymbol(text)) {
+            DialogShower.showErrorDialog("分析表中没有状态或文法符号：" + text);
         }
-        parsingTableView.getItems().clear();
-        parsingTableView.getItems().addAll(dataCollection);
     }
 
     private void setLayout() {
         horizontalSplitPane.prefWidthProperty().bind(rootHBox.widthProperty());
-        parsingTableView.prefWidthProperty().bind(verticalSplitPane.widthProperty().subtract(25));
-        parsingTableView.prefHeightProperty().bind(lrTableAnchorPane.heightProperty().subtract(40));
+        parsingTableGrid.prefWidthProperty().bind(verticalSplitPane.widthProperty().subtract(25));
+        parsingTableGrid.prefHeightProperty().bind(lrTableAnchorPane.heightProperty().subtract(40));
         stepDataTableView.prefHeightProperty().bind(horizontalSplitPane.heightProperty().subtract(405));
         AnchorPane anchorPane = (AnchorPane) stepDataTableView.getParent();
         stepDataTableView.prefWidthProperty().bind(anchorPane.widthProperty().subtract(14));
@@ -283,18 +315,37 @@ public class LRViewController implements LRParsingObserver {
         actionTakenColumn.setCellValueFactory(x -> x.getValue().getAction());
     }
 
+    /**
+     * 后退或跳转之后清空语法分析树与状态图，表格中只保留已经采取的动作，
+     * 再由算法按照恢复后的状态重新通知
+     */
+    private void showRestoredState() {
+        resetWebView();
+        graphEventBuffer.clear();
+        pendingStepData.clear();
+        int actionCount = algorithmDebugger.getTrace()
+                .countActions(algorithmDebugger.getCurrentStep());
+        stepDataTableView.getItems().setAll(stepDataHistory.subList(0, actionCount));
+        ((LRParsingAlgorithm) algorithmDebugger.getStepwiseAlgorithm()).notifyRestoredState();
+    }
+
     @Override
     public void addStepData(ActionItem actionItem) {
         LRParsingAlgorithm algorithm =
                 (LRParsingAlgorithm) algorithmDebugger.getStepwiseAlgorithm();
+        int number = stepDataTableView.getItems().size() + pendingStepData.size();
+        // 从后退或跳转到的步继续执行，之后的步骤会重新记录
+        stepDataHistory.subList(number, stepDataHistory.size()).clear();
         LRParsingStepData stepData = new LRParsingStepData(
                 algorithm.getSymbolIndex(),
-                stepDataTableView.getItems().size() + 1,
+                number + 1,
                 algorithm.getStateStack(),
                 algorithm.getSymbolStack(),
                 actionItem
         );
-        stepDataTableView.getItems().add(stepData);
+        stepDataHistory.add(stepData);
+        pendingStepData.add(stepData);
+        scheduleFlush();
     }
 
     @Override
@@ -312,6 +363,7 @@ public class LRViewController implements LRParsingObserver {
 
     @Override
     public void showException(Exception e) {
+        flushEvents();
         if (e instanceof LRParsingException e1) {
             DialogShower.showErrorDialog("LR语法分析错误：" + e1.getMessage());
         }
@@ -319,42 +371,74 @@ public class LRViewController implements LRParsingObserver {
 
     @Override
     public void completeExecution() {
+        graphEventBuffer.recalculateLevel();
+        flushEvents();
         DialogShower.showInformationDialog("分析完毕");
-        executeJavaScript("recalculateLevel()");
     }
 
     @Override
     public void addNodeToTree(Terminal terminal) {
-        executeJavaScript("addNodeToTree('" + escapeString(terminal.getValue()) + "');");
+        graphEventBuffer.addNodeToTree(terminal.getValue());
+        scheduleFlush();
     }
 
     @Override
     public void addParentNodeToTree(Nonterminal nonterminal, ProductionSymbol... symbols) {
-        StringBuilder script = new StringBuilder();
-        script.append("addParentNodeToTree('").append(escapeString(nonterminal.getValue()))
-                .append("'");
-        for (ProductionSymbol symbol : symbols) {
-            script.append(", '").append(escapeString(symbol.getValue())).append("'");
+        String[] children = new String[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            children[i] = symbols[i].getValue();
         }
-        script.append(");");
-        executeJavaScript(script.toString());
+        graphEventBuffer.addParentNodeToTree(nonterminal.getValue(), children);
+        scheduleFlush();
     }
 
     @Override
     public void initializeParserState(int state) {
-        executeJavaScript("initializeParserStateNode('" + state + "');");
+        graphEventBuffer.initializeParserState(String.valueOf(state));
+        scheduleFlush();
     }
 
     @Override
     public void addNodeToState(String state, ProductionSymbol symbol) {
-        executeJavaScript("addNodeToState('" + state + "', '" +
-                escapeString(symbol.getValue()) + "');");
+        graphEventBuffer.addNodeToState(state, symbol.getValue());
+        scheduleFlush();
     }
 
     @Override
     public void rollbackState(Production production) {
-        executeJavaScript("rollbackState("
-                + production.getBody().get(0).getValue().length + ");");
+        rollbackState(production.getBody().get(0).getValue().length);
+    }
+
+    @Override
+    public void rollbackState(int count) {
+        graphEventBuffer.rollbackState(count);
+        scheduleFlush();
+    }
+
+    /**
+     * 在下一帧刷新缓冲的事件，缓冲的事件过多时立即刷新
+     */
+    private void scheduleFlush() {
+        if (graphEventBuffer.size() + pendingStepData.size() >= MAX_BUFFERED_EVENTS) {
+            flushEvents();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            Platform.runLater(this::flushEvents);
+        }
+    }
+
+    /**
+     * 将缓冲的步骤一次加入表格，缓冲的图的事件作为一批交给 graph.js
+     */
+    private void flushEvents() {
+        flushScheduled = false;
+        if (!pendingStepData.isEmpty()) {
+            stepDataTableView.getItems().addAll(pendingStepData);
+            pendingStepData.clear();
+        }
+        if (!graphEventBuffer.isEmpty()) {
+            executeJavaScript(graphEventBuffer.drain());
+        }
     }
 
     /**
@@ -393,7 +477,7 @@ public class LRViewController implements LRParsingObserver {
         // 如果页面已经加载完成
         if (webEngine.getLoadWorker().getState() == javafx.concurrent.Worker.State.SUCCEEDED) {
             // 直接执行脚本
-            logger.debug("执行js：{}", script);
+            logger.debug("执行js：{}个字符", script.length());
             webEngine.executeScript(script);
             return;
         }
@@ -403,7 +487,7 @@ public class LRViewController implements LRParsingObserver {
             @Override
             public void changed(ObservableValue<? extends Worker.State> observable, javafx.concurrent.Worker.State oldValue, javafx.concurrent.Worker.State newState) {
                 if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
-                    logger.debug("执行js：{}", script);
+                    logger.debug("执行js：{}个字符", script.length());
                     // 页面加载成功后执行的脚本
                     webEngine.executeScript(script);
                     // 执行完毕后移除监听器
@@ -414,22 +498,4 @@ public class LRViewController implements LRParsingObserver {
         // 添加监听器等待页面加载完成
         webEngine.getLoadWorker().stateProperty().addListener(listener);
     }
-
-    /**
-     * Escape string string.对字符串进行转义。
-     * <p>转义其中的'与"及其它特殊符号</p>
-     *
-     * @param string the string
-     * @return the string
-     */
-    private String escapeString(String string) {
-        return string.replace("\\", "\\\\")
-                .replace("'", "\\'")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t")
-                .replace("\b", "\\b")
-                .replace("\f", "\\f");
-    }
 }
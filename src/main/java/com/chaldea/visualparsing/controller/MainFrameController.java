@@ -153,6 +153,13 @@ public class MainFrameController {
         openLRTab();
     }
 
+    @FXML
+    private void setMinimalLR1Tab() {
+        ControllerMediator.getInstance().getLrViewController()
+                .setLRType(LRParsingTable.Type.MINIMAL_LR1);
+        openLRTab();
+    }
+
     private void openLRTab() {
         lrTab.setDisable(false);
         tabPane.getSelectionModel().select(lrTab);
@@ -0,0 +1,356 @@
+package com.chaldea.visualparsing.debug;
+
+import java.util.Arrays;
+
+/**
+ * 分步算法的执行轨迹，可以随机访问任意一步之后的状态
+ * <p>算法的状态由一个 int 栈、输入符号的下标、下一步伪代码的索引与一个寄存器组成，
+ * 栈中的内容与寄存器的含义由算法决定。第0步为 {@link StepwiseAlgorithm#reset()} 之后的状态，
+ * 第k步为执行k次 {@link StepwiseAlgorithm#executeStep()} 之后的状态。</p>
+ * <p>每一步只记录增量：弹出的元素个数、压入的元素、输入符号的下标是否前进以及采取的动作。
+ * 自上一个快照起经过的步数不少于 {@link #MIN_SNAPSHOT_INTERVAL} 且不少于当前栈的深度时，
+ * 保存一份完整的栈作为快照，所以快照的总大小不超过记录的步数，
+ * 而恢复任意一步只需从之前最近的快照开始重放不超过 max(间隔, 栈深度) 步的增量。</p>
+ * <p>动作为非0的整数，其含义同样由算法决定，例如LR分析中为
+ * {@link com.chaldea.visualparsing.parsing.ActionItem#encode} 的结果。</p>
+ */
+public final class ExecutionTrace {
+    /**
+     * 这一步没有采取动作
+     */
+    public static final int NO_ACTION = 0;
+    static final int MIN_SNAPSHOT_INTERVAL = 1024;
+
+    private static final int STEP_INDEX_BITS = 8;
+    private static final int PUSH_COUNT_BITS = 11;
+    private static final int POP_COUNT_BITS = 12;
+    private static final int ADVANCE_BIT = STEP_INDEX_BITS + PUSH_COUNT_BITS + POP_COUNT_BITS;
+
+    /**
+     * 每一步一个，依次为下一步伪代码的索引加一、压入的元素个数、弹出的元素个数与输入是否前进
+     */
+    private int[] headers = new int[256];
+    private int[] registers = new int[256];
+    /**
+     * 记录的状态数，即步数加一
+     */
+    private int stateCount;
+    private int[] pushedValues = new int[256];
+    private int pushedCount;
+    /**
+     * 采取了动作的步与对应的动作，步按从小到大排列
+     */
+    private int[] actionSteps = new int[64];
+    private int[] actions = new int[64];
+    private int actionCount;
+
+    private int[] snapshotSteps = new int[16];
+    private int[] snapshotCursors = new int[16];
+    /**
+     * 快照之后第一步压入的元素在 pushedValues 中的下标
+     */
+    private int[] snapshotPushOffsets = new int[16];
+    private int[][] snapshotStacks = new int[16][];
+    private int snapshotCount;
+
+    /**
+     * 记录时与算法同步变化的栈
+     */
+    private int[] stack = new int[64];
+    private int stackSize;
+    private int cursor;
+    private int stepPushCount;
+    private int stepPopCount;
+
+    /**
+     * 已经记录的步数
+     *
+     * @return the step count
+     */
+    public int getStepCount() {
+        return stateCount - 1;
+    }
+
+    public boolean isEmpty() {
+        return stateCount == 0;
+    }
+
+    /**
+     * 第 step 步采取的动作
+     *
+     * @param step the step
+     * @return the action，没有采取动作时为 {@link #NO_ACTION}
+     */
+    public int getAction(int step) {
+        int index = Arrays.binarySearch(actionSteps, 0, actionCount, step);
+        return index < 0 ? NO_ACTION : actions[index];
+    }
+
+    /**
+     * 采取了动作的步数，即语法分析中的移入、归约、接受等动作的个数
+     *
+     * @return the action count
+     */
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    /**
+     * 第 index 个动作是在第几步采取的
+     *
+     * @param index 从0开始的动作序号
+     * @return the int
+     */
+    public int getActionStep(int index) {
+        if (index < 0 || index >= actionCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return actionSteps[index];
+    }
+
+    /**
+     * 第 step 步及之前采取的动作的个数
+     *
+     * @param step the step
+     * @return the int
+     */
+    public int countActions(int step) {
+        int index = Arrays.binarySearch(actionSteps, 0, actionCount, step);
+        return index < 0 ? -index - 1 : index + 1;
+    }
+
+    /**
+     * 从最近的快照开始重放增量，得到第 step 步之后的状态
+     *
+     * @param step  the step
+     * @param frame 用于存放结果，其中的栈会被复用
+     * @return the frame
+     */
+    public Frame replay(int step, Frame frame) {
+        if (step < 0 || step >= stateCount) {
+            throw new IndexOutOfBoundsException(step);
+        }
+        int snapshot = findSnapshot(step);
+        int[] snapshotStack = snapshotStacks[snapshot];
+        frame.ensureCapacity(snapshotStack.length);
+        System.arraycopy(snapshotStack, 0, frame.stack, 0, snapshotStack.length);
+        frame.stackSize = snapshotStack.length;
+        int frameCursor = snapshotCursors[snapshot];
+        int offset = snapshotPushOffsets[snapshot];
+        for (int i = snapshotSteps[snapshot] + 1; i <= step; i++) {
+            int header = headers[i];
+            int pushCount = pushCountOf(header);
+            frame.stackSize -= popCountOf(header);
+            frame.ensureCapacity(frame.stackSize + pushCount);
+            System.arraycopy(pushedValues, offset, frame.stack, frame.stackSize, pushCount);
+            frame.stackSize += pushCount;
+            offset += pushCount;
+            frameCursor += header >>> ADVANCE_BIT;
+        }
+        frame.step = step;
+        frame.stepIndex = stepIndexOf(headers[step]);
+        frame.cursor = frameCursor;
+        frame.register = registers[step];
+        return frame;
+    }
+
+    /**
+     * 清空轨迹，之后的压栈等操作属于第0步
+     */
+    void clear() {
+        stateCount = 0;
+        pushedCount = 0;
+        actionCount = 0;
+        snapshotCount = 0;
+        stackSize = 0;
+        cursor = 0;
+        stepPushCount = 0;
+        stepPopCount = 0;
+    }
+
+    void push(int value) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize << 1);
+        }
+        stack[stackSize++] = value;
+        if (pushedCount == pushedValues.length) {
+            pushedValues = Arrays.copyOf(pushedValues, pushedCount << 1);
+        }
+        pushedValues[pushedCount++] = value;
+        stepPushCount++;
+    }
+
+    void pop(int count) {
+        // 弹出这一步刚压入的元素时只需撤销压入
+        int undone = Math.min(count, stepPushCount);
+        pushedCount -= undone;
+        stepPushCount -= undone;
+        stepPopCount += count - undone;
+        stackSize -= count;
+    }
+
+    /**
+     * 结束当前的一步
+     *
+     * @param stepIndex 下一步伪代码的索引，执行结束或出错时可以为-1或步骤数
+     * @param cursor    当前输入符号的下标，每一步最多前进1
+     * @param register  算法需要在步之间保存的值
+     * @param action    这一步采取的动作，没有时为 {@link #NO_ACTION}
+     */
+    void commit(int stepIndex, int cursor, int register, int action) {
+        int advance = cursor - this.cursor;
+        if (stateCount > 0 && advance != 0 && advance != 1) {
+            throw new IllegalStateException("输入符号的下标每一步最多前进1");
+        }
+        if (stepIndex + 1 < 0 || stepIndex + 1 >= 1 << STEP_INDEX_BITS
+                || stepPushCount >= 1 << PUSH_COUNT_BITS
+                || stepPopCount >= 1 << POP_COUNT_BITS) {
+            throw new IllegalStateException("一步中的伪代码索引或压栈、弹栈的个数超出范围");
+        }
+        if (stateCount == headers.length) {
+            headers = Arrays.copyOf(headers, stateCount << 1);
+            registers = Arrays.copyOf(registers, stateCount << 1);
+        }
+        int step = stateCount++;
+        headers[step] = (stepIndex + 1)
+                | stepPushCount << STEP_INDEX_BITS
+                | stepPopCount << (STEP_INDEX_BITS + PUSH_COUNT_BITS)
+                | (step == 0 ? 0 : advance) << ADVANCE_BIT;
+        registers[step] = register;
+        this.cursor = cursor;
+        stepPushCount = 0;
+        stepPopCount = 0;
+        if (action != NO_ACTION) {
+            if (actionCount == actionSteps.length) {
+                actionSteps = Arrays.copyOf(actionSteps, actionCount << 1);
+                actions = Arrays.copyOf(actions, actionCount << 1);
+            }
+            actionSteps[actionCount] = step;
+            actions[actionCount++] = action;
+        }
+        if (step == 0 || step - snapshotSteps[snapshotCount - 1]
+                >= Math.max(MIN_SNAPSHOT_INTERVAL, stackSize)) {
+            addSnapshot(step);
+        }
+    }
+
+    /**
+     * 删除第 step 步之后的记录，之后从第 step 步继续记录
+     *
+     * @param step the step
+     */
+    void truncate(int step) {
+        if (step >= stateCount - 1) {
+            return;
+        }
+        Frame frame = replay(step, new Frame());
+        snapshotCount = findSnapshot(step) + 1;
+        int offset = snapshotPushOffsets[snapshotCount - 1];
+        for (int i = snapshotSteps[snapshotCount - 1] + 1; i <= step; i++) {
+            offset += pushCountOf(headers[i]);
+        }
+        pushedCount = offset;
+        actionCount = countActions(step);
+        stateCount = step + 1;
+        stack = Arrays.copyOf(frame.stack, Math.max(frame.stackSize, 1));
+        stackSize = frame.stackSize;
+        cursor = frame.cursor;
+        stepPushCount = 0;
+        stepPopCount = 0;
+    }
+
+    private void addSnapshot(int step) {
+        if (snapshotCount == snapshotSteps.length) {
+            int capacity = snapshotCount << 1;
+            snapshotSteps = Arrays.copyOf(snapshotSteps, capacity);
+            snapshotCursors = Arrays.copyOf(snapshotCursors, capacity);
+            snapshotPushOffsets = Arrays.copyOf(snapshotPushOffsets, capacity);
+            snapshotStacks = Arrays.copyOf(snapshotStacks, capacity);
+        }
+        snapshotSteps[snapshotCount] = step;
+        snapshotCursors[snapshotCount] = cursor;
+        snapshotPushOffsets[snapshotCount] = pushedCount;
+        snapshotStacks[snapshotCount++] = Arrays.copyOf(stack, stackSize);
+    }
+
+    /**
+     * 不晚于 step 的最后一个快照
+     */
+    private int findSnapshot(int step) {
+        int index = Arrays.binarySearch(snapshotSteps, 0, snapshotCount, step);
+        return index < 0 ? -index - 2 : index;
+    }
+
+    private static int stepIndexOf(int header) {
+        return (header & (1 << STEP_INDEX_BITS) - 1) - 1;
+    }
+
+    private static int pushCountOf(int header) {
+        return header >>> STEP_INDEX_BITS & (1 << PUSH_COUNT_BITS) - 1;
+    }
+
+    private static int popCountOf(int header) {
+        return header >>> (STEP_INDEX_BITS + PUSH_COUNT_BITS) & (1 << POP_COUNT_BITS) - 1;
+    }
+
+    /**
+     * 某一步之后的算法状态，由 {@link #replay(int, Frame)} 填充
+     */
+    public static final class Frame {
+        private int[] stack = new int[64];
+        private int stackSize;
+        private int step;
+        private int stepIndex;
+        private int cursor;
+        private int register;
+
+        public int getStep() {
+            return step;
+        }
+
+        /**
+         * 下一步伪代码的索引
+         *
+         * @return the step index
+         */
+        public int getStepIndex() {
+            return stepIndex;
+        }
+
+        /**
+         * 当前输入符号的下标
+         *
+         * @return the cursor
+         */
+        public int getCursor() {
+            return cursor;
+        }
+
+        public int getRegister() {
+            return register;
+        }
+
+        public int getStackSize() {
+            return stackSize;
+        }
+
+        /**
+         * 栈中的元素
+         *
+         * @param index 从栈底开始的下标
+         * @return the int
+         */
+        public int getStackElement(int index) {
+            if (index < 0 || index >= stackSize) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return stack[index];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(capacity, stack.length << 1));
+            }
+        }
+    }
+}
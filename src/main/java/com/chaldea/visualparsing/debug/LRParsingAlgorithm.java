@@ -3,9 +3,11 @@ package com.chaldea.visualparsing.debug;
 import com.chaldea.visualparsing.exception.LRParsingException;
 import com.chaldea.visualparsing.grammar.*;
 import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.LRParser;
 import com.chaldea.visualparsing.parsing.LRParsingTable;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * The type Lr parsing algorithm.LR语法分析算法
@@ -28,6 +30,23 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
      */
     private int symbolIndex;
 
+    /**
+     * 最近一次移入的状态或归约的表达式编号，在执行轨迹中作为寄存器保存
+     */
+    private int actionNumber;
+    /**
+     * 当前这一步采取的动作，记录到执行轨迹中
+     */
+    private int stepAction;
+    /**
+     * 已经采取的动作个数，快进时跳过这些动作
+     */
+    private int actionCount;
+    /**
+     * 快进时使用的分析器，与 lrParsingTable 对应
+     */
+    private LRParser parser;
+
     private final List<LRParsingObserver> observers;
 
     private LRParsingAlgorithm() {
@@ -62,10 +81,17 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
 
     public void setLrParsingTable(LRParsingTable lrParsingTable) {
         this.lrParsingTable = lrParsingTable;
+        parser = null;
     }
 
+    /**
+     * 设置输入符号，在其副本的末尾加上结束标记，不会修改 inputSymbols
+     *
+     * @param inputSymbols the input symbols
+     */
     public void setInputSymbols(List<Terminal> inputSymbols) {
-        this.inputSymbols = inputSymbols;
+        this.inputSymbols = new ArrayList<>(inputSymbols.size() + 1);
+        this.inputSymbols.addAll(inputSymbols);
         this.inputSymbols.add(Terminal.END_MARKER);
     }
 
@@ -79,7 +105,15 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
         symbol = inputSymbols.get(0);
         stateStack.push(0);
         symbolIndex = 0;
-        observers.forEach(observer -> {
+        actionNumber = 0;
+        stepAction = ExecutionTrace.NO_ACTION;
+        actionCount = 0;
+        if (trace != null) {
+            trace.clear();
+            trace.push(0);
+            trace.commit(currentStepIndex, symbolIndex, actionNumber, stepAction);
+        }
+        notifyObservers(observer -> {
             observer.showNextAlgorithmStep(0);
             observer.initializeParserState(0);
         });
@@ -89,7 +123,157 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
     public void executeStep() {
         lastStepReturnValue =
                 algorithmStepList.get(currentStepIndex++).execute(lastStepReturnValue);
-        observers.forEach(observer -> observer.showNextAlgorithmStep(currentStepIndex));
+        if (trace != null) {
+            trace.commit(currentStepIndex, symbolIndex, actionNumber, stepAction);
+        }
+        stepAction = ExecutionTrace.NO_ACTION;
+        notifyObservers(observer -> observer.showNextAlgorithmStep(currentStepIndex));
+    }
+
+    /**
+     * 执行轨迹中的栈从底部开始依次为状态0，以及每次压栈时的状态与文法符号的统一编码；
+     * 寄存器为最近一次动作的编号，用于恢复上一步的返回值
+     */
+    @Override
+    protected void restore(ExecutionTrace.Frame frame) {
+        SymbolTable symbolTable = lrParsingTable.getSymbolTable();
+        stateStack.clear();
+        symbolStack.clear();
+        for (int i = 0; i < frame.getStackSize(); i++) {
+            if (i % 2 == 0 && i > 0) {
+                symbolStack.push(symbolTable.getSymbol(frame.getStackElement(i)));
+            } else {
+                stateStack.push(frame.getStackElement(i));
+            }
+        }
+        changeSymbol(frame.getCursor());
+        state = stateStack.isEmpty() ? 0 : stateStack.peek();
+        actionNumber = frame.getRegister();
+        stepAction = ExecutionTrace.NO_ACTION;
+        actionCount = trace.countActions(frame.getStep());
+        currentStepIndex = frame.getStepIndex();
+        // 各步骤的返回值只取决于下一步的位置与最近一次动作的编号
+        lastStepReturnValue = switch (currentStepIndex) {
+            case 2 -> new Object[]{actionNumber};
+            case 5 -> new Object[]{new ActionItem(ActionItem.Action.REDUCE, actionNumber)};
+            case 6, 7, 8 -> new Object[]{
+                    Grammars.getExpression(lrParsingTable.getGrammar(), actionNumber)};
+            default -> null;
+        };
+        int nextStep = isExecutionComplete() ? -1 : currentStepIndex;
+        notifyObservers(observer -> observer.showNextAlgorithmStep(nextStep));
+    }
+
+    /**
+     * 恢复到执行轨迹中的某一步之后，按照当前的状态重新通知观察者
+     * <p>{@link #restore(ExecutionTrace.Frame)} 只通知下一步的位置。清空界面之后调用此方法，
+     * 观察者依次收到已经完成的动作对应的语法分析树的变化，以及与当前状态栈一致的状态图；
+     * 刚采取、还没有执行完的移入或归约不产生语法分析树的节点，与逐步执行时一致。</p>
+     */
+    public void notifyRestoredState() {
+        int completedActions = actionCount;
+        if (actionCount > 0) {
+            ActionItem.Action lastAction = ActionItem.actionOf(
+                    trace.getAction(trace.getActionStep(actionCount - 1)));
+            // 移入在第3步、归约在第8步执行完之后，语法分析树中才有相应的节点
+            boolean shifting = lastAction == ActionItem.Action.SHIFT
+                    && currentStepIndex >= 2 && currentStepIndex <= 3;
+            boolean reducing = lastAction == ActionItem.Action.REDUCE
+                    && currentStepIndex >= 5 && currentStepIndex <= 8;
+            if (shifting || reducing) {
+                completedActions--;
+            }
+        }
+        int shiftIndex = 0;
+        boolean accepted = false;
+        for (int i = 0; i < completedActions; i++) {
+            ActionItem actionItem = ActionItem.decode(trace.getAction(trace.getActionStep(i)));
+            switch (actionItem.action()) {
+                case SHIFT -> {
+                    Terminal terminal = inputSymbols.get(shiftIndex++);
+                    notifyObservers(observer -> observer.addNodeToTree(terminal));
+                }
+                case REDUCE -> notifyReduction(
+                        Grammars.getExpression(lrParsingTable.getGrammar(), actionItem.number()));
+                case ACCEPT -> accepted = true;
+            }
+        }
+        int[] states = getStates();
+        notifyObservers(observer -> observer.initializeParserState(states[0]));
+        Iterator<ProductionSymbol> symbols = symbolStack.descendingIterator();
+        for (int i = 1; i < states.length; i++) {
+            // 移入的状态已经压栈而文法符号还没有压栈时，边上的符号为当前输入符号
+            ProductionSymbol edge = symbols.hasNext() ? symbols.next() : symbol;
+            String node = String.valueOf(states[i]);
+            notifyObservers(observer -> observer.addNodeToState(node, edge));
+        }
+        if (accepted) {
+            notifyObservers(observer -> {
+                observer.completeExecution();
+                observer.addNodeToState("accept", symbol);
+            });
+        }
+        int nextStep = isExecutionComplete() ? -1 : currentStepIndex;
+        notifyObservers(observer -> observer.showNextAlgorithmStep(nextStep));
+    }
+
+    /**
+     * 用 {@link LRParser} 分析整个输入串，再依次应用其中尚未采取的动作
+     * <p>只能在每一轮循环开始时（下一步为第0步）快进。观察者依次收到每个动作的步骤信息
+     * 与语法分析树的变化；状态图只在最后根据最终的状态栈更新一次。</p>
+     */
+    @Override
+    public boolean fastForward() {
+        if (currentStepIndex != 0) {
+            return false;
+        }
+        SymbolTable symbolTable = lrParsingTable.getSymbolTable();
+        int inputLength = inputSymbols.size() - 1;
+        int[] tokens = new int[inputLength];
+        for (int i = 0; i < inputLength; i++) {
+            tokens[i] = symbolTable.getTerminalId(inputSymbols.get(i));
+        }
+        if (parser == null) {
+            parser = new LRParser(lrParsingTable);
+        }
+        ReductionLog reductions = new ReductionLog();
+        int result = parser.parse(tokens, 0, inputLength, reductions);
+        // 状态图中的节点与当前的状态栈一致
+        int[] graphStates = getStates();
+        // 向前看符号为 position 时先进行其上的规约，再移入该符号
+        int action = 0;
+        int reduction = 0;
+        for (int position = 0; ; position++) {
+            for (; reduction < reductions.size
+                    && reductions.positions[reduction] == position; reduction++) {
+                if (action++ >= actionCount) {
+                    fastReduce(reductions.productions[reduction]);
+                }
+            }
+            if (position == result || position == inputLength) {
+                break;
+            }
+            if (action++ >= actionCount) {
+                fastShift(symbolTable.getTerminalId(symbol));
+            }
+        }
+        updateStateGraph(graphStates);
+        state = stateStack.peek();
+        ActionItem actionItem = lrParsingTable.action(state, symbol);
+        if (result == LRParser.ACCEPTED) {
+            actionCount++;
+            notifyObservers(observer -> {
+                observer.addStepData(actionItem);
+                observer.completeExecution();
+                observer.addNodeToState("accept", symbol);
+            });
+        } else {
+            notifyObservers(observer ->
+                    observer.showException(new LRParsingException(errorMessage(actionItem))));
+        }
+        lastStepReturnValue = null;
+        completeExecution();
+        return true;
     }
 
     public void addObserver(LRParsingObserver observer) {
@@ -138,7 +322,10 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
                 currentStepIndex += 2;
                 return null;
             }
-            observers.forEach(observer -> observer.addStepData(actionItem));
+            actionNumber = actionItem.number();
+            actionCount++;
+            stepAction = ActionItem.encode(actionItem);
+            notifyObservers(observer -> observer.addStepData(actionItem));
             return new Object[]{actionItem.number()};
         };
     }
@@ -153,7 +340,10 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
         return parameters -> {
             int t = (Integer) parameters[0];
             stateStack.push(t);
-            observers.forEach(observer -> observer.addNodeToState(String.valueOf(t),
+            if (trace != null) {
+                trace.push(t);
+            }
+            notifyObservers(observer -> observer.addNodeToState(String.valueOf(t),
                     symbol));
             return null;
         };
@@ -167,6 +357,9 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
     private AlgorithmStep letABeTheNextInputSymbol() {
         return parameters -> {
             symbolStack.push(symbol);
+            if (trace != null) {
+                trace.push(lrParsingTable.getSymbolTable().getSymbolCode(symbol));
+            }
             toNextSymbol();
             currentStepIndex = 0;
             return null;
@@ -180,7 +373,10 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
                 currentStepIndex += 4;
                 return null;
             }
-            observers.forEach(observer -> observer.addStepData(actionItem));
+            actionNumber = actionItem.number();
+            actionCount++;
+            stepAction = ActionItem.encode(actionItem);
+            notifyObservers(observer -> observer.addStepData(actionItem));
             return new Object[]{actionItem};
         };
     }
@@ -198,7 +394,10 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
                 symbolStack.pop();
                 stateStack.pop();
             }
-            observers.forEach(observer -> observer.rollbackState(production));
+            if (trace != null) {
+                trace.pop(2 * production.getBody().get(0).length());
+            }
+            notifyObservers(observer -> observer.rollbackState(production));
             return new Object[]{production};
         };
     }
@@ -225,7 +424,11 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
             int newState = lrParsingTable.go(stateStack.peek(), production.getHead());
             stateStack.push(newState);
             symbolStack.push(production.getHead());
-            observers.forEach(observer ->
+            if (trace != null) {
+                trace.push(newState);
+                trace.push(lrParsingTable.getSymbolTable().getSymbolCode(production.getHead()));
+            }
+            notifyObservers(observer ->
                     observer.addNodeToState(String.valueOf(newState), production.getHead()));
             return parameters;
         };
@@ -238,14 +441,7 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
      */
     private AlgorithmStep outputProduction() {
         return parameters -> {
-            Production production = (Production) parameters[0];
-            // 判断产生式体是否为ε
-            if (Terminal.EMPTY_STRING.equals(production.getBody().get(0).get(0))) {
-                observers.forEach(observer ->
-                        observer.addNodeToTree(Terminal.EMPTY_STRING));
-            }
-            observers.forEach(observer -> observer.addParentNodeToTree(production.getHead(),
-                    production.getBody().get(0).getValue()));
+            notifyReduction((Production) parameters[0]);
             currentStepIndex = 0;
             return null;
         };
@@ -255,7 +451,9 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
         return parameters -> {
             ActionItem actionItem = lrParsingTable.action(state, symbol);
             if (actionItem != null && actionItem.action() == ActionItem.Action.ACCEPT) {
-                observers.forEach(observer -> {
+                stepAction = ActionItem.encode(actionItem);
+                actionCount++;
+                notifyObservers(observer -> {
                     observer.addStepData(actionItem);
                     observer.completeExecution();
                     observer.addNodeToState("accept", symbol);
@@ -269,15 +467,110 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
     private AlgorithmStep elseErrorRecovery() {
         return parameters -> {
             ActionItem actionItem = lrParsingTable.action(state, symbol);
-            String string = "ACTION[" + stateStack.peek() + "," + symbol.getValue() +
-                    "]=" + (actionItem == null ? "NULL" : ActionItem.toString(actionItem));
-            observers.forEach(observer ->
+            String string = errorMessage(actionItem);
+            notifyObservers(observer ->
                     observer.showException(new LRParsingException(string)));
             completeExecution();
             return null;
         };
     }
 
+    private String errorMessage(ActionItem actionItem) {
+        return "ACTION[" + stateStack.peek() + "," + symbol.getValue() +
+                "]=" + (actionItem == null ? "NULL" : ActionItem.toString(actionItem));
+    }
+
+    /**
+     * 快进时移入当前输入符号，观察者收到步骤信息与语法分析树的节点
+     */
+    private void fastShift(int terminalId) {
+        ActionItem actionItem =
+                ActionItem.decode(lrParsingTable.action(stateStack.peek(), terminalId));
+        actionNumber = actionItem.number();
+        actionCount++;
+        notifyObservers(observer -> observer.addStepData(actionItem));
+        stateStack.push(actionItem.number());
+        symbolStack.push(symbol);
+        toNextSymbol();
+    }
+
+    /**
+     * 快进时按第 number 个表达式规约，观察者收到步骤信息与语法分析树的节点
+     */
+    private void fastReduce(int number) {
+        ActionItem actionItem = new ActionItem(ActionItem.Action.REDUCE, number);
+        actionNumber = number;
+        actionCount++;
+        notifyObservers(observer -> observer.addStepData(actionItem));
+        Production production = Grammars.getExpression(lrParsingTable.getGrammar(), number);
+        ProductionSymbol[] body = production.getBody().get(0).getValue();
+        boolean empty = Terminal.EMPTY_STRING.equals(body[0]);
+        if (!empty) {
+            for (int i = 0; i < body.length; i++) {
+                symbolStack.pop();
+                stateStack.pop();
+            }
+        }
+        stateStack.push(lrParsingTable.go(stateStack.peek(), production.getHead()));
+        symbolStack.push(production.getHead());
+        notifyReduction(production);
+    }
+
+    /**
+     * 按产生式A→β规约时，观察者收到语法分析树的变化，β为ε时先加入ε节点
+     */
+    private void notifyReduction(Production production) {
+        ProductionSymbol[] body = production.getBody().get(0).getValue();
+        if (Terminal.EMPTY_STRING.equals(body[0])) {
+            notifyObservers(observer -> observer.addNodeToTree(Terminal.EMPTY_STRING));
+        }
+        notifyObservers(observer -> observer.addParentNodeToTree(production.getHead(), body));
+    }
+
+    /**
+     * 快进结束后更新状态图：回退到与当前状态栈相同的部分，再依次加入之后的节点
+     *
+     * @param graphStates 快进前状态图中从起始节点开始的各个状态
+     */
+    private void updateStateGraph(int[] graphStates) {
+        int[] states = getStates();
+        int common = 0;
+        while (common < graphStates.length && common < states.length
+                && graphStates[common] == states[common]) {
+            common++;
+        }
+        int rollback = graphStates.length - common;
+        if (rollback > 0) {
+            notifyObservers(observer -> observer.rollbackState(rollback));
+        }
+        Iterator<ProductionSymbol> symbols = symbolStack.descendingIterator();
+        for (int i = 1; i < states.length; i++) {
+            ProductionSymbol edge = symbols.next();
+            if (i >= common) {
+                String node = String.valueOf(states[i]);
+                notifyObservers(observer -> observer.addNodeToState(node, edge));
+            }
+        }
+    }
+
+    /**
+     * 状态栈中从栈底开始的各个状态
+     */
+    private int[] getStates() {
+        int[] states = new int[stateStack.size()];
+        Iterator<Integer> iterator = stateStack.descendingIterator();
+        for (int i = 0; i < states.length; i++) {
+            states[i] = iterator.next();
+        }
+        return states;
+    }
+
+    private void notifyObservers(Consumer<LRParsingObserver> action) {
+        if (!isSilent()) {
+            observers.forEach(action);
+        }
+    }
+
     /**
      * Change symbol.
      *
@@ -292,12 +585,31 @@ public class LRParsingAlgorithm extends StepwiseAlgorithm {
      * To next symbol.
      */
     private void toNextSymbol() {
-        observers.forEach(observer -> observer.addNodeToTree(symbol));
+        notifyObservers(observer -> observer.addNodeToTree(symbol));
         changeSymbol(symbolIndex + 1);
     }
 
     private void completeExecution() {
         currentStepIndex = algorithmStepList.size();
-        observers.forEach(observer -> observer.showNextAlgorithmStep(-1));
+        notifyObservers(observer -> observer.showNextAlgorithmStep(-1));
+    }
+
+    /**
+     * 按顺序记录 {@link LRParser} 的每次规约
+     */
+    private static final class ReductionLog implements LRParser.ReductionListener {
+        private int[] productions = new int[64];
+        private int[] positions = new int[64];
+        private int size;
+
+        @Override
+        public void reduce(int production, int position) {
+            if (size == productions.length) {
+                productions = Arrays.copyOf(productions, size << 1);
+                positions = Arrays.copyOf(positions, size << 1);
+            }
+            productions[size] = production;
+            positions[size++] = position;
+        }
     }
 }
@@ -66,4 +66,10 @@ public interface LRParsingObserver {
      * @param production 归约用的产生式
      */
     void rollbackState(Production production);
+
+    /**
+     * 回退语法分析器状态，快进结束后一次回退多个节点
+     * @param count 回退的节点个数
+     */
+    void rollbackState(int count);
 }
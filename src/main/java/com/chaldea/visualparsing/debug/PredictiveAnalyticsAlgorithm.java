@@ -4,19 +4,32 @@ import com.chaldea.visualparsing.exception.NullPredictivParsingCellException;
 import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
 import com.chaldea.visualparsing.grammar.Expression;
 import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.Production;
 import com.chaldea.visualparsing.grammar.ProductionSymbol;
+import com.chaldea.visualparsing.grammar.SymbolTable;
 import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.parsing.LL1Parser;
 import com.chaldea.visualparsing.parsing.PredictiveParsingTable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 预测分析算法
  */
 public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
+    /**
+     * 执行轨迹中匹配的动作，用表达式替换非终结符的动作为表达式编号
+     */
+    public static final int MATCH_ACTION = -1;
+    /**
+     * 执行轨迹中接受的动作
+     */
+    public static final int ACCEPT_ACTION = -2;
 
     private final PredictiveParsingTable predictiveTable;
     private final Nonterminal startSymbol;
@@ -32,6 +45,15 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
 
     private ProductionSymbol X;
 
+    /**
+     * 当前这一步采取的动作，记录到执行轨迹中
+     */
+    private int stepAction;
+    /**
+     * 已经采取的匹配与替换动作的个数，快进时跳过这些动作
+     */
+    private int actionCount;
+
     public PredictiveAnalyticsAlgorithm(PredictiveParsingTable table,
                                         Nonterminal startSymbol,
                                         List<Terminal> input) {
@@ -74,24 +96,151 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
         stack.push(Terminal.END_MARKER);
         stack.push(startSymbol);
         X = stack.peek();
-        observers.forEach(observer -> observer.showNextAlgorithmStep(0));
+        stepAction = ExecutionTrace.NO_ACTION;
+        actionCount = 0;
+        if (trace != null) {
+            trace.clear();
+            tracePush(Terminal.END_MARKER);
+            tracePush(startSymbol);
+            trace.commit(currentStepIndex, ip, 0, stepAction);
+        }
+        notifyObservers(observer -> observer.showNextAlgorithmStep(0));
     }
 
     @Override
     public void executeStep() {
         lastStepReturnValue =
                 algorithmStepList.get(currentStepIndex++).execute(lastStepReturnValue);
-        observers.forEach(observer -> observer.showNextAlgorithmStep(currentStepIndex));
+        if (trace != null) {
+            trace.commit(currentStepIndex, ip, 0, stepAction);
+        }
+        stepAction = ExecutionTrace.NO_ACTION;
+        notifyObservers(observer -> observer.showNextAlgorithmStep(currentStepIndex));
+    }
+
+    /**
+     * 执行轨迹中的栈为文法符号的统一编码；X 被读取时总是栈顶的符号，所以不需要寄存器
+     */
+    @Override
+    protected void restore(ExecutionTrace.Frame frame) {
+        SymbolTable symbolTable = predictiveTable.getSymbolTable();
+        stack.clear();
+        for (int i = 0; i < frame.getStackSize(); i++) {
+            stack.push(symbolTable.getSymbol(frame.getStackElement(i)));
+        }
+        X = stack.peek();
+        ip = frame.getCursor();
+        stepAction = ExecutionTrace.NO_ACTION;
+        actionCount = trace.countActions(frame.getStep());
+        currentStepIndex = frame.getStepIndex();
+        lastStepReturnValue = null;
+        int nextStep = isExecutionComplete() ? -1 : currentStepIndex;
+        notifyObservers(observer -> observer.showNextAlgorithmStep(nextStep));
+    }
+
+    /**
+     * 用 {@link LL1Parser} 分析整个输入串，再依次应用其中尚未采取的替换与匹配动作
+     * <p>只能在每一轮循环开始时（下一步为第0步）快进，观察者依次收到每个动作的步骤信息
+     * 以及最后的接受或出错。与逐步执行相同，栈中只剩结束标记时即接受。</p>
+     */
+    @Override
+    public boolean fastForward() {
+        if (currentStepIndex != 0) {
+            return false;
+        }
+        SymbolTable symbolTable = predictiveTable.getSymbolTable();
+        int inputLength = inputSymbols.size() - 1;
+        int[] tokens = new int[inputLength];
+        for (int i = 0; i < inputLength; i++) {
+            tokens[i] = symbolTable.getTerminalId(inputSymbols.get(i));
+        }
+        DerivationLog derivations = new DerivationLog();
+        int result = LL1Parser.parse(predictiveTable, startSymbol, tokens, 0, inputLength,
+                derivations);
+        // 输入符号为 position 时先进行其上的替换，再匹配该符号
+        int action = 0;
+        int derivation = 0;
+        for (int position = 0; ; position++) {
+            for (; derivation < derivations.size
+                    && derivations.positions[derivation] == position; derivation++) {
+                if (action++ >= actionCount) {
+                    fastReplace(derivations.productions[derivation]);
+                }
+            }
+            if (position == result || position == inputLength) {
+                break;
+            }
+            if (action++ >= actionCount) {
+                fastMatch();
+            }
+        }
+        lastStepReturnValue = null;
+        if (X.equals(Terminal.END_MARKER)) {
+            completeExecution();
+            notifyObservers(observer ->
+                    observer.addStepData(PredictiveAnalyticsObserver.ACCEPT, null, null));
+            notifyObservers(PredictiveAnalyticsObserver::completeExecution);
+            return true;
+        }
+        abortExecution();
+        Terminal inputSymbol = inputSymbols.get(ip);
+        Exception exception = X instanceof Terminal
+                ? new UnknownSymbolException(X.getValue())
+                : new NullPredictivParsingCellException((Nonterminal) X, inputSymbol);
+        notifyObservers(observer -> observer.showException(exception));
+        return true;
+    }
+
+    /**
+     * 快进时用第 number 个表达式替换栈顶的非终结符
+     */
+    private void fastReplace(int number) {
+        Production production = predictiveTable.getProductionIndex().getProduction(number);
+        Expression expression = production.getBody().get(0);
+        actionCount++;
+        notifyObservers(observer -> observer.addStepData(PredictiveAnalyticsObserver.REPLACE,
+                production.getHead(), expression));
+        stack.pop();
+        ProductionSymbol[] body = expression.getValue();
+        for (int i = body.length - 1; i >= 0; i--) {
+            if (!Terminal.EMPTY_STRING.equals(body[i])) {
+                stack.push(body[i]);
+            }
+        }
+        X = stack.peek();
+    }
+
+    /**
+     * 快进时匹配栈顶的终结符与当前输入符号
+     */
+    private void fastMatch() {
+        actionCount++;
+        notifyObservers(observer ->
+                observer.addStepData(PredictiveAnalyticsObserver.MATCH, null, null));
+        stack.pop();
+        ip += 1;
+        X = stack.peek();
+    }
+
+    private void notifyObservers(Consumer<PredictiveAnalyticsObserver> action) {
+        if (!isSilent()) {
+            observers.forEach(action);
+        }
+    }
+
+    private void tracePush(ProductionSymbol symbol) {
+        trace.push(predictiveTable.getSymbolTable().getSymbolCode(symbol));
     }
 
     private AlgorithmStep judgeXNotEqualsEndMarker() {
         return parameters -> {
             if (X.equals(Terminal.END_MARKER)) {
+                stepAction = ACCEPT_ACTION;
                 completeExecution();
-                observers.forEach(observer ->
+                notifyObservers(observer ->
                         observer.addStepData(PredictiveAnalyticsObserver.ACCEPT, null,
                                 null));
-                observers.forEach(PredictiveAnalyticsObserver::completeExecution);
+                notifyObservers(PredictiveAnalyticsObserver::completeExecution);
             }
             return null;
         };
@@ -100,11 +249,16 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
     private AlgorithmStep ifXEqualsIpSymbol() {
         return parameters -> {
             if (X.equals(inputSymbols.get(ip))) {
-                observers.forEach(observer ->
+                notifyObservers(observer ->
                         observer.addStepData(PredictiveAnalyticsObserver.MATCH,
                                 null, null));
                 stack.pop();
                 ip += 1;
+                stepAction = MATCH_ACTION;
+                actionCount++;
+                if (trace != null) {
+                    trace.pop(1);
+                }
                 currentStepIndex = algorithmStepList.size() - 1;
             }
             return null;
@@ -115,7 +269,7 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
         return parameters -> {
             if (X instanceof Terminal) {
                 abortExecution();
-                observers.forEach(observer ->
+                notifyObservers(observer ->
                         observer.showException(new UnknownSymbolException(X.getValue())));
             }
             return null;
@@ -124,11 +278,9 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
 
     private AlgorithmStep elseIfMIsAWrongItem() {
         return parameters -> {
-            try {
-                predictiveTable.get((Nonterminal) X, inputSymbols.get(ip));
-            } catch (NullPointerException e) {
+            if (predictiveTable.get((Nonterminal) X, inputSymbols.get(ip)) == null) {
                 abortExecution();
-                observers.forEach(observer ->
+                notifyObservers(observer ->
                         observer.showException(new NullPredictivParsingCellException(
                                 (Nonterminal) X,
                                 inputSymbols.get(ip)
@@ -142,10 +294,11 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
         return parameters -> {
             Expression expression = predictiveTable.get((Nonterminal) X,
                     inputSymbols.get(ip));
-            observers.forEach(observer ->
+            notifyObservers(observer ->
                     observer.addStepData(PredictiveAnalyticsObserver.REPLACE,
                             (Nonterminal) X, expression));
             stack.pop();
+            actionCount++;
             ProductionSymbol[] body = expression.getValue();
             for (int i = body.length - 1; i >= 0; i--) {
                 if (Terminal.EMPTY_STRING.equals(body[i])) {
@@ -153,6 +306,18 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
                 }
                 stack.push(body[i]);
             }
+            if (trace != null) {
+                SymbolTable symbolTable = predictiveTable.getSymbolTable();
+                stepAction = predictiveTable.getProduction(
+                        symbolTable.getNonterminalId((Nonterminal) X),
+                        symbolTable.getTerminalId(inputSymbols.get(ip)));
+                trace.pop(1);
+                for (int i = body.length - 1; i >= 0; i--) {
+                    if (!Terminal.EMPTY_STRING.equals(body[i])) {
+                        tracePush(body[i]);
+                    }
+                }
+            }
             return null;
         };
     }
@@ -172,7 +337,7 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
     private void abortExecution() {
         // -1 代表执行异常
         currentStepIndex = -1;
-        observers.forEach(observer -> observer.showNextAlgorithmStep(-1));
+        notifyObservers(observer -> observer.showNextAlgorithmStep(-1));
     }
 
     /**
@@ -180,7 +345,25 @@ public class PredictiveAnalyticsAlgorithm extends StepwiseAlgorithm {
      */
     private void completeExecution() {
         currentStepIndex = algorithmStepList.size();
-        observers.forEach(observer -> observer.showNextAlgorithmStep(-1));
+        notifyObservers(observer -> observer.showNextAlgorithmStep(-1));
     }
 
+    /**
+     * 按顺序记录 {@link LL1Parser} 的每次推导
+     */
+    private static final class DerivationLog implements LL1Parser.DerivationListener {
+        private int[] productions = new int[64];
+        private int[] positions = new int[64];
+        private int size;
+
+        @Override
+        public void derive(int production, int position) {
+            if (size == productions.length) {
+                productions = Arrays.copyOf(productions, size << 1);
+                positions = Arrays.copyOf(positions, size << 1);
+            }
+            productions[size] = production;
+            positions[size++] = position;
+        }
+    }
 }
@@ -17,6 +17,15 @@ public abstract class StepwiseAlgorithm {
      * The Last step return value.
      */
     protected Object[] lastStepReturnValue;
+    /**
+     * 执行轨迹，为null时不记录
+     */
+    protected ExecutionTrace trace;
+    private final ExecutionTrace.Frame frame = new ExecutionTrace.Frame();
+    /**
+     * 为true时不通知观察者
+     */
+    private boolean silent;
 
     public AlgorithmStep getAlgorithmStep(int index) {
         return algorithmStepList.get(index);
@@ -35,6 +44,49 @@ public abstract class StepwiseAlgorithm {
         return currentStepIndex;
     }
 
+    public ExecutionTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * 设置执行轨迹，从下一次 {@link #reset()} 开始记录每一步的状态变化
+     *
+     * @param trace the trace，为null时不记录
+     */
+    public void setTrace(ExecutionTrace trace) {
+        this.trace = trace;
+    }
+
+    public boolean isSilent() {
+        return silent;
+    }
+
+    /**
+     * 设置是否静默执行，静默时算法照常执行与记录执行轨迹，但不通知观察者
+     *
+     * @param silent the silent
+     */
+    public void setSilent(boolean silent) {
+        this.silent = silent;
+    }
+
+    /**
+     * 恢复到执行轨迹中第 step 步之后的状态，不会重新执行算法，也不会修改轨迹
+     * <p>观察者只会收到下一步伪代码的索引</p>
+     *
+     * @param step 不大于 {@link ExecutionTrace#getStepCount()}
+     */
+    public void restore(int step) {
+        restore(trace.replay(step, frame));
+    }
+
+    /**
+     * 根据执行轨迹中的状态设置算法的状态
+     *
+     * @param frame the frame
+     */
+    protected abstract void restore(ExecutionTrace.Frame frame);
+
     /**
      * 设置状态为未执行，以及执行一些算法初始化操作
      */
@@ -45,6 +97,17 @@ public abstract class StepwiseAlgorithm {
      */
     public abstract void executeStep();
 
+    /**
+     * 快进到执行结束，不再逐步执行伪代码
+     * <p>用批量的分析器完成剩下的分析，只向观察者补发最终界面需要的事件，
+     * 不通知每一步伪代码的位置，也不记录执行轨迹。</p>
+     *
+     * @return 当前位置可以快进并已执行结束时返回true；返回false时没有任何改变，应继续逐步执行
+     */
+    public boolean fastForward() {
+        return false;
+    }
+
     /**
      * Is execution complete boolean.
      * 判断当前算法是否执行完毕
@@ -5,18 +5,39 @@ import java.util.Set;
 
 /**
  * The type Stepwise algorithm debugger.
+ * <p>执行算法时记录执行轨迹（{@link ExecutionTrace}），已经执行过的步可以通过 {@link #seek(int)}
+ * 直接恢复，包括向后退回，不会重新执行算法。在已经执行过的某一步继续执行时，
+ * 丢弃这一步之后的记录并重新记录。</p>
+ * <p>没有断点时不会中途停下，{@link #start()} 与 {@link #resume()} 通过
+ * {@link StepwiseAlgorithm#fastForward()} 直接执行到结束，观察者只收到最终界面需要的事件。
+ * 快进的部分不记录执行轨迹，{@link #seek(int)} 与 {@link #stepBack()} 会先静默地执行补全，
+ * 其他需要全部执行轨迹的调用者需要显式地调用 {@link #completeTrace()}。</p>
  */
 public class StepwiseAlgorithmDebugger {
+    /**
+     * 快进之后补全执行轨迹之前，当前所在的步未知，已经超出记录的部分
+     */
+    public static final int UNKNOWN_STEP = -1;
     private StepwiseAlgorithm stepwiseAlgorithm;
     private final Set<Integer> breakpointSet;
+    private final ExecutionTrace trace;
+    /**
+     * 算法当前处于执行轨迹中的第几步
+     */
+    private int currentStep;
+    /**
+     * 算法已经快进到结束，执行轨迹只记录到 currentStep
+     */
+    private boolean fastForwarded;
 
     public StepwiseAlgorithmDebugger(StepwiseAlgorithm stepwiseAlgorithm) {
         this();
-        this.stepwiseAlgorithm = stepwiseAlgorithm;
+        setStepwiseAlgorithm(stepwiseAlgorithm);
     }
 
     public StepwiseAlgorithmDebugger() {
         breakpointSet = new HashSet<>();
+        trace = new ExecutionTrace();
     }
 
     public StepwiseAlgorithm getStepwiseAlgorithm() {
@@ -25,6 +46,40 @@ public class StepwiseAlgorithmDebugger {
 
     public void setStepwiseAlgorithm(StepwiseAlgorithm stepwiseAlgorithm) {
         this.stepwiseAlgorithm = stepwiseAlgorithm;
+        stepwiseAlgorithm.setTrace(trace);
+        trace.clear();
+        currentStep = 0;
+        fastForwarded = false;
+    }
+
+    /**
+     * Gets trace.
+     * <p>快进之后只记录到快进开始时的一步，见 {@link #isTraceComplete()}</p>
+     *
+     * @return the trace
+     */
+    public ExecutionTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * 算法当前处于第几步，第0步为开始执行之前
+     * <p>快进之后算法已经执行结束，但快进跳过的步数只有补全执行轨迹后才知道，
+     * 这时返回 {@link #UNKNOWN_STEP}，调用 {@link #completeTrace()} 之后为最后一步</p>
+     *
+     * @return the current step，快进之后执行轨迹补全之前为 {@link #UNKNOWN_STEP}
+     */
+    public int getCurrentStep() {
+        return fastForwarded ? UNKNOWN_STEP : currentStep;
+    }
+
+    /**
+     * 执行轨迹是否记录到了算法当前的状态，快进之后直到调用 {@link #completeTrace()} 为止为false
+     *
+     * @return the boolean
+     */
+    public boolean isTraceComplete() {
+        return !fastForwarded;
     }
 
     /**
@@ -32,10 +87,9 @@ public class StepwiseAlgorithmDebugger {
      */
     public void start() {
         stepwiseAlgorithm.reset();
-        while (!breakpointSet.contains(stepwiseAlgorithm.currentStepIndex) &&
-                !stepwiseAlgorithm.isExecutionComplete()) {
-            stepwiseAlgorithm.executeStep();
-        }
+        currentStep = 0;
+        fastForwarded = false;
+        run();
     }
 
     /**
@@ -45,7 +99,7 @@ public class StepwiseAlgorithmDebugger {
         if (stepwiseAlgorithm.isExecutionComplete()) {
             return;
         }
-        stepwiseAlgorithm.executeStep();
+        executeStep();
     }
 
     /**
@@ -53,12 +107,47 @@ public class StepwiseAlgorithmDebugger {
      */
     public void resume() {
         if (!stepwiseAlgorithm.isExecutionComplete()) {
-            stepwiseAlgorithm.executeStep();
+            executeStep();
         }
-        while (!breakpointSet.contains(stepwiseAlgorithm.getCurrentStepIndex()) &&
-                !stepwiseAlgorithm.isExecutionComplete()) {
-            stepwiseAlgorithm.executeStep();
+        run();
+    }
+
+    /**
+     * Step back.退回到上一步
+     */
+    public void stepBack() {
+        completeTrace();
+        if (currentStep > 0) {
+            seek(currentStep - 1);
+        }
+    }
+
+    /**
+     * Seek.转到第 step 步之后的状态
+     * <p>已经记录的步从最近的快照重放增量恢复，不会通知观察者这些步中发生的变化；
+     * 超出记录的部分从最后记录的一步继续执行算法，算法执行结束时停止</p>
+     *
+     * @param step the step
+     * @return 实际到达的步
+     */
+    public int seek(int step) {
+        if (step < 0) {
+            throw new IndexOutOfBoundsException(step);
+        }
+        completeTrace();
+        if (trace.isEmpty()) {
+            stepwiseAlgorithm.reset();
+            currentStep = 0;
+        }
+        int recordedStep = Math.min(step, trace.getStepCount());
+        if (recordedStep != currentStep) {
+            stepwiseAlgorithm.restore(recordedStep);
+            currentStep = recordedStep;
         }
+        while (currentStep < step && !stepwiseAlgorithm.isExecutionComplete()) {
+            executeStep();
+        }
+        return currentStep;
     }
 
     /**
@@ -73,4 +162,47 @@ public class StepwiseAlgorithmDebugger {
         }
     }
 
+    /**
+     * 执行到断点或结束，没有断点时快进
+     */
+    private void run() {
+        while (!breakpointSet.contains(stepwiseAlgorithm.getCurrentStepIndex()) &&
+                !stepwiseAlgorithm.isExecutionComplete()) {
+            if (breakpointSet.isEmpty()) {
+                trace.truncate(currentStep);
+                if (stepwiseAlgorithm.fastForward()) {
+                    fastForwarded = true;
+                    return;
+                }
+            }
+            executeStep();
+        }
+    }
+
+    /**
+     * 快进之后从最后记录的一步开始静默地执行到结束，补全执行轨迹，没有快进时什么也不做
+     * <p>算法是确定的，执行结束时的状态与快进的结果相同。需要重新执行快进跳过的每一步，
+     * 所以只应在需要随机访问全部步骤时调用</p>
+     */
+    public void completeTrace() {
+        if (!fastForwarded) {
+            return;
+        }
+        fastForwarded = false;
+        stepwiseAlgorithm.setSilent(true);
+        try {
+            stepwiseAlgorithm.restore(currentStep);
+            while (!stepwiseAlgorithm.isExecutionComplete()) {
+                executeStep();
+            }
+        } finally {
+            stepwiseAlgorithm.setSilent(false);
+        }
+    }
+
+    private void executeStep() {
+        trace.truncate(currentStep);
+        stepwiseAlgorithm.executeStep();
+        currentStep++;
+    }
 }
@@ -5,6 +5,9 @@ import com.chaldea.visualparsing.exception.grammar.IllegalSymbolException;
 import com.chaldea.visualparsing.exception.grammar.RepeatedSymbolException;
 import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
 
@@ -12,10 +15,13 @@ import java.util.*;
  * 文法
  */
 public class Grammar implements Serializable, Cloneable {
+    @Serial
+    private static final long serialVersionUID = 1993248420392991573L;
+
     /**
      * 产生式集合
-     * <p>当产生式的数量很大时，可以将 {@code List<Production>} 改为
-     * {@code Map<Nonterminal, Production>} 来提高性能</p>
+     * <p>按产生式头的查找通过 {@link #productionMap} 完成，表达式编号的查找通过
+     * {@link #getProductionIndex()} 完成。直接修改该列表不会更新这些索引，应使用本类的方法</p>
      */
     private List<Production> productions;
     /**
@@ -30,6 +36,26 @@ public class Grammar implements Serializable, Cloneable {
      * 开始符号
      */
     private Nonterminal startSymbol;
+    /**
+     * 符号表，在符号集合变化后置为 {@code null}，使用时再重新生成
+     */
+    private transient SymbolTable symbolTable;
+    /**
+     * 产生式头到产生式的映射，为 {@code null} 时使用前重新生成
+     */
+    private transient Map<Nonterminal, Production> productionMap;
+    /**
+     * 表达式编号索引，在产生式或符号集合变化后置为 {@code null}，使用时再重新生成
+     */
+    private transient ProductionIndex productionIndex;
+    /**
+     * FIRST/FOLLOW/NULLABLE 的分析结果，在文法任何部分变化后置为 {@code null}，使用时再重新计算
+     */
+    private transient GrammarAnalysis grammarAnalysis;
+    /**
+     * 词法分析器，在符号集合变化后置为 {@code null}，使用时再重新生成
+     */
+    private transient Tokenizer tokenizer;
 
     /**
      * Instantiates a new Grammar.
@@ -47,8 +73,8 @@ public class Grammar implements Serializable, Cloneable {
      */
     public Grammar(Nonterminal start) {
         productions = new ArrayList<>();
-        nonterminals = new HashSet<>();
-        terminals = new HashSet<>();
+        nonterminals = new LinkedHashSet<>();
+        terminals = new LinkedHashSet<>();
         nonterminals.add(start);
         startSymbol = start;
     }
@@ -69,6 +95,7 @@ public class Grammar implements Serializable, Cloneable {
      */
     public void setProductions(List<Production> productions) {
         this.productions = productions;
+        attachProductions();
     }
 
     /**
@@ -87,6 +114,7 @@ public class Grammar implements Serializable, Cloneable {
      */
     public void setNonterminals(Set<Nonterminal> nonterminals) {
         this.nonterminals = nonterminals;
+        symbolsModified();
     }
 
     /**
@@ -104,8 +132,8 @@ public class Grammar implements Serializable, Cloneable {
      * @param terminals the terminals
      */
     public void setTerminals(Set<Terminal> terminals) {
-
         this.terminals = terminals;
+        symbolsModified();
     }
 
     /**
@@ -117,6 +145,68 @@ public class Grammar implements Serializable, Cloneable {
         return startSymbol;
     }
 
+    /**
+     * Gets symbol table.获取当前符号集合对应的符号表
+     * <p>符号集合没有变化时，多次调用返回同一个对象</p>
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        if (symbolTable == null) {
+            symbolTable = new SymbolTable(terminals, nonterminals);
+        }
+        return symbolTable;
+    }
+
+    /**
+     * Gets tokenizer.获取当前终结符集合对应的词法分析器
+     * <p>符号集合没有变化时，多次调用返回同一个对象</p>
+     *
+     * @return the tokenizer
+     */
+    public Tokenizer getTokenizer() {
+        if (tokenizer == null) {
+            tokenizer = new Tokenizer(getSymbolTable());
+        }
+        return tokenizer;
+    }
+
+    /**
+     * Gets production index.获取当前产生式对应的表达式编号索引
+     * <p>文法没有变化时，多次调用返回同一个对象</p>
+     *
+     * @return the production index
+     */
+    public ProductionIndex getProductionIndex() {
+        if (productionIndex == null) {
+            productionIndex = new ProductionIndex(productions, getSymbolTable());
+        }
+        return productionIndex;
+    }
+
+    /**
+     * Gets grammar analysis.获取当前文法的 FIRST/FOLLOW/NULLABLE 分析结果
+     * <p>文法没有变化时，多次调用返回同一个对象</p>
+     *
+     * @return the grammar analysis
+     */
+    public GrammarAnalysis getGrammarAnalysis() {
+        if (grammarAnalysis == null) {
+            grammarAnalysis = new GrammarAnalysis(this);
+        }
+        return grammarAnalysis;
+    }
+
+    /**
+     * Gets production.获取以head为头的产生式
+     *
+     * @param head the head
+     * @return 产生式，若不存在则返回 {@code null}
+     */
+    public Production getProduction(Nonterminal head) {
+        return getProductionMap().get(head);
+    }
+
     /**
      * Gets production symbol.获取ProductionSymbol对象
      *
@@ -125,17 +215,11 @@ public class Grammar implements Serializable, Cloneable {
      * @throws UnknownSymbolException 不包含该value的文法符号
      */
     public ProductionSymbol getProductionSymbol(String value) {
-        for (Nonterminal nonterminal : nonterminals) {
-            if (nonterminal.getValue().equals(value)) {
-                return nonterminal;
-            }
-        }
-        for (Terminal terminal : terminals) {
-            if (terminal.getValue().equals(value)) {
-                return terminal;
-            }
+        ProductionSymbol symbol = getSymbolTable().getProductionSymbol(value);
+        if (symbol == null) {
+            throw new UnknownSymbolException("不包含value为" + value + "的文法符号");
         }
-        throw new UnknownSymbolException("不包含value为" + value + "的文法符号");
+        return symbol;
     }
 
     /**
@@ -201,12 +285,11 @@ public class Grammar implements Serializable, Cloneable {
      * @return the nonterminal
      */
     public Nonterminal getNonterminal(String value) {
-        for (Nonterminal nonterminal : nonterminals) {
-            if (nonterminal.getValue().equals(value)) {
-                return nonterminal;
-            }
+        int id = getSymbolTable().getNonterminalId(value);
+        if (id == -1) {
+            throw new UnknownSymbolException();
         }
-        throw new UnknownSymbolException();
+        return symbolTable.getNonterminal(id);
     }
 
     /**
@@ -216,12 +299,12 @@ public class Grammar implements Serializable, Cloneable {
      * @return the terminal
      */
     public Terminal getTerminal(String value) {
-        for (Terminal terminal : terminals) {
-            if (terminal.getValue().equals(value)) {
-                return terminal;
-            }
+        int id = getSymbolTable().getTerminalId(value);
+        // 结束标记不属于文法的终结符集合
+        if (id == -1 || id == symbolTable.getEndMarkerId()) {
+            throw new UnknownSymbolException();
         }
-        throw new UnknownSymbolException();
+        return symbolTable.getTerminal(id);
     }
 
     /**
@@ -234,6 +317,7 @@ public class Grammar implements Serializable, Cloneable {
             throw new IllegalSymbolException("开始符号必须为一个非终结符");
         }
         this.startSymbol = startSymbol;
+        grammarAnalysis = null;
     }
 
     /**
@@ -257,6 +341,7 @@ public class Grammar implements Serializable, Cloneable {
             throw new IllegalSymbolException("不可添加结束标记" + Terminal.END_MARKER.getValue());
         }
         terminals.add(symbol);
+        symbolsModified();
     }
 
     /**
@@ -275,6 +360,7 @@ public class Grammar implements Serializable, Cloneable {
      * @return the boolean
      */
     public boolean removeTerminal(Terminal symbol) {
+        symbolsModified();
         return terminals.remove(symbol);
     }
 
@@ -299,6 +385,7 @@ public class Grammar implements Serializable, Cloneable {
             throw new IllegalSymbolException("值不能同结束标记" + Terminal.END_MARKER.getValue() + "相同");
         }
         nonterminals.add(symbol);
+        symbolsModified();
     }
 
     /**
@@ -316,6 +403,7 @@ public class Grammar implements Serializable, Cloneable {
      * @return the boolean
      */
     public boolean removeNonterminal(Nonterminal symbol) {
+        symbolsModified();
         return nonterminals.remove(symbol);
     }
 
@@ -350,15 +438,17 @@ public class Grammar implements Serializable, Cloneable {
         if (!checkExpressionSymbols(exp)) {
             throw new IllegalSymbolException("表达式中含有非法符号");
         }
-        for (Production production : productions) {
-            if (production.getHead().equals(head)) {
-                production.addExpression(exp);
-                return;
-            }
+        Production production = getProductionMap().get(head);
+        if (production != null) {
+            production.addExpression(exp);
+            return;
         }
         Production p = new Production(head);
         p.addExpression(exp);
+        p.setOwner(this);
         productions.add(p);
+        productionMap.put(head, p);
+        productionsModified();
     }
 
     /**
@@ -381,14 +471,16 @@ public class Grammar implements Serializable, Cloneable {
      * @param exp  the exp
      */
     public void deleteExpression(Nonterminal head, Expression exp) {
-        for (Production p : productions) {
-            if (p.getHead().equals(head)) {
-                p.eraseExpression(exp);
-                if (p.getBody().isEmpty()) {
-                    productions.remove(p);
-                }
-                break;
-            }
+        Production p = getProductionMap().get(head);
+        if (p == null) {
+            return;
+        }
+        p.eraseExpression(exp);
+        if (p.getBody().isEmpty()) {
+            productions.remove(p);
+            productionMap.remove(head);
+            p.setOwner(null);
+            productionsModified();
         }
     }
 
@@ -413,10 +505,9 @@ public class Grammar implements Serializable, Cloneable {
         }
         // 若修改前后，产生式头部不变，则替换相应产生式的表达式
         if (oldHead.equals(newHead)) {
-            for (Production production : productions) {
-                if (production.getHead().equals(newHead)) {
-                    production.modifyExpression(oldExpression, newExpression);
-                }
+            Production production = getProductionMap().get(newHead);
+            if (production != null) {
+                production.modifyExpression(oldExpression, newExpression);
             }
         } else {
             // 若产生式头部变化，先去除对应产生式中表达式，再增添新产生式的表达式
@@ -468,8 +559,10 @@ public class Grammar implements Serializable, Cloneable {
     public Object clone() {
         try {
             Grammar clone = (Grammar) super.clone();
-            clone.terminals = new HashSet<>(this.terminals);
-            clone.nonterminals = new HashSet<>(this.nonterminals);
+            clone.terminals = new LinkedHashSet<>(this.terminals);
+            clone.nonterminals = new LinkedHashSet<>(this.nonterminals);
+            // 复制后的集合迭代顺序不变，符号表可以共享
+            clone.symbolTable = this.symbolTable;
             clone.startSymbol = this.startSymbol;
             clone.productions = new ArrayList<>();
             for (Production production : this.productions) {
@@ -479,6 +572,7 @@ public class Grammar implements Serializable, Cloneable {
                 }
                 clone.productions.add(cloneProduction);
             }
+            clone.attachProductions();
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
@@ -501,6 +595,61 @@ public class Grammar implements Serializable, Cloneable {
         return stringBuilder.toString();
     }
 
+    /**
+     * 产生式体发生了变化，由 {@link Production} 调用
+     */
+    void productionsModified() {
+        productionIndex = null;
+        grammarAnalysis = null;
+    }
+
+    /**
+     * 产生式头发生了变化，由 {@link Production} 调用
+     */
+    void productionHeadChanged() {
+        productionMap = null;
+        productionIndex = null;
+        grammarAnalysis = null;
+    }
+
+    /**
+     * 符号集合发生了变化
+     */
+    private void symbolsModified() {
+        symbolTable = null;
+        tokenizer = null;
+        productionIndex = null;
+        grammarAnalysis = null;
+    }
+
+    private Map<Nonterminal, Production> getProductionMap() {
+        if (productionMap == null) {
+            productionMap = new HashMap<>(productions.size() * 2);
+            for (Production production : productions) {
+                productionMap.putIfAbsent(production.getHead(), production);
+            }
+        }
+        return productionMap;
+    }
+
+    /**
+     * 使产生式变化时通知本文法，并清除产生式相关的索引
+     */
+    private void attachProductions() {
+        for (Production production : productions) {
+            production.setOwner(this);
+        }
+        productionMap = null;
+        productionIndex = null;
+        grammarAnalysis = null;
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        attachProductions();
+    }
+
     /**
      * 检查表达式中符号是否已经被包含在相应的符号集合中
      * @param expression 表达式
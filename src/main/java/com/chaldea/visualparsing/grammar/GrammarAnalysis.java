@@ -0,0 +1,354 @@
+package com.chaldea.visualparsing.grammar;
+
+import com.chaldea.visualparsing.BitSetHelper;
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+
+import java.util.*;
+
+/**
+ * 文法分析结果，一次性计算出文法所有非终结符的 NULLABLE、FIRST 与 FOLLOW
+ * <p>FIRST 与 FOLLOW 集合以 {@code long[]} 位集合表示，位的下标为 {@link SymbolTable}
+ * 中的终结符编号（含结束标记）。ε 不放在位集合中，由 NULLABLE 表示。</p>
+ *
+ * <p>三者都通过工作表进行不动点迭代，所以对于 FOLLOW 之间的循环依赖也能得到正确结果。
+ * 计算基于文法在某一时刻的快照，通过 {@link Grammar#getGrammarAnalysis()} 获取，
+ * 文法变化后会被自动丢弃并在下次获取时重新计算。</p>
+ */
+public final class GrammarAnalysis {
+    private final SymbolTable symbolTable;
+    private final ProductionIndex productionIndex;
+    private final Nonterminal startSymbol;
+    /**
+     * 下标为非终结符编号
+     */
+    private final boolean[] nullable;
+    private final long[][] firstSets;
+    private final long[][] followSets;
+
+    /**
+     * Instantiates a new Grammar analysis.
+     *
+     * @param grammar the grammar
+     */
+    GrammarAnalysis(Grammar grammar) {
+        symbolTable = grammar.getSymbolTable();
+        productionIndex = grammar.getProductionIndex();
+        startSymbol = grammar.getStartSymbol();
+        int nonterminalCount = symbolTable.getNonterminalCount();
+        nullable = new boolean[nonterminalCount];
+        firstSets = new long[nonterminalCount][];
+        followSets = new long[nonterminalCount][];
+        for (int i = 0; i < nonterminalCount; i++) {
+            firstSets[i] = BitSetHelper.create(symbolTable.getInputSymbolCount());
+            followSets[i] = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        }
+        computeNullable();
+        computeFirst();
+        computeFollow();
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public ProductionIndex getProductionIndex() {
+        return productionIndex;
+    }
+
+    /**
+     * 判断非终结符能否推导出ε
+     *
+     * @param nonterminalId the nonterminal id
+     * @return the boolean
+     */
+    public boolean isNullable(int nonterminalId) {
+        return nullable[nonterminalId];
+    }
+
+    /**
+     * 获取非终结符的FIRST集合，不包含ε
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param nonterminalId the nonterminal id
+     * @return the long [ ]
+     */
+    public long[] getFirstSet(int nonterminalId) {
+        return firstSets[nonterminalId];
+    }
+
+    /**
+     * 获取非终结符的FOLLOW集合
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param nonterminalId the nonterminal id
+     * @return the long [ ]
+     */
+    public long[] getFollowSet(int nonterminalId) {
+        return followSets[nonterminalId];
+    }
+
+    /**
+     * 计算符号串 codes[from, to) 的FIRST集合，并将其并入 result 中
+     *
+     * @param codes  符号的统一编码
+     * @param from   起始下标（包含）
+     * @param to     结束下标（不包含）
+     * @param result 存放结果的位集合
+     * @return 若该符号串能推导出ε，则返回 true
+     */
+    public boolean first(int[] codes, int from, int to, long[] result) {
+        for (int i = from; i < to; i++) {
+            int code = codes[i];
+            if (symbolTable.isTerminalCode(code)) {
+                BitSetHelper.set(result, code);
+                return false;
+            }
+            int nonterminalId = symbolTable.nonterminalId(code);
+            BitSetHelper.union(result, firstSets[nonterminalId]);
+            if (!nullable[nonterminalId]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取文法符号symbol的FIRST(symbol)，可能包含ε
+     *
+     * @param symbol the symbol
+     * @return the set
+     */
+    public Set<Terminal> first(ProductionSymbol symbol) {
+        Set<Terminal> firstSet = new HashSet<>();
+        if (symbol instanceof Terminal terminal) {
+            firstSet.add(terminal);
+            return firstSet;
+        }
+        int nonterminalId = checkNonterminal((Nonterminal) symbol);
+        addTerminals(firstSets[nonterminalId], firstSet);
+        if (nullable[nonterminalId]) {
+            firstSet.add(Terminal.EMPTY_STRING);
+        }
+        return firstSet;
+    }
+
+    /**
+     * 获取表达式的FIRST集合，可能包含ε
+     *
+     * @param expression the expression
+     * @return the set
+     */
+    public Set<Terminal> first(Expression expression) {
+        Set<Terminal> firstSet = new HashSet<>();
+        long[] bits = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        if (first(toCodes(expression), bits)) {
+            firstSet.add(Terminal.EMPTY_STRING);
+        }
+        addTerminals(bits, firstSet);
+        return firstSet;
+    }
+
+    /**
+     * 获取非终结符的FOLLOW集合
+     *
+     * @param nonterminal the nonterminal
+     * @return the set
+     */
+    public Set<Terminal> follow(Nonterminal nonterminal) {
+        Set<Terminal> followSet = new HashSet<>();
+        addTerminals(followSets[checkNonterminal(nonterminal)], followSet);
+        return followSet;
+    }
+
+    private int checkNonterminal(Nonterminal nonterminal) {
+        int nonterminalId = symbolTable.getNonterminalId(nonterminal);
+        if (nonterminalId == -1) {
+            throw new UnknownSymbolException(nonterminal.getValue());
+        }
+        return nonterminalId;
+    }
+
+    /**
+     * 将表达式转换为统一编码，ε会被忽略
+     *
+     * @param expression the expression
+     * @return the int [ ]
+     * @throws UnknownSymbolException 表达式中含有文法中不存在的符号
+     */
+    public int[] toCodes(Expression expression) {
+        int length = 0;
+        int[] codes = new int[expression.length()];
+        for (ProductionSymbol symbol : expression.getValue()) {
+            if (Terminal.EMPTY_STRING.equals(symbol)) {
+                continue;
+            }
+            int code = symbolTable.getSymbolCode(symbol);
+            if (code == -1) {
+                throw new UnknownSymbolException(symbol.getValue());
+            }
+            codes[length++] = code;
+        }
+        return length == codes.length ? codes : Arrays.copyOf(codes, length);
+    }
+
+    private boolean first(int[] codes, long[] result) {
+        return first(codes, 0, codes.length, result);
+    }
+
+    private void addTerminals(long[] bits, Set<Terminal> terminals) {
+        for (int i = BitSetHelper.nextSetBit(bits, 0); i >= 0;
+             i = BitSetHelper.nextSetBit(bits, i + 1)) {
+            terminals.add(symbolTable.getTerminal(i));
+        }
+    }
+
+    /**
+     * 计算NULLABLE。
+     * <p>记录每个表达式中尚未确定可空的符号数目，当某个非终结符被确定可空时，
+     * 减少所有包含它的表达式的计数，计数为0的表达式的头部即可空</p>
+     */
+    private void computeNullable() {
+        int size = productionIndex.size();
+        int[] remaining = new int[size + 1];
+        // 非终结符在哪些表达式中出现，同一表达式出现多次会被记录多次
+        List<List<Integer>> occurrences = new ArrayList<>(nullable.length);
+        for (int i = 0; i < nullable.length; i++) {
+            occurrences.add(new ArrayList<>());
+        }
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int p = 1; p <= size; p++) {
+            if (productionIndex.getHeadId(p) == -1) {
+                remaining[p] = -1;
+                continue;
+            }
+            int[] body = productionIndex.getBodyCodes(p);
+            for (int code : body) {
+                if (symbolTable.isTerminalCode(code)) {
+                    // 含有终结符的表达式不可能推导出ε
+                    remaining[p] = -1;
+                    break;
+                }
+                remaining[p]++;
+            }
+            if (remaining[p] == -1) {
+                continue;
+            }
+            for (int code : body) {
+                occurrences.get(symbolTable.nonterminalId(code)).add(p);
+            }
+            if (remaining[p] == 0) {
+                markNullable(productionIndex.getHeadId(p), worklist);
+            }
+        }
+        while (!worklist.isEmpty()) {
+            int nonterminalId = worklist.poll();
+            for (int p : occurrences.get(nonterminalId)) {
+                if (--remaining[p] == 0) {
+                    markNullable(productionIndex.getHeadId(p), worklist);
+                }
+            }
+        }
+    }
+
+    private void markNullable(int nonterminalId, Deque<Integer> worklist) {
+        if (!nullable[nonterminalId]) {
+            nullable[nonterminalId] = true;
+            worklist.add(nonterminalId);
+        }
+    }
+
+    /**
+     * 计算FIRST。
+     * <p>对于 A→X1X2···Xn，若 X1···Xi-1 都可空，则 Xi 为终结符时直接加入 FIRST(A)，
+     * Xi 为非终结符时 FIRST(A) ⊇ FIRST(Xi)，沿着这些包含关系传播直到不再变化</p>
+     */
+    private void computeFirst() {
+        // dependents[B] 中的非终结符 A 满足 FIRST(A) ⊇ FIRST(B)
+        List<Set<Integer>> dependents = newDependents();
+        for (int p = 1; p <= productionIndex.size(); p++) {
+            int head = productionIndex.getHeadId(p);
+            if (head == -1) {
+                continue;
+            }
+            for (int code : productionIndex.getBodyCodes(p)) {
+                if (symbolTable.isTerminalCode(code)) {
+                    BitSetHelper.set(firstSets[head], code);
+                    break;
+                }
+                int nonterminalId = symbolTable.nonterminalId(code);
+                if (nonterminalId != head) {
+                    dependents.get(nonterminalId).add(head);
+                }
+                if (!nullable[nonterminalId]) {
+                    break;
+                }
+            }
+        }
+        propagate(firstSets, dependents);
+    }
+
+    /**
+     * 计算FOLLOW。
+     * <p>对于 A→αBβ，FIRST(β) 加入 FOLLOW(B)；若 β 可空，则 FOLLOW(B) ⊇ FOLLOW(A)</p>
+     */
+    private void computeFollow() {
+        // dependents[A] 中的非终结符 B 满足 FOLLOW(B) ⊇ FOLLOW(A)
+        List<Set<Integer>> dependents = newDependents();
+        int startId = symbolTable.getNonterminalId(startSymbol);
+        if (startId != -1) {
+            BitSetHelper.set(followSets[startId], symbolTable.getEndMarkerId());
+        }
+        for (int p = 1; p <= productionIndex.size(); p++) {
+            int head = productionIndex.getHeadId(p);
+            if (head == -1) {
+                continue;
+            }
+            int[] body = productionIndex.getBodyCodes(p);
+            for (int i = 0; i < body.length; i++) {
+                if (symbolTable.isTerminalCode(body[i])) {
+                    continue;
+                }
+                int nonterminalId = symbolTable.nonterminalId(body[i]);
+                boolean restNullable = first(body, i + 1, body.length,
+                        followSets[nonterminalId]);
+                if (restNullable && nonterminalId != head) {
+                    dependents.get(head).add(nonterminalId);
+                }
+            }
+        }
+        propagate(followSets, dependents);
+    }
+
+    private List<Set<Integer>> newDependents() {
+        List<Set<Integer>> dependents = new ArrayList<>(nullable.length);
+        for (int i = 0; i < nullable.length; i++) {
+            dependents.add(new LinkedHashSet<>());
+        }
+        return dependents;
+    }
+
+    /**
+     * 沿着包含关系传播集合，直到不动点
+     *
+     * @param sets       the sets
+     * @param dependents dependents[i] 中的每个元素 j 满足 sets[j] ⊇ sets[i]
+     */
+    private static void propagate(long[][] sets, List<Set<Integer>> dependents) {
+        Deque<Integer> worklist = new ArrayDeque<>();
+        boolean[] queued = new boolean[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            worklist.add(i);
+            queued[i] = true;
+        }
+        while (!worklist.isEmpty()) {
+            int from = worklist.poll();
+            queued[from] = false;
+            for (int to : dependents.get(from)) {
+                if (BitSetHelper.union(sets[to], sets[from]) && !queued[to]) {
+                    worklist.add(to);
+                    queued[to] = true;
+                }
+            }
+        }
+    }
+}
@@ -2,13 +2,10 @@ package com.chaldea.visualparsing.grammar;
 
 import com.chaldea.visualparsing.exception.grammar.ProductionNotFoundException;
 import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
-import com.chaldea.visualparsing.gui.DialogShower;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class Grammars {
@@ -54,43 +51,19 @@ public class Grammars {
      */
     public static int getExpressionIndex(Grammar grammar, Nonterminal head,
                                          Expression expression) {
-        int index = 1;
-        for (Production production : grammar.getProductions()) {
-            if (!production.getHead().equals(head)) {
-                index += production.getBody().size();
-                continue;
-            }
-            int expressionIndex = production.getBody().indexOf(expression);
-            if (expressionIndex < 0) {
-                throw new ProductionNotFoundException("找不到" + head.getValue() + "→" + expression);
-            }
-            index += expressionIndex;
-            return index;
-        }
-        throw new ProductionNotFoundException(head.getValue() + "→" + expression);
+        return grammar.getProductionIndex().getExpressionIndex(head, expression);
     }
 
     /**
      * Gets expression.获取文法指定索引的expression，为了包含head，
-     * 所以返回的是Production对象
+     * 所以返回的是Production对象。返回的对象会被缓存，不应对其进行修改
      *
      * @param grammar the grammar
      * @param index   the index
      * @return the expression
      */
     public static Production getExpression(Grammar grammar, int index) {
-        int originalIndex = index;
-        for (Production production : grammar.getProductions()) {
-            int productionSize = production.getBody().size();
-            if (productionSize < index) {
-                index -= productionSize;
-                continue;
-            }
-            List<Expression> expressions = new ArrayList<>(1);
-            expressions.add(production.getBody().get(index - 1));
-            return new Production(production.getHead(), expressions);
-        }
-        throw new ProductionNotFoundException("未找到索引为" + originalIndex + "的表达式");
+        return grammar.getProductionIndex().getProduction(index);
     }
 
     /**
@@ -127,7 +100,7 @@ public class Grammars {
                 replaceRecursiveProduction(grammar, nonterminals[i], nonterminals[j]);
             }
             // 消除Ai产生式之间的立即左递归
-            Production production = getProductionByHead(nonterminals[i], new ArrayList<>(grammar.getProductions()));
+            Production production = getProductionByHead(nonterminals[i], grammar);
             boolean isLeftRecursionImmediate = eliminateProductionImmediateLeftRecursion(grammar, production);
             // 若没有立即左递归，则将替换的产生式组还原回去
             if (!isLeftRecursionImmediate) {
@@ -165,9 +138,8 @@ public class Grammars {
      */
     private static void replaceRecursiveProduction(Grammar grammar, Nonterminal ai, Nonterminal aj) {
         Production aiProduction, ajProduction;
-        List<Production> productions = new ArrayList<>(grammar.getProductions());
-        aiProduction = getProductionByHead(ai, productions);
-        ajProduction = getProductionByHead(aj, productions);
+        aiProduction = getProductionByHead(ai, grammar);
+        ajProduction = getProductionByHead(aj, grammar);
         for (Expression aiExpression : aiProduction.getBody().toArray(Expression[]::new)) {
             if (!aiExpression.getValue()[0].equals(aj)) {
                 continue;
@@ -232,7 +204,7 @@ public class Grammars {
         if (recursionExpressionList.isEmpty()) {
             return false;
         }
-        production.getBody().clear();
+        production.setBody(new ArrayList<>());
         // 为辅助符号取名
         Nonterminal auxiliarySymbol = new Nonterminal(production.getHead().getValue() + "'");
         while (grammar.getNonterminals().contains(auxiliarySymbol)) {
@@ -288,7 +260,11 @@ public class Grammars {
      * @return the production by head
      */
     public static Production getProductionByHead(Nonterminal head, Grammar grammar) {
-        return getProductionByHead(head, grammar.getProductions());
+        Production production = grammar.getProduction(head);
+        if (production == null) {
+            throw new ProductionNotFoundException("不存在head为" + head.getValue() + "的Production");
+        }
+        return production;
     }
 
     /**
@@ -313,38 +289,22 @@ public class Grammars {
     /**
      * Convert string to terminal list.
      * 将字符串转换为Terminal列表
+     * <p>由 {@link Grammar#getTokenizer()} 按最长匹配切分</p>
      *
      * @param grammar 文法对象
      * @param inputString the input string
      * @return the list
+     * @throws UnknownSymbolException 存在无法识别的符号
      */
     public static List<Terminal> convertStringToTerminalList(Grammar grammar,
                                                              String inputString) {
-        StringBuilder regexRuleBuilder = new StringBuilder();
-        for (Terminal terminal : grammar.getTerminals()) {
-            regexRuleBuilder.append(escapeTerminalString(terminal)).append('|');
-        }
-        regexRuleBuilder.deleteCharAt(regexRuleBuilder.length() - 1);
-        logger.debug(regexRuleBuilder.toString());
-        Pattern pattern = Pattern.compile(regexRuleBuilder.toString());
-        Matcher matcher = pattern.matcher(inputString);
-        int lastEnd = 0;
-        List<Terminal> inputSymbolList = new ArrayList<>(inputString.length());
-        while (matcher.find()) {
-            int begin = matcher.start();
-            if (begin != lastEnd) {
-                DialogShower.showErrorDialog("存在无法识别的符号："
-                        + inputString.substring(lastEnd, begin));
-                throw new UnknownSymbolException();
-            }
-            int end = matcher.end();
-            inputSymbolList.add(grammar.getTerminal(inputString.substring(begin, end)));
-            lastEnd = end;
-        }
-        if (lastEnd != inputString.length()) {
-            DialogShower.showErrorDialog("存在无法识别的符号" +
-                    inputString.substring(lastEnd));
-            throw new UnknownSymbolException();
+        Tokenizer tokenizer = grammar.getTokenizer();
+        TokenBuffer buffer = new TokenBuffer(inputString.length());
+        tokenizer.tokenize(inputString, 0, inputString.length(), buffer);
+        SymbolTable symbolTable = tokenizer.getSymbolTable();
+        List<Terminal> inputSymbolList = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            inputSymbolList.add(symbolTable.getTerminal(buffer.getId(i)));
         }
         return inputSymbolList;
     }
@@ -492,16 +452,6 @@ public class Grammars {
         return true;
     }
 
-    /**
-     * 将Terminal对象的value转换为正则表达式中的普通值，其中符号不会被当作特殊符号处理
-     *
-     * @param terminal the terminal
-     * @return the string
-     */
-    private static String escapeTerminalString(Terminal terminal) {
-        return Pattern.quote(terminal.getValue());
-    }
-
     /**
      * Gets auxiliary nonterminal.获取一个非终结符号的辅助符号
      * <p>在原先符号value的基础上不断加'，直到grammar不包含该符号</p>
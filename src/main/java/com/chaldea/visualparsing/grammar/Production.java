@@ -4,6 +4,7 @@ import com.chaldea.visualparsing.exception.BaseException;
 import com.chaldea.visualparsing.exception.grammar.EmptyHeadProductionException;
 import com.chaldea.visualparsing.exception.grammar.RepeatedProductionException;
 
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,6 +15,9 @@ import java.util.Objects;
  * 产生式
  */
 public class Production implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -1192676646420989685L;
+
     /**
      * 产生式头
      */
@@ -26,6 +30,12 @@ public class Production implements Serializable {
      */
     private List<Expression> body;
 
+    /**
+     * 包含该产生式的文法，产生式变化时通知文法更新索引。
+     * <p>通过 {@link #getBody()} 直接修改产生式体不会通知文法，应使用本类的方法进行修改</p>
+     */
+    private transient Grammar owner;
+
     public Production(Nonterminal head) {
         this.head = head;
         body = new ArrayList<>();
@@ -42,6 +52,9 @@ public class Production implements Serializable {
 
     public void setHead(Nonterminal head) {
         this.head = head;
+        if (owner != null) {
+            owner.productionHeadChanged();
+        }
     }
 
     public List<Expression> getBody() {
@@ -50,6 +63,7 @@ public class Production implements Serializable {
 
     public void setBody(List<Expression> body) {
         this.body = body;
+        modified();
     }
 
     /**
@@ -74,6 +88,7 @@ public class Production implements Serializable {
             }
         }
         body.add(exp);
+        modified();
     }
 
     /**
@@ -81,7 +96,9 @@ public class Production implements Serializable {
      * @param exp
      */
     public void eraseExpression(Expression exp) {
-        body.remove(exp);
+        if (body.remove(exp)) {
+            modified();
+        }
     }
 
     /**
@@ -91,6 +108,7 @@ public class Production implements Serializable {
      */
     public void eraseExpression(int index) {
         body.remove(index);
+        modified();
     }
 
     /**
@@ -105,6 +123,7 @@ public class Production implements Serializable {
             }
         }
         body.set(index, exp);
+        modified();
     }
 
     /**
@@ -121,6 +140,19 @@ public class Production implements Serializable {
         modifyExpression(index, newExpression);
     }
 
+    void setOwner(Grammar owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * 产生式体发生了变化
+     */
+    private void modified() {
+        if (owner != null) {
+            owner.productionsModified();
+        }
+    }
+
     @Override
     public String toString() {
         return "Production{" +
@@ -0,0 +1,202 @@
+package com.chaldea.visualparsing.grammar;
+
+import com.chaldea.visualparsing.exception.grammar.ProductionNotFoundException;
+
+import java.util.*;
+
+/**
+ * 产生式索引
+ * <p>文法在某一时刻的快照，按照 {@link Grammar#getProductions()} 的顺序为每个表达式编号，
+ * 编号从1开始，与 {@link Grammars#getExpressionIndex(Grammar, Nonterminal, Expression)}
+ * 的编号相同。提供按产生式头和按表达式编号的 O(1) 查找。</p>
+ *
+ * <p>除了对象形式，还按照 {@link SymbolTable} 的编码保存了每个表达式的 int 形式，
+ * 其中 ε 表达式的长度为0。文法发生变化后，应通过 {@link Grammar#getProductionIndex()}
+ * 重新获取。</p>
+ */
+public final class ProductionIndex {
+    private static final int[] EMPTY_INDICES = new int[0];
+
+    /**
+     * 表达式的数目
+     */
+    private final int size;
+    /**
+     * 下标为表达式编号，下标0不使用
+     */
+    private final Nonterminal[] heads;
+    private final Expression[] expressions;
+    /**
+     * 表达式头部的非终结符编号
+     */
+    private final int[] headIds;
+    /**
+     * 表达式体的符号编码
+     */
+    private final int[][] bodyCodes;
+    /**
+     * 下标为非终结符编号，值为该非终结符为头的所有表达式编号
+     */
+    private final int[][] nonterminalExpressions;
+    private final Map<Nonterminal, Map<Expression, Integer>> expressionIndexMap;
+    /**
+     * 只包含一个表达式的产生式，在第一次调用 {@link #getProduction(int)} 时生成
+     */
+    private final Production[] singleProductions;
+
+    ProductionIndex(List<Production> productions, SymbolTable symbolTable) {
+        int count = 0;
+        for (Production production : productions) {
+            count += production.getBody().size();
+        }
+        size = count;
+        heads = new Nonterminal[size + 1];
+        expressions = new Expression[size + 1];
+        headIds = new int[size + 1];
+        bodyCodes = new int[size + 1][];
+        singleProductions = new Production[size + 1];
+        expressionIndexMap = new HashMap<>(productions.size() * 2);
+        List<List<Integer>> indicesList = new ArrayList<>(symbolTable.getNonterminalCount());
+        for (int i = 0; i < symbolTable.getNonterminalCount(); i++) {
+            indicesList.add(new ArrayList<>());
+        }
+        int index = 1;
+        for (Production production : productions) {
+            Nonterminal head = production.getHead();
+            int headId = symbolTable.getNonterminalId(head);
+            Map<Expression, Integer> indexMap = expressionIndexMap.computeIfAbsent(head,
+                    k -> new HashMap<>());
+            for (Expression expression : production.getBody()) {
+                heads[index] = head;
+                expressions[index] = expression;
+                headIds[index] = headId;
+                bodyCodes[index] = toCodes(expression, symbolTable);
+                indexMap.putIfAbsent(expression, index);
+                if (headId != -1) {
+                    indicesList.get(headId).add(index);
+                }
+                index++;
+            }
+        }
+        nonterminalExpressions = new int[indicesList.size()][];
+        for (int i = 0; i < indicesList.size(); i++) {
+            List<Integer> indices = indicesList.get(i);
+            nonterminalExpressions[i] = indices.isEmpty() ? EMPTY_INDICES
+                    : indices.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * 表达式的数目
+     *
+     * @return the int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets expression index.获取表达式的编号，编号从1开始
+     *
+     * @param head       the head
+     * @param expression the expression
+     * @return the expression index
+     * @throws ProductionNotFoundException 不存在该表达式
+     */
+    public int getExpressionIndex(Nonterminal head, Expression expression) {
+        Map<Expression, Integer> indexMap = expressionIndexMap.get(head);
+        Integer index = indexMap == null ? null : indexMap.get(expression);
+        if (index == null) {
+            throw new ProductionNotFoundException("找不到" + head.getValue() + "→" + expression);
+        }
+        return index;
+    }
+
+    public Nonterminal getHead(int index) {
+        checkIndex(index);
+        return heads[index];
+    }
+
+    public Expression getExpression(int index) {
+        checkIndex(index);
+        return expressions[index];
+    }
+
+    /**
+     * 获取指定编号的表达式，为了包含head，所以返回的是只含有该表达式的Production对象。
+     * <p>返回的对象会被缓存，不应对其进行修改</p>
+     *
+     * @param index the index
+     * @return the production
+     */
+    public Production getProduction(int index) {
+        checkIndex(index);
+        Production production = singleProductions[index];
+        if (production == null) {
+            List<Expression> body = new ArrayList<>(1);
+            body.add(expressions[index]);
+            production = new Production(heads[index], body);
+            singleProductions[index] = production;
+        }
+        return production;
+    }
+
+    /**
+     * 获取表达式头部的非终结符编号
+     *
+     * @param index the index
+     * @return the head id
+     */
+    public int getHeadId(int index) {
+        return headIds[index];
+    }
+
+    /**
+     * 获取表达式体的符号编码，ε表达式返回长度为0的数组。
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param index the index
+     * @return the int [ ]
+     */
+    public int[] getBodyCodes(int index) {
+        return bodyCodes[index];
+    }
+
+    /**
+     * 获取表达式体的长度，ε表达式的长度为0
+     *
+     * @param index the index
+     * @return the body length
+     */
+    public int getBodyLength(int index) {
+        return bodyCodes[index].length;
+    }
+
+    /**
+     * 获取以该非终结符为头的所有表达式编号。
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param nonterminalId the nonterminal id
+     * @return the int [ ]
+     */
+    public int[] getExpressionIndices(int nonterminalId) {
+        return nonterminalExpressions[nonterminalId];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 1 || index > size) {
+            throw new ProductionNotFoundException("未找到索引为" + index + "的表达式");
+        }
+    }
+
+    private static int[] toCodes(Expression expression, SymbolTable symbolTable) {
+        if (expression.isEmptyString()) {
+            return EMPTY_INDICES;
+        }
+        int[] codes = new int[expression.length()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = symbolTable.getSymbolCode(expression.get(i));
+        }
+        return codes;
+    }
+}
@@ -38,6 +38,7 @@ public abstract class ProductionSymbol implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        // String 会缓存自身的散列值，避免 Objects.hash 每次创建数组
+        return value.hashCode();
     }
 }
@@ -0,0 +1,233 @@
+package com.chaldea.visualparsing.grammar;
+
+import java.util.*;
+
+/**
+ * 文法符号表
+ * <p>为文法中的每个终结符与非终结符分配一个稠密的 int 编号，并提供按值和按编号的 O(1) 查找。
+ * 编号的顺序与 {@link Grammar#getTerminals()}、{@link Grammar#getNonterminals()} 的迭代顺序一致。</p>
+ *
+ * <p>终结符编号为 {@code 0 ~ getTerminalCount() - 1}，结束标记 {@link Terminal#END_MARKER}
+ * 的编号固定为 {@link #getEndMarkerId()}，即紧跟在所有终结符之后，这与LR分析表中ACTION列的顺序相同。
+ * 非终结符编号为 {@code 0 ~ getNonterminalCount() - 1}。</p>
+ *
+ * <p>为了能在同一个 int 数组中同时存放终结符与非终结符，提供了统一的符号编码：
+ * 终结符（含结束标记）的编码就是其编号，非终结符的编码为 {@code getInputSymbolCount() + 编号}。</p>
+ *
+ * <p>符号表是文法在某一时刻的快照，文法的符号集合发生变化后，应通过 {@link Grammar#getSymbolTable()}
+ * 重新获取。</p>
+ */
+public final class SymbolTable {
+    private final Terminal[] terminals;
+    private final Nonterminal[] nonterminals;
+    private final Map<String, Integer> terminalIdMap;
+    private final Map<String, Integer> nonterminalIdMap;
+
+    /**
+     * Instantiates a new Symbol table.
+     *
+     * @param terminals    终结符，迭代顺序即编号顺序
+     * @param nonterminals 非终结符，迭代顺序即编号顺序
+     */
+    SymbolTable(Collection<Terminal> terminals, Collection<Nonterminal> nonterminals) {
+        this.terminals = new Terminal[terminals.size() + 1];
+        this.nonterminals = nonterminals.toArray(Nonterminal[]::new);
+        terminalIdMap = new HashMap<>(terminals.size() * 2);
+        nonterminalIdMap = new HashMap<>(nonterminals.size() * 2);
+        int index = 0;
+        for (Terminal terminal : terminals) {
+            this.terminals[index] = terminal;
+            terminalIdMap.put(terminal.getValue(), index++);
+        }
+        this.terminals[index] = Terminal.END_MARKER;
+        terminalIdMap.put(Terminal.END_MARKER.getValue(), index);
+        for (int i = 0; i < this.nonterminals.length; i++) {
+            nonterminalIdMap.put(this.nonterminals[i].getValue(), i);
+        }
+    }
+
+    /**
+     * 文法中终结符的数目，不包括结束标记
+     *
+     * @return the terminal count
+     */
+    public int getTerminalCount() {
+        return terminals.length - 1;
+    }
+
+    /**
+     * 输入符号的数目，即终结符加上结束标记
+     *
+     * @return the input symbol count
+     */
+    public int getInputSymbolCount() {
+        return terminals.length;
+    }
+
+    public int getNonterminalCount() {
+        return nonterminals.length;
+    }
+
+    /**
+     * 统一编码下符号的总数
+     *
+     * @return the symbol count
+     */
+    public int getSymbolCount() {
+        return terminals.length + nonterminals.length;
+    }
+
+    public int getEndMarkerId() {
+        return terminals.length - 1;
+    }
+
+    /**
+     * Gets terminal id.
+     *
+     * @param value 终结符的值
+     * @return 终结符编号，若不存在则返回-1
+     */
+    public int getTerminalId(String value) {
+        Integer id = terminalIdMap.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets terminal id.
+     *
+     * @param terminal the terminal
+     * @return 终结符编号，若不存在则返回-1
+     */
+    public int getTerminalId(Terminal terminal) {
+        return getTerminalId(terminal.getValue());
+    }
+
+    /**
+     * Gets nonterminal id.
+     *
+     * @param value 非终结符的值
+     * @return 非终结符编号，若不存在则返回-1
+     */
+    public int getNonterminalId(String value) {
+        Integer id = nonterminalIdMap.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets nonterminal id.
+     *
+     * @param nonterminal the nonterminal
+     * @return 非终结符编号，若不存在则返回-1
+     */
+    public int getNonterminalId(Nonterminal nonterminal) {
+        return getNonterminalId(nonterminal.getValue());
+    }
+
+    /**
+     * Gets terminal.
+     *
+     * @param id 终结符编号，{@link #getEndMarkerId()} 对应结束标记
+     * @return the terminal
+     */
+    public Terminal getTerminal(int id) {
+        return terminals[id];
+    }
+
+    public Nonterminal getNonterminal(int id) {
+        return nonterminals[id];
+    }
+
+    /**
+     * 根据值查找文法符号，先查找非终结符，再查找终结符
+     *
+     * @param value the value
+     * @return 文法符号，若不存在则返回 {@code null}
+     */
+    public ProductionSymbol getProductionSymbol(String value) {
+        Integer id = nonterminalIdMap.get(value);
+        if (id != null) {
+            return nonterminals[id];
+        }
+        id = terminalIdMap.get(value);
+        // 结束标记不是文法中的符号
+        if (id == null || id == getEndMarkerId()) {
+            return null;
+        }
+        return terminals[id];
+    }
+
+    /**
+     * Gets symbol code.获取文法符号的统一编码
+     *
+     * @param symbol the symbol
+     * @return 统一编码，若不存在则返回-1
+     */
+    public int getSymbolCode(ProductionSymbol symbol) {
+        if (symbol instanceof Terminal terminal) {
+            return getTerminalId(terminal);
+        }
+        int id = getNonterminalId((Nonterminal) symbol);
+        return id == -1 ? -1 : terminals.length + id;
+    }
+
+    /**
+     * 根据统一编码获取文法符号
+     *
+     * @param code the code
+     * @return the production symbol
+     */
+    public ProductionSymbol getSymbol(int code) {
+        return code < terminals.length ? terminals[code] : nonterminals[code - terminals.length];
+    }
+
+    /**
+     * 判断统一编码是否代表终结符（含结束标记）
+     *
+     * @param code the code
+     * @return the boolean
+     */
+    public boolean isTerminalCode(int code) {
+        return code < terminals.length;
+    }
+
+    /**
+     * 将非终结符编号转换为统一编码
+     *
+     * @param nonterminalId the nonterminal id
+     * @return the int
+     */
+    public int nonterminalCode(int nonterminalId) {
+        return terminals.length + nonterminalId;
+    }
+
+    /**
+     * 将统一编码转换为非终结符编号
+     *
+     * @param code the code
+     * @return the int
+     */
+    public int nonterminalId(int code) {
+        return code - terminals.length;
+    }
+
+    /**
+     * 获取终结符数组的副本，最后一个元素是结束标记
+     *
+     * @return the terminal [ ]
+     */
+    public Terminal[] getTerminals() {
+        return terminals.clone();
+    }
+
+    public Nonterminal[] getNonterminals() {
+        return nonterminals.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolTable{" +
+                "terminals=" + Arrays.toString(terminals) +
+                ", nonterminals=" + Arrays.toString(nonterminals) +
+                '}';
+    }
+}
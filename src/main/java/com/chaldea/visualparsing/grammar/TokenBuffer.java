@@ -0,0 +1,67 @@
+package com.chaldea.visualparsing.grammar;
+
+import java.util.Arrays;
+
+/**
+ * 可以复用的词法单元缓冲区，由 {@link Tokenizer} 写入
+ * <p>保存每个词法单元的终结符编号与其在输入串中的起始下标，清空后数组不会被释放。</p>
+ */
+public final class TokenBuffer {
+    private int[] ids;
+    private int[] starts;
+    private int size;
+
+    public TokenBuffer() {
+        this(64);
+    }
+
+    public TokenBuffer(int capacity) {
+        ids = new int[Math.max(capacity, 1)];
+        starts = new int[ids.length];
+    }
+
+    /**
+     * 加入一个词法单元
+     *
+     * @param terminalId 符号表中的终结符编号
+     * @param start      在输入串中的起始下标
+     */
+    public void add(int terminalId, int start) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size << 1);
+            starts = Arrays.copyOf(starts, size << 1);
+        }
+        ids[size] = terminalId;
+        starts[size++] = start;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 获取终结符编号的数组，有效的部分为 [0, size())
+     * <p>返回的是内部数组，不应对其进行修改，加入新的词法单元后可能失效</p>
+     *
+     * @return the int [ ]
+     */
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int[] toIdArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -0,0 +1,227 @@
+package com.chaldea.visualparsing.grammar;
+
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * 从 {@link Reader} 中按需读取字符并切分为终结符的词法单元流
+ * <p>只保留一个固定大小的字符缓冲区：语法分析程序每次调用 {@link #next()} 取出一个终结符编号，
+ * 缓冲区读完时才从 Reader 中读取下一批字符，所以占用的内存与输入的长度无关。
+ * 缓冲区不小于最长终结符的长度加一，最长匹配跨过缓冲区末尾时，把当前词法单元已读入的部分
+ * 移到缓冲区开头后继续读取。</p>
+ * <p>每次从 Reader 读取字符后通知 {@link ProgressListener}，可以从中获取已处理的字符数、
+ * 词法单元数与吞吐量。TokenStream 不是线程安全的。</p>
+ */
+public final class TokenStream implements Closeable {
+    /**
+     * 输入已经结束
+     */
+    public static final int EOF = -1;
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Tokenizer tokenizer;
+    private final Reader reader;
+    private final char[] buffer;
+    private final CharBuffer bufferView;
+    /**
+     * 下一个词法单元在缓冲区中的起始下标
+     */
+    private int position;
+    /**
+     * 缓冲区中有效字符的结束下标
+     */
+    private int limit;
+    /**
+     * buffer[0] 在整个输入中的下标
+     */
+    private long bufferOffset;
+    private boolean endOfInput;
+    private long tokenCount;
+    private long tokenStart;
+    private final long startTime;
+    private ProgressListener progressListener;
+
+    public TokenStream(Tokenizer tokenizer, Reader reader) {
+        this(tokenizer, reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Instantiates a new Token stream.
+     *
+     * @param tokenizer  the tokenizer
+     * @param reader     the reader，调用 {@link #close()} 时被关闭
+     * @param bufferSize 字符缓冲区的大小，小于最长终结符的长度加一时使用后者
+     */
+    public TokenStream(Tokenizer tokenizer, Reader reader, int bufferSize) {
+        this.tokenizer = tokenizer;
+        this.reader = reader;
+        buffer = new char[Math.max(bufferSize, tokenizer.getMaxTerminalLength() + 1)];
+        bufferView = CharBuffer.wrap(buffer);
+        startTime = System.nanoTime();
+    }
+
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * 读取下一个终结符
+     *
+     * @return 符号表中的终结符编号，输入结束时为 {@link #EOF}
+     * @throws IOException            the io exception
+     * @throws UnknownSymbolException 存在无法识别的符号，异常信息中为在整个输入中的下标
+     */
+    public int next() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        int state = Tokenizer.START;
+        int end = -1;
+        int terminalId = -1;
+        int i = position;
+        while (true) {
+            if (i == limit) {
+                // 还不能确定最长匹配，需要读入更多字符
+                int moved = position;
+                boolean filled = fill();
+                i -= moved;
+                if (end != -1) {
+                    end -= moved;
+                }
+                if (!filled) {
+                    break;
+                }
+            }
+            state = tokenizer.next(state, buffer[i]);
+            if (state == Tokenizer.DEAD) {
+                break;
+            }
+            i++;
+            if (tokenizer.getAcceptedTerminal(state) != -1) {
+                end = i;
+                terminalId = tokenizer.getAcceptedTerminal(state);
+            }
+        }
+        if (end == -1) {
+            throw tokenizer.unknownSymbol(bufferView, position, limit, bufferOffset);
+        }
+        tokenStart = bufferOffset + position;
+        position = end;
+        tokenCount++;
+        return terminalId;
+    }
+
+    /**
+     * 把 buffer[position, limit) 移到缓冲区开头，再从 Reader 中读取字符填满剩余的部分
+     * <p>调用后 position 总是为0</p>
+     *
+     * @return 是否读到了新的字符
+     */
+    private boolean fill() throws IOException {
+        int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        bufferOffset += position;
+        position = 0;
+        limit = remaining;
+        if (endOfInput) {
+            return false;
+        }
+        int count;
+        do {
+            count = reader.read(buffer, limit, buffer.length - limit);
+        } while (count == 0);
+        if (count < 0) {
+            endOfInput = true;
+        } else {
+            limit += count;
+        }
+        if (progressListener != null) {
+            progressListener.progress(this);
+        }
+        return count > 0;
+    }
+
+    /**
+     * 已经从 Reader 中读取的字符数
+     *
+     * @return the long
+     */
+    public long getCharCount() {
+        return bufferOffset + limit;
+    }
+
+    /**
+     * 已经读取的终结符数目
+     *
+     * @return the long
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * 上一个终结符在整个输入中的起始下标
+     *
+     * @return the long
+     */
+    public long getTokenStart() {
+        return tokenStart;
+    }
+
+    public boolean isEndOfInput() {
+        return endOfInput && position == limit;
+    }
+
+    /**
+     * 从创建开始经过的时间
+     *
+     * @return the elapsed nanos
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * 每秒处理的字符数
+     *
+     * @return the double
+     */
+    public double getCharsPerSecond() {
+        return getCharCount() * 1e9 / Math.max(getElapsedNanos(), 1);
+    }
+
+    /**
+     * 每秒处理的终结符数
+     *
+     * @return the double
+     */
+    public double getTokensPerSecond() {
+        return tokenCount * 1e9 / Math.max(getElapsedNanos(), 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 处理进度的接收者
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * 每次从 Reader 读取字符后被调用
+         *
+         * @param stream 可以从中获取已处理的字符数、终结符数与吞吐量
+         */
+        void progress(TokenStream stream);
+    }
+}
@@ -0,0 +1,247 @@
+package com.chaldea.visualparsing.grammar;
+
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+
+import java.util.Arrays;
+
+/**
+ * 词法分析器，将字符串切分为终结符
+ * <p>构造时把符号表中所有终结符的值编译为一棵字典树，即一个DFA：状态0为初始状态，
+ * 到达某个状态时读入的字符串若恰好是某个终结符的值，则该状态接受这个终结符。
+ * 切分时采用最长匹配，从当前位置沿DFA走到无法转移为止，取经过的最后一个接受状态，
+ * 每次匹配读入的字符数不超过最长终结符的长度。</p>
+ * <p>转移表按字符类存放：只有在终结符中出现过的字符有自己的字符类，
+ * ASCII字符直接查表，其余字符在有序的字符数组中二分查找。</p>
+ * <p>Tokenizer 是不可变的，可以被多个线程共享。符号表变化后应通过
+ * {@link Grammar#getTokenizer()} 重新获取。</p>
+ */
+public final class Tokenizer {
+    /**
+     * 初始状态
+     */
+    public static final int START = 0;
+    /**
+     * 没有可以到达的状态
+     */
+    public static final int DEAD = -1;
+    private static final int ASCII_SIZE = 128;
+    /**
+     * 错误信息中最多显示的字符数
+     */
+    private static final int MAX_ERROR_LENGTH = 20;
+
+    private final SymbolTable symbolTable;
+    /**
+     * 按从小到大排列的非ASCII字符，下标加上 asciiClassCount 即其字符类
+     */
+    private final char[] otherChars;
+    private final int[] asciiClasses;
+    private final int asciiClassCount;
+    private final int classCount;
+    /**
+     * 下标为 状态 * classCount + 字符类
+     */
+    private final int[] transitions;
+    /**
+     * 每个状态接受的终结符编号，不接受时为-1
+     */
+    private final int[] acceptedTerminals;
+    private final int maxTerminalLength;
+
+    /**
+     * Instantiates a new Tokenizer.
+     *
+     * @param symbolTable 符号表，不包括结束标记的所有终结符都会被识别
+     */
+    public Tokenizer(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        asciiClasses = new int[ASCII_SIZE];
+        Arrays.fill(asciiClasses, -1);
+        int asciiCount = 0;
+        StringBuilder others = new StringBuilder();
+        int maxStates = 1;
+        int maxLength = 0;
+        for (int id = 0; id < symbolTable.getTerminalCount(); id++) {
+            String value = symbolTable.getTerminal(id).getValue();
+            maxStates += value.length();
+            maxLength = Math.max(maxLength, value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < ASCII_SIZE) {
+                    if (asciiClasses[c] == -1) {
+                        asciiClasses[c] = asciiCount++;
+                    }
+                } else if (others.indexOf(String.valueOf(c)) == -1) {
+                    others.append(c);
+                }
+            }
+        }
+        asciiClassCount = asciiCount;
+        maxTerminalLength = maxLength;
+        otherChars = others.toString().toCharArray();
+        Arrays.sort(otherChars);
+        classCount = Math.max(asciiClassCount + otherChars.length, 1);
+
+        int[] trie = new int[maxStates * classCount];
+        Arrays.fill(trie, DEAD);
+        int[] accepted = new int[maxStates];
+        Arrays.fill(accepted, -1);
+        int stateCount = 1;
+        for (int id = 0; id < symbolTable.getTerminalCount(); id++) {
+            String value = symbolTable.getTerminal(id).getValue();
+            if (value.isEmpty()) {
+                continue;
+            }
+            int state = START;
+            for (int i = 0; i < value.length(); i++) {
+                int index = state * classCount + charClass(value.charAt(i));
+                if (trie[index] == DEAD) {
+                    trie[index] = stateCount++;
+                }
+                state = trie[index];
+            }
+            accepted[state] = id;
+        }
+        transitions = Arrays.copyOf(trie, stateCount * classCount);
+        acceptedTerminals = Arrays.copyOf(accepted, stateCount);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * DFA的状态数
+     *
+     * @return the int
+     */
+    public int getStateCount() {
+        return acceptedTerminals.length;
+    }
+
+    /**
+     * 最长的终结符的长度，即一次匹配最多读入的字符数
+     *
+     * @return the int
+     */
+    public int getMaxTerminalLength() {
+        return maxTerminalLength;
+    }
+
+    /**
+     * 从 state 读入字符 c 后到达的状态
+     *
+     * @param state the state
+     * @param c     the c
+     * @return the int，无法转移时为 {@link #DEAD}
+     */
+    public int next(int state, char c) {
+        int charClass = charClass(c);
+        return charClass == -1 ? DEAD : transitions[state * classCount + charClass];
+    }
+
+    /**
+     * 状态接受的终结符
+     *
+     * @param state the state
+     * @return 符号表中的终结符编号，不接受时为-1
+     */
+    public int getAcceptedTerminal(int state) {
+        return acceptedTerminals[state];
+    }
+
+    /**
+     * 将字符串切分为终结符编号
+     *
+     * @param input the input
+     * @return the int [ ]
+     * @throws UnknownSymbolException 存在无法识别的符号
+     */
+    public int[] tokenize(CharSequence input) {
+        TokenBuffer buffer = new TokenBuffer(input.length());
+        tokenize(input, 0, input.length(), buffer);
+        return buffer.toIdArray();
+    }
+
+    /**
+     * 将 input[from, to) 切分为终结符，依次加入到 buffer 中
+     *
+     * @param input  the input
+     * @param from   the from
+     * @param to     the to
+     * @param buffer 词法单元的起始下标为在 input 中的下标，不会被清空
+     * @return 加入的词法单元数目
+     * @throws UnknownSymbolException 存在无法识别的符号
+     */
+    public int tokenize(CharSequence input, int from, int to, TokenBuffer buffer) {
+        int count = 0;
+        int position = from;
+        while (position < to) {
+            int state = START;
+            int end = -1;
+            int terminalId = -1;
+            for (int i = position; i < to; i++) {
+                state = next(state, input.charAt(i));
+                if (state == DEAD) {
+                    break;
+                }
+                if (acceptedTerminals[state] != -1) {
+                    end = i + 1;
+                    terminalId = acceptedTerminals[state];
+                }
+            }
+            if (end == -1) {
+                throw unknownSymbol(input, position, to, 0);
+            }
+            buffer.add(terminalId, position);
+            count++;
+            position = end;
+        }
+        return count;
+    }
+
+    /**
+     * 从 from 开始匹配最长的终结符
+     *
+     * @param input the input
+     * @param from  the from
+     * @param to    the to
+     * @return 匹配的终结符在 input 中的结束下标，无法匹配时为-1
+     */
+    public int match(CharSequence input, int from, int to) {
+        int state = START;
+        int end = -1;
+        for (int i = from; i < to; i++) {
+            state = next(state, input.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (acceptedTerminals[state] != -1) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private int charClass(char c) {
+        if (c < ASCII_SIZE) {
+            return asciiClasses[c];
+        }
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? -1 : asciiClassCount + index;
+    }
+
+    /**
+     * 生成无法识别的符号的异常，包含从 position 开始到下一个可以识别的位置之间的字符
+     *
+     * @param offset input[0] 在整个输入中的下标
+     */
+    UnknownSymbolException unknownSymbol(CharSequence input, int position, int to, long offset) {
+        int end = position + 1;
+        while (end < to && end - position < MAX_ERROR_LENGTH && match(input, end, to) == -1) {
+            end++;
+        }
+        return new UnknownSymbolException("位置" + (offset + position) + "存在无法识别的符号："
+                + input.subSequence(position, end));
+    }
+}
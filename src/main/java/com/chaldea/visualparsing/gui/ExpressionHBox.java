@@ -166,11 +166,8 @@ public class ExpressionHBox extends HBox {
 
     public void setNumberLabel() {
         if (expressionHead == null || expressionBody == null) {
-            int index = 1;
             Grammar grammar = ControllerMediator.getInstance().getGrammar();
-            for (Production production : grammar.getProductions()) {
-                index += production.getBody().size();
-            }
+            int index = grammar.getProductionIndex().size() + 1;
             numberLabel.setText(index + ".");
             return;
         }
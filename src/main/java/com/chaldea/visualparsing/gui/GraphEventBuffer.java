@@ -0,0 +1,183 @@
+package com.chaldea.visualparsing.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语法分析树与语法分析器状态图的事件缓冲
+ * <p>观察者的每个事件不再单独执行一次脚本，而是先在这里以 JSON 数组的形式累积，
+ * 由 {@link #drain()} 生成一次 {@code applyGraphEvents([...])} 调用，交给 graph.js 批量应用。</p>
+ * <p>状态图的事件在一批之内合并：回退会先抵消这一批中新加入的节点，
+ * 所以一批中的状态图事件总是化为“初始化、回退 k 个、依次加入若干节点”。
+ * 语法分析树的节点都会保留到最终的树中，按顺序原样保留。</p>
+ */
+public final class GraphEventBuffer {
+    /**
+     * 语法分析树的事件，每个元素为一个 JSON 数组
+     */
+    private final StringBuilder treeEvents = new StringBuilder();
+    private int treeEventCount;
+    /**
+     * 这一批中的初始状态，没有初始化时为null
+     */
+    private String initialState;
+    /**
+     * 这一批开始时已有的节点中需要回退的个数
+     */
+    private int rollbackCount;
+    /**
+     * 这一批中加入且没有被回退的节点，每个元素为状态与文法符号
+     */
+    private final List<String[]> stateNodes = new ArrayList<>();
+
+    /**
+     * 向语法分析树中加一个节点
+     *
+     * @param symbol 节点代表的文法符号的值
+     */
+    public void addNodeToTree(String symbol) {
+        beginTreeEvent("t");
+        appendString(treeEvents.append(','), symbol);
+        treeEvents.append(']');
+    }
+
+    /**
+     * 为语法分析树中最近加入的若干节点添加父节点
+     *
+     * @param parent   父节点代表的文法符号的值
+     * @param children 子节点代表的文法符号的值
+     */
+    public void addParentNodeToTree(String parent, String... children) {
+        beginTreeEvent("p");
+        appendString(treeEvents.append(','), parent);
+        for (String child : children) {
+            appendString(treeEvents.append(','), child);
+        }
+        treeEvents.append(']');
+    }
+
+    /**
+     * 从根节点开始重新计算语法分析树各节点的层次
+     */
+    public void recalculateLevel() {
+        beginTreeEvent("l");
+        treeEvents.append(']');
+    }
+
+    /**
+     * 添加语法分析器最初的状态节点，之前的状态图事件都被丢弃
+     *
+     * @param state the state
+     */
+    public void initializeParserState(String state) {
+        initialState = state;
+        rollbackCount = 0;
+        stateNodes.clear();
+    }
+
+    /**
+     * 向语法分析器状态图中加一个节点
+     *
+     * @param state  the state
+     * @param symbol 文法符号的值，通过该文法符号语法分析器的状态改变
+     */
+    public void addNodeToState(String state, String symbol) {
+        stateNodes.add(new String[]{state, symbol});
+    }
+
+    /**
+     * 回退语法分析器状态图中最近加入的 count 个节点
+     *
+     * @param count the count
+     */
+    public void rollbackState(int count) {
+        int cancelled = Math.min(count, stateNodes.size());
+        stateNodes.subList(stateNodes.size() - cancelled, stateNodes.size()).clear();
+        rollbackCount += count - cancelled;
+    }
+
+    /**
+     * 合并后的事件个数
+     *
+     * @return the int
+     */
+    public int size() {
+        return treeEventCount + stateNodes.size() + (initialState == null ? 0 : 1)
+                + (rollbackCount == 0 ? 0 : 1);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        treeEvents.setLength(0);
+        treeEventCount = 0;
+        initialState = null;
+        rollbackCount = 0;
+        stateNodes.clear();
+    }
+
+    /**
+     * 取出缓冲的全部事件
+     *
+     * @return 应用这些事件的脚本
+     */
+    public String drain() {
+        StringBuilder script = new StringBuilder(treeEvents.length() + 32 * stateNodes.size()
+                + 32);
+        script.append("applyGraphEvents([");
+        int count = 0;
+        if (initialState != null) {
+            appendString(script.append("[\"i\","), initialState).append(']');
+            count++;
+        }
+        if (rollbackCount > 0) {
+            script.append(count++ > 0 ? "," : "").append("[\"r\",").append(rollbackCount)
+                    .append(']');
+        }
+        for (String[] node : stateNodes) {
+            script.append(count++ > 0 ? "," : "").append("[\"s\",");
+            appendString(script, node[0]).append(',');
+            appendString(script, node[1]).append(']');
+        }
+        if (treeEventCount > 0) {
+            script.append(count > 0 ? "," : "").append(treeEvents);
+        }
+        script.append("]);");
+        clear();
+        return script.toString();
+    }
+
+    private void beginTreeEvent(String type) {
+        if (treeEventCount++ > 0) {
+            treeEvents.append(',');
+        }
+        treeEvents.append("[\"").append(type).append('"');
+    }
+
+    /**
+     * 以 JSON 字符串的形式追加，同时转义 JavaScript 中作为换行的 U+2028 与 U+2029
+     */
+    private static StringBuilder appendString(StringBuilder builder, String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"');
+    }
+}
@@ -72,7 +72,7 @@ public class LRParsingStepData {
 
     public static void setInputSymbols(List<Terminal> inputSymbols) {
         LRParsingStepData.inputSymbols = new ArrayList<>(inputSymbols);
-        inputSymbols.add(Terminal.END_MARKER);
+        LRParsingStepData.inputSymbols.add(Terminal.END_MARKER);
     }
 
     public static void setGrammar(Grammar grammar) {
@@ -0,0 +1,384 @@
+package com.chaldea.visualparsing.gui;
+
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.LRTableLookup;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * 虚拟化的LR分析表
+ * <p>只在画布上绘制可见的行与列，表项直接从 {@link LRTableLookup} 按编号读取，
+ * 不为每个状态或表项创建行、列与单元格，所以占用的内存与分析表的大小无关。
+ * 表头（ACTION、GOTO 与文法符号）和状态列固定，不随滚动移动。</p>
+ * <p>列的序号即符号表中的统一编码：先是终结符与结束标记，再是非终结符。
+ * 所有的列等宽，宽度由最长的符号决定，过长的符号会被压缩显示。</p>
+ */
+public class ParsingTableGrid extends Region {
+    private static final double ROW_HEIGHT = 24;
+    /**
+     * 表头有两行：ACTION/GOTO，以及文法符号
+     */
+    private static final double HEADER_HEIGHT = 2 * ROW_HEIGHT;
+    private static final double MIN_COLUMN_WIDTH = 40;
+    private static final double MAX_COLUMN_WIDTH = 120;
+    private static final double CELL_PADDING = 6;
+    private static final Color HEADER_COLOR = Color.web("#ececec");
+    private static final Color LINE_COLOR = Color.web("#c8c8c8");
+    private static final Color SELECTED_COLOR = Color.web("#fff2a8");
+
+    private final Font font = Font.getDefault();
+    private final Font headerFont = Font.font(font.getFamily(), FontWeight.BOLD, font.getSize());
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar horizontalBar = new ScrollBar();
+    private final ScrollBar verticalBar = new ScrollBar();
+    /**
+     * 没有分析表时显示的文字
+     */
+    private final StringProperty placeholder =
+            new SimpleStringProperty(this, "placeholder", "表格中没有内容");
+
+    private LRTableLookup table;
+    private int columnCount;
+    private double columnWidth = MIN_COLUMN_WIDTH;
+    private double stateColumnWidth = MIN_COLUMN_WIDTH;
+    /**
+     * 选中的状态与列，-1表示没有选中
+     */
+    private int selectedState = -1;
+    private int selectedColumn = -1;
+
+    public ParsingTableGrid() {
+        horizontalBar.setOrientation(Orientation.HORIZONTAL);
+        verticalBar.setOrientation(Orientation.VERTICAL);
+        horizontalBar.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+        verticalBar.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+        placeholder.addListener((observable, oldValue, newValue) -> draw());
+        getChildren().addAll(canvas, horizontalBar, verticalBar);
+        setOnScroll(this::scroll);
+        setOnMouseClicked(this::select);
+    }
+
+    public LRTableLookup getTable() {
+        return table;
+    }
+
+    /**
+     * 设置显示的分析表，之前的滚动位置与选中的表项被清除
+     *
+     * @param table the table，为null时显示 {@link #placeholderProperty()}
+     */
+    public void setTable(LRTableLookup table) {
+        this.table = table;
+        selectedState = -1;
+        selectedColumn = -1;
+        columnCount = 0;
+        if (table != null) {
+            SymbolTable symbolTable = table.getSymbolTable();
+            columnCount = symbolTable.getSymbolCount();
+            String lastState = String.valueOf(Math.max(0, table.getStateCount() - 1));
+            double width = textWidth("s" + lastState, font);
+            for (int code = 0; code < columnCount; code++) {
+                width = Math.max(width, textWidth(symbolTable.getSymbol(code).getValue(),
+                        headerFont));
+            }
+            columnWidth = Math.min(MAX_COLUMN_WIDTH,
+                    Math.max(MIN_COLUMN_WIDTH, width + 2 * CELL_PADDING));
+            stateColumnWidth = Math.max(MIN_COLUMN_WIDTH, Math.max(textWidth("状态", headerFont),
+                    textWidth(lastState, font)) + 2 * CELL_PADDING);
+        }
+        horizontalBar.setValue(0);
+        verticalBar.setValue(0);
+        updateScrollBars();
+        draw();
+    }
+
+    public StringProperty placeholderProperty() {
+        return placeholder;
+    }
+
+    public String getPlaceholder() {
+        return placeholder.get();
+    }
+
+    public void setPlaceholder(String placeholder) {
+        this.placeholder.set(placeholder);
+    }
+
+    /**
+     * 滚动到状态所在的行并选中该行
+     *
+     * @param state the state
+     * @return 状态不存在时返回false
+     */
+    public boolean scrollToState(int state) {
+        if (table == null || state < 0 || state >= table.getStateCount()) {
+            return false;
+        }
+        selectedState = state;
+        double bodyHeight = canvas.getHeight() - HEADER_HEIGHT;
+        verticalBar.setValue(clamp(state * ROW_HEIGHT - (bodyHeight - ROW_HEIGHT) / 2,
+                verticalBar.getMax()));
+        draw();
+        return true;
+    }
+
+    /**
+     * 滚动到文法符号所在的列并选中该列
+     *
+     * @param value 文法符号或结束标记的值
+     * @return 符号不存在时返回false
+     */
+    public boolean scrollToSymbol(String value) {
+        if (table == null) {
+            return false;
+        }
+        SymbolTable symbolTable = table.getSymbolTable();
+        int nonterminalId = symbolTable.getNonterminalId(value);
+        int column = nonterminalId == -1 ? symbolTable.getTerminalId(value)
+                : symbolTable.nonterminalCode(nonterminalId);
+        if (column == -1) {
+            return false;
+        }
+        selectedColumn = column;
+        double bodyWidth = canvas.getWidth() - stateColumnWidth;
+        horizontalBar.setValue(clamp(column * columnWidth - (bodyWidth - columnWidth) / 2,
+                horizontalBar.getMax()));
+        draw();
+        return true;
+    }
+
+    /**
+     * 表项显示的文字
+     *
+     * @param table  the table
+     * @param state  the state
+     * @param column 列的序号，即文法符号的统一编码
+     * @return 出错的表项为空字符串
+     */
+    public static String cellText(LRTableLookup table, int state, int column) {
+        int inputSymbolCount = table.getSymbolTable().getInputSymbolCount();
+        if (column >= inputSymbolCount) {
+            int next = table.go(state, column - inputSymbolCount);
+            return next == -1 ? "" : String.valueOf(next);
+        }
+        int code = table.action(state, column);
+        ActionItem.Action action = ActionItem.actionOf(code);
+        if (action == null) {
+            return "";
+        }
+        return switch (action) {
+            case SHIFT -> "s" + ActionItem.numberOf(code);
+            case REDUCE -> "r" + ActionItem.numberOf(code);
+            case ACCEPT -> "acc";
+        };
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barWidth = verticalBar.prefWidth(-1);
+        double barHeight = horizontalBar.prefHeight(-1);
+        double viewWidth = Math.max(0, getWidth() - barWidth);
+        double viewHeight = Math.max(0, getHeight() - barHeight);
+        canvas.setWidth(viewWidth);
+        canvas.setHeight(viewHeight);
+        verticalBar.resizeRelocate(viewWidth, 0, barWidth, viewHeight);
+        horizontalBar.resizeRelocate(0, viewHeight, viewWidth, barHeight);
+        updateScrollBars();
+        draw();
+    }
+
+    /**
+     * 滚动条的值是内容左上角被滚动出去的像素数
+     */
+    private void updateScrollBars() {
+        double contentWidth = columnCount * columnWidth;
+        double contentHeight = table == null ? 0 : table.getStateCount() * ROW_HEIGHT;
+        setRange(horizontalBar, contentWidth, canvas.getWidth() - stateColumnWidth, columnWidth);
+        setRange(verticalBar, contentHeight, canvas.getHeight() - HEADER_HEIGHT, ROW_HEIGHT);
+    }
+
+    private static void setRange(ScrollBar bar, double content, double viewport,
+                                 double unit) {
+        double max = Math.max(0, content - Math.max(0, viewport));
+        bar.setMax(max);
+        bar.setValue(Math.min(bar.getValue(), max));
+        bar.setVisibleAmount(max == 0 ? 0 : max * viewport / content);
+        bar.setUnitIncrement(unit);
+        bar.setBlockIncrement(Math.max(unit, viewport));
+        bar.setDisable(max == 0);
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setTextAlign(TextAlignment.CENTER);
+        if (table == null) {
+            gc.setFill(Color.GRAY);
+            gc.setFont(font);
+            gc.fillText(getPlaceholder(), width / 2, height / 2);
+            return;
+        }
+        double offsetX = horizontalBar.getValue();
+        double offsetY = verticalBar.getValue();
+        int firstRow = (int) (offsetY / ROW_HEIGHT);
+        int lastRow = Math.min(table.getStateCount(),
+                (int) Math.ceil((offsetY + height - HEADER_HEIGHT) / ROW_HEIGHT));
+        int firstColumn = (int) (offsetX / columnWidth);
+        int lastColumn = Math.min(columnCount,
+                (int) Math.ceil((offsetX + width - stateColumnWidth) / columnWidth));
+        gc.setStroke(LINE_COLOR);
+        gc.setLineWidth(1);
+
+        // 表项
+        gc.save();
+        clip(gc, stateColumnWidth, HEADER_HEIGHT, width - stateColumnWidth,
+                height - HEADER_HEIGHT);
+        gc.setFont(font);
+        for (int row = firstRow; row < lastRow; row++) {
+            double y = HEADER_HEIGHT + row * ROW_HEIGHT - offsetY;
+            for (int column = firstColumn; column < lastColumn; column++) {
+                double x = stateColumnWidth + column * columnWidth - offsetX;
+                if (row == selectedState || column == selectedColumn) {
+                    gc.setFill(SELECTED_COLOR);
+                    gc.fillRect(x, y, columnWidth, ROW_HEIGHT);
+                }
+                gc.setFill(Color.BLACK);
+                gc.fillText(cellText(table, row, column), x + columnWidth / 2,
+                        y + ROW_HEIGHT / 2, columnWidth - 2 * CELL_PADDING);
+                gc.strokeRect(snap(x), snap(y), columnWidth, ROW_HEIGHT);
+            }
+        }
+        gc.restore();
+
+        // 状态列
+        gc.save();
+        clip(gc, 0, HEADER_HEIGHT, stateColumnWidth, height - HEADER_HEIGHT);
+        for (int row = firstRow; row < lastRow; row++) {
+            double y = HEADER_HEIGHT + row * ROW_HEIGHT - offsetY;
+            gc.setFill(row == selectedState ? SELECTED_COLOR : HEADER_COLOR);
+            gc.fillRect(0, y, stateColumnWidth, ROW_HEIGHT);
+            gc.setFill(Color.BLACK);
+            gc.setFont(row == selectedState ? headerFont : font);
+            gc.fillText(String.valueOf(row), stateColumnWidth / 2, y + ROW_HEIGHT / 2);
+            gc.strokeRect(0.5, snap(y), stateColumnWidth, ROW_HEIGHT);
+        }
+        gc.restore();
+
+        // 表头
+        gc.save();
+        clip(gc, stateColumnWidth, 0, width - stateColumnWidth, HEADER_HEIGHT);
+        gc.setFill(HEADER_COLOR);
+        gc.fillRect(stateColumnWidth, 0, width - stateColumnWidth, HEADER_HEIGHT);
+        int inputSymbolCount = table.getSymbolTable().getInputSymbolCount();
+        drawGroupHeader(gc, "ACTION", 0, inputSymbolCount, offsetX, width);
+        drawGroupHeader(gc, "GOTO", inputSymbolCount, columnCount, offsetX, width);
+        SymbolTable symbolTable = table.getSymbolTable();
+        gc.setFont(headerFont);
+        for (int column = firstColumn; column < lastColumn; column++) {
+            double x = stateColumnWidth + column * columnWidth - offsetX;
+            if (column == selectedColumn) {
+                gc.setFill(SELECTED_COLOR);
+                gc.fillRect(x, ROW_HEIGHT, columnWidth, ROW_HEIGHT);
+            }
+            gc.setFill(Color.BLACK);
+            gc.fillText(symbolTable.getSymbol(column).getValue(), x + columnWidth / 2,
+                    ROW_HEIGHT * 1.5, columnWidth - 2 * CELL_PADDING);
+            gc.strokeRect(snap(x), ROW_HEIGHT + 0.5, columnWidth, ROW_HEIGHT);
+        }
+        gc.restore();
+
+        // 左上角
+        gc.setFill(HEADER_COLOR);
+        gc.fillRect(0, 0, stateColumnWidth, HEADER_HEIGHT);
+        gc.strokeRect(0.5, 0.5, stateColumnWidth, HEADER_HEIGHT);
+        gc.setFill(Color.BLACK);
+        gc.setFont(headerFont);
+        gc.fillText("状态", stateColumnWidth / 2, HEADER_HEIGHT / 2);
+    }
+
+    /**
+     * 绘制跨越 [from, to) 列的表头，文字位于这些列的可见部分的中间
+     */
+    private void drawGroupHeader(GraphicsContext gc, String text, int from, int to,
+                                 double offsetX, double width) {
+        if (from >= to) {
+            return;
+        }
+        double left = stateColumnWidth + from * columnWidth - offsetX;
+        double right = stateColumnWidth + to * columnWidth - offsetX;
+        gc.strokeRect(snap(left), 0.5, right - left, ROW_HEIGHT);
+        double visibleLeft = Math.max(left, stateColumnWidth);
+        double visibleRight = Math.min(right, width);
+        if (visibleLeft < visibleRight) {
+            gc.setFill(Color.BLACK);
+            gc.setFont(headerFont);
+            gc.fillText(text, (visibleLeft + visibleRight) / 2, ROW_HEIGHT / 2,
+                    visibleRight - visibleLeft);
+        }
+    }
+
+    private void scroll(ScrollEvent event) {
+        verticalBar.setValue(clamp(verticalBar.getValue() - event.getDeltaY(),
+                verticalBar.getMax()));
+        horizontalBar.setValue(clamp(horizontalBar.getValue() - event.getDeltaX(),
+                horizontalBar.getMax()));
+        event.consume();
+    }
+
+    /**
+     * 点击表项选中其状态与列，点击状态列或表头只选中行或列
+     */
+    private void select(MouseEvent event) {
+        if (table == null || event.getX() >= canvas.getWidth()
+                || event.getY() >= canvas.getHeight()) {
+            return;
+        }
+        int row = (int) ((event.getY() - HEADER_HEIGHT + verticalBar.getValue()) / ROW_HEIGHT);
+        int column = (int) ((event.getX() - stateColumnWidth + horizontalBar.getValue())
+                / columnWidth);
+        selectedState = event.getY() < HEADER_HEIGHT || row >= table.getStateCount() ? -1 : row;
+        selectedColumn = event.getX() < stateColumnWidth || column >= columnCount ? -1 : column;
+        draw();
+    }
+
+    private static void clip(GraphicsContext gc, double x, double y, double w, double h) {
+        gc.beginPath();
+        gc.rect(x, y, Math.max(0, w), Math.max(0, h));
+        gc.clip();
+    }
+
+    /**
+     * 对齐到像素中心，使一像素宽的线条清晰
+     */
+    private static double snap(double value) {
+        return Math.floor(value) + 0.5;
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static double textWidth(String string, Font font) {
+        Text text = new Text(string);
+        text.setFont(font);
+        return text.getLayoutBounds().getWidth();
+    }
+}
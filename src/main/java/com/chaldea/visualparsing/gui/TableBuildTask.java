@@ -0,0 +1,56 @@
+package com.chaldea.visualparsing.gui;
+
+import com.chaldea.visualparsing.parsing.BuildProgress;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 在后台线程中构造分析表的任务
+ * <p>构造过程通过 {@link BuildProgress} 更新任务的消息，即已经发现的状态数与计算闭包的次数；
+ * 总工作量未知，所以进度始终为不确定。{@link #cancel()} 会中断构造的线程，构造随即停止。
+ * 结果只在任务成功后于JavaFX应用线程中通过 {@link #setOnSucceeded} 取得。</p>
+ *
+ * @param <T> 分析表的类型
+ */
+public class TableBuildTask<T> extends Task<T> {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    /**
+     * 构造分析表的线程池，线程为守护线程，不会阻止程序退出
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "table-builder-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<T> builder;
+
+    /**
+     * Instantiates a new Table build task.
+     *
+     * @param builder 在后台线程中构造分析表，不应访问界面
+     */
+    public TableBuildTask(Supplier<T> builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * 在线程池中开始执行
+     */
+    public void start() {
+        EXECUTOR.execute(this);
+    }
+
+    @Override
+    protected T call() {
+        updateMessage("正在构造分析表");
+        updateProgress(-1, 1);
+        return BuildProgress.track((states, closures) ->
+                updateMessage("正在构造分析表：已发现 " + states + " 个状态，已计算 "
+                        + closures + " 次闭包"), builder);
+    }
+}
@@ -4,8 +4,20 @@ package com.chaldea.visualparsing.parsing;
  * The type Action item.
  *
  * <p>Action为相应动作，number为项集或表达式编号</p>
+ *
+ * <p>ActionItem也可以编码为一个int：低2位为动作（0为出错），其余位为 number + 1，
+ * 用于 {@link LRParsingTable#action(int, int)}</p>
  */
 public record ActionItem(Action action, int number) {
+    /**
+     * 出错，即空的表项
+     */
+    public static final int ERROR = 0;
+    private static final int SHIFT_CODE = 1;
+    private static final int REDUCE_CODE = 2;
+    private static final int ACCEPT_CODE = 3;
+    private static final int ACTION_MASK = 3;
+
     /**
      * The enum Action.
      */
@@ -24,6 +36,72 @@ public record ActionItem(Action action, int number) {
         ACCEPT;
     }
 
+    /**
+     * 将ActionItem编码为int
+     *
+     * @param actionItem the action item，为null时表示出错
+     * @return the int
+     */
+    public static int encode(ActionItem actionItem) {
+        if (actionItem == null) {
+            return ERROR;
+        }
+        int actionCode = switch (actionItem.action()) {
+            case SHIFT -> SHIFT_CODE;
+            case REDUCE -> REDUCE_CODE;
+            case ACCEPT -> ACCEPT_CODE;
+        };
+        return ((actionItem.number() + 1) << 2) | actionCode;
+    }
+
+    /**
+     * 将int解码为ActionItem
+     *
+     * @param code the code
+     * @return the action item，出错时返回null
+     */
+    public static ActionItem decode(int code) {
+        Action action = actionOf(code);
+        return action == null ? null : new ActionItem(action, numberOf(code));
+    }
+
+    /**
+     * 获取编码中的动作
+     *
+     * @param code the code
+     * @return the action，出错时返回null
+     */
+    public static Action actionOf(int code) {
+        return switch (code & ACTION_MASK) {
+            case SHIFT_CODE -> Action.SHIFT;
+            case REDUCE_CODE -> Action.REDUCE;
+            case ACCEPT_CODE -> Action.ACCEPT;
+            default -> null;
+        };
+    }
+
+    /**
+     * 获取编码中的项集或表达式编号
+     *
+     * @param code the code
+     * @return the int
+     */
+    public static int numberOf(int code) {
+        return (code >>> 2) - 1;
+    }
+
+    public static boolean isShift(int code) {
+        return (code & ACTION_MASK) == SHIFT_CODE;
+    }
+
+    public static boolean isReduce(int code) {
+        return (code & ACTION_MASK) == REDUCE_CODE;
+    }
+
+    public static boolean isAccept(int code) {
+        return (code & ACTION_MASK) == ACCEPT_CODE;
+    }
+
     public static String toString(ActionItem actionItem) {
         if (actionItem == null) {
             return "";
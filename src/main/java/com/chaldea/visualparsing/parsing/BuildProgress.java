@@ -0,0 +1,88 @@
+package com.chaldea.visualparsing.parsing;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * 分析表构造的进度
+ * <p>通过 {@link #track(Listener, Supplier)} 构造分析表时，项集族的构造在当前线程中
+ * 报告已经发现的状态数与计算闭包的次数，并在当前线程被中断时抛出 {@link CancellationException}
+ * 停止构造。进度按线程记录，所以不需要为每种分析表与项集族增加构造方法的参数；
+ * 并行构造时只有调用构造方法的线程报告进度。</p>
+ */
+public final class BuildProgress {
+    private static final ThreadLocal<BuildProgress> CURRENT = new ThreadLocal<>();
+
+    private final Listener listener;
+
+    private BuildProgress(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 在当前线程中执行 builder，期间构造的进度通知 listener
+     *
+     * @param <T>      the type parameter
+     * @param listener 在构造分析表的线程中被调用
+     * @param builder  构造分析表
+     * @return builder 的结果
+     * @throws CancellationException 当前线程被中断时
+     */
+    public static <T> T track(Listener listener, Supplier<T> builder) {
+        BuildProgress previous = CURRENT.get();
+        CURRENT.set(new BuildProgress(listener));
+        try {
+            return builder.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程的进度，不在 {@link #track(Listener, Supplier)} 中时为null
+     */
+    static BuildProgress current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 报告进度
+     *
+     * @param states   已经发现的状态数
+     * @param closures 已经计算闭包的次数
+     * @throws CancellationException 当前线程被中断时
+     */
+    void report(int states, long closures) {
+        checkCancelled();
+        listener.update(states, closures);
+    }
+
+    /**
+     * 当前线程被中断时停止构造
+     *
+     * @throws CancellationException 当前线程被中断时
+     */
+    void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("分析表的构造已取消");
+        }
+    }
+
+    /**
+     * 进度的接收者
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * 构造的进度
+         *
+         * @param states   已经发现的状态（项集）数
+         * @param closures 已经计算闭包的次数
+         */
+        void update(int states, long closures);
+    }
+}
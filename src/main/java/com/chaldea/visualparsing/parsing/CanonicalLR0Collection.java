@@ -5,32 +5,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The type Canonical lr 0 collection.规范LR(0)项集族
  */
 public class CanonicalLR0Collection extends LRCollection {
-    /**
-     * The Augmented grammar.增广文法
-     */
-    private Grammar augmentedGrammar;
 
     private static final Logger logger =
             LoggerFactory.getLogger(CanonicalLR0Collection.class);
 
+    /**
+     * 下标为非终结符编号，缓存每个非终结符的闭包
+     */
+    private final AtomicReferenceArray<NonterminalClosure> closureCache;
+
     public CanonicalLR0Collection(Grammar grammar) {
         super(grammar);
-        setAugmentedGrammar();
+        closureCache = new AtomicReferenceArray<>(symbolTable.getNonterminalCount());
         setItemSetList();
         logger.debug("LR项集：\n" + this);
     }
 
     public List<ItemSet> getItemSetList() {
-        return itemSetList;
-    }
-
-    public Grammar getAugmentedGrammar() {
-        return augmentedGrammar;
+        return Collections.unmodifiableList(itemSetList);
     }
 
     public Grammar getOriginalGrammar() {
@@ -46,19 +44,7 @@ public class CanonicalLR0Collection extends LRCollection {
      * @return the go item set
      */
     public ItemSet getGoItemSet(ItemSet itemSet, ProductionSymbol symbol) {
-        ItemSet goItemSet = go(itemSet, symbol);
-        return itemSetList.get(getItemSetNumber(goItemSet));
-    }
-
-    /**
-     * Gets go item set number.
-     *
-     * @param itemSet the item set
-     * @param symbol  the symbol
-     * @return the go item set number
-     */
-    public int getGoItemSetNumber(ItemSet itemSet, ProductionSymbol symbol) {
-        return getItemSetNumber(go(itemSet, symbol));
+        return itemSetList.get(getGoItemSetNumber(itemSet, symbol));
     }
 
     /**
@@ -72,136 +58,118 @@ public class CanonicalLR0Collection extends LRCollection {
         return itemSetList.get(getItemSetNumber(closureItemSet));
     }
 
-    /**
-     * Sets augmented grammar.生成增广文法
-     * <p>如果G开始符号为S，那么G的增广文法G'就是在G中加上新开始符号S'和
-     * 产生式S'→S而得到的文法</p>
-     */
-    private void setAugmentedGrammar() {
-        augmentedGrammar = Grammars.getAugmentedGrammar(grammar);
-    }
-
     /**
      * Sets item set list.计算增广文法的规范LR(0)项族
+     * <p>增广文法的产生式S'→S是最后一个表达式</p>
      */
     private void setItemSetList() {
-        ItemSet firstItemSet = closure(new Item(
-                augmentedGrammar.getStartSymbol(),
-                augmentedGrammar
-                        .generateExpression(grammar.getStartSymbol().toString()),
-                0)
-        );
-        itemSetList.add(firstItemSet);
-        List<ItemSet> addedItemSet = new ArrayList<>();
-        addedItemSet.add(firstItemSet);
-        while (!addedItemSet.isEmpty()) {
-            List<ItemSet> addedItemSetCopy = new ArrayList<>(addedItemSet);
-            addedItemSet.clear();
-            for (ItemSet itemSet : addedItemSetCopy) {
-                addGoForItem(itemSet, addedItemSet);
-            }
-        }
+        buildItemSets(new long[]{CompactItem.of(productionIndex.size(), 0)});
     }
 
     /**
-     * Add go for item.
+     * Closure item set.计算项集的闭包
+     * <p>对于点后面的每个非终结符B，将B的闭包，即B能够经由最左符号到达的所有非终结符C的项C→·γ，
+     * 加入闭包。每个非终结符的闭包只计算一次并缓存，已被其他非终结符的闭包覆盖的非终结符不再处理</p>
      *
-     * @param itemSet      the item set
-     * @param addedItemSet the added item set
+     * @param kernel 初始项集I
+     * @return 项集的闭包
      */
-    private void addGoForItem(ItemSet itemSet, List<ItemSet> addedItemSet) {
-        for (ProductionSymbol symbol : augmentedGrammar.getProductionSymbols()) {
-            ItemSet goItemSet = go(itemSet, symbol);
-            if (goItemSet.isEmpty() || itemSetList.contains(goItemSet)) {
+    @Override
+    protected long[] closure(long[] kernel) {
+        LongList items = new LongList(kernel.length * 2);
+        boolean[] added = new boolean[symbolTable.getNonterminalCount()];
+        for (long item : kernel) {
+            items.add(item);
+        }
+        for (long item : kernel) {
+            int symbol = getSymbolAfterPoint(item);
+            if (symbol == -1 || symbolTable.isTerminalCode(symbol)
+                    || added[symbolTable.nonterminalId(symbol)]) {
                 continue;
             }
-            itemSetList.add(goItemSet);
-            addedItemSet.add(goItemSet);
+            NonterminalClosure nonterminalClosure =
+                    getNonterminalClosure(symbolTable.nonterminalId(symbol));
+            for (int nonterminalId : nonterminalClosure.nonterminals()) {
+                added[nonterminalId] = true;
+            }
+            for (long closureItem : nonterminalClosure.items()) {
+                items.add(closureItem);
+            }
         }
+        return items.toSortedUniqueArray();
     }
 
     /**
-     * Closure item set.计算项集的闭包
+     * 获取非终结符的闭包，不存在时计算并缓存
      *
-     * @param itemSet the item set 初始项集I
-     * @return the item set 项集的闭包
+     * @param nonterminalId the nonterminal id
+     * @return the nonterminal closure
      */
-    private ItemSet closure(ItemSet itemSet) {
-        if (itemSet == null || itemSet.isEmpty()) {
-            return new ItemSet();
+    private NonterminalClosure getNonterminalClosure(int nonterminalId) {
+        NonterminalClosure nonterminalClosure = closureCache.get(nonterminalId);
+        if (nonterminalClosure != null) {
+            closureCacheHits.increment();
+            return nonterminalClosure;
         }
-        ItemSet closureSet = new ItemSet();
-        closureSet.addAllItems(itemSet);
-        // 被加入的新的Item
-        ItemSet newAddedItemSet = new ItemSet();
-        newAddedItemSet.addAllItems(closureSet);
-        while (!newAddedItemSet.isEmpty()) {
-            Set<Item> setCopy = newAddedItemSet.getItemsCopy();
-            newAddedItemSet.clear();
-            for (Item item : setCopy) {
-                addItemsBasedOnItem(item, closureSet, newAddedItemSet);
+        closureCacheMisses.increment();
+        boolean[] added = new boolean[symbolTable.getNonterminalCount()];
+        int[] worklist = new int[added.length];
+        int worklistSize = 0;
+        added[nonterminalId] = true;
+        worklist[worklistSize++] = nonterminalId;
+        LongList items = new LongList();
+        for (int i = 0; i < worklistSize; i++) {
+            for (int expressionIndex : productionIndex.getExpressionIndices(worklist[i])) {
+                long item = CompactItem.of(expressionIndex, 0);
+                items.add(item);
+                worklistSize = addNonterminal(getSymbolAfterPoint(item), added, worklist,
+                        worklistSize);
             }
         }
-        return closureSet;
+        nonterminalClosure = new NonterminalClosure(items.toSortedUniqueArray(),
+                Arrays.copyOf(worklist, worklistSize));
+        closureCache.compareAndSet(nonterminalId, null, nonterminalClosure);
+        return closureCache.get(nonterminalId);
     }
 
     /**
-     * Closure item set.计算一个项的闭包
+     * 若符号是尚未加入的非终结符，则将其加入到工作表中
      *
-     * @param item the item
-     * @return the item set
+     * @return 工作表的长度
      */
-    private ItemSet closure(Item item) {
-        ItemSet itemSet = new ItemSet();
-        itemSet.addItem(item);
-        return closure(itemSet);
+    private int addNonterminal(int symbol, boolean[] added, int[] worklist, int worklistSize) {
+        if (symbol == -1 || symbolTable.isTerminalCode(symbol)) {
+            return worklistSize;
+        }
+        int nonterminalId = symbolTable.nonterminalId(symbol);
+        if (added[nonterminalId]) {
+            return worklistSize;
+        }
+        added[nonterminalId] = true;
+        worklist[worklistSize] = nonterminalId;
+        return worklistSize + 1;
     }
 
     /**
-     * GOTO(I,X)，返回I中所有形如[A→α·Xβ]的项[A→αX·β]的集合的闭包
+     * 非终结符B的闭包
      *
-     * @param itemSet the item set.一个项集
-     * @param symbol  the symbol.一个文法符号
-     * @return the item set
+     * @param items        所有项C→·γ，按从小到大排列
+     * @param nonterminals 闭包中所有的非终结符C，包括B
      */
-    private ItemSet go(ItemSet itemSet, ProductionSymbol symbol) {
-        ItemSet goItemSet = new ItemSet();
-        for (Item item : itemSet) {
-            if (!symbol.equals(item.getCurrentSymbol())) {
-                continue;
-            }
-            Item newItem = new Item(item.getHead(), item.getExpression(),
-                    item.getPoint() + 1);
-            goItemSet.addAllItems(closure(newItem));
-        }
-        return goItemSet;
+    private record NonterminalClosure(long[] items, int[] nonterminals) {
     }
 
-    /**
-     * 将根据item得到的项加入到closureSet和newAddedItemSet中
-     *
-     * @param item            the item which is based on
-     * @param closureSet      the closure set
-     * @param newAddedItemSet 记录成功加入的项
-     */
-    private void addItemsBasedOnItem(Item item, ItemSet closureSet,
-                                     ItemSet newAddedItemSet) {
-        ProductionSymbol symbol = item.getCurrentSymbol();
-        if (symbol == null) {
-            return;
-        }
-        if (!(symbol instanceof Nonterminal head)) {
-            return;
-        }
-        Production production = Grammars.getProductionByHead(head,
-                augmentedGrammar);
-        for (Expression expression : production.getBody()) {
-            expression = expression.copy();
-            Item newItem = new Item(production.getHead(), expression, 0);
-            if (closureSet.addItem(newItem)) {
-                newAddedItemSet.addItem(newItem);
-            }
-        }
+    @Override
+    protected Item toItem(long item) {
+        int expressionIndex = CompactItem.production(item);
+        return new Item(productionIndex.getHead(expressionIndex),
+                productionIndex.getExpression(expressionIndex), CompactItem.point(item));
+    }
+
+    @Override
+    protected long toCompactItem(Item item) {
+        return CompactItem.of(productionIndex.getExpressionIndex(item.getHead(),
+                item.getExpression()), item.getPoint());
     }
 
 }
@@ -0,0 +1,89 @@
+package com.chaldea.visualparsing.parsing;
+
+/**
+ * 以 long 表示的项
+ * <p>从高位到低位依次为：表达式编号（24位）、点的位置（16位）、向前看符号编号（24位）。
+ * 表达式编号即增广文法 {@link com.chaldea.visualparsing.grammar.ProductionIndex}
+ * 中的编号，向前看符号编号即 {@link com.chaldea.visualparsing.grammar.SymbolTable}
+ * 中的终结符编号，LR(0)项的向前看符号编号为0。</p>
+ *
+ * <p>按 long 的大小排序，即先按表达式编号、再按点的位置、最后按向前看符号排序，
+ * 同一核心的LR(1)项是相邻的。</p>
+ */
+public final class CompactItem {
+    private static final int LOOKAHEAD_BITS = 24;
+    private static final int POINT_BITS = 16;
+    private static final int PRODUCTION_SHIFT = LOOKAHEAD_BITS + POINT_BITS;
+    private static final long LOOKAHEAD_MASK = (1L << LOOKAHEAD_BITS) - 1;
+    private static final long POINT_MASK = (1L << POINT_BITS) - 1;
+    /**
+     * 表达式编号能表示的最大值
+     */
+    public static final int MAX_PRODUCTION = (1 << 24) - 1;
+    /**
+     * 点的位置能表示的最大值，即表达式体的最大长度
+     */
+    public static final int MAX_POINT = (1 << POINT_BITS) - 1;
+    /**
+     * 向前看符号编号能表示的最大值
+     */
+    public static final int MAX_LOOKAHEAD = (1 << LOOKAHEAD_BITS) - 1;
+
+    private CompactItem() {
+    }
+
+    /**
+     * 编码一个LR(0)项
+     *
+     * @param production 表达式编号
+     * @param point      点的位置
+     * @return the long
+     */
+    public static long of(int production, int point) {
+        return ((long) production << PRODUCTION_SHIFT) | ((long) point << LOOKAHEAD_BITS);
+    }
+
+    /**
+     * 编码一个LR(1)项
+     *
+     * @param production 表达式编号
+     * @param point      点的位置
+     * @param lookahead  向前看符号的终结符编号
+     * @return the long
+     */
+    public static long of(int production, int point, int lookahead) {
+        return of(production, point) | lookahead;
+    }
+
+    public static int production(long item) {
+        return (int) (item >>> PRODUCTION_SHIFT);
+    }
+
+    public static int point(long item) {
+        return (int) ((item >>> LOOKAHEAD_BITS) & POINT_MASK);
+    }
+
+    public static int lookahead(long item) {
+        return (int) (item & LOOKAHEAD_MASK);
+    }
+
+    /**
+     * 获取项的核心，即去掉向前看符号后的LR(0)项
+     *
+     * @param item the item
+     * @return the long
+     */
+    public static long core(long item) {
+        return item & ~LOOKAHEAD_MASK;
+    }
+
+    /**
+     * 将点向后移动一位
+     *
+     * @param item the item
+     * @return the long
+     */
+    public static long advance(long item) {
+        return item + (1L << LOOKAHEAD_BITS);
+    }
+}
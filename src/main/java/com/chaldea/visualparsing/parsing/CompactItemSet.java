@@ -0,0 +1,107 @@
+package com.chaldea.visualparsing.parsing;
+
+import java.util.Arrays;
+
+/**
+ * 以有序 long 数组表示的项集，其中的项由 {@link CompactItem} 编码
+ * <p>项集由内核项唯一确定，所以 equals 与 hashCode 只比较内核项。内核项是点不在最左端的项，
+ * 以及初始项 S'→·S。项集的闭包在确认该内核是新的项集后才通过 {@link #close(long[])}
+ * 设置，从而避免为已有的项集重复计算闭包。</p>
+ */
+public final class CompactItemSet {
+    private final long[] kernel;
+    private final int hash;
+    /**
+     * 闭包中所有的项，包括内核项，按从小到大排列
+     */
+    private long[] items;
+    /**
+     * 内核项的核心，在第一次比较核心时生成
+     */
+    private long[] coreKernel;
+
+    /**
+     * Instantiates a new Compact item set.
+     *
+     * @param kernel 按从小到大排列且无重复的内核项，不会被复制
+     */
+    CompactItemSet(long[] kernel) {
+        this.kernel = kernel;
+        hash = Arrays.hashCode(kernel);
+    }
+
+    void close(long[] items) {
+        this.items = items;
+    }
+
+    /**
+     * 获取内核项
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @return the long [ ]
+     */
+    public long[] getKernel() {
+        return kernel;
+    }
+
+    /**
+     * 获取闭包中所有的项
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @return the long [ ]
+     */
+    public long[] getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * 判断两个LR(1)项集的核心是否相同
+     *
+     * @param itemSet the item set
+     * @return the boolean
+     */
+    public boolean hasSameCore(CompactItemSet itemSet) {
+        return Arrays.equals(getCoreKernel(), itemSet.getCoreKernel());
+    }
+
+    /**
+     * 获取内核项的核心，即去掉向前看符号后的内核项，按从小到大排列且无重复
+     *
+     * @return the long [ ]
+     */
+    public long[] getCoreKernel() {
+        if (coreKernel == null) {
+            LongList cores = new LongList(kernel.length);
+            for (long item : kernel) {
+                long core = CompactItem.core(item);
+                // 同一核心的项是相邻的
+                if (cores.isEmpty() || cores.get(cores.size() - 1) != core) {
+                    cores.add(core);
+                }
+            }
+            coreKernel = cores.toArray();
+        }
+        return coreKernel;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CompactItemSet itemSet = (CompactItemSet) o;
+        return hash == itemSet.hash && Arrays.equals(kernel, itemSet.kernel);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,299 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.grammar.SymbolTable;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * 压缩存放的LR分析表
+ * <p>压缩方法与yacc、bison相同：</p>
+ * <ol>
+ *     <li>内容相同的行只保存一次，每个状态只记录其对应的行号</li>
+ *     <li>每行有一个默认值，与默认值相同的表项不再保存</li>
+ *     <li>所有行剩余的表项以不同的偏移量 base 叠放到同一对 check/next 数组中，
+ *     check 记录表项所属的行，查询时若 check 不匹配则返回该行的默认值</li>
+ * </ol>
+ * <p>ACTION表按状态分行，GOTO表按非终结符分行（即按列压缩），查询都只需常数次数组访问。</p>
+ * <p>启用默认规约时，ACTION表每行的默认值为该行出现次数最多的规约，GOTO表每列的默认值为该列
+ * 出现次数最多的状态。这样得到的表更小，但原本出错的表项可能变为规约，
+ * 出错会在下一次移入之前才被发现，与yacc的行为相同；GOTO表中原本出错的表项在分析过程中不会被查询。
+ * 不启用默认规约时，默认值均为出错，查询结果与原表完全相同。</p>
+ */
+public final class CompressedParsingTable implements LRTableLookup {
+    private final SymbolTable symbolTable;
+    private final int stateCount;
+    private final boolean defaultReductions;
+    private final CombVector actionVector;
+    private final CombVector gotoVector;
+
+    /**
+     * Instantiates a new Compressed parsing table.
+     *
+     * @param parsingTable      the parsing table
+     * @param defaultReductions 是否使用默认规约
+     */
+    public CompressedParsingTable(LRParsingTable parsingTable, boolean defaultReductions) {
+        this.defaultReductions = defaultReductions;
+        symbolTable = parsingTable.getSymbolTable();
+        stateCount = parsingTable.getStateCount();
+        int terminalCount = symbolTable.getInputSymbolCount();
+        int nonterminalCount = symbolTable.getNonterminalCount();
+
+        int[][] actionRows = new int[stateCount][terminalCount];
+        int[] actionDefaults = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int terminal = 0; terminal < terminalCount; terminal++) {
+                actionRows[state][terminal] = parsingTable.action(state, terminal);
+            }
+            actionDefaults[state] = defaultReductions
+                    ? mostFrequent(actionRows[state], ActionItem::isReduce, ActionItem.ERROR)
+                    : ActionItem.ERROR;
+        }
+        actionVector = new CombVector(actionRows, actionDefaults, ActionItem.ERROR, terminalCount);
+
+        int[][] gotoColumns = new int[nonterminalCount][stateCount];
+        int[] gotoDefaults = new int[nonterminalCount];
+        for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++) {
+            for (int state = 0; state < stateCount; state++) {
+                gotoColumns[nonterminal][state] = parsingTable.go(state, nonterminal);
+            }
+            gotoDefaults[nonterminal] = defaultReductions
+                    ? mostFrequent(gotoColumns[nonterminal], value -> value != -1, -1)
+                    : -1;
+        }
+        gotoVector = new CombVector(gotoColumns, gotoDefaults, -1, stateCount);
+    }
+
+    @Override
+    public int action(int state, int terminalId) {
+        return actionVector.get(state, terminalId);
+    }
+
+    @Override
+    public int go(int state, int nonterminalId) {
+        return gotoVector.get(nonterminalId, state);
+    }
+
+    @Override
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public boolean isDefaultReductions() {
+        return defaultReductions;
+    }
+
+    /**
+     * 未压缩时ACTION表与GOTO表所占的int数目
+     *
+     * @return the int
+     */
+    public int getDenseSize() {
+        return stateCount * (symbolTable.getInputSymbolCount() + symbolTable.getNonterminalCount());
+    }
+
+    /**
+     * 压缩后所有数组所占的int数目
+     *
+     * @return the int
+     */
+    public int getCompressedSize() {
+        return actionVector.size() + gotoVector.size();
+    }
+
+    /**
+     * 压缩比，即压缩前后的大小之比
+     *
+     * @return the double
+     */
+    public double getCompressionRatio() {
+        return (double) getDenseSize() / getCompressedSize();
+    }
+
+    /**
+     * 压缩情况的报告
+     *
+     * @return the string
+     */
+    public String getCompressionReport() {
+        return String.format("ACTION: %d x %d = %d -> %d (%d distinct rows)%n"
+                        + "GOTO: %d x %d = %d -> %d (%d distinct columns)%n"
+                        + "total: %d -> %d ints, ratio %.2f",
+                stateCount, symbolTable.getInputSymbolCount(),
+                stateCount * symbolTable.getInputSymbolCount(), actionVector.size(),
+                actionVector.getDistinctRowCount(),
+                stateCount, symbolTable.getNonterminalCount(),
+                stateCount * symbolTable.getNonterminalCount(), gotoVector.size(),
+                gotoVector.getDistinctRowCount(),
+                getDenseSize(), getCompressedSize(), getCompressionRatio());
+    }
+
+    /**
+     * 获取满足条件的值中出现次数最多的值，次数相同时取先出现的
+     *
+     * @param values       the values
+     * @param filter       the filter
+     * @param defaultValue 没有满足条件的值时返回
+     * @return the int
+     */
+    private static int mostFrequent(int[] values, IntPredicate filter,
+                                    int defaultValue) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        int result = defaultValue;
+        int maxCount = 0;
+        for (int value : values) {
+            if (!filter.test(value)) {
+                continue;
+            }
+            int count = counts.merge(value, 1, Integer::sum);
+            if (count > maxCount) {
+                maxCount = count;
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 叠放存储的二维表
+     */
+    private static final class CombVector {
+        /**
+         * 原表的行号到去重后的行号
+         */
+        private final int[] rowIndex;
+        private final int[] base;
+        private final int[] defaults;
+        private final int[] check;
+        private final int[] next;
+
+        /**
+         * @param rows        原表的所有行
+         * @param rowDefaults 每行的默认值
+         * @param errorValue  表示出错的值，出错的表项查询时返回该行的默认值
+         * @param columnCount 列数
+         */
+        CombVector(int[][] rows, int[] rowDefaults, int errorValue, int columnCount) {
+            rowIndex = new int[rows.length];
+            Map<Row, Integer> rowMap = new HashMap<>();
+            List<int[]> distinctRows = new ArrayList<>();
+            List<Integer> distinctDefaults = new ArrayList<>();
+            for (int i = 0; i < rows.length; i++) {
+                Integer index = rowMap.putIfAbsent(new Row(rows[i], rowDefaults[i]),
+                        distinctRows.size());
+                if (index == null) {
+                    index = distinctRows.size();
+                    distinctRows.add(rows[i]);
+                    distinctDefaults.add(rowDefaults[i]);
+                }
+                rowIndex[i] = index;
+            }
+            int rowCount = distinctRows.size();
+            base = new int[rowCount];
+            defaults = new int[rowCount];
+            // 每行中需要保存的列，即既不是默认值也不是出错的列
+            int[][] entries = new int[rowCount][];
+            Integer[] order = new Integer[rowCount];
+            for (int r = 0; r < rowCount; r++) {
+                defaults[r] = distinctDefaults.get(r);
+                int[] row = distinctRows.get(r);
+                int count = 0;
+                int[] columns = new int[columnCount];
+                for (int c = 0; c < columnCount; c++) {
+                    if (row[c] != defaults[r] && row[c] != errorValue) {
+                        columns[count++] = c;
+                    }
+                }
+                entries[r] = Arrays.copyOf(columns, count);
+                order[r] = r;
+            }
+            // 先放表项多的行，与bison相同
+            Arrays.sort(order, (a, b) -> Integer.compare(entries[b].length, entries[a].length));
+
+            int[] packedCheck = new int[Math.max(columnCount * 2, 16)];
+            int[] packedNext = new int[packedCheck.length];
+            Arrays.fill(packedCheck, -1);
+            int length = 0;
+            int firstFree = 0;
+            for (int r : order) {
+                int[] columns = entries[r];
+                if (columns.length == 0) {
+                    continue;
+                }
+                int offset = Math.max(firstFree - columns[0], 0);
+                while (!fits(packedCheck, columns, offset)) {
+                    offset++;
+                }
+                int end = offset + columns[columns.length - 1] + 1;
+                if (end > packedCheck.length) {
+                    int oldLength = packedCheck.length;
+                    int newLength = Math.max(end, oldLength << 1);
+                    packedCheck = Arrays.copyOf(packedCheck, newLength);
+                    packedNext = Arrays.copyOf(packedNext, newLength);
+                    Arrays.fill(packedCheck, oldLength, newLength, -1);
+                }
+                int[] row = distinctRows.get(r);
+                for (int c : columns) {
+                    packedCheck[offset + c] = r;
+                    packedNext[offset + c] = row[c];
+                }
+                base[r] = offset;
+                length = Math.max(length, end);
+                while (firstFree < packedCheck.length && packedCheck[firstFree] != -1) {
+                    firstFree++;
+                }
+            }
+            check = Arrays.copyOf(packedCheck, length);
+            next = Arrays.copyOf(packedNext, length);
+        }
+
+        private static boolean fits(int[] check, int[] columns, int offset) {
+            for (int c : columns) {
+                int i = offset + c;
+                if (i < check.length && check[i] != -1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int get(int row, int column) {
+            int r = rowIndex[row];
+            int i = base[r] + column;
+            return i < check.length && check[i] == r ? next[i] : defaults[r];
+        }
+
+        int getDistinctRowCount() {
+            return base.length;
+        }
+
+        /**
+         * 所有数组所占的int数目
+         */
+        int size() {
+            return rowIndex.length + base.length + defaults.length + check.length + next.length;
+        }
+
+        /**
+         * 用于合并内容与默认值都相同的行
+         */
+        private record Row(int[] values, int defaultValue) {
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Row row && defaultValue == row.defaultValue
+                        && Arrays.equals(values, row.values);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * Arrays.hashCode(values) + defaultValue;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.BitSetHelper;
+import com.chaldea.visualparsing.exception.LRConflictException;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+
+/**
+ * LALR语法分析表，不构造规范LR(1)项集族
+ * <p>直接在规范LR(0)项集族上由 {@link LALRLookaheads} 计算每个规约项的向前看符号，
+ * 所需的时间与空间只与LR(0)状态数有关。</p>
+ * <p>对无冲突的文法，得到的分析表与 {@link LALRParsingTable} 完全相同：合并同心项集后的
+ * 编号按每个核心第一次出现的顺序，与LR(0)项集族的编号一致。项集族中的项不带向前看符号。</p>
+ */
+public class DeRemerPennelloLALRParsingTable extends LRParsingTable {
+    private final CanonicalLR0Collection lr0Collection;
+    private final LALRLookaheads lookaheads;
+
+    public DeRemerPennelloLALRParsingTable(Grammar grammar) {
+        super(grammar);
+        lr0Collection = new CanonicalLR0Collection(grammar);
+        lrCollection = lr0Collection;
+        lookaheads = new LALRLookaheads(lr0Collection);
+        // +1是因为有结束标记#
+        actionTable =
+                new ActionItem[lr0Collection.size()][grammar.getTerminals().size() + 1];
+        gotoTable = new int[lr0Collection.size()][grammar.getNonterminals().size()];
+        constructActionTable();
+        constructGotoTable();
+        packActionTable();
+    }
+
+    /**
+     * Construct action table.构建ACTION表
+     * <p>增广文法中原有表达式的编号与原文法相同，所以规约项的表达式编号可以直接使用</p>
+     */
+    private void constructActionTable() {
+        SymbolTable augmentedSymbolTable = lr0Collection.getSymbolTable();
+        int startProduction = lr0Collection.getAugmentedGrammar().getProductionIndex().size();
+        for (int rowNumber = 0; rowNumber < lr0Collection.size(); rowNumber++) {
+            for (long item : lr0Collection.getCompactItemSet(rowNumber).getItems()) {
+                int symbol = lr0Collection.getSymbolAfterPoint(item);
+                if (symbol != -1) {
+                    // A→α·aβ
+                    if (augmentedSymbolTable.isTerminalCode(symbol)) {
+                        setActionItem(rowNumber, symbol, new ActionItem(ActionItem.Action.SHIFT,
+                                lr0Collection.getGoItemSetNumber(rowNumber, symbol)));
+                    }
+                } else if (CompactItem.production(item) == startProduction) {
+                    // S'→S·
+                    setActionItem(rowNumber, symbolTable.getEndMarkerId(),
+                            new ActionItem(ActionItem.Action.ACCEPT, -1));
+                }
+            }
+            // A→α· and A≠S'
+            for (int production : lookaheads.getReductions(rowNumber)) {
+                ActionItem actionItem = new ActionItem(ActionItem.Action.REDUCE, production);
+                long[] lookaheadSet = lookaheads.getLookaheads(rowNumber, production);
+                for (int terminal = BitSetHelper.nextSetBit(lookaheadSet, 0); terminal != -1;
+                     terminal = BitSetHelper.nextSetBit(lookaheadSet, terminal + 1)) {
+                    setActionItem(rowNumber, terminal, actionItem);
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置actionTable项，并检查设置actionTable项时是否有冲突
+     *
+     * @param rowNumber  the row number
+     * @param colNumber  the col number
+     * @param actionItem the action item
+     * @throws LRConflictException LR分析表构造冲突
+     */
+    private void setActionItem(int rowNumber, int colNumber, ActionItem actionItem) {
+        if (actionTable[rowNumber][colNumber] != null
+                && !actionTable[rowNumber][colNumber].equals(actionItem)) {
+            throw new LRConflictException(rowNumber, lr0Collection.get(rowNumber),
+                    terminalsOrder[colNumber], actionTable[rowNumber][colNumber], actionItem);
+        }
+        actionTable[rowNumber][colNumber] = actionItem;
+    }
+
+    /**
+     * 根据项集族的GOTO转移表填充gotoTable
+     */
+    private void constructGotoTable() {
+        for (int rowNumber = 0; rowNumber < lr0Collection.size(); rowNumber++) {
+            for (Nonterminal nonterminal : nonterminalsOrder) {
+                gotoTable[rowNumber][getSymbolNumber(nonterminal)] =
+                        lr0Collection.getGoItemSetNumber(rowNumber,
+                                lr0Collection.getSymbolTable().getSymbolCode(nonterminal));
+            }
+        }
+    }
+
+}
@@ -112,21 +112,36 @@ public class ItemSet implements Iterable<Item> {
             return false;
         }
         Set<Item> items1 = this.items.stream()
-                .map(n -> ((LR1Item) n).getItem()).collect(Collectors.toSet());
+                .map(ItemSet::getCore).collect(Collectors.toSet());
         Set<Item> items2 = itemSet.stream()
-                .map(n -> ((LR1Item) n).getItem()).collect(Collectors.toSet());
+                .map(ItemSet::getCore).collect(Collectors.toSet());
         return items1.equals(items2);
     }
 
+    /**
+     * 获取LR(1)项的第一分量
+     *
+     * @param item {@link LR1Item} 或 {@link LR1Items}
+     * @return the item
+     */
+    private static Item getCore(Item item) {
+        if (item instanceof LR1Items lr1Items) {
+            return lr1Items.getItem();
+        }
+        return ((LR1Item) item).getItem();
+    }
+
+    /**
+     * 只比较其中的项，所以 {@link LR1ItemSet} 与含有相同项的 ItemSet 相等
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        if (!(o instanceof ItemSet itemSet)) {
             return false;
         }
-        ItemSet itemSet = (ItemSet) o;
         return Objects.equals(items, itemSet.items);
     }
 
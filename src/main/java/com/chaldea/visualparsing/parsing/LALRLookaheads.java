@@ -0,0 +1,297 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.BitSetHelper;
+import com.chaldea.visualparsing.grammar.GrammarAnalysis;
+import com.chaldea.visualparsing.grammar.ProductionIndex;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 在规范LR(0)项集族上用DeRemer–Pennello方法计算LALR(1)向前看符号
+ * <p>对每个非终结符转移 (p,A)：</p>
+ * <ul>
+ *     <li>DR(p,A)：GOTO(p,A) 上可以移入的终结符</li>
+ *     <li>(p,A) reads (r,C)：r = GOTO(p,A) 且 C 可以推导出ε</li>
+ *     <li>(p,A) includes (p',B)：B→βAγ，γ 可以推导出ε，且从 p' 经过 β 到达 p</li>
+ *     <li>(q,A→ω) lookback (p,A)：从 p 经过 ω 到达 q</li>
+ * </ul>
+ * <p>Read = DR 沿 reads 传递，Follow = Read 沿 includes 传递，两者都通过强连通分量
+ * 一次性求出。最后 LA(q,A→ω) 为所有 lookback 到的 Follow(p,A) 的并集。</p>
+ * <p>所有位集合的下标为增广文法符号表中的终结符编号（含结束标记）。</p>
+ */
+final class LALRLookaheads {
+    private final LRCollection lr0Collection;
+    private final SymbolTable symbolTable;
+    private final ProductionIndex productionIndex;
+    private final GrammarAnalysis grammarAnalysis;
+    /**
+     * 非终结符转移的起始状态与非终结符编号，下标为转移编号
+     */
+    private int[] transitionStates;
+    private int[] transitionNonterminals;
+    /**
+     * transitionIndex[p][A] 为 (p,A) 的转移编号，不存在时为-1
+     */
+    private int[][] transitionIndex;
+    /**
+     * 每个状态中可以规约的表达式编号，按项的顺序排列
+     */
+    private final int[][] reductions;
+    /**
+     * 每个状态的第一个规约在 lookaheads 中的下标
+     */
+    private final int[] reductionOffsets;
+    private final long[][] lookaheads;
+
+    /**
+     * Instantiates a new Lalr lookaheads.
+     *
+     * @param lr0Collection 规范LR(0)项集族
+     */
+    LALRLookaheads(CanonicalLR0Collection lr0Collection) {
+        this.lr0Collection = lr0Collection;
+        symbolTable = lr0Collection.getSymbolTable();
+        productionIndex = lr0Collection.getAugmentedGrammar().getProductionIndex();
+        grammarAnalysis = lr0Collection.getAugmentedGrammar().getGrammarAnalysis();
+        reductions = new int[lr0Collection.size()][];
+        reductionOffsets = new int[lr0Collection.size()];
+        int reductionCount = 0;
+        for (int state = 0; state < lr0Collection.size(); state++) {
+            reductionOffsets[state] = reductionCount;
+            reductions[state] = collectReductions(state);
+            reductionCount += reductions[state].length;
+        }
+        lookaheads = new long[reductionCount][];
+        for (int i = 0; i < reductionCount; i++) {
+            lookaheads[i] = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        }
+        computeLookaheads();
+    }
+
+    /**
+     * 获取状态中可以规约的表达式编号
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param state the state
+     * @return the int [ ]
+     */
+    int[] getReductions(int state) {
+        return reductions[state];
+    }
+
+    /**
+     * 找出状态中所有形如 A→ω· 的项，不包括 S'→S·
+     */
+    private int[] collectReductions(int state) {
+        IntList result = new IntList();
+        for (long item : lr0Collection.getCompactItemSet(state).getItems()) {
+            int production = CompactItem.production(item);
+            if (production != productionIndex.size()
+                    && CompactItem.point(item) == productionIndex.getBodyLength(production)) {
+                result.add(production);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * LA(state, production)
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @param state      the state
+     * @param production 增广文法中的表达式编号
+     * @return 向前看符号的位集合，若该状态不能按该表达式规约则返回null
+     */
+    long[] getLookaheads(int state, int production) {
+        int[] stateReductions = reductions[state];
+        for (int i = 0; i < stateReductions.length; i++) {
+            if (stateReductions[i] == production) {
+                return lookaheads[reductionOffsets[state] + i];
+            }
+        }
+        return null;
+    }
+
+    private void computeLookaheads() {
+        indexTransitions();
+        int transitionCount = transitionStates.length;
+        int[][] transitions = lr0Collection.getTransitions();
+        long acceptItem = CompactItem.of(productionIndex.size(), 1);
+
+        // DR 与 reads
+        long[][] sets = new long[transitionCount][];
+        int[][] reads = new int[transitionCount][];
+        IntList edges = new IntList();
+        for (int t = 0; t < transitionCount; t++) {
+            int target = transitions[transitionStates[t]][
+                    symbolTable.nonterminalCode(transitionNonterminals[t])];
+            sets[t] = BitSetHelper.create(symbolTable.getInputSymbolCount());
+            for (int terminal = 0; terminal < symbolTable.getTerminalCount(); terminal++) {
+                if (transitions[target][terminal] != -1) {
+                    BitSetHelper.set(sets[t], terminal);
+                }
+            }
+            // 相当于 S'→S#，接受的项集上可以移入结束标记
+            if (Arrays.binarySearch(lr0Collection.getCompactItemSet(target).getItems(),
+                    acceptItem) >= 0) {
+                BitSetHelper.set(sets[t], symbolTable.getEndMarkerId());
+            }
+            edges.clear();
+            for (int nonterminal = 0; nonterminal < symbolTable.getNonterminalCount();
+                 nonterminal++) {
+                if (grammarAnalysis.isNullable(nonterminal)
+                        && transitionIndex[target][nonterminal] != -1) {
+                    edges.add(transitionIndex[target][nonterminal]);
+                }
+            }
+            reads[t] = edges.toArray();
+        }
+        digraph(reads, sets);
+        // 同一强连通分量中的结点共享同一个集合，沿 includes 传递前需要分开
+        for (int t = 0; t < transitionCount; t++) {
+            sets[t] = sets[t].clone();
+        }
+
+        // includes 与 lookback
+        List<IntList> includes = new ArrayList<>(transitionCount);
+        for (int t = 0; t < transitionCount; t++) {
+            includes.add(new IntList());
+        }
+        IntList lookbackReductions = new IntList();
+        IntList lookbackTransitions = new IntList();
+        for (int t = 0; t < transitionCount; t++) {
+            for (int production :
+                    productionIndex.getExpressionIndices(transitionNonterminals[t])) {
+                int[] body = productionIndex.getBodyCodes(production);
+                int state = transitionStates[t];
+                for (int i = 0; i < body.length; i++) {
+                    if (!symbolTable.isTerminalCode(body[i])
+                            && isNullable(body, i + 1)) {
+                        includes.get(transitionIndex[state][
+                                symbolTable.nonterminalId(body[i])]).add(t);
+                    }
+                    state = transitions[state][body[i]];
+                }
+                lookbackReductions.add(getReductionIndex(state, production));
+                lookbackTransitions.add(t);
+            }
+        }
+        int[][] includesRelation = new int[transitionCount][];
+        for (int t = 0; t < transitionCount; t++) {
+            includesRelation[t] = includes.get(t).toArray();
+        }
+        digraph(includesRelation, sets);
+
+        for (int i = 0; i < lookbackReductions.size(); i++) {
+            BitSetHelper.union(lookaheads[lookbackReductions.get(i)],
+                    sets[lookbackTransitions.get(i)]);
+        }
+    }
+
+    /**
+     * 为所有非终结符转移编号
+     */
+    private void indexTransitions() {
+        int[][] transitions = lr0Collection.getTransitions();
+        transitionIndex = new int[transitions.length][symbolTable.getNonterminalCount()];
+        IntList states = new IntList();
+        IntList nonterminals = new IntList();
+        for (int state = 0; state < transitions.length; state++) {
+            Arrays.fill(transitionIndex[state], -1);
+            for (int nonterminal = 0; nonterminal < symbolTable.getNonterminalCount();
+                 nonterminal++) {
+                if (transitions[state][symbolTable.nonterminalCode(nonterminal)] != -1) {
+                    transitionIndex[state][nonterminal] = states.size();
+                    states.add(state);
+                    nonterminals.add(nonterminal);
+                }
+            }
+        }
+        transitionStates = states.toArray();
+        transitionNonterminals = nonterminals.toArray();
+    }
+
+    private int getReductionIndex(int state, int production) {
+        int[] stateReductions = reductions[state];
+        for (int i = 0; i < stateReductions.length; i++) {
+            if (stateReductions[i] == production) {
+                return reductionOffsets[state] + i;
+            }
+        }
+        throw new IllegalStateException("状态 " + state + " 中没有表达式 " + production + " 的规约项");
+    }
+
+    /**
+     * 判断表达式体从 from 开始的后缀能否推导出ε
+     */
+    private boolean isNullable(int[] body, int from) {
+        for (int i = from; i < body.length; i++) {
+            if (symbolTable.isTerminalCode(body[i])
+                    || !grammarAnalysis.isNullable(symbolTable.nonterminalId(body[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * DeRemer–Pennello 的 digraph 算法，对于关系 R 求 F(x) = F'(x) ∪ ⋃{F(y) | xRy}
+     * <p>按Tarjan算法找出强连通分量，同一强连通分量中的结点共享同一个集合。
+     * 使用显式的栈代替递归，避免关系链过长时栈溢出。</p>
+     *
+     * @param relation relation[x] 为所有满足 xRy 的 y
+     * @param sets     初始为 F'，结束时为 F
+     */
+    static void digraph(int[][] relation, long[][] sets) {
+        int n = relation.length;
+        int[] depth = new int[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callNodes = new int[n];
+        int[] callEdges = new int[n];
+        int callSize = 0;
+        for (int x = 0; x < n; x++) {
+            if (depth[x] != 0) {
+                continue;
+            }
+            stack[stackSize++] = x;
+            depth[x] = stackSize;
+            callNodes[callSize] = x;
+            callEdges[callSize++] = 0;
+            while (callSize > 0) {
+                int v = callNodes[callSize - 1];
+                if (callEdges[callSize - 1] < relation[v].length) {
+                    int w = relation[v][callEdges[callSize - 1]++];
+                    if (depth[w] == 0) {
+                        stack[stackSize++] = w;
+                        depth[w] = stackSize;
+                        callNodes[callSize] = w;
+                        callEdges[callSize++] = 0;
+                        continue;
+                    }
+                    depth[v] = Math.min(depth[v], depth[w]);
+                    BitSetHelper.union(sets[v], sets[w]);
+                    continue;
+                }
+                callSize--;
+                // v 是强连通分量的根
+                if (stack[depth[v] - 1] == v) {
+                    int u;
+                    do {
+                        u = stack[--stackSize];
+                        depth[u] = Integer.MAX_VALUE;
+                        sets[u] = sets[v];
+                    } while (u != v);
+                }
+                if (callSize > 0) {
+                    int parent = callNodes[callSize - 1];
+                    depth[parent] = Math.min(depth[parent], depth[v]);
+                    BitSetHelper.union(sets[parent], sets[v]);
+                }
+            }
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package com.chaldea.visualparsing.parsing;
 
+import com.chaldea.visualparsing.BitSetHelper;
 import com.chaldea.visualparsing.exception.grammar.IllegalSymbolException;
 import com.chaldea.visualparsing.exception.grammar.ProductionNotFoundException;
 import com.chaldea.visualparsing.grammar.*;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
  * LL(1)语法分析器
  */
 public class LL1Parser {
+    /**
+     * {@link #parse(int[], int, int, DerivationListener)} 接受输入串时的返回值
+     */
+    public static final int ACCEPTED = -1;
+    private static final int INITIAL_STACK_CAPACITY = 64;
     private Grammar grammar;
-
-    private Map<ProductionSymbol, Set<Terminal>> symbolFirstMap;
-
-    private Map<Nonterminal, Set<Terminal>> symbolFollowMap;
+    /**
+     * {@link #parse(int[], int, int, DerivationListener)} 使用的预测分析表，文法变化后重新生成
+     */
+    private volatile PredictiveParsingTable parsingTable;
 
     public LL1Parser() {
     }
@@ -34,10 +41,7 @@ public class LL1Parser {
 
     public void setGrammar(Grammar grammar) {
         this.grammar = grammar;
-        symbolFirstMap =
-                new HashMap<>(grammar.getTerminals().size()
-                        + grammar.getNonterminals().size());
-        symbolFollowMap = new HashMap<>(grammar.getNonterminals().size());
+        parsingTable = null;
     }
 
     /**
@@ -47,10 +51,29 @@ public class LL1Parser {
      */
     public PredictiveParsingTable generatePredictiveParsingTable() {
         PredictiveParsingTable parsingTable = new PredictiveParsingTable(grammar);
-        for (Production production : grammar.getProductions()) {
-            for (Expression expression : production.getBody()) {
-                addExpressionToPredictiveParsingTable(production.getHead(), expression,
-                        parsingTable);
+        GrammarAnalysis grammarAnalysis = grammar.getGrammarAnalysis();
+        ProductionIndex productionIndex = grammarAnalysis.getProductionIndex();
+        SymbolTable symbolTable = grammarAnalysis.getSymbolTable();
+        long[] firstSet = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        BuildProgress progress = BuildProgress.current();
+        for (int i = 1; i <= productionIndex.size(); i++) {
+            if (progress != null) {
+                progress.checkCancelled();
+            }
+            int headId = productionIndex.getHeadId(i);
+            int[] body = productionIndex.getBodyCodes(i);
+            Arrays.fill(firstSet, 0);
+            boolean nullable = grammarAnalysis.first(body, 0, body.length, firstSet);
+            if (nullable) {
+                long[] followSet = grammarAnalysis.getFollowSet(headId);
+                for (int terminalId = BitSetHelper.nextSetBit(followSet, 0); terminalId >= 0;
+                     terminalId = BitSetHelper.nextSetBit(followSet, terminalId + 1)) {
+                    parsingTable.set(headId, terminalId, i);
+                }
+            }
+            for (int terminalId = BitSetHelper.nextSetBit(firstSet, 0); terminalId >= 0;
+                 terminalId = BitSetHelper.nextSetBit(firstSet, terminalId + 1)) {
+                parsingTable.set(headId, terminalId, i);
             }
         }
         return parsingTable;
@@ -58,7 +81,7 @@ public class LL1Parser {
 
     /**
      * 获取文法符号symbol的FIRST(symbol)
-     * <p>返回的值是一份拷贝，对其修改不会影响到symbolFirstMap</p>
+     * <p>返回的值是一份拷贝，对其修改不会影响到分析结果</p>
      * @param symbol the symbol
      * @return the set
      */
@@ -66,29 +89,14 @@ public class LL1Parser {
         if (symbol == null) {
             throw new IllegalSymbolException("文法终结符号为null");
         }
-        Set<Terminal> firstSet = symbolFirstMap.get(symbol);
-        if (firstSet != null) {
-            return new HashSet<>(firstSet);
+        if (symbol instanceof Nonterminal nonterminal
+                && grammar.getProduction(nonterminal) == null) {
+            throw new ProductionNotFoundException();
         }
-        firstSet = new HashSet<>();
-        symbolFirstMap.put(symbol, firstSet);
-        if (symbol instanceof Terminal) {
-            firstSet.add((Terminal) symbol);
-        } else if (symbol instanceof Nonterminal) {
-            // 获取到左部为symbol的产生式
-            List<Production> matchedProductionList = grammar.getProductions().stream()
-                    .filter(e -> e.getHead().equals(symbol)).toList();
-            if (matchedProductionList.isEmpty()) {
-                throw new ProductionNotFoundException();
-            }
-            Production production = matchedProductionList.get(0);
-            for (Expression expression : production.getBody()) {
-                firstSet.addAll(first(expression));
-            }
-        } else {
+        if (!(symbol instanceof Terminal) && !(symbol instanceof Nonterminal)) {
             throw new IllegalSymbolException("未知的文法符号类型");
         }
-        return new HashSet<>(firstSet);
+        return grammar.getGrammarAnalysis().first(symbol);
     }
 
     /**
@@ -99,32 +107,12 @@ public class LL1Parser {
      * @return the set
      */
     public Set<Terminal> first(Expression expression) {
-        Set<Terminal> firstSet = new HashSet<>();
-        // symbol→ε 是一个产生式，即表达式体中只有一个ε
-        if (expression.isEmptyString()) {
-            firstSet.add(Terminal.EMPTY_STRING);
-            return firstSet;
-        }
-        int index = 0;
-        Set<Terminal> symbolFirstSet;
-        boolean containEmptyString;
-        do {
-            symbolFirstSet = first(expression.get(index));
-            containEmptyString = symbolFirstSet.remove(Terminal.EMPTY_STRING);
-            firstSet.addAll(symbolFirstSet);
-            ++index;
-        } while (containEmptyString && index < expression.getValue().length);
-        // 当所有Y→ε时
-        if (index == expression.getValue().length
-                && first(expression.get(index - 1)).contains(Terminal.EMPTY_STRING)) {
-            firstSet.add(Terminal.EMPTY_STRING);
-        }
-        return firstSet;
+        return grammar.getGrammarAnalysis().first(expression);
     }
 
     /**
      * Follow set.
-     * <p>返回的值是一份拷贝，对其修改不会影响到symbolFollowMap</p>
+     * <p>返回的值是一份拷贝，对其修改不会影响到分析结果</p>
      * @param symbol the symbol
      * @return the set
      */
@@ -132,76 +120,200 @@ public class LL1Parser {
         if (symbol == null) {
             throw new IllegalSymbolException("文法非终结符号为null");
         }
-        Set<Terminal> followSet = symbolFollowMap.get(symbol);
-        if (followSet != null) {
-            return followSet;
-        }
-        followSet = new HashSet<>();
-        symbolFollowMap.put(symbol, followSet);
-        // 若 symbol 是开始符号，则将 # 放入到 FOLLOW(symbol) 中
-        if (grammar.getStartSymbol().equals(symbol)) {
-            followSet.add(Terminal.END_MARKER);
-        }
-        for(Production production : grammar.getProductions()) {
-            followSet.addAll(follow(symbol, production));
-        }
-        return new HashSet<>(followSet);
+        return grammar.getGrammarAnalysis().follow(symbol);
     }
 
     /**
-     * Follow set.
+     * 判断是否接受输入串
      *
-     * @param symbol     the symbol
-     * @param production the production
-     * @return the set
+     * @param tokens 终结符编号，不包括结束标记
+     * @return the boolean
      */
-    private Set<Terminal> follow(Nonterminal symbol, Production production) {
-        Set<Terminal> followSet = new HashSet<>();
-        for (Expression expression : production.getBody()) {
-            List<ProductionSymbol> expressionValue = List.of(expression.getValue());
-            if (!expressionValue.contains(symbol)) {
-                continue;
-            }
-            ProductionSymbol[] productionSymbols = expressionValue.subList(
-                    expressionValue.indexOf(symbol) + 1,
-                    expressionValue.size()).toArray(ProductionSymbol[]::new);
-            // 若 B→α<symbol> 或B→α<symbol>β是一个产生式且有ε∈FIRST(β)
-            if (expressionValue.get(expressionValue.size() - 1).equals(symbol)
-                || first(new Expression(productionSymbols)).contains(Terminal.EMPTY_STRING)) {
-                followSet.addAll(follow(production.getHead()));
+    public boolean accepts(int[] tokens) {
+        return parse(tokens) == ACCEPTED;
+    }
+
+    /**
+     * 对输入串进行非递归的预测分析，输入串的末尾隐含结束标记
+     *
+     * @param tokens 终结符编号，不包括结束标记
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时输入符号的下标
+     * @see #parse(int[], int, int, DerivationListener)
+     */
+    public int parse(int[] tokens) {
+        return parse(tokens, 0, tokens.length, null);
+    }
+
+    /**
+     * 对 tokens[from, to) 进行非递归的预测分析（龙书第二版P143算法4.34），输入串的末尾隐含结束标记
+     * <p>栈中存放 {@link SymbolTable} 中的符号编码，分析表通过
+     * {@link PredictiveParsingTable#getProduction(int, int)} 按编号查询，不会复制表达式。
+     * 每次用表达式替换栈顶的非终结符时通知 listener，所有表达式编号依次构成最左推导。</p>
+     * <p>预测分析表在第一次调用时生成，文法变化后重新生成。分析过程中不修改 LL1Parser 的状态，
+     * 文法不变时多个线程可以同时调用。</p>
+     *
+     * @param tokens   终结符编号，不包括结束标记
+     * @param from     the from
+     * @param to       the to
+     * @param listener 每次推导时被调用，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时输入符号的下标，为 to 时表示在结束标记处出错
+     */
+    public int parse(int[] tokens, int from, int to, DerivationListener listener) {
+        return parse(getParsingTable(), grammar.getStartSymbol(), tokens, from, to, listener);
+    }
+
+    /**
+     * 使用给定的预测分析表对 tokens[from, to) 进行非递归的预测分析，输入串的末尾隐含结束标记
+     *
+     * @param table       预测分析表
+     * @param startSymbol 开始符号
+     * @param tokens      终结符编号，不包括结束标记
+     * @param from        the from
+     * @param to          the to
+     * @param listener    每次推导时被调用，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时输入符号的下标，为 to 时表示在结束标记处出错
+     * @see #parse(int[], int, int, DerivationListener)
+     */
+    public static int parse(PredictiveParsingTable table, Nonterminal startSymbol, int[] tokens,
+                            int from, int to, DerivationListener listener) {
+        SymbolTable symbolTable = table.getSymbolTable();
+        int terminalCount = symbolTable.getTerminalCount();
+        SymbolStack stack = new SymbolStack(symbolTable, startSymbol);
+        for (int position = from; position < to; position++) {
+            int terminalId = tokens[position];
+            if (terminalId < 0 || terminalId >= terminalCount
+                    || !match(table, stack, terminalId, position, listener)) {
+                return position;
             }
-            if (productionSymbols.length != 0) {
-                // 若 B→α<symbol>β
-                Set<Terminal> firstSet = first(new Expression(productionSymbols));
-                firstSet.remove(Terminal.EMPTY_STRING);
-                followSet.addAll(firstSet);
+        }
+        return match(table, stack, symbolTable.getEndMarkerId(), to, listener) ? ACCEPTED : to;
+    }
+
+    /**
+     * 从词法单元流中逐个读取终结符进行预测分析，直到输入结束
+     * <p>只保存符号栈，占用的内存与栈的深度有关，与输入的长度无关</p>
+     *
+     * @param tokens   词法单元流，其符号表应与文法的当前符号表相同
+     * @param listener 每次推导时被调用，position 为词法单元的序号，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时词法单元的序号，为词法单元数目时表示在结束标记处出错
+     * @throws IOException the io exception
+     */
+    public long parse(TokenStream tokens, DerivationListener listener) throws IOException {
+        PredictiveParsingTable table = getParsingTable();
+        SymbolTable symbolTable = table.getSymbolTable();
+        SymbolStack stack = new SymbolStack(symbolTable, grammar.getStartSymbol());
+        long position = 0;
+        int terminalId;
+        while ((terminalId = tokens.next()) != TokenStream.EOF) {
+            if (!match(table, stack, terminalId, listenerPosition(listener, position),
+                    listener)) {
+                return position;
             }
+            position++;
         }
-        return followSet;
+        return match(table, stack, symbolTable.getEndMarkerId(),
+                listenerPosition(listener, position), listener) ? ACCEPTED : position;
     }
 
     /**
-     * Add expression to predictive parsing table.
+     * 传给 {@link DerivationListener} 的下标为 int，词法单元超过 {@link Integer#MAX_VALUE} 个时抛出异常
+     */
+    private static int listenerPosition(DerivationListener listener, long position) {
+        return listener == null ? 0 : Math.toIntExact(position);
+    }
+
+    /**
+     * 不断用表达式替换栈顶的非终结符，直到栈顶的终结符与 terminalId 匹配
      *
-     * @param head       the head
-     * @param expression the expression
-     * @param table      the table
-     */
-    private void addExpressionToPredictiveParsingTable(Nonterminal head,
-                                                       Expression expression,
-                                                       PredictiveParsingTable table) {
-        Set<Terminal> expressionFirstSet = first(expression);
-        if (expressionFirstSet.contains(Terminal.EMPTY_STRING)) {
-            Set<Terminal> headFollowSet = follow(head);
-            for (Terminal inputSymbol : headFollowSet) {
-                table.set(head, inputSymbol, expression);
+     * @return 匹配或接受时返回true，出错时返回false
+     */
+    private static boolean match(PredictiveParsingTable table, SymbolStack stack,
+                                 int terminalId, int position, DerivationListener listener) {
+        SymbolTable symbolTable = table.getSymbolTable();
+        while (true) {
+            int symbol = stack.peek();
+            if (symbol == symbolTable.getEndMarkerId()) {
+                return terminalId == symbol;
+            }
+            if (symbolTable.isTerminalCode(symbol)) {
+                if (symbol != terminalId) {
+                    return false;
+                }
+                stack.pop();
+                return true;
+            }
+            int production = table.getProduction(symbolTable.nonterminalId(symbol), terminalId);
+            if (production == PredictiveParsingTable.ERROR) {
+                return false;
+            }
+            if (listener != null) {
+                listener.derive(production, position);
             }
-            // 注意，空集不能算输入符号
-            expressionFirstSet.remove(Terminal.EMPTY_STRING);
+            stack.pop();
+            stack.pushReversed(table.getProductionIndex().getBodyCodes(production));
         }
-        for (Terminal inputSymbol : expressionFirstSet) {
-            table.set(head, inputSymbol, expression);
+    }
+
+    /**
+     * 获取当前文法的预测分析表，文法变化后重新生成
+     */
+    private PredictiveParsingTable getParsingTable() {
+        PredictiveParsingTable table = parsingTable;
+        if (table == null || table.getProductionIndex() != grammar.getProductionIndex()) {
+            table = generatePredictiveParsingTable();
+            parsingTable = table;
         }
+        return table;
     }
 
+    /**
+     * 推导事件的接收者
+     */
+    @FunctionalInterface
+    public interface DerivationListener {
+        /**
+         * 用表达式 A→β 替换栈顶的非终结符 A
+         *
+         * @param production 表达式编号
+         * @param position   此时输入符号在输入串中的下标，为输入串长度时表示结束标记
+         */
+        void derive(int production, int position);
+    }
+
+    /**
+     * 预测分析的符号栈，存放 {@link SymbolTable} 中的符号编码
+     */
+    private static final class SymbolStack {
+        private int[] symbols;
+        private int size;
+
+        /**
+         * 初始时栈中为结束标记与开始符号
+         */
+        SymbolStack(SymbolTable symbolTable, Nonterminal startSymbol) {
+            symbols = new int[INITIAL_STACK_CAPACITY];
+            symbols[size++] = symbolTable.getEndMarkerId();
+            symbols[size++] = symbolTable.getSymbolCode(startSymbol);
+        }
+
+        int peek() {
+            return symbols[size - 1];
+        }
+
+        void pop() {
+            size--;
+        }
+
+        /**
+         * 将表达式体从右到左压入栈中
+         */
+        void pushReversed(int[] body) {
+            if (size + body.length > symbols.length) {
+                symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, size + body.length));
+            }
+            for (int i = body.length - 1; i >= 0; i--) {
+                symbols[size++] = body[i];
+            }
+        }
+    }
 }
@@ -18,6 +18,7 @@ public class LR0ParsingTable extends SLRParsingTable{
     public LR0ParsingTable(Grammar grammar) {
         super(grammar);
         changeActionTableReduce();
+        packActionTable();
     }
 
     private void changeActionTableReduce() {
@@ -1,32 +1,54 @@
 package com.chaldea.visualparsing.parsing;
 
+import com.chaldea.visualparsing.BitSetHelper;
 import com.chaldea.visualparsing.exception.BaseException;
 import com.chaldea.visualparsing.grammar.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class LR1Collection extends LRCollection {
+    private static final Logger logger = LoggerFactory.getLogger(LR1Collection.class);
+
     /**
-     * The Augmented grammar.增广文法
+     * suffixFirst[p][i] 为表达式p中从第i个符号开始的符号串的FIRST集合，
+     * suffixNullable[p][i] 表示该符号串能否推导出ε
      */
-    private final Grammar augmentedGrammar;
-    private static final Logger logger = LoggerFactory.getLogger(LR1Collection.class);
+    private final long[][][] suffixFirst;
+    private final boolean[][] suffixNullable;
+    /**
+     * 并行构造项集族时使用，为null时顺序构造
+     */
+    private final ForkJoinPool pool;
+    /**
+     * (B,L) 到其闭包的缓存，并行构造时会被多个线程访问
+     */
+    private final Map<ClosureKey, long[]> closureCache = new ConcurrentHashMap<>();
 
     public LR1Collection(Grammar grammar) {
+        this(grammar, null);
+    }
+
+    /**
+     * Instantiates a new Lr 1 collection.在 pool 中并行构造项集族，结果与顺序构造完全相同
+     *
+     * @param grammar the grammar
+     * @param pool    the pool，为null时顺序构造
+     */
+    public LR1Collection(Grammar grammar, ForkJoinPool pool) {
         super(grammar);
-        augmentedGrammar = Grammars.getAugmentedGrammar(grammar);
+        this.pool = pool;
+        suffixFirst = new long[productionIndex.size() + 1][][];
+        suffixNullable = new boolean[productionIndex.size() + 1][];
+        setSuffixFirst();
         setItems();
         logger.debug("LR(1)项集：\n" + this);
     }
 
-    public Grammar getAugmentedGrammar() {
-        return augmentedGrammar;
-    }
-
     /**
      * Gets go item set.
      * 返回的是itemSetList中的元素，而不是一个新的ItemSet对象
@@ -36,131 +58,267 @@ public class LR1Collection extends LRCollection {
      * @return the go item set
      */
     public ItemSet getGoItemSet(ItemSet itemSet, ProductionSymbol symbol) {
-        ItemSet goItemSet = go(itemSet, symbol);
-        int index = getItemSetNumber(goItemSet);
+        int index = getGoItemSetNumber(itemSet, symbol);
         return index == -1 ? null : itemSetList.get(index);
     }
 
+    ItemSet closure(LR1Item lr1Item) {
+        ItemSet itemSet = new ItemSet();
+        itemSet.addItem(lr1Item);
+        return closure(itemSet);
+    }
+
     /**
-     * Gets go item set number.
+     * 计算LR(1)项集的闭包
+     * <p>对于项 A→α·Bβ,a，B→·γ,b 属于闭包，其中 b 是 FIRST(βa) 中每一个终结符号。
+     * 先由内核项求出点后面每个非终结符B的向前看符号集合L，闭包就是所有 (B,L) 的闭包的并集。
+     * (B,L) 的闭包只与B和L有关，所以按 (B,L) 缓存，见 {@link #getNonterminalClosure(int, long[])}</p>
      *
-     * @param itemSet the item set
-     * @param symbol  the symbol
-     * @return the go item set number
+     * @param kernel 按从小到大排列的项
+     * @return 闭包中的所有项，按从小到大排列且无重复
+     */
+    @Override
+    protected long[] closure(long[] kernel) {
+        // 下标为非终结符编号，为null表示点后面没有该非终结符
+        long[][] lookaheads = new long[symbolTable.getNonterminalCount()][];
+        for (long item : kernel) {
+            int symbol = getSymbolAfterPoint(item);
+            if (symbol == -1 || symbolTable.isTerminalCode(symbol)) {
+                continue;
+            }
+            int expressionIndex = CompactItem.production(item);
+            int point = CompactItem.point(item) + 1;
+            long[] bits = getLookaheads(lookaheads, symbolTable.nonterminalId(symbol));
+            BitSetHelper.union(bits, suffixFirst[expressionIndex][point]);
+            if (suffixNullable[expressionIndex][point]) {
+                BitSetHelper.set(bits, CompactItem.lookahead(item));
+            }
+        }
+        LongList items = new LongList(kernel.length * 4);
+        for (long item : kernel) {
+            items.add(item);
+        }
+        for (int nonterminalId = 0; nonterminalId < lookaheads.length; nonterminalId++) {
+            if (lookaheads[nonterminalId] == null) {
+                continue;
+            }
+            for (long item : getNonterminalClosure(nonterminalId, lookaheads[nonterminalId])) {
+                items.add(item);
+            }
+        }
+        return items.toSortedUniqueArray();
+    }
+
+    /**
+     * 获取 (B,L) 的闭包，即向前看符号集合为L的所有 B→·γ 项的闭包，不存在时计算并缓存
+     * <p>返回的是缓存中的数组，不应对其进行修改</p>
+     *
+     * @param nonterminalId B的编号
+     * @param lookaheadSet  L，作为缓存的键，之后不应对其进行修改
+     * @return 闭包中的所有项，按从小到大排列且无重复
      */
-    public int getGoItemSetNumber(ItemSet itemSet, ProductionSymbol symbol) {
-        return getItemSetNumber(go(itemSet, symbol));
+    private long[] getNonterminalClosure(int nonterminalId, long[] lookaheadSet) {
+        ClosureKey key = new ClosureKey(nonterminalId, lookaheadSet);
+        long[] items = closureCache.get(key);
+        if (items != null) {
+            closureCacheHits.increment();
+            return items;
+        }
+        closureCacheMisses.increment();
+        items = computeNonterminalClosure(nonterminalId, lookaheadSet);
+        long[] existing = closureCache.putIfAbsent(key, items);
+        return existing == null ? items : existing;
     }
 
-    ItemSet closure(ItemSet itemSet) {
-        ItemSet closureItemSet = new ItemSet(itemSet.getItemsCopy());
-        ItemSet lastStepItemSet;
-        do {
-            lastStepItemSet = new ItemSet(closureItemSet.getItemsCopy());
-            for (Item item : closureItemSet.getItemsCopy()) {
-                // 筛选到项 A→α·Bβ,a
-                // 此处使用了模式匹配特性
-                if (!(item instanceof LR1Item lr1Item)) {
-                    throw new BaseException("不是LR1项集");
-                }
-                if (lr1Item.getCurrentSymbol() == null) {
+    /**
+     * 计算 (B,L) 的闭包
+     * <p>对于 B→Cδ，C 的向前看符号集合包含 FIRST(δ)，若δ可空则还包含 B 的向前看符号集合，
+     * 沿着这种关系用工作表传播直到不再变化，再生成所有 C→·γ,b 项</p>
+     */
+    private long[] computeNonterminalClosure(int startId, long[] lookaheadSet) {
+        int nonterminalCount = symbolTable.getNonterminalCount();
+        // 下标为非终结符编号，为null表示该非终结符不在闭包中
+        long[][] lookaheads = new long[nonterminalCount][];
+        boolean[] queued = new boolean[nonterminalCount];
+        // 循环队列，每个非终结符最多在队列中出现一次
+        int[] queue = new int[nonterminalCount];
+        int head = 0;
+        int queueSize = 0;
+        lookaheads[startId] = lookaheadSet.clone();
+        queued[startId] = true;
+        queue[queueSize++] = startId;
+        while (queueSize > 0) {
+            int nonterminalId = queue[head];
+            head = (head + 1) % nonterminalCount;
+            queueSize--;
+            queued[nonterminalId] = false;
+            for (int expressionIndex : productionIndex.getExpressionIndices(nonterminalId)) {
+                int[] body = productionIndex.getBodyCodes(expressionIndex);
+                if (body.length == 0 || symbolTable.isTerminalCode(body[0])) {
                     continue;
                 }
-                if (!(lr1Item.getCurrentSymbol() instanceof Nonterminal currentSymbol)) {
-                    continue;
+                int nextId = symbolTable.nonterminalId(body[0]);
+                long[] bits = getLookaheads(lookaheads, nextId);
+                boolean changed = BitSetHelper.union(bits, suffixFirst[expressionIndex][1]);
+                if (suffixNullable[expressionIndex][1]) {
+                    changed |= BitSetHelper.union(bits, lookaheads[nonterminalId]);
                 }
-                // βa
-                List<ProductionSymbol> symbolList = new ArrayList<>();
-                for (int i = lr1Item.getPoint() + 1; i < lr1Item.getExpression().length(); i++) {
-                    symbolList.add(lr1Item.getExpression().get(i));
+                if (changed && !queued[nextId]) {
+                    queued[nextId] = true;
+                    queue[(head + queueSize++) % nonterminalCount] = nextId;
                 }
-                symbolList.add(lr1Item.getLookahead());
-                Expression symbols = new Expression(symbolList);
-                // 获取B为头的所有产生式
-                Production production = Grammars.getProductionByHead(currentSymbol,
-                        augmentedGrammar);
-                addClosureItems(symbols, production, closureItemSet);
             }
-        } while (!lastStepItemSet.equals(closureItemSet));
-        return closureItemSet;
+        }
+        LongList items = new LongList();
+        for (int nonterminalId = 0; nonterminalId < nonterminalCount; nonterminalId++) {
+            long[] bits = lookaheads[nonterminalId];
+            if (bits == null) {
+                continue;
+            }
+            for (int expressionIndex : productionIndex.getExpressionIndices(nonterminalId)) {
+                for (int terminalId = BitSetHelper.nextSetBit(bits, 0); terminalId >= 0;
+                     terminalId = BitSetHelper.nextSetBit(bits, terminalId + 1)) {
+                    items.add(CompactItem.of(expressionIndex, 0, terminalId));
+                }
+            }
+        }
+        return items.toSortedUniqueArray();
     }
 
-    ItemSet closure(LR1Item lr1Item) {
-        ItemSet itemSet = new ItemSet();
-        itemSet.addItem(lr1Item);
-        return closure(itemSet);
+    private long[] getLookaheads(long[][] lookaheads, int nonterminalId) {
+        if (lookaheads[nonterminalId] == null) {
+            lookaheads[nonterminalId] =
+                    BitSetHelper.create(symbolTable.getInputSymbolCount());
+        }
+        return lookaheads[nonterminalId];
     }
 
     /**
-     * 对于G'每个产生式 B→γ ，将 B→·γ,b 加入到集合 itemSet 中，其中 b 是
-     * FIRST(βa) 中每一个终结符号
-     *
-     * @param symbols    代表 βa
-     * @param production G'中 B 为头的产生式
-     * @param itemSet    the item set
+     * 从后向前计算每个表达式所有后缀的FIRST集合
      */
-    private void addClosureItems(Expression symbols, Production production,
-                                 ItemSet itemSet) {
-        for (Expression expression : production.getBody()) {
-            // 新建 LL1Parser 对象是为了获取 FIRST(βa)
-            LL1Parser ll1Parser = new LL1Parser(augmentedGrammar);
-            Set<Terminal> terminals = ll1Parser.first(symbols);
-            for (Terminal terminal : terminals) {
-                LR1Item lr1Item = new LR1Item(production.getHead(), expression,
-                        0, terminal);
-                itemSet.addItem(lr1Item);
+    private void setSuffixFirst() {
+        GrammarAnalysis grammarAnalysis = augmentedGrammar.getGrammarAnalysis();
+        for (int p = 1; p <= productionIndex.size(); p++) {
+            int[] body = productionIndex.getBodyCodes(p);
+            suffixFirst[p] = new long[body.length + 1][];
+            suffixNullable[p] = new boolean[body.length + 1];
+            suffixFirst[p][body.length] = BitSetHelper.create(symbolTable.getInputSymbolCount());
+            suffixNullable[p][body.length] = true;
+            for (int i = body.length - 1; i >= 0; i--) {
+                long[] bits = BitSetHelper.create(symbolTable.getInputSymbolCount());
+                if (symbolTable.isTerminalCode(body[i])) {
+                    BitSetHelper.set(bits, body[i]);
+                } else {
+                    int nonterminalId = symbolTable.nonterminalId(body[i]);
+                    BitSetHelper.union(bits, grammarAnalysis.getFirstSet(nonterminalId));
+                    if (grammarAnalysis.isNullable(nonterminalId)) {
+                        BitSetHelper.union(bits, suffixFirst[p][i + 1]);
+                        suffixNullable[p][i] = suffixNullable[p][i + 1];
+                    }
+                }
+                suffixFirst[p][i] = bits;
             }
         }
     }
 
-    ItemSet go(ItemSet itemSet, ProductionSymbol symbol) {
-        ItemSet kernelItemSet = new ItemSet();
-        itemSet.getItemsCopy()
-                .stream()
-                .filter(n -> symbol.equals(n.getCurrentSymbol()))
-                .map(n -> new LR1Item(n.getHead(), n.getExpression(),
-                        n.getPoint() + 1, ((LR1Item) n).getLookahead()))
-                .forEach(kernelItemSet::addItem);
-        return closure(kernelItemSet);
+    /**
+     * Sets items.构造LR(1)项集族
+     * <p>将C初始化为{CLOSURE(S'→·S,#)}，增广文法的产生式S'→S是最后一个表达式。
+     * 在构造方法中调用，子类可以覆盖以其他方式构造项集族，此时子类的字段尚未初始化</p>
+     */
+    protected void setItems() {
+        long[] initialKernel = new long[]{CompactItem.of(productionIndex.size(), 0,
+                symbolTable.getEndMarkerId())};
+        if (pool == null) {
+            buildItemSets(initialKernel);
+        } else {
+            buildItemSets(initialKernel, pool);
+        }
+    }
+
+    @Override
+    protected Item toItem(long item) {
+        int expressionIndex = CompactItem.production(item);
+        return new LR1Item(productionIndex.getHead(expressionIndex),
+                productionIndex.getExpression(expressionIndex), CompactItem.point(item),
+                symbolTable.getTerminal(CompactItem.lookahead(item)));
+    }
+
+    @Override
+    protected long toCompactItem(Item item) {
+        if (!(item instanceof LR1Item lr1Item)) {
+            throw new BaseException("不是LR1项集");
+        }
+        return CompactItem.of(productionIndex.getExpressionIndex(item.getHead(),
+                        item.getExpression()), item.getPoint(),
+                symbolTable.getTerminalId(lr1Item.getLookahead()));
     }
 
     /**
-     * Sets items.构造LR(1)项集族
+     * 将编码后的项转换为 {@link LR1ItemSet}，同一核心的项合并为一个 {@link LR1Items}
+     *
+     * @param items 按从小到大排列的项，同一核心的项是相邻的
+     * @return the item set
      */
-    private void setItems() {
-        // 将C初始化为{CLOSURE(S'→·S,$)}
-        ItemSet initialItemSet = new ItemSet();
-        initialItemSet.addItem(new LR1Item(
-                augmentedGrammar.getStartSymbol(),
-                Grammars.getProductionByHead(augmentedGrammar.getStartSymbol(),
-                        augmentedGrammar).getBody().get(0),
-                0,
-                Terminal.END_MARKER
-        ));
-        itemSetList.add(closure(initialItemSet));
-        List<ItemSet> lastItemSetList;
-        do {
-            lastItemSetList = new ArrayList<>(itemSetList);
-            for (ItemSet itemSet : itemSetList.stream().toList()) {
-                grammar.getProductionSymbols().forEach(n -> addGotoItems(itemSet, n));
+    @Override
+    protected ItemSet toItemSet(long[] items) {
+        LR1ItemSet itemSet = new LR1ItemSet(symbolTable);
+        int i = 0;
+        while (i < items.length) {
+            long core = CompactItem.core(items[i]);
+            long[] lookaheads = BitSetHelper.create(symbolTable.getInputSymbolCount());
+            for (; i < items.length && CompactItem.core(items[i]) == core; i++) {
+                BitSetHelper.set(lookaheads, CompactItem.lookahead(items[i]));
             }
-        } while (!lastItemSetList.equals(itemSetList));
+            int expressionIndex = CompactItem.production(core);
+            itemSet.addItem(new LR1Items(productionIndex.getHead(expressionIndex),
+                    productionIndex.getExpression(expressionIndex), CompactItem.point(core),
+                    symbolTable, lookaheads));
+        }
+        return itemSet;
     }
 
     /**
-     * 如果 go(itemSet,symbol) 非空且不在 itemSetList 中，则将其加入。
+     * 将项集编码，项可以是 {@link LR1Items} 或 {@link LR1Item}
      *
      * @param itemSet the item set
-     * @param symbol  the symbol
+     * @return the long [ ]
      */
-    private void addGotoItems(ItemSet itemSet, ProductionSymbol symbol) {
-        ItemSet gotoItemSet = go(itemSet, symbol);
-        if (gotoItemSet.isEmpty()) {
-            return;
+    @Override
+    protected long[] toCompactItems(ItemSet itemSet) {
+        LongList items = new LongList();
+        for (Item item : itemSet) {
+            if (item instanceof LR1Items lr1Items) {
+                int expressionIndex = productionIndex.getExpressionIndex(item.getHead(),
+                        item.getExpression());
+                long[] bits = lr1Items.getLookaheadBits();
+                for (int id = BitSetHelper.nextSetBit(bits, 0); id != -1;
+                     id = BitSetHelper.nextSetBit(bits, id + 1)) {
+                    items.add(CompactItem.of(expressionIndex, item.getPoint(), id));
+                }
+            } else {
+                items.add(toCompactItem(item));
+            }
         }
-        if (itemSetList.contains(gotoItemSet)) {
-            return;
+        return items.toSortedUniqueArray();
+    }
+
+    /**
+     * 闭包缓存的键
+     *
+     * @param nonterminalId 非终结符B的编号
+     * @param lookaheadSet  B的向前看符号集合
+     */
+    private record ClosureKey(int nonterminalId, long[] lookaheadSet) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ClosureKey key && nonterminalId == key.nonterminalId
+                    && Arrays.equals(lookaheadSet, key.lookaheadSet);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * nonterminalId + Arrays.hashCode(lookaheadSet);
         }
-        itemSetList.add(gotoItemSet);
     }
 }
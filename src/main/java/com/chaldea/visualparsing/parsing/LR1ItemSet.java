@@ -1,54 +1,116 @@
 package com.chaldea.visualparsing.parsing;
 
+import com.chaldea.visualparsing.exception.BaseException;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+
 import java.util.*;
 
 /**
- * 该类为编写中被遗弃的类，该类的原意为其中的元素为LR(1)项的缩写，例如 C→·cC, c/d。
- * 即包含的LR(1)项可以有多个向前看符号。你不应该使用该类，如果你有兴趣，可以完善该类，
- * 并且编写一个新的LR1Items类或修改LR1Item类，现有的LR1Item类只有一个向前看符号。
+ * LR(1)项集，其中的元素为 {@link LR1Items}，即第一分量相同的项只保存一个对象，例如 C→·cC, c/d
+ * <p>加入项时若已有第一分量相同的项，则合并两者的向前看符号。也可以加入只有一个向前看符号的
+ * {@link LR1Item}，会被转换为 {@link LR1Items}。项按加入的顺序排列。</p>
  */
-@Deprecated
-public class LR1ItemSet extends ItemSet{
-
-    private LR1ItemSet() {
-        super();
-    }
+public class LR1ItemSet extends ItemSet {
+    private final SymbolTable symbolTable;
+    /**
+     * 第一分量到项的映射
+     */
+    private final Map<Item, LR1Items> coreMap;
 
-    private LR1ItemSet(Set<LR1Item> lr1Items) {
-        super(new HashSet<>(lr1Items));
+    /**
+     * Instantiates a new Lr 1 item set.
+     *
+     * @param symbolTable 向前看符号编号所属的符号表
+     */
+    public LR1ItemSet(SymbolTable symbolTable) {
+        super(new LinkedHashSet<>());
+        this.symbolTable = symbolTable;
+        coreMap = new HashMap<>();
     }
 
+    /**
+     * Add item boolean.
+     *
+     * @param item {@link LR1Items} 或 {@link LR1Item}
+     * @return true if this set changed as a result of the call
+     */
     @Override
     public boolean addItem(Item item) {
-        return addItem((LR1Item) item);
+        if (item instanceof LR1Items lr1Items) {
+            return addItem(lr1Items);
+        }
+        if (item instanceof LR1Item lr1Item) {
+            return addItem(new LR1Items(lr1Item, symbolTable));
+        }
+        throw new BaseException("不是LR1项");
     }
 
-    public boolean addItem(LR1Item lr1Item) {
-        for (Item item : this) {
-            LR1Item lr1ItemOfItems = (LR1Item) item;
-            if (!lr1ItemOfItems.itemEquals(lr1Item)) {
-                continue;
-            }
-            super.removeItem(lr1ItemOfItems);
-//            LR1Item newLR1Item = new LR1Item()
+    /**
+     * 加入项，若已有第一分量相同的项则合并向前看符号
+     *
+     * @param lr1Items the lr 1 items
+     * @return true if this set changed as a result of the call
+     */
+    public boolean addItem(LR1Items lr1Items) {
+        Item core = lr1Items.getItem();
+        LR1Items existing = coreMap.get(core);
+        if (existing == null) {
+            coreMap.put(core, lr1Items);
+            return super.addItem(lr1Items);
+        }
+        LR1Items merged = existing.union(lr1Items);
+        if (merged == existing) {
+            return false;
         }
-        return super.addItem(lr1Item);
+        super.removeItem(existing);
+        coreMap.put(core, merged);
+        return super.addItem(merged);
     }
 
     @Override
     public boolean addAllItems(Collection<Item> items) {
-        items.stream().map(n -> (LR1Item) n).forEach(this::addItem);
-        // Avoid compiler error
-        return false;
+        boolean changed = false;
+        for (Item item : items) {
+            changed |= addItem(item);
+        }
+        return changed;
     }
 
     @Override
-    public boolean addAllItems(ItemSet itemSet) {
-        return super.addAllItems(itemSet);
+    public boolean removeItem(Item item) {
+        if (super.removeItem(item)) {
+            coreMap.remove(((LR1Items) item).getItem());
+            return true;
+        }
+        return false;
     }
 
     @Override
-    public Set<Item> getItemsCopy() {
-        return super.getItemsCopy();
+    public void clear() {
+        super.clear();
+        coreMap.clear();
+    }
+
+    /**
+     * 获取第一分量相同的项
+     *
+     * @param item 第一分量
+     * @return the lr 1 items，不存在时返回null
+     */
+    public LR1Items getLR1Items(Item item) {
+        return coreMap.get(item instanceof LR1Items lr1Items ? lr1Items.getItem() : item);
+    }
+
+    /**
+     * 项集中LR(1)项的数目，即所有向前看符号的数目之和
+     *
+     * @return the int
+     */
+    public int getLR1ItemCount() {
+        int count = 0;
+        for (LR1Items lr1Items : coreMap.values()) {
+            count += lr1Items.getLookaheadCount();
+        }
+        return count;
     }
 }
@@ -0,0 +1,166 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.BitSetHelper;
+import com.chaldea.visualparsing.grammar.Expression;
+import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.Terminal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 第一分量相同的一组LR(1)项的缩写，例如 C→·cC, c/d
+ * <p>向前看符号以位集合保存，位的下标为 {@link SymbolTable} 中的终结符编号。
+ * 对象是不可变的，合并向前看符号时通过 {@link #union(LR1Items)} 生成新的对象。</p>
+ */
+public class LR1Items extends Item {
+    private final SymbolTable symbolTable;
+    private final long[] lookaheads;
+    private final int hash;
+
+    /**
+     * Instantiates a new Lr 1 items.
+     *
+     * @param head        the head
+     * @param expression  the expression
+     * @param point       the point
+     * @param symbolTable 向前看符号编号所属的符号表
+     * @param lookaheads  向前看符号的位集合，不会被复制
+     */
+    public LR1Items(Nonterminal head, Expression expression, int point,
+                    SymbolTable symbolTable, long[] lookaheads) {
+        super(head, expression, point);
+        this.symbolTable = symbolTable;
+        this.lookaheads = lookaheads;
+        hash = 31 * super.hashCode() + Arrays.hashCode(lookaheads);
+    }
+
+    /**
+     * Instantiates a new Lr 1 items.只有一个向前看符号
+     *
+     * @param lr1Item     the lr 1 item
+     * @param symbolTable the symbol table
+     */
+    public LR1Items(LR1Item lr1Item, SymbolTable symbolTable) {
+        this(lr1Item.getHead(), lr1Item.getExpression(), lr1Item.getPoint(), symbolTable,
+                singleton(symbolTable, lr1Item.getLookahead()));
+    }
+
+    private static long[] singleton(SymbolTable symbolTable, Terminal lookahead) {
+        long[] bits = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        BitSetHelper.set(bits, symbolTable.getTerminalId(lookahead));
+        return bits;
+    }
+
+    /**
+     * 获取所有向前看符号，按符号表中的编号排列
+     *
+     * @return the lookaheads
+     */
+    public List<Terminal> getLookaheads() {
+        List<Terminal> terminals = new ArrayList<>(BitSetHelper.cardinality(lookaheads));
+        for (int id = BitSetHelper.nextSetBit(lookaheads, 0); id != -1;
+             id = BitSetHelper.nextSetBit(lookaheads, id + 1)) {
+            terminals.add(symbolTable.getTerminal(id));
+        }
+        return terminals;
+    }
+
+    /**
+     * 获取向前看符号的位集合
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @return the long [ ]
+     */
+    public long[] getLookaheadBits() {
+        return lookaheads;
+    }
+
+    public int getLookaheadCount() {
+        return BitSetHelper.cardinality(lookaheads);
+    }
+
+    public boolean containsLookahead(Terminal terminal) {
+        int id = symbolTable.getTerminalId(terminal);
+        return id != -1 && BitSetHelper.get(lookaheads, id);
+    }
+
+    /**
+     * 判断第一分量是否相同
+     *
+     * @param item the item
+     * @return the boolean
+     */
+    public boolean itemEquals(Item item) {
+        return getPoint() == item.getPoint() && Objects.equals(getHead(), item.getHead())
+                && Objects.equals(getExpression(), item.getExpression());
+    }
+
+    /**
+     * 获取第一分量，是一个Item对象
+     *
+     * @return the item
+     */
+    public Item getItem() {
+        return new Item(getHead(), getExpression(), getPoint());
+    }
+
+    /**
+     * 合并第一分量相同的项的向前看符号
+     *
+     * @param lr1Items 第一分量相同的项
+     * @return 合并后的项，若没有新的向前看符号则返回this
+     */
+    public LR1Items union(LR1Items lr1Items) {
+        if (BitSetHelper.isSubset(lr1Items.lookaheads, lookaheads)) {
+            return this;
+        }
+        long[] bits = lookaheads.clone();
+        BitSetHelper.union(bits, lr1Items.lookaheads);
+        return new LR1Items(getHead(), getExpression(), getPoint(), symbolTable, bits);
+    }
+
+    /**
+     * 展开为每个向前看符号一个的LR(1)项
+     *
+     * @return the list
+     */
+    public List<LR1Item> toLR1ItemList() {
+        List<LR1Item> lr1Items = new ArrayList<>();
+        for (Terminal terminal : getLookaheads()) {
+            lr1Items.add(new LR1Item(getHead(), getExpression(), getPoint(), terminal));
+        }
+        return lr1Items;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LR1Items lr1Items = (LR1Items) o;
+        return hash == lr1Items.hash && itemEquals(lr1Items)
+                && Arrays.equals(lookaheads, lr1Items.lookaheads);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder(super.toString()).append(",");
+        for (Terminal terminal : getLookaheads()) {
+            stringBuilder.append(terminal.getValue()).append("/");
+        }
+        stringBuilder.deleteCharAt(stringBuilder.length() - 1);
+        return stringBuilder.toString();
+    }
+}
@@ -6,6 +6,8 @@ import com.chaldea.visualparsing.grammar.Grammars;
 import com.chaldea.visualparsing.grammar.Nonterminal;
 import com.chaldea.visualparsing.grammar.Terminal;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class LR1ParsingTable extends LRParsingTable {
     private final LR1Collection lr1Collection;
 
@@ -22,8 +24,10 @@ public class LR1ParsingTable extends LRParsingTable {
         // +1是因为有结束标记#
         actionTable =
                 new ActionItem[lr1Collection.size()][grammar.getTerminals().size() + 1];
-        gotoTable = new ItemSet[lr1Collection.size()][grammar.getNonterminals().size()];
+        gotoTable = new int[lr1Collection.size()][grammar.getNonterminals().size()];
         constructActionTable();
+        constructGotoTable();
+        packActionTable();
     }
 
     public LR1ParsingTable(Grammar grammar) {
@@ -33,56 +37,55 @@ public class LR1ParsingTable extends LRParsingTable {
         // +1是因为有结束标记#
         actionTable =
                 new ActionItem[lr1Collection.size()][grammar.getTerminals().size() + 1];
-        gotoTable = new ItemSet[lr1Collection.size()][grammar.getNonterminals().size()];
+        gotoTable = new int[lr1Collection.size()][grammar.getNonterminals().size()];
         constructActionTable();
         constructGotoTable();
+        packActionTable();
     }
 
-    @Override
-    public ActionItem action(int state, Terminal terminal) {
-        return actionTable[state][getSymbolNumber(terminal)];
-    }
-
-    @Override
-    public int go(int state, Nonterminal nonterminal) {
-        int index = getSymbolNumber(nonterminal);
-        ItemSet itemSet = gotoTable[state][index];
-        return lr1Collection.getItemSetNumber(itemSet);
+    /**
+     * Instantiates a new Lr 1 parsing table.在 pool 中并行构造LR(1)项集族
+     *
+     * @param grammar the grammar
+     * @param pool    the pool
+     */
+    public LR1ParsingTable(Grammar grammar, ForkJoinPool pool) {
+        this(grammar, new LR1Collection(grammar, pool));
     }
 
     private void constructActionTable() {
-        for (ItemSet itemSet : lr1Collection.itemSetList) {
-            for (Item item : itemSet) {
-                LR1Item lr1Item = (LR1Item) item;
-                setActionItem(lr1Item, itemSet);
+        for (int i = 0; i < lr1Collection.size(); i++) {
+            for (Item item : lr1Collection.get(i)) {
+                setActionItem((LR1Items) item, i);
             }
         }
     }
 
-    private void setActionItem(LR1Item lr1Item, ItemSet itemSet) {
-        int rowNumber = lr1Collection.getItemSetNumber(itemSet);
+    private void setActionItem(LR1Items lr1Items, int rowNumber) {
         int colNumber;
-        if (lr1Item.getCurrentSymbol() != null) {
-            if (!(lr1Item.getCurrentSymbol() instanceof Terminal terminal)) {
+        if (lr1Items.getCurrentSymbol() != null) {
+            if (!(lr1Items.getCurrentSymbol() instanceof Terminal terminal)) {
                 return;
             }
             // A→α·aβ, b   a is a terminal
             colNumber = getSymbolNumber(terminal);
             ActionItem actionItem = new ActionItem(ActionItem.Action.SHIFT,
-                    lr1Collection.getGoItemSetNumber(itemSet, terminal));
+                    lr1Collection.getGoItemSetNumber(rowNumber,
+                            lr1Collection.getSymbolTable().getSymbolCode(terminal)));
             setActionItem(rowNumber, colNumber, actionItem);
-        } else if (lr1Item.getHead().equals(lr1Collection.getAugmentedGrammar().getStartSymbol())) {
+        } else if (lr1Items.getHead().equals(lr1Collection.getAugmentedGrammar().getStartSymbol())) {
             // S'→S·,#
             colNumber = getSymbolNumber(Terminal.END_MARKER);
             ActionItem actionItem = new ActionItem(ActionItem.Action.ACCEPT, -1);
             setActionItem(rowNumber, colNumber, actionItem);
         } else {
-            // A→α·,a and A≠S'
-            colNumber = getSymbolNumber(lr1Item.getLookahead());
+            // A→α·,a and A≠S'，对每个向前看符号a
             ActionItem actionItem = new ActionItem(ActionItem.Action.REDUCE,
-                    Grammars.getExpressionIndex(getGrammar(), lr1Item.getHead(),
-                            lr1Item.getExpression()));
-            setActionItem(rowNumber, colNumber, actionItem);
+                    Grammars.getExpressionIndex(getGrammar(), lr1Items.getHead(),
+                            lr1Items.getExpression()));
+            for (Terminal lookahead : lr1Items.getLookaheads()) {
+                setActionItem(rowNumber, getSymbolNumber(lookahead), actionItem);
+            }
         }
     }
 
@@ -105,14 +108,16 @@ public class LR1ParsingTable extends LRParsingTable {
         actionTable[rowNumber][colNumber] = actionItem;
     }
 
+    /**
+     * 根据项集族的GOTO转移表填充gotoTable
+     */
     private void constructGotoTable() {
-        for (ItemSet itemSet : lr1Collection.itemSetList) {
-            int rowNumber = lr1Collection.getItemSetNumber(itemSet);
-            getGrammar().getNonterminals().forEach(n -> {
-                int colNumber = getSymbolNumber(n);
-                gotoTable[rowNumber][colNumber] =
-                        lr1Collection.getGoItemSet(itemSet, n);
-            });
+        for (int rowNumber = 0; rowNumber < lr1Collection.size(); rowNumber++) {
+            for (Nonterminal nonterminal : nonterminalsOrder) {
+                gotoTable[rowNumber][getSymbolNumber(nonterminal)] =
+                        lr1Collection.getGoItemSetNumber(rowNumber,
+                                lr1Collection.getSymbolTable().getSymbolCode(nonterminal));
+            }
         }
     }
 
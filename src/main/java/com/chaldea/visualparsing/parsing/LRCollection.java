@@ -1,19 +1,89 @@
 package com.chaldea.visualparsing.parsing;
 
-import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.exception.BaseException;
+import com.chaldea.visualparsing.grammar.*;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * LR项集族
+ * <p>项集族的构造使用 {@link CompactItem} 编码的项与 {@link CompactItemSet}，
+ * 从初始项集开始按广度优先的顺序处理每个项集，对每个项集按符号编码从小到大求GOTO，
+ * 因此项集的编号是确定的。构造完成后再将每个项集转换为 {@link ItemSet} 供界面等使用。</p>
+ * <p>也可以通过 {@link #buildItemSets(long[], ForkJoinPool)} 并行构造，结果与顺序构造完全相同。</p>
+ */
 public abstract class LRCollection implements Iterable<ItemSet> {
 
     protected final Grammar grammar;
     protected final List<ItemSet> itemSetList;
+    /**
+     * The Augmented grammar.增广文法
+     */
+    protected final Grammar augmentedGrammar;
+    /**
+     * 增广文法的符号表与表达式编号索引，是项的编码依据
+     */
+    protected final SymbolTable symbolTable;
+    protected final ProductionIndex productionIndex;
+    /**
+     * 与 itemSetList 一一对应
+     */
+    protected final List<CompactItemSet> compactItemSetList;
+    /**
+     * 内核到项集编号的映射
+     */
+    private final Map<CompactItemSet, Integer> kernelIndexMap;
+    /**
+     * itemSetList 中的对象到项集编号的映射，按对象的引用查找
+     */
+    private final Map<ItemSet, Integer> itemSetIndexMap;
+    /**
+     * GOTO转移表，transitions[i][X] 为 GOTO(Ii,X) 的编号，不存在时为-1。
+     * 列号为增广文法符号表中的统一编码，在构造项集族时记录
+     */
+    private int[][] transitions;
+    /**
+     * 闭包缓存的命中与未命中次数，由子类在计算闭包时记录
+     */
+    protected final LongAdder closureCacheHits = new LongAdder();
+    protected final LongAdder closureCacheMisses = new LongAdder();
 
     public LRCollection(Grammar grammar) {
         this.grammar = grammar;
         itemSetList = new ArrayList<>();
+        augmentedGrammar = Grammars.getAugmentedGrammar(grammar);
+        symbolTable = augmentedGrammar.getSymbolTable();
+        productionIndex = augmentedGrammar.getProductionIndex();
+        checkCompactItemLimits();
+        compactItemSetList = new ArrayList<>();
+        kernelIndexMap = new HashMap<>();
+        itemSetIndexMap = new IdentityHashMap<>();
+    }
+
+    /**
+     * 检查增广文法能否用 {@link CompactItem} 编码，超出时各个字段会相互覆盖
+     *
+     * @throws BaseException 表达式数目、表达式体长度或输入符号数目超出 CompactItem 的范围时
+     */
+    private void checkCompactItemLimits() {
+        // 表达式编号从1开始
+        if (productionIndex.size() > CompactItem.MAX_PRODUCTION) {
+            throw new BaseException("表达式的数目超出" + CompactItem.MAX_PRODUCTION);
+        }
+        for (int i = 1; i <= productionIndex.size(); i++) {
+            if (productionIndex.getBodyLength(i) > CompactItem.MAX_POINT) {
+                throw new BaseException("表达式体的长度超出" + CompactItem.MAX_POINT + "："
+                        + productionIndex.getProduction(i));
+            }
+        }
+        if (symbolTable.getInputSymbolCount() - 1 > CompactItem.MAX_LOOKAHEAD) {
+            throw new BaseException("终结符的数目超出" + CompactItem.MAX_LOOKAHEAD);
+        }
     }
 
     /**
@@ -39,14 +109,431 @@ public abstract class LRCollection implements Iterable<ItemSet> {
         return grammar;
     }
 
+    public Grammar getAugmentedGrammar() {
+        return augmentedGrammar;
+    }
+
+    /**
+     * Gets compact item set.
+     *
+     * @param index the index
+     * @return the compact item set
+     */
+    public CompactItemSet getCompactItemSet(int index) {
+        return compactItemSetList.get(index);
+    }
+
     /**
      * Gets item set number.
+     * <p>对于 itemSetList 中的对象按引用直接查找，否则按内核查找后再比较整个项集</p>
      *
      * @param itemSet the item set
-     * @return the item set number
+     * @return the item set number，若不存在则返回-1
      */
     public int getItemSetNumber(ItemSet itemSet) {
-        return itemSetList.indexOf(itemSet);
+        if (itemSet == null) {
+            return -1;
+        }
+        Integer index = itemSetIndexMap.get(itemSet);
+        if (index != null) {
+            return index;
+        }
+        if (itemSet.isEmpty()) {
+            return -1;
+        }
+        int number = getItemSetNumber(new CompactItemSet(getKernel(toCompactItems(itemSet))));
+        return number != -1 && itemSetList.get(number).equals(itemSet) ? number : -1;
+    }
+
+    /**
+     * Gets item set number.根据内核获取项集编号
+     *
+     * @param kernelItemSet 只需要内核相同的项集
+     * @return the item set number，若不存在则返回-1
+     */
+    public int getItemSetNumber(CompactItemSet kernelItemSet) {
+        Integer index = kernelIndexMap.get(kernelItemSet);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 判断项集族中是否含有该项集
+     *
+     * @param itemSet the item set
+     * @return the boolean
+     */
+    public boolean contains(ItemSet itemSet) {
+        return getItemSetNumber(itemSet) != -1;
+    }
+
+    /**
+     * 获取增广文法的符号表，即项的编码与GOTO转移表列号的依据
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Gets go item set number.获取 GOTO(I,X) 的编号
+     *
+     * @param state      项集I的编号
+     * @param symbolCode 文法符号X在增广文法中的统一编码
+     * @return the go item set number，若不存在则返回-1
+     */
+    public int getGoItemSetNumber(int state, int symbolCode) {
+        return transitions[state][symbolCode];
+    }
+
+    /**
+     * Gets go item set number.获取 GOTO(I,X) 的编号
+     * <p>I在项集族中时直接查找GOTO转移表，否则计算 GOTO(I,X) 后再查找</p>
+     *
+     * @param itemSet the item set
+     * @param symbol  the symbol
+     * @return the go item set number，若不存在则返回-1
+     */
+    public int getGoItemSetNumber(ItemSet itemSet, ProductionSymbol symbol) {
+        int state = getItemSetNumber(itemSet);
+        int code = symbolTable.getSymbolCode(symbol);
+        if (state != -1 && code != -1) {
+            return transitions[state][code];
+        }
+        return getItemSetNumber(go(itemSet, symbol));
+    }
+
+    /**
+     * 获取GOTO转移表
+     * <p>返回的是内部数组，不应对其进行修改</p>
+     *
+     * @return the int [ ] [ ]
+     */
+    public int[][] getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * 闭包缓存的命中次数
+     *
+     * @return the long
+     */
+    public long getClosureCacheHits() {
+        return closureCacheHits.sum();
+    }
+
+    /**
+     * 闭包缓存的未命中次数，即实际计算的次数
+     *
+     * @return the long
+     */
+    public long getClosureCacheMisses() {
+        return closureCacheMisses.sum();
+    }
+
+    /**
+     * 获取项中点后面的符号的统一编码
+     *
+     * @param item the item
+     * @return 统一编码，若点在最右端则返回-1
+     */
+    public int getSymbolAfterPoint(long item) {
+        int[] body = productionIndex.getBodyCodes(CompactItem.production(item));
+        int point = CompactItem.point(item);
+        return point < body.length ? body[point] : -1;
+    }
+
+    /**
+     * 计算项集的闭包
+     *
+     * @param kernel 按从小到大排列的项
+     * @return 闭包中的所有项，按从小到大排列且无重复
+     */
+    protected abstract long[] closure(long[] kernel);
+
+    /**
+     * 将编码后的项转换为项对象
+     *
+     * @param item the item
+     * @return the item
+     */
+    protected abstract Item toItem(long item);
+
+    /**
+     * 将项对象编码
+     *
+     * @param item the item
+     * @return the long
+     */
+    protected abstract long toCompactItem(Item item);
+
+    /**
+     * 从初始内核开始构造项集族，并生成对应的 {@link ItemSet}
+     *
+     * @param initialKernel 初始项集的内核
+     */
+    protected void buildItemSets(long[] initialKernel) {
+        BuildProgress progress = BuildProgress.current();
+        List<CompactItemSet> compactItemSets = new ArrayList<>();
+        List<int[]> transitionList = new ArrayList<>();
+        Map<CompactItemSet, Integer> kernelMap = new HashMap<>();
+        CompactItemSet initialItemSet = new CompactItemSet(initialKernel);
+        initialItemSet.close(closure(initialKernel));
+        kernelMap.put(initialItemSet, 0);
+        compactItemSets.add(initialItemSet);
+        LongList[] kernels = newKernelBuffers();
+        int[] symbols = new int[symbolTable.getSymbolCount()];
+        for (int i = 0; i < compactItemSets.size(); i++) {
+            if (progress != null) {
+                // 每个项集计算一次闭包
+                progress.report(compactItemSets.size(), i + 1);
+            }
+            int[] transition = new int[symbolTable.getSymbolCount()];
+            Arrays.fill(transition, -1);
+            transitionList.add(transition);
+            int symbolCount = collectGotoKernels(compactItemSets.get(i).getItems(),
+                    kernels, symbols);
+            for (int j = 0; j < symbolCount; j++) {
+                LongList kernel = kernels[symbols[j]];
+                // 移动点后的项依然是有序且无重复的
+                CompactItemSet gotoItemSet = new CompactItemSet(kernel.toArray());
+                kernel.clear();
+                Integer index = kernelMap.putIfAbsent(gotoItemSet, compactItemSets.size());
+                if (index != null) {
+                    transition[symbols[j]] = index;
+                    continue;
+                }
+                transition[symbols[j]] = compactItemSets.size();
+                gotoItemSet.close(closure(gotoItemSet.getKernel()));
+                compactItemSets.add(gotoItemSet);
+            }
+        }
+        setItemSets(compactItemSets, transitionList.toArray(int[][]::new));
+    }
+
+    /**
+     * 从初始内核开始并行构造项集族，结果与 {@link #buildItemSets(long[])} 完全相同
+     * <p>按层处理：同一层的项集在 pool 中并行计算闭包与GOTO内核，GOTO内核通过并发的内核映射去重，
+     * 使同一内核只保留一个对象，从而只计算一次闭包。之后再按项集编号、符号编码从小到大的顺序
+     * 为新的项集顺序编号，这正是顺序构造时广度优先的编号顺序。</p>
+     *
+     * @param initialKernel 初始项集的内核
+     * @param pool          the pool
+     */
+    protected void buildItemSets(long[] initialKernel, ForkJoinPool pool) {
+        BuildProgress progress = BuildProgress.current();
+        List<CompactItemSet> compactItemSets = new ArrayList<>();
+        List<int[]> transitionList = new ArrayList<>();
+        ConcurrentMap<CompactItemSet, CompactItemSet> kernelMap = new ConcurrentHashMap<>();
+        Map<CompactItemSet, Integer> numberMap = new HashMap<>();
+        CompactItemSet initialItemSet = new CompactItemSet(initialKernel);
+        kernelMap.put(initialItemSet, initialItemSet);
+        numberMap.put(initialItemSet, 0);
+        compactItemSets.add(initialItemSet);
+        int levelStart = 0;
+        while (levelStart < compactItemSets.size()) {
+            int levelEnd = compactItemSets.size();
+            if (progress != null) {
+                progress.report(levelEnd, levelStart);
+            }
+            CompactItemSet[] level = compactItemSets.subList(levelStart, levelEnd)
+                    .toArray(CompactItemSet[]::new);
+            CompactItemSet[][] gotoItemSets = new CompactItemSet[level.length][];
+            int[][] gotoSymbols = new int[level.length][];
+            pool.invoke(new ExpandLevelTask(level, gotoItemSets, gotoSymbols, kernelMap,
+                    0, level.length));
+            for (int i = 0; i < level.length; i++) {
+                int[] transition = new int[symbolTable.getSymbolCount()];
+                Arrays.fill(transition, -1);
+                transitionList.add(transition);
+                for (int j = 0; j < gotoSymbols[i].length; j++) {
+                    Integer index = numberMap.putIfAbsent(gotoItemSets[i][j],
+                            compactItemSets.size());
+                    if (index == null) {
+                        index = compactItemSets.size();
+                        compactItemSets.add(gotoItemSets[i][j]);
+                    }
+                    transition[gotoSymbols[i][j]] = index;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        setItemSets(compactItemSets, transitionList.toArray(int[][]::new));
+    }
+
+    /**
+     * 设置项集族中的所有项集，生成对应的 {@link ItemSet} 并重建索引
+     *
+     * @param compactItemSets 项集，内核各不相同
+     * @param transitions     对应的GOTO转移表
+     */
+    protected void setItemSets(List<CompactItemSet> compactItemSets, int[][] transitions) {
+        compactItemSetList.clear();
+        itemSetList.clear();
+        kernelIndexMap.clear();
+        itemSetIndexMap.clear();
+        for (CompactItemSet compactItemSet : compactItemSets) {
+            int index = compactItemSetList.size();
+            ItemSet itemSet = toItemSet(compactItemSet.getItems());
+            compactItemSetList.add(compactItemSet);
+            itemSetList.add(itemSet);
+            kernelIndexMap.put(compactItemSet, index);
+            itemSetIndexMap.put(itemSet, index);
+        }
+        this.transitions = transitions;
+    }
+
+    /**
+     * 从有序的项中筛选出内核项，即点不在最左端的项和初始项
+     *
+     * @param items the items
+     * @return the long [ ]
+     */
+    protected long[] getKernel(long[] items) {
+        LongList kernel = new LongList(items.length);
+        for (long item : items) {
+            if (CompactItem.point(item) > 0
+                    || CompactItem.production(item) == productionIndex.size()) {
+                kernel.add(item);
+            }
+        }
+        return kernel.toArray();
+    }
+
+    /**
+     * 将项集中点后面为同一符号的项的点后移，按符号分组放入 kernels 中
+     *
+     * @param items   有序的项
+     * @param kernels 下标为符号的统一编码
+     * @param symbols 存放出现过的符号，按从小到大排列
+     * @return 出现过的符号的数目
+     */
+    int collectGotoKernels(long[] items, LongList[] kernels, int[] symbols) {
+        int symbolCount = 0;
+        for (long item : items) {
+            int symbol = getSymbolAfterPoint(item);
+            if (symbol == -1) {
+                continue;
+            }
+            if (kernels[symbol].isEmpty()) {
+                symbols[symbolCount++] = symbol;
+            }
+            kernels[symbol].add(CompactItem.advance(item));
+        }
+        Arrays.sort(symbols, 0, symbolCount);
+        return symbolCount;
+    }
+
+    LongList[] newKernelBuffers() {
+        LongList[] kernels = new LongList[symbolTable.getSymbolCount()];
+        for (int i = 0; i < kernels.length; i++) {
+            kernels[i] = new LongList();
+        }
+        return kernels;
+    }
+
+    /**
+     * 计算项集的闭包
+     *
+     * @param itemSet the item set
+     * @return the item set
+     */
+    ItemSet closure(ItemSet itemSet) {
+        return toItemSet(closure(toCompactItems(itemSet)));
+    }
+
+    /**
+     * GOTO(I,X)，返回I中所有形如[A→α·Xβ]的项[A→αX·β]的集合的闭包
+     *
+     * @param itemSet the item set
+     * @param symbol  the symbol
+     * @return the item set
+     */
+    ItemSet go(ItemSet itemSet, ProductionSymbol symbol) {
+        int code = symbolTable.getSymbolCode(symbol);
+        LongList kernel = new LongList();
+        for (long item : toCompactItems(itemSet)) {
+            if (code != -1 && getSymbolAfterPoint(item) == code) {
+                kernel.add(CompactItem.advance(item));
+            }
+        }
+        if (kernel.isEmpty()) {
+            return new ItemSet();
+        }
+        return toItemSet(closure(kernel.toArray()));
+    }
+
+    protected ItemSet toItemSet(long[] items) {
+        ItemSet itemSet = new ItemSet(new HashSet<>(items.length * 2));
+        for (long item : items) {
+            itemSet.addItem(toItem(item));
+        }
+        return itemSet;
+    }
+
+    protected long[] toCompactItems(ItemSet itemSet) {
+        LongList items = new LongList();
+        for (Item item : itemSet) {
+            items.add(toCompactItem(item));
+        }
+        return items.toSortedUniqueArray();
+    }
+
+    /**
+     * 计算同一层项集的闭包与GOTO内核，项集数目较多时拆分为两半并行计算
+     */
+    private final class ExpandLevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /**
+         * 每个任务至少处理的项集数目
+         */
+        private static final int THRESHOLD = 8;
+        private final CompactItemSet[] level;
+        private final CompactItemSet[][] gotoItemSets;
+        private final int[][] gotoSymbols;
+        private final ConcurrentMap<CompactItemSet, CompactItemSet> kernelMap;
+        private final int from;
+        private final int to;
+
+        ExpandLevelTask(CompactItemSet[] level, CompactItemSet[][] gotoItemSets,
+                        int[][] gotoSymbols,
+                        ConcurrentMap<CompactItemSet, CompactItemSet> kernelMap,
+                        int from, int to) {
+            this.level = level;
+            this.gotoItemSets = gotoItemSets;
+            this.gotoSymbols = gotoSymbols;
+            this.kernelMap = kernelMap;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ExpandLevelTask(level, gotoItemSets, gotoSymbols, kernelMap,
+                                from, middle),
+                        new ExpandLevelTask(level, gotoItemSets, gotoSymbols, kernelMap,
+                                middle, to));
+                return;
+            }
+            LongList[] kernels = newKernelBuffers();
+            int[] symbols = new int[symbolTable.getSymbolCount()];
+            for (int i = from; i < to; i++) {
+                CompactItemSet itemSet = level[i];
+                itemSet.close(closure(itemSet.getKernel()));
+                int symbolCount = collectGotoKernels(itemSet.getItems(), kernels, symbols);
+                gotoItemSets[i] = new CompactItemSet[symbolCount];
+                gotoSymbols[i] = Arrays.copyOf(symbols, symbolCount);
+                for (int j = 0; j < symbolCount; j++) {
+                    LongList kernel = kernels[symbols[j]];
+                    CompactItemSet gotoItemSet = new CompactItemSet(kernel.toArray());
+                    kernel.clear();
+                    CompactItemSet existing = kernelMap.putIfAbsent(gotoItemSet, gotoItemSet);
+                    gotoItemSets[i][j] = existing == null ? gotoItemSet : existing;
+                }
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,249 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.grammar.ProductionIndex;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.TokenStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LR语法分析驱动程序，一次分析完整个输入串
+ * <p>与用于可视化的 {@link com.chaldea.visualparsing.debug.LRParsingAlgorithm}
+ * 执行同样的算法（龙书第二版P160），但不分步骤、不通知观察者：状态栈为 int 数组，输入为 {@link SymbolTable} 中的终结符编号，
+ * 分析表通过 {@link LRTableLookup} 按编号查询，分析过程中不创建对象。</p>
+ * <p>LRParser 本身是不可变的，多个线程可以共享同一个 LRParser 与分析表。
+ * 每次分析使用各自的 {@link StateStack}，需要重复分析时可以传入同一个 StateStack 以复用其数组，
+ * 但一个 StateStack 同一时刻只能被一个线程使用。</p>
+ */
+public final class LRParser {
+    /**
+     * {@link #parse(int[], int, int, ReductionListener)} 接受输入串时的返回值
+     */
+    public static final int ACCEPTED = -1;
+    private static final int INITIAL_STACK_CAPACITY = 64;
+
+    private final LRTableLookup table;
+    /**
+     * 下标为表达式编号，表达式头部的非终结符编号
+     */
+    private final int[] headIds;
+    /**
+     * 下标为表达式编号，表达式体的长度
+     */
+    private final int[] bodyLengths;
+    private final int terminalCount;
+    private final int endMarkerId;
+
+    /**
+     * Instantiates a new Lr parser.
+     *
+     * @param table LR语法分析表，表达式编号由构造分析表时的文法得到
+     */
+    public LRParser(LRParsingTable table) {
+        this(table, table.getGrammar().getProductionIndex());
+    }
+
+    /**
+     * Instantiates a new Lr parser.
+     *
+     * @param table           LR语法分析表，例如 {@link CompressedParsingTable}
+     * @param productionIndex 构造分析表时文法的产生式索引，规约动作中的编号即其中的表达式编号
+     */
+    public LRParser(LRTableLookup table, ProductionIndex productionIndex) {
+        this.table = table;
+        SymbolTable symbolTable = table.getSymbolTable();
+        terminalCount = symbolTable.getTerminalCount();
+        endMarkerId = symbolTable.getEndMarkerId();
+        headIds = new int[productionIndex.size() + 1];
+        bodyLengths = new int[productionIndex.size() + 1];
+        for (int i = 1; i <= productionIndex.size(); i++) {
+            headIds[i] = productionIndex.getHeadId(i);
+            bodyLengths[i] = productionIndex.getBodyLength(i);
+        }
+    }
+
+    public LRTableLookup getTable() {
+        return table;
+    }
+
+    /**
+     * 判断是否接受输入串
+     *
+     * @param tokens 终结符编号，不包括结束标记
+     * @return the boolean
+     */
+    public boolean accepts(int[] tokens) {
+        return parse(tokens, 0, tokens.length, null) == ACCEPTED;
+    }
+
+    /**
+     * 分析 tokens[from, to)，输入串的末尾隐含结束标记
+     *
+     * @param tokens   终结符编号，不包括结束标记
+     * @param from     the from
+     * @param to       the to
+     * @param listener 每次规约时被调用，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时输入符号的下标，为 to 时表示在结束标记处出错
+     */
+    public int parse(int[] tokens, int from, int to, ReductionListener listener) {
+        return parse(new StateStack(), tokens, from, to, listener);
+    }
+
+    /**
+     * 使用给定的状态栈分析 tokens[from, to)，输入串的末尾隐含结束标记
+     *
+     * @param stack    状态栈，分析前会被清空，分析结束后保留出错时的状态
+     * @param tokens   终结符编号，不包括结束标记
+     * @param from     the from
+     * @param to       the to
+     * @param listener 每次规约时被调用，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时输入符号的下标，为 to 时表示在结束标记处出错
+     */
+    public int parse(StateStack stack, int[] tokens, int from, int to,
+                     ReductionListener listener) {
+        stack.reset();
+        for (int position = from; position < to; position++) {
+            int terminalId = tokens[position];
+            if (terminalId < 0 || terminalId >= terminalCount
+                    || !shift(stack, terminalId, position, listener)) {
+                return position;
+            }
+        }
+        return shift(stack, endMarkerId, to, listener) ? ACCEPTED : to;
+    }
+
+    /**
+     * 从词法单元流中逐个读取终结符进行分析，直到输入结束
+     *
+     * @param tokens   词法单元流，其符号表应与分析表的相同
+     * @param listener 每次规约时被调用，position 为词法单元的序号，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时词法单元的序号
+     * @throws IOException the io exception
+     * @see #parse(StateStack, TokenStream, ReductionListener)
+     */
+    public long parse(TokenStream tokens, ReductionListener listener) throws IOException {
+        return parse(new StateStack(), tokens, listener);
+    }
+
+    /**
+     * 使用给定的状态栈从词法单元流中逐个读取终结符进行分析，直到输入结束
+     * <p>只保存状态栈，占用的内存与栈的深度有关，与输入的长度无关</p>
+     *
+     * @param stack    状态栈，分析前会被清空
+     * @param tokens   词法单元流，其符号表应与分析表的相同
+     * @param listener 每次规约时被调用，position 为词法单元的序号，可以为null
+     * @return 接受时返回 {@link #ACCEPTED}，否则返回出错时词法单元的序号，为词法单元数目时表示在结束标记处出错
+     * @throws IOException the io exception
+     */
+    public long parse(StateStack stack, TokenStream tokens, ReductionListener listener)
+            throws IOException {
+        stack.reset();
+        long position = 0;
+        int terminalId;
+        while ((terminalId = tokens.next()) != TokenStream.EOF) {
+            if (!shift(stack, terminalId, listenerPosition(listener, position), listener)) {
+                return position;
+            }
+            position++;
+        }
+        return shift(stack, endMarkerId, listenerPosition(listener, position), listener)
+                ? ACCEPTED : position;
+    }
+
+    /**
+     * 传给 {@link ReductionListener} 的下标为 int，词法单元超过 {@link Integer#MAX_VALUE} 个时抛出异常
+     */
+    private static int listenerPosition(ReductionListener listener, long position) {
+        return listener == null ? 0 : Math.toIntExact(position);
+    }
+
+    /**
+     * 不断规约直到移入 terminalId 或接受
+     *
+     * @return 移入或接受时返回true，出错时返回false
+     */
+    private boolean shift(StateStack stack, int terminalId, int position,
+                          ReductionListener listener) {
+        while (true) {
+            int code = table.action(stack.peek(), terminalId);
+            if (ActionItem.isShift(code)) {
+                stack.push(ActionItem.numberOf(code));
+                return true;
+            }
+            if (ActionItem.isReduce(code)) {
+                int production = ActionItem.numberOf(code);
+                stack.pop(bodyLengths[production]);
+                stack.push(table.go(stack.peek(), headIds[production]));
+                if (listener != null) {
+                    listener.reduce(production, position);
+                }
+                continue;
+            }
+            return ActionItem.isAccept(code);
+        }
+    }
+
+    /**
+     * 规约事件的接收者
+     */
+    @FunctionalInterface
+    public interface ReductionListener {
+        /**
+         * 按表达式 A→β 规约
+         *
+         * @param production 表达式编号
+         * @param position   此时向前看符号在输入串中的下标，为输入串长度时表示结束标记
+         */
+        void reduce(int production, int position);
+    }
+
+    /**
+     * 可以复用的状态栈，不是线程安全的
+     */
+    public static final class StateStack {
+        private int[] states;
+        private int size;
+
+        public StateStack() {
+            states = new int[INITIAL_STACK_CAPACITY];
+        }
+
+        /**
+         * 清空后压入初始状态0
+         */
+        void reset() {
+            states[0] = 0;
+            size = 1;
+        }
+
+        int peek() {
+            return states[size - 1];
+        }
+
+        void push(int state) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+            }
+            states[size++] = state;
+        }
+
+        void pop(int count) {
+            size -= count;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 从栈底开始的第 index 个状态
+         *
+         * @param index the index
+         * @return the int
+         */
+        public int get(int index) {
+            return states[index];
+        }
+    }
+}
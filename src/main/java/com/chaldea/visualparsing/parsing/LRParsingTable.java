@@ -1,17 +1,46 @@
 package com.chaldea.visualparsing.parsing;
 
-import com.chaldea.visualparsing.ArrayHelper;
 import com.chaldea.visualparsing.exception.BaseException;
 import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
 import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.Nonterminal;
 import com.chaldea.visualparsing.grammar.ProductionSymbol;
+import com.chaldea.visualparsing.grammar.SymbolTable;
 import com.chaldea.visualparsing.grammar.Terminal;
 
-public abstract class LRParsingTable {
+/**
+ * LR语法分析表
+ * <p>子类构造时以稠密的数组存放ACTION表与GOTO表。{@link #compress(boolean)} 将存储切换为
+ * {@link CompressedParsingTable}，并释放所有稠密的数组，之后按编号查询直接读取压缩后的数组，
+ * {@link #getActionTable()} 等返回数组的方法每次调用时解码生成新的数组。</p>
+ */
+public abstract class LRParsingTable implements LRTableLookup {
+    /**
+     * ACTION表，压缩后为null
+     */
     protected ActionItem[][] actionTable;
-    protected ItemSet[][] gotoTable;
+    /**
+     * 按行存放的ACTION表，每个表项由 {@link ActionItem#encode(ActionItem)} 编码，
+     * 在actionTable构造完成后由 {@link #packActionTable()} 生成
+     */
+    protected int[] packedActionTable;
+    /**
+     * ACTION表的列数，即终结符数目加上结束标记
+     */
+    protected int actionColumnCount;
+    /**
+     * GOTO表，值为项集编号，-1表示出错，压缩后为null
+     */
+    protected int[][] gotoTable;
+    /**
+     * 压缩后存放表项的表，未压缩时为null
+     */
+    private CompressedParsingTable compressedTable;
     protected LRCollection lrCollection;
+    /**
+     * 构造分析表时文法的符号表，ACTION列号即终结符编号，GOTO列号即非终结符编号
+     */
+    protected SymbolTable symbolTable;
     /**
      * 记录终结符符号的顺序
      */
@@ -36,17 +65,170 @@ public abstract class LRParsingTable {
         return lrCollection;
     }
 
+    /**
+     * Gets action table.
+     * <p>未压缩时返回的是内部数组，不应对其进行修改；压缩后每次调用都解码生成新的数组</p>
+     *
+     * @return the action item [ ] [ ]
+     */
     public ActionItem[][] getActionTable() {
-        return actionTable;
+        if (compressedTable == null) {
+            return actionTable;
+        }
+        ActionItem[][] table = new ActionItem[getStateCount()][actionColumnCount];
+        for (int i = 0; i < table.length; i++) {
+            for (int j = 0; j < actionColumnCount; j++) {
+                table[i][j] = ActionItem.decode(compressedTable.action(i, j));
+            }
+        }
+        return table;
     }
 
-    public ItemSet[][] getGotoTable() {
-        return gotoTable;
+    /**
+     * Gets goto table.
+     * <p>未压缩时返回的是内部数组，不应对其进行修改；压缩后每次调用都解码生成新的数组</p>
+     *
+     * @return the int [ ] [ ]
+     */
+    public int[][] getGotoTable() {
+        if (compressedTable == null) {
+            return gotoTable;
+        }
+        int[][] table = new int[getStateCount()][symbolTable.getNonterminalCount()];
+        for (int i = 0; i < table.length; i++) {
+            for (int j = 0; j < table[i].length; j++) {
+                table[i][j] = compressedTable.go(i, j);
+            }
+        }
+        return table;
     }
 
-    public abstract ActionItem action(int state, Terminal terminal);
+    /**
+     * Gets item set.获取状态对应的项集
+     *
+     * @param state the state
+     * @return the item set
+     */
+    public ItemSet getItemSet(int state) {
+        return lrCollection.get(state);
+    }
 
-    public abstract int go(int state, Nonterminal nonterminal);
+    /**
+     * Gets packed action table.
+     * <p>未压缩时返回的是内部数组，不应对其进行修改；压缩后每次调用都生成新的数组</p>
+     *
+     * @return the int [ ]
+     */
+    public int[] getPackedActionTable() {
+        if (compressedTable == null) {
+            return packedActionTable;
+        }
+        int[] table = new int[getStateCount() * actionColumnCount];
+        for (int i = 0; i < getStateCount(); i++) {
+            for (int j = 0; j < actionColumnCount; j++) {
+                table[i * actionColumnCount + j] = compressedTable.action(i, j);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * ACTION[state, terminal]
+     *
+     * @param state    the state
+     * @param terminal the terminal
+     * @return the action item，出错时返回null
+     */
+    public ActionItem action(int state, Terminal terminal) {
+        int terminalId = getSymbolNumber(terminal);
+        if (compressedTable != null) {
+            return ActionItem.decode(compressedTable.action(state, terminalId));
+        }
+        return actionTable[state][terminalId];
+    }
+
+    /**
+     * ACTION[state, terminalId]
+     * <p>返回编码后的表项，可以通过 {@link ActionItem#actionOf(int)}、
+     * {@link ActionItem#numberOf(int)} 等方法获取其内容</p>
+     *
+     * @param state      the state
+     * @param terminalId 符号表中的终结符编号，结束标记为 {@link SymbolTable#getEndMarkerId()}
+     * @return 编码后的表项，出错时为 {@link ActionItem#ERROR}
+     */
+    @Override
+    public int action(int state, int terminalId) {
+        if (compressedTable != null) {
+            return compressedTable.action(state, terminalId);
+        }
+        return packedActionTable[state * actionColumnCount + terminalId];
+    }
+
+    /**
+     * GOTO[state, nonterminal]
+     *
+     * @param state       the state
+     * @param nonterminal the nonterminal
+     * @return 新的状态，-1表示出错
+     */
+    public int go(int state, Nonterminal nonterminal) {
+        return go(state, getSymbolNumber(nonterminal));
+    }
+
+    /**
+     * GOTO[state, nonterminalId]
+     *
+     * @param state         the state
+     * @param nonterminalId 符号表中的非终结符编号
+     * @return 新的状态，-1表示出错
+     */
+    @Override
+    public int go(int state, int nonterminalId) {
+        if (compressedTable != null) {
+            return compressedTable.go(state, nonterminalId);
+        }
+        return gotoTable[state][nonterminalId];
+    }
+
+    @Override
+    public int getStateCount() {
+        return compressedTable != null ? compressedTable.getStateCount() : gotoTable.length;
+    }
+
+    /**
+     * 将表项的存储切换为 {@link CompressedParsingTable}，并释放ACTION表、GOTO表的稠密数组
+     * <p>不启用默认规约时查询结果不变；启用时原本出错的ACTION表项可能变为规约，
+     * 见 {@link CompressedParsingTable}。已经压缩时不会重新压缩。</p>
+     *
+     * @param defaultReductions 是否使用默认规约
+     * @return 现在存放表项的压缩表
+     * @throws IllegalStateException 已经以另一种方式压缩时
+     */
+    public CompressedParsingTable compress(boolean defaultReductions) {
+        if (compressedTable != null) {
+            if (compressedTable.isDefaultReductions() != defaultReductions) {
+                throw new IllegalStateException("分析表已经压缩，defaultReductions 为 "
+                        + compressedTable.isDefaultReductions());
+            }
+            return compressedTable;
+        }
+        CompressedParsingTable compressed = new CompressedParsingTable(this, defaultReductions);
+        actionColumnCount = symbolTable.getInputSymbolCount();
+        compressedTable = compressed;
+        actionTable = null;
+        packedActionTable = null;
+        gotoTable = null;
+        return compressed;
+    }
+
+    /**
+     * 是否已经压缩
+     *
+     * @return the boolean
+     */
+    public boolean isCompressed() {
+        return compressedTable != null;
+    }
 
     public Terminal[] getActionColumnsHeader() {
         return terminalsOrder.clone();
@@ -56,6 +238,24 @@ public abstract class LRParsingTable {
         return nonterminalsOrder.clone();
     }
 
+    @Override
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * 根据actionTable生成packedActionTable，actionTable变化后需要重新调用
+     */
+    protected void packActionTable() {
+        actionColumnCount = symbolTable.getInputSymbolCount();
+        packedActionTable = new int[actionTable.length * actionColumnCount];
+        for (int i = 0; i < actionTable.length; i++) {
+            for (int j = 0; j < actionColumnCount; j++) {
+                packedActionTable[i * actionColumnCount + j] = ActionItem.encode(actionTable[i][j]);
+            }
+        }
+    }
+
     /**
      * Gets symbol number.获取文法符号对应的序号
      *
@@ -63,10 +263,10 @@ public abstract class LRParsingTable {
      * @return the symbol number
      */
     protected int getSymbolNumber(ProductionSymbol symbol) {
-        if (symbol instanceof Nonterminal) {
-            return ArrayHelper.findIndex(nonterminalsOrder, symbol);
-        } else if (symbol instanceof Terminal) {
-            return ArrayHelper.findIndex(terminalsOrder, symbol);
+        if (symbol instanceof Nonterminal nonterminal) {
+            return symbolTable.getNonterminalId(nonterminal);
+        } else if (symbol instanceof Terminal terminal) {
+            return symbolTable.getTerminalId(terminal);
         } else {
             throw new UnknownSymbolException();
         }
@@ -78,25 +278,17 @@ public abstract class LRParsingTable {
      * @param grammar the grammar
      */
     private void initProductionSymbolsOrder(Grammar grammar) {
-        terminalsOrder = new Terminal[grammar.getTerminals().size() + 1];
-        nonterminalsOrder = new Nonterminal[grammar.getNonterminals().size()];
-        int index = 0;
-        for (Terminal terminal : grammar.getTerminals()) {
-            terminalsOrder[index] = terminal;
-            index += 1;
-        }
-        terminalsOrder[index] = Terminal.END_MARKER;
-        index = 0;
-        for (Nonterminal nonterminal : grammar.getNonterminals()) {
-            nonterminalsOrder[index] = nonterminal;
-            index += 1;
-        }
+        symbolTable = grammar.getSymbolTable();
+        // 符号表中结束标记的编号紧跟在所有终结符之后
+        terminalsOrder = symbolTable.getTerminals();
+        nonterminalsOrder = symbolTable.getNonterminals();
     }
 
     /**
      * The enum Type. 具体的LR类型
+     * <p>MINIMAL_LR1 为按Pager的方法合并同心项集的最小LR(1)</p>
      */
     public enum Type {
-        SLR, LR0, LR1, LALR;
+        SLR, LR0, LR1, LALR, MINIMAL_LR1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.grammar.SymbolTable;
+
+/**
+ * 按编号查询的LR分析表
+ * <p>状态、终结符、非终结符均使用 {@link SymbolTable} 中的编号，ACTION表项由
+ * {@link ActionItem#encode(ActionItem)} 编码。{@link LRParsingTable} 使用稠密的数组存放，
+ * 调用 {@link LRParsingTable#compress(boolean)} 之后改为由 {@link CompressedParsingTable}
+ * 使用压缩后的数组存放。</p>
+ */
+public interface LRTableLookup {
+
+    /**
+     * ACTION[state, terminalId]
+     *
+     * @param state      the state
+     * @param terminalId 符号表中的终结符编号，结束标记为 {@link SymbolTable#getEndMarkerId()}
+     * @return 编码后的表项，出错时为 {@link ActionItem#ERROR}
+     */
+    int action(int state, int terminalId);
+
+    /**
+     * GOTO[state, nonterminalId]
+     *
+     * @param state         the state
+     * @param nonterminalId 符号表中的非终结符编号
+     * @return 新的状态，-1表示出错
+     */
+    int go(int state, int nonterminalId);
+
+    /**
+     * 状态的数目
+     *
+     * @return the int
+     */
+    int getStateCount();
+
+    /**
+     * 构造分析表时文法的符号表
+     *
+     * @return the symbol table
+     */
+    SymbolTable getSymbolTable();
+}
@@ -0,0 +1,63 @@
+package com.chaldea.visualparsing.parsing;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的 long 数组，用于在构造项集时避免装箱
+ */
+final class LongList {
+    private long[] elements;
+    private int size;
+
+    LongList() {
+        this(16);
+    }
+
+    LongList(int capacity) {
+        elements = new long[Math.max(capacity, 1)];
+    }
+
+    void add(long element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size++] = element;
+    }
+
+    long get(int index) {
+        return elements[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * 排序并去除重复元素后返回新数组
+     *
+     * @return the long [ ]
+     */
+    long[] toSortedUniqueArray() {
+        Arrays.sort(elements, 0, size);
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            if (length == 0 || elements[length - 1] != elements[i]) {
+                elements[length++] = elements[i];
+            }
+        }
+        size = length;
+        return Arrays.copyOf(elements, length);
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
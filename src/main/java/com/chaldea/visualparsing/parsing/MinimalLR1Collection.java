@@ -0,0 +1,228 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.BitSetHelper;
+import com.chaldea.visualparsing.grammar.Grammar;
+
+import java.util.*;
+
+/**
+ * 按Pager的弱相容条件合并同心项集的LR(1)项集族
+ * <p>设两个同心项集的内核项为 i=1..n，向前看符号集合分别为 L<sub>i</sub> 与 M<sub>i</sub>，
+ * 若对任意 i&lt;j 有 L<sub>i</sub>∩M<sub>j</sub>=∅ 且 L<sub>j</sub>∩M<sub>i</sub>=∅，
+ * 或 L<sub>i</sub>∩L<sub>j</sub>≠∅，或 M<sub>i</sub>∩M<sub>j</sub>≠∅，则两者弱相容。
+ * 合并弱相容的项集不会产生规范LR(1)项集族中没有的冲突，所以分析能力与规范LR(1)相同，
+ * 而项集数目通常与LALR相近。</p>
+ * <p>构造时每个项集以核心和每个内核项的向前看符号集合表示，新的GOTO内核若是已有同心项集的子集
+ * 则直接转移到该项集，若与其弱相容则合并进去，合并后该项集需要重新计算GOTO。
+ * 全部完成后从初始项集开始按广度优先、符号编码从小到大的顺序重新编号，并去掉不可达的项集。</p>
+ */
+public class MinimalLR1Collection extends LR1Collection {
+
+    public MinimalLR1Collection(Grammar grammar) {
+        super(grammar);
+    }
+
+    @Override
+    protected void setItems() {
+        List<State> states = new ArrayList<>();
+        Map<CompactItemSet, List<State>> coreMap = new HashMap<>();
+        Deque<State> worklist = new ArrayDeque<>();
+        long[] initialLookaheads = BitSetHelper.create(symbolTable.getInputSymbolCount());
+        BitSetHelper.set(initialLookaheads, symbolTable.getEndMarkerId());
+        State initialState = new State(states.size(),
+                new long[]{CompactItem.of(productionIndex.size(), 0)},
+                new long[][]{initialLookaheads});
+        states.add(initialState);
+        coreMap.computeIfAbsent(new CompactItemSet(initialState.core), key -> new ArrayList<>())
+                .add(initialState);
+        worklist.add(initialState);
+        initialState.queued = true;
+
+        LongList[] kernels = newKernelBuffers();
+        int[] symbols = new int[symbolTable.getSymbolCount()];
+        BuildProgress progress = BuildProgress.current();
+        // 合并后的项集需要重新计算闭包，所以闭包的次数可能多于项集数
+        long closures = 0;
+        while (!worklist.isEmpty()) {
+            if (progress != null) {
+                progress.report(states.size(), closures);
+            }
+            closures++;
+            State state = worklist.poll();
+            state.queued = false;
+            state.items = closure(state.getKernel());
+            Arrays.fill(state.transitions, -1);
+            int symbolCount = collectGotoKernels(state.items, kernels, symbols);
+            for (int j = 0; j < symbolCount; j++) {
+                LongList kernel = kernels[symbols[j]];
+                State gotoState = split(kernel.toArray(), states.size());
+                kernel.clear();
+                List<State> candidates = coreMap.computeIfAbsent(
+                        new CompactItemSet(gotoState.core), key -> new ArrayList<>());
+                State target = findTarget(candidates, gotoState);
+                if (target == null) {
+                    target = gotoState;
+                    states.add(target);
+                    candidates.add(target);
+                    worklist.add(target);
+                    target.queued = true;
+                } else if (target.merge(gotoState) && !target.queued) {
+                    worklist.add(target);
+                    target.queued = true;
+                }
+                state.transitions[symbols[j]] = target.number;
+            }
+        }
+        renumber(states);
+    }
+
+    /**
+     * 在同心项集中找出可以作为 GOTO 目标的项集
+     * <p>优先选择包含新内核的项集，其次选择弱相容的项集</p>
+     *
+     * @return 找不到时返回null
+     */
+    private State findTarget(List<State> candidates, State gotoState) {
+        for (State candidate : candidates) {
+            if (candidate.contains(gotoState)) {
+                return candidate;
+            }
+        }
+        for (State candidate : candidates) {
+            if (candidate.isWeaklyCompatible(gotoState)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将按从小到大排列的LR(1)内核项拆分为核心与每个核心的向前看符号集合
+     */
+    private State split(long[] kernel, int number) {
+        LongList core = new LongList(kernel.length);
+        List<long[]> lookaheads = new ArrayList<>(kernel.length);
+        for (long item : kernel) {
+            long itemCore = CompactItem.core(item);
+            // 同一核心的项是相邻的
+            if (core.isEmpty() || core.get(core.size() - 1) != itemCore) {
+                core.add(itemCore);
+                lookaheads.add(BitSetHelper.create(symbolTable.getInputSymbolCount()));
+            }
+            BitSetHelper.set(lookaheads.get(lookaheads.size() - 1), CompactItem.lookahead(item));
+        }
+        return new State(number, core.toArray(), lookaheads.toArray(long[][]::new));
+    }
+
+    /**
+     * 从初始项集开始按广度优先的顺序重新编号，不可达的项集被丢弃
+     */
+    private void renumber(List<State> states) {
+        int[] numbers = new int[states.size()];
+        Arrays.fill(numbers, -1);
+        List<State> order = new ArrayList<>();
+        numbers[0] = 0;
+        order.add(states.get(0));
+        for (int i = 0; i < order.size(); i++) {
+            for (int target : order.get(i).transitions) {
+                if (target != -1 && numbers[target] == -1) {
+                    numbers[target] = order.size();
+                    order.add(states.get(target));
+                }
+            }
+        }
+        List<CompactItemSet> compactItemSets = new ArrayList<>(order.size());
+        int[][] transitions = new int[order.size()][];
+        for (int i = 0; i < order.size(); i++) {
+            State state = order.get(i);
+            CompactItemSet itemSet = new CompactItemSet(state.getKernel());
+            itemSet.close(state.items);
+            compactItemSets.add(itemSet);
+            transitions[i] = state.transitions.clone();
+            for (int j = 0; j < transitions[i].length; j++) {
+                if (transitions[i][j] != -1) {
+                    transitions[i][j] = numbers[transitions[i][j]];
+                }
+            }
+        }
+        setItemSets(compactItemSets, transitions);
+    }
+
+    /**
+     * 构造过程中的项集
+     */
+    private final class State {
+        private final int number;
+        /**
+         * 内核项的核心，按从小到大排列
+         */
+        private final long[] core;
+        /**
+         * 与 core 一一对应的向前看符号集合
+         */
+        private final long[][] lookaheads;
+        private final int[] transitions;
+        private long[] items;
+        private boolean queued;
+
+        State(int number, long[] core, long[][] lookaheads) {
+            this.number = number;
+            this.core = core;
+            this.lookaheads = lookaheads;
+            transitions = new int[symbolTable.getSymbolCount()];
+        }
+
+        /**
+         * 获取LR(1)内核项，按从小到大排列
+         */
+        long[] getKernel() {
+            LongList kernel = new LongList(core.length * 2);
+            for (int i = 0; i < core.length; i++) {
+                int production = CompactItem.production(core[i]);
+                int point = CompactItem.point(core[i]);
+                for (int lookahead = BitSetHelper.nextSetBit(lookaheads[i], 0); lookahead != -1;
+                     lookahead = BitSetHelper.nextSetBit(lookaheads[i], lookahead + 1)) {
+                    kernel.add(CompactItem.of(production, point, lookahead));
+                }
+            }
+            return kernel.toArray();
+        }
+
+        boolean contains(State state) {
+            for (int i = 0; i < core.length; i++) {
+                if (!BitSetHelper.isSubset(state.lookaheads[i], lookaheads[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isWeaklyCompatible(State state) {
+            for (int i = 0; i < core.length; i++) {
+                for (int j = i + 1; j < core.length; j++) {
+                    if ((BitSetHelper.intersects(lookaheads[i], state.lookaheads[j])
+                            || BitSetHelper.intersects(lookaheads[j], state.lookaheads[i]))
+                            && !BitSetHelper.intersects(lookaheads[i], lookaheads[j])
+                            && !BitSetHelper.intersects(state.lookaheads[i],
+                            state.lookaheads[j])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 将同心项集的向前看符号并入
+         *
+         * @return 若发生了变化则返回 true
+         */
+        boolean merge(State state) {
+            boolean changed = false;
+            for (int i = 0; i < core.length; i++) {
+                changed |= BitSetHelper.union(lookaheads[i], state.lookaheads[i]);
+            }
+            return changed;
+        }
+    }
+}
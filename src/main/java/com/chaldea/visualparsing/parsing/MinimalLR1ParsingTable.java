@@ -0,0 +1,24 @@
+package com.chaldea.visualparsing.parsing;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+
+/**
+ * 最小LR(1)语法分析表
+ * <p>项集族由 {@link MinimalLR1Collection} 按Pager的弱相容条件合并同心项集得到，
+ * 分析能力与规范LR(1)相同，项集数目通常与LALR相近</p>
+ */
+public class MinimalLR1ParsingTable extends LRParsingTable {
+
+    public MinimalLR1ParsingTable(Grammar grammar) {
+        super(grammar);
+        MinimalLR1Collection minimalLR1Collection = new MinimalLR1Collection(grammar);
+        lrCollection = minimalLR1Collection;
+        // 合并后的项集依然是LR(1)项集，可以直接按LR(1)的方法构造
+        LR1ParsingTable lr1ParsingTable = new LR1ParsingTable(grammar, minimalLR1Collection);
+        actionTable = lr1ParsingTable.getActionTable();
+        gotoTable = lr1ParsingTable.getGotoTable();
+        packedActionTable = lr1ParsingTable.getPackedActionTable();
+        actionColumnCount = symbolTable.getInputSymbolCount();
+    }
+
+}
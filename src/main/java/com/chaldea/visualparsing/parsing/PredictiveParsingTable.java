@@ -2,7 +2,6 @@ package com.chaldea.visualparsing.parsing;
 
 import com.chaldea.visualparsing.exception.BaseException;
 import com.chaldea.visualparsing.grammar.*;
-import javafx.util.Pair;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -10,10 +9,25 @@ import java.util.Map;
 
 /**
  * LL(1)文法自顶向下预测分析法的预测分析表
+ * <p>除了 {@link Expression} 形式的表项，还按行存放了每个表项的表达式编号（见 {@link ProductionIndex}），
+ * 供 {@link LL1Parser#parse(int[], int, int, LL1Parser.DerivationListener)} 按编号查询。</p>
  */
 public class PredictiveParsingTable {
+    /**
+     * 表达式编号形式的空表项
+     */
+    public static final int ERROR = 0;
     private final Grammar grammar;
     private final Expression[][] table;
+    private final SymbolTable symbolTable;
+    /**
+     * 创建分析表时文法的产生式索引
+     */
+    private final ProductionIndex productionIndex;
+    /**
+     * 按行存放的表达式编号，下标为 非终结符编号 * 输入符号数目 + 终结符编号，空表项为 {@link #ERROR}
+     */
+    private final int[] productionTable;
 
     /**
      * 记录表中行对应的索引号，非终结符转换为行号
@@ -30,19 +44,20 @@ public class PredictiveParsingTable {
             throw new BaseException("grammar 为 null 或是 empty");
         }
         this.grammar = grammar;
-        table = new Expression[grammar.getNonterminals().size()][grammar.getTerminals().size() + 1];
-        nonterminalMap = new HashMap<>(grammar.getNonterminals().size());
-        inputSymbolMap = new HashMap<>(grammar.getTerminals().size());
-        // 初始化行列号映射
-        int index = 0;
-        for (Nonterminal nonterminal : grammar.getNonterminals()) {
-            nonterminalMap.put(nonterminal, index++);
+        symbolTable = grammar.getSymbolTable();
+        productionIndex = grammar.getProductionIndex();
+        table = new Expression[symbolTable.getNonterminalCount()][symbolTable.getInputSymbolCount()];
+        productionTable =
+                new int[symbolTable.getNonterminalCount() * symbolTable.getInputSymbolCount()];
+        nonterminalMap = new HashMap<>(symbolTable.getNonterminalCount());
+        inputSymbolMap = new HashMap<>(symbolTable.getInputSymbolCount());
+        // 初始化行列号映射，行列号即符号表中的编号
+        for (int i = 0; i < symbolTable.getNonterminalCount(); i++) {
+            nonterminalMap.put(symbolTable.getNonterminal(i), i);
         }
-        index = 0;
-        for (Terminal terminal : grammar.getTerminals()) {
-            inputSymbolMap.put(terminal, index++);
+        for (int i = 0; i < symbolTable.getInputSymbolCount(); i++) {
+            inputSymbolMap.put(symbolTable.getTerminal(i), i);
         }
-        inputSymbolMap.put(Terminal.END_MARKER, index);
     }
 
     /**
@@ -54,10 +69,10 @@ public class PredictiveParsingTable {
      */
     public void set(Nonterminal nonterminal, Terminal inputSymbol, Expression expression) {
         // 行号
-        int rowNumber = nonterminalMap.get(nonterminal);
+        int rowNumber = symbolTable.getNonterminalId(nonterminal);
         // 列号
-        int colNumber = inputSymbolMap.get(inputSymbol);
-        table[rowNumber][colNumber] = expression.copy();
+        int colNumber = symbolTable.getTerminalId(inputSymbol);
+        set(rowNumber, colNumber, expression);
     }
 
     /**
@@ -78,15 +93,16 @@ public class PredictiveParsingTable {
      *
      * @param nonterminal the nonterminal
      * @param inputSymbol the input symbol
-     * @return the expression
+     * @return the expression，空表项返回null
      */
     public Expression get(Nonterminal nonterminal,
                                              Terminal inputSymbol) {
         // 行号
-        int rowNumber = nonterminalMap.get(nonterminal);
+        int rowNumber = symbolTable.getNonterminalId(nonterminal);
         // 列号
-        int colNumber = inputSymbolMap.get(inputSymbol);
-        return table[rowNumber][colNumber].copy();
+        int colNumber = symbolTable.getTerminalId(inputSymbol);
+        Expression expression = table[rowNumber][colNumber];
+        return expression == null ? null : expression.copy();
     }
 
     public Expression get(String nonterminalValue,
@@ -95,6 +111,50 @@ public class PredictiveParsingTable {
                 grammar.getTerminal(inputSymbolValue));
     }
 
+    /**
+     * Set.
+     *
+     * @param nonterminalId the nonterminal id
+     * @param terminalId    the terminal id
+     * @param expression    the expression
+     */
+    public void set(int nonterminalId, int terminalId, Expression expression) {
+        set(nonterminalId, terminalId, productionIndex.getExpressionIndex(
+                symbolTable.getNonterminal(nonterminalId), expression));
+    }
+
+    /**
+     * Set.
+     *
+     * @param nonterminalId the nonterminal id
+     * @param terminalId    the terminal id
+     * @param production    表达式编号
+     */
+    public void set(int nonterminalId, int terminalId, int production) {
+        table[nonterminalId][terminalId] = productionIndex.getExpression(production).copy();
+        productionTable[nonterminalId * symbolTable.getInputSymbolCount() + terminalId] =
+                production;
+    }
+
+    /**
+     * M[nonterminalId, terminalId]
+     *
+     * @param nonterminalId 符号表中的非终结符编号
+     * @param terminalId    符号表中的终结符编号，结束标记为 {@link SymbolTable#getEndMarkerId()}
+     * @return 表达式编号，空表项为 {@link #ERROR}
+     */
+    public int getProduction(int nonterminalId, int terminalId) {
+        return productionTable[nonterminalId * symbolTable.getInputSymbolCount() + terminalId];
+    }
+
+    public ProductionIndex getProductionIndex() {
+        return productionIndex;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
     public Expression[][] getTable() {
         return table.clone();
     }
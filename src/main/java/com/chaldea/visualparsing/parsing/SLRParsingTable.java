@@ -19,31 +19,20 @@ public class SLRParsingTable extends LRParsingTable {
         // +1是因为有结束标记#
         actionTable =
                 new ActionItem[lr0Collection.size()][grammar.getTerminals().size() + 1];
-        gotoTable = new ItemSet[lr0Collection.size()][grammar.getNonterminals().size()];
+        gotoTable = new int[lr0Collection.size()][grammar.getNonterminals().size()];
         constructActionTable();
         constructGotoTable();
-    }
-
-    @Override
-    public ActionItem action(int state, Terminal terminal) {
-        int index = getSymbolNumber(terminal);
-        return actionTable[state][index];
-    }
-
-    @Override
-    public int go(int state, Nonterminal nonterminal) {
-        int index = getSymbolNumber(nonterminal);
-        ItemSet itemSet = gotoTable[state][index];
-        return lr0Collection.getItemSetNumber(itemSet);
+        packActionTable();
     }
 
     /**
      * Construct action table.构建ACTION表
      */
     private void constructActionTable() {
-        for (ItemSet itemSet : lr0Collection) {
+        for (int i = 0; i < lr0Collection.size(); i++) {
+            ItemSet itemSet = lr0Collection.get(i);
             for (Item item : itemSet) {
-                generateActionItem(item, itemSet);
+                generateActionItem(item, itemSet, i);
             }
         }
     }
@@ -51,19 +40,20 @@ public class SLRParsingTable extends LRParsingTable {
     /**
      * Generate action item.填充actionTable
      *
-     * @param item    the item
-     * @param itemSet the item set
+     * @param item      the item
+     * @param itemSet   the item set
+     * @param rowNumber 项集的编号
      * @throws LRConflictException LR分析冲突
      */
-    private void generateActionItem(Item item, ItemSet itemSet) {
+    private void generateActionItem(Item item, ItemSet itemSet, int rowNumber) {
         ProductionSymbol symbol = item.getCurrentSymbol();
-        int rowNumber = lr0Collection.getItemSetNumber(itemSet);
         if (symbol != null) {
             // A→α·aβ
             if (!(symbol instanceof Terminal)) {
                 return;
             }
-            int goNumber = lr0Collection.getGoItemSetNumber(itemSet, item.getCurrentSymbol());
+            int goNumber = lr0Collection.getGoItemSetNumber(rowNumber,
+                    lr0Collection.getSymbolTable().getSymbolCode(symbol));
             int colNumber = getSymbolNumber(symbol);
             ActionItem actionItem = new ActionItem(ActionItem.Action.SHIFT, goNumber);
             // 若表项不为空，且表项内容不同，则报错。
@@ -85,8 +75,9 @@ public class SLRParsingTable extends LRParsingTable {
             actionTable[rowNumber][colNumber] = actionItem;
         } else {
             // A→α·
-            LL1Parser ll1Parser = new LL1Parser(lr0Collection.getAugmentedGrammar());
-            for (Terminal terminal : ll1Parser.follow(item.getHead())) {
+            GrammarAnalysis grammarAnalysis =
+                    lr0Collection.getAugmentedGrammar().getGrammarAnalysis();
+            for (Terminal terminal : grammarAnalysis.follow(item.getHead())) {
                 int colNumber = getSymbolNumber(terminal);
                 ActionItem actionItem = new ActionItem(ActionItem.Action.REDUCE,
                         Grammars.getExpressionIndex(lr0Collection.getOriginalGrammar(),
@@ -102,20 +93,14 @@ public class SLRParsingTable extends LRParsingTable {
     }
 
     /**
-     * Generate goto.填充gotoTable
+     * Generate goto.根据项集族的GOTO转移表填充gotoTable
      */
     private void constructGotoTable() {
-        for (ItemSet itemSet : lr0Collection) {
-            int rowNumber = lr0Collection.getItemSetNumber(itemSet);
-            for (Nonterminal nonterminal :
-                    lr0Collection.getOriginalGrammar().getNonterminals()) {
-                int colNumber = getSymbolNumber(nonterminal);
-                try {
-                    gotoTable[rowNumber][colNumber] =
-                            lr0Collection.getGoItemSet(itemSet, nonterminal);
-                } catch (IndexOutOfBoundsException e) {
-                    gotoTable[rowNumber][colNumber] = null;
-                }
+        for (int rowNumber = 0; rowNumber < lr0Collection.size(); rowNumber++) {
+            for (Nonterminal nonterminal : nonterminalsOrder) {
+                gotoTable[rowNumber][getSymbolNumber(nonterminal)] =
+                        lr0Collection.getGoItemSetNumber(rowNumber,
+                                lr0Collection.getSymbolTable().getSymbolCode(nonterminal));
             }
         }
     }
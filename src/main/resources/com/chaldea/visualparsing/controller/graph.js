@@ -32,13 +32,23 @@ let treeOptions = {
 
 const treeSymbolNumberMap = new Map();
 const treeNodeStack = [];
+/**
+ * 节点的id到其所有子节点
+ */
+const treeChildrenMap = new Map();
+/**
+ * 这一批中新加入、还没有加入DataSet的节点与边
+ */
+let pendingTreeNodes = [];
+let pendingTreeEdges = [];
 
 /**
  * 向语法分析树中加一个节点
  * @param symbolValue 节点代表的文法符号的值
+ * @param level 节点的level，默认为0
  * @returns {string} 节点的id
  */
-function addNodeToTree(symbolValue) {
+function addNodeToTree(symbolValue, level = 0) {
     symbolValue = String(symbolValue);
     let value;
     if (treeSymbolNumberMap.has(symbolValue)) {
@@ -48,8 +58,9 @@ function addNodeToTree(symbolValue) {
         treeSymbolNumberMap.set(symbolValue, 2);
         value = symbolValue + '1';
     }
-    treeNodes.add({id: value, label: symbolValue, level: 0});
-    treeNodeStack.push(treeNodes.get(value));
+    const node = {id: value, label: symbolValue, level: level};
+    pendingTreeNodes.push(node);
+    treeNodeStack.push(node);
     return value;
 }
 
@@ -67,55 +78,42 @@ function addParentNodeToTree(parent, ...children) {
         childrenNodes.push(temp);
         minLevel = Math.min(minLevel, temp.level)
     }
-    let parentNodeId = addNodeToTree(parent);
-    // 更新父节点的level
-    const temp = treeNodes.get(parentNodeId);
-    temp.level = minLevel - 1;
-    treeNodes.update(temp);
-
+    // 父节点的level在所有子节点之上
+    let parentNodeId = addNodeToTree(parent, minLevel - 1);
     for (const childrenNode of childrenNodes) {
-        // 此处添加的边用于记录父子关系
-        treeEdges.add({from: parentNodeId, to: childrenNode.id});
+        pendingTreeEdges.push({from: parentNodeId, to: childrenNode.id});
     }
+    treeChildrenMap.set(parentNodeId, childrenNodes);
 }
 
 /**
  * 从根节点开始计算level，使树更美丽
+ * <p>沿着记录的子节点逐层遍历，每个节点只访问一次，只更新level改变了的节点</p>
  */
 function recalculateLevel() {
     const root = treeNodeStack.pop();
-    _recalculateLevel(root);
+    commitGraphChanges();
+    const changed = [];
+    const queue = [root];
+    for (let i = 0; i < queue.length; i++) {
+        const node = queue[i];
+        const children = treeChildrenMap.get(node.id);
+        if (children === undefined) {
+            continue;
+        }
+        for (const child of children) {
+            if (child.level !== node.level + 1) {
+                child.level = node.level + 1;
+                changed.push({id: child.id, level: child.level});
+            }
+            queue.push(child);
+        }
+    }
+    treeNodes.update(changed);
     // 刷新边的布局
     treeNetwork.setOptions(treeOptions);
 }
 
-function _recalculateLevel(root) {
-    const childrenId = findChildrenNodes(root.id, treeEdges);
-    for (const childId of childrenId) {
-        const childNode = treeNodes.get(childId);
-        childNode.level = root.level + 1;
-        treeNodes.update(childNode);
-        _recalculateLevel(childNode);
-    }
-}
-
-/**
- * 获取一个节点的所有子节点的id
- * @param nodeId
- * @param edges 边的dataset
- * @returns {*[]}
- */
-function findChildrenNodes(nodeId, edges) {
-    let childrenId = [];
-    // 遍历所有边以找到子节点
-    edges.forEach((edge) => {
-        if (edge.from === nodeId) {
-            childrenId.push(edge.to);
-        }
-    });
-    return childrenId;
-}
-
 const parseTreeContainer = document.getElementById('parse-tree');
 const treeNetwork = new vis.Network(parseTreeContainer, treeData, treeOptions);
 treeNetwork.setOptions(treeOptions);
@@ -160,20 +158,29 @@ let stateOptions = {
 
 const stateSymbolNumberMap = new Map();
 const stateNodeStack = [];
+let pendingStateNodes = [];
+let pendingStateEdges = [];
 
 const parserStateContainer = document.getElementById('parser-state');
 const stateNetwork = new vis.Network(parserStateContainer, stateData, stateOptions);
 stateNetwork.setOptions(stateOptions);
 
 /**
- * 添加语法翻译器最初的状态节点
+ * 添加语法翻译器最初的状态节点，清除原有的状态图
  * @param initialState 最初的状态
  */
 function initializeParserStateNode(initialState) {
     initialState = String(initialState);
+    stateNodes.clear();
+    stateEdges.clear();
+    stateSymbolNumberMap.clear();
+    stateNodeStack.length = 0;
+    pendingStateNodes = [];
+    pendingStateEdges = [];
     stateSymbolNumberMap.set(initialState, 2);
-    stateNodes.add({id: initialState + '1', label: initialState});
-    stateNodeStack.push(stateNodes.get(initialState + '1'));
+    const node = {id: initialState + '1', label: initialState};
+    pendingStateNodes.push(node);
+    stateNodeStack.push(node);
 }
 
 /**
@@ -193,11 +200,12 @@ function addNodeToState(state, symbol) {
         stateSymbolNumberMap.set(state, 2);
         value = state + '1';
     }
-    stateNodes.add({id: value, label: state});
+    const node = {id: value, label: state};
+    pendingStateNodes.push(node);
     // 连接与上一个状态的边
     const lastStateNode = stateNodeStack[stateNodeStack.length - 1];
-    stateEdges.add({from: lastStateNode.id, to: value, label: symbol});
-    stateNodeStack.push(stateNodes.get(value));
+    pendingStateEdges.push({from: lastStateNode.id, to: value, label: symbol});
+    stateNodeStack.push(node);
     return value;
 }
 
@@ -207,19 +215,65 @@ function addNodeToState(state, symbol) {
  */
 function rollbackState(number) {
     number = Number(number);
+    commitGraphChanges();
+    const removed = [];
     for (let i = 0; i < number; i++) {
-        const current = stateNodeStack.pop();
-        // const last = stateNodeStack[stateNodeStack.length - 1];
-        // const edgeToRemove = stateEdges.get({
-        //     filter: function (item) {
-        //         return (item.from === last.id && item.to === current.id);
-        //     }
-        // });
-        // if (edgeToRemove.length > 1) {
-        //     throw new Error("有多条从" + last.id + "到" + current.id + "的边");
-        // }
-        // stateEdges.remove(edgeToRemove);
-        // vis.js 删除节点后会自动删除相关联的边
-        stateNodes.remove(current);
+        removed.push(stateNodeStack.pop().id);
+    }
+    // vis.js 删除节点后会自动删除相关联的边
+    stateNodes.remove(removed);
+}
+
+/**
+ * 将这一批中新加入的节点与边一次性加入DataSet，网络只重新绘制一次
+ */
+function commitGraphChanges() {
+    if (pendingTreeNodes.length > 0) {
+        treeNodes.add(pendingTreeNodes);
+        pendingTreeNodes = [];
+    }
+    if (pendingTreeEdges.length > 0) {
+        treeEdges.add(pendingTreeEdges);
+        pendingTreeEdges = [];
+    }
+    if (pendingStateNodes.length > 0) {
+        stateNodes.add(pendingStateNodes);
+        pendingStateNodes = [];
+    }
+    if (pendingStateEdges.length > 0) {
+        stateEdges.add(pendingStateEdges);
+        pendingStateEdges = [];
+    }
+}
+
+/**
+ * 依次应用GraphEventBuffer生成的一批事件，最后一次性提交
+ * <p>每个事件为一个数组，第一个元素为事件的类型：t 加入树节点，p 加入父节点，l 重新计算level，
+ * i 初始化状态图，s 加入状态节点，r 回退状态节点；其余元素为对应函数的参数</p>
+ * @param events 事件的数组
+ */
+function applyGraphEvents(events) {
+    for (const event of events) {
+        switch (event[0]) {
+            case 't':
+                addNodeToTree(event[1]);
+                break;
+            case 'p':
+                addParentNodeToTree(...event.slice(1));
+                break;
+            case 'l':
+                recalculateLevel();
+                break;
+            case 'i':
+                initializeParserStateNode(event[1]);
+                break;
+            case 's':
+                addNodeToState(event[1], event[2]);
+                break;
+            case 'r':
+                rollbackState(event[1]);
+                break;
+        }
     }
+    commitGraphChanges();
 }
@@ -1,8 +1,11 @@
 package com.chaldea.visualparsing;
 
+import com.chaldea.visualparsing.exception.BaseException;
 import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.GrammarReaderWriter;
 import com.chaldea.visualparsing.parsing.CanonicalLR0Collection;
+import com.chaldea.visualparsing.parsing.CompactItem;
+import com.chaldea.visualparsing.parsing.ItemSet;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -10,6 +13,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class CanonicalLR0CollectionTest {
 
@@ -37,10 +43,46 @@ public class CanonicalLR0CollectionTest {
         generateGrammarFile();
     }
 
+    @Test
+    void testCompactItemLimits() {
+        // 点的位置超出 CompactItem 的16位时不能构造项集族
+        Grammar longGrammar = new Grammar("S");
+        longGrammar.addTerminal("a");
+        String[] body = new String[CompactItem.MAX_POINT + 1];
+        Arrays.fill(body, "a");
+        longGrammar.addExpression("S", longGrammar.generateExpression(body));
+        assertThrows(BaseException.class, () -> new CanonicalLR0Collection(longGrammar));
+    }
+
     @Test
     void testItemSetList() {
         lr0Collection = new CanonicalLR0Collection(grammar);
         logger.info("\n" + lr0Collection);
+        assertEquals(12, lr0Collection.size());
+    }
+
+    @Test
+    void testItemSetNumber() {
+        lr0Collection = new CanonicalLR0Collection(grammar);
+        for (int i = 0; i < lr0Collection.size(); i++) {
+            ItemSet itemSet = lr0Collection.get(i);
+            assertEquals(i, lr0Collection.getItemSetNumber(itemSet));
+            // 内容相同的另一个对象
+            assertEquals(i, lr0Collection.getItemSetNumber(new ItemSet(itemSet)));
+            assertTrue(lr0Collection.contains(new ItemSet(itemSet)));
+        }
+        assertEquals(-1, lr0Collection.getItemSetNumber(new ItemSet()));
+        assertEquals(-1, lr0Collection.getItemSetNumber((ItemSet) null));
+    }
+
+    @Test
+    void testClosureCache() {
+        lr0Collection = new CanonicalLR0Collection(grammar);
+        // 每个非终结符的闭包只计算一次
+        assertTrue(lr0Collection.getClosureCacheMisses() <= grammar.getNonterminals().size() + 1);
+        assertTrue(lr0Collection.getClosureCacheHits() > 0);
+        logger.info("hits: " + lr0Collection.getClosureCacheHits()
+                + ", misses: " + lr0Collection.getClosureCacheMisses());
     }
 
     private static void generateGrammarFile() {
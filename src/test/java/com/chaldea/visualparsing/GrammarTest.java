@@ -9,6 +9,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class GrammarTest {
     private static final Logger logger = LoggerFactory.getLogger(GrammarTest.class);
 
@@ -51,6 +53,35 @@ public class GrammarTest {
         }
     }
 
+    @Test
+    void testProductionIndex() {
+        Grammar grammar = new Grammar("E");
+        grammar.addNonterminal("T");
+        grammar.addTerminal("+");
+        grammar.addTerminal("id");
+        grammar.addExpression("E", grammar.generateExpression("E", "+", "T"));
+        grammar.addExpression("E", grammar.generateExpression("T"));
+        grammar.addExpression("T", grammar.generateExpression("id"));
+        ProductionIndex index = grammar.getProductionIndex();
+        assertSame(index, grammar.getProductionIndex());
+        assertEquals(3, index.size());
+        assertEquals(2, Grammars.getExpressionIndex(grammar, grammar.getNonterminal("E"),
+                grammar.generateExpression("T")));
+        assertEquals(grammar.getNonterminal("T"), index.getHead(3));
+        assertEquals(grammar.generateExpression("id"), index.getExpression(3));
+        assertArrayEquals(new int[]{1, 2}, index.getExpressionIndices(
+                grammar.getSymbolTable().getNonterminalId("E")));
+        // 通过Production修改文法后索引失效
+        grammar.getProduction(grammar.getNonterminal("T")).addExpression(
+                new Expression(new ProductionSymbol[]{Terminal.EMPTY_STRING}));
+        assertNotSame(index, grammar.getProductionIndex());
+        assertEquals(4, grammar.getProductionIndex().size());
+        assertEquals(0, grammar.getProductionIndex().getBodyLength(4));
+        grammar.deleteExpression(grammar.getNonterminal("E"), grammar.generateExpression("T"));
+        assertEquals(grammar.getNonterminal("T"),
+                Grammars.getExpression(grammar, 2).getHead());
+    }
+
     @Test
     void test0() {
         String a = "0123";
@@ -0,0 +1,47 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.gui.GraphEventBuffer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphEventBufferTest {
+    private static final Logger logger = LoggerFactory.getLogger(GraphEventBufferTest.class);
+
+    @Test
+    void testCoalesceStateEvents() {
+        GraphEventBuffer buffer = new GraphEventBuffer();
+        buffer.initializeParserState("0");
+        buffer.addNodeToState("5", "id");
+        buffer.addNodeToTree("id");
+        // 回退抵消这一批中加入的节点
+        buffer.rollbackState(1);
+        buffer.addNodeToState("3", "F");
+        buffer.addParentNodeToTree("F", "id");
+        assertEquals(4, buffer.size());
+        String script = buffer.drain();
+        logger.info(script);
+        assertEquals("applyGraphEvents([[\"i\",\"0\"],[\"s\",\"3\",\"F\"],"
+                + "[\"t\",\"id\"],[\"p\",\"F\",\"id\"]]);", script);
+        assertTrue(buffer.isEmpty());
+
+        // 超出这一批中加入的节点时回退之前已有的节点
+        buffer.addNodeToState("7", "+");
+        buffer.rollbackState(3);
+        buffer.rollbackState(1);
+        buffer.addNodeToState("9", "T");
+        buffer.recalculateLevel();
+        assertEquals("applyGraphEvents([[\"r\",3],[\"s\",\"9\",\"T\"],[\"l\"]]);",
+                buffer.drain());
+    }
+
+    @Test
+    void testEscape() {
+        GraphEventBuffer buffer = new GraphEventBuffer();
+        buffer.addNodeToTree("'\"\\\n\u2028");
+        assertEquals("applyGraphEvents([[\"t\",\"'\\\"\\\\\\n\\u2028\"]]);", buffer.drain());
+        assertEquals("applyGraphEvents([]);", buffer.drain());
+    }
+}
@@ -1,14 +1,20 @@
 package com.chaldea.visualparsing;
 
+import com.chaldea.visualparsing.grammar.Expression;
 import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.ProductionSymbol;
 import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.parsing.DeRemerPennelloLALRParsingTable;
 import com.chaldea.visualparsing.parsing.LALRParsingTable;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class LALRParsingTableTest {
     private static Grammar grammar;
     private static final Logger logger =
@@ -43,4 +49,54 @@ public class LALRParsingTableTest {
         logger.info("\n" + SLRParsingTableTest.lrParsingTableToString(lalrParsingTable,
                 actionHeader, gotoHeader));
     }
+
+    @Test
+    void testDeRemerPennello() {
+        assertSameTable(new LALRParsingTable(grammar),
+                new DeRemerPennelloLALRParsingTable(grammar));
+
+        // 龙书文法4.49，不是SLR文法
+        Grammar assignGrammar = new Grammar("S");
+        assignGrammar.addNonterminal("L");
+        assignGrammar.addNonterminal("R");
+        assignGrammar.addTerminal("=");
+        assignGrammar.addTerminal("*");
+        assignGrammar.addTerminal("id");
+        assignGrammar.addExpression("S", assignGrammar.generateExpression("L", "=", "R"));
+        assignGrammar.addExpression("S", assignGrammar.generateExpression("R"));
+        assignGrammar.addExpression("L", assignGrammar.generateExpression("*", "R"));
+        assignGrammar.addExpression("L", assignGrammar.generateExpression("id"));
+        assignGrammar.addExpression("R", assignGrammar.generateExpression("L"));
+        assertSameTable(new LALRParsingTable(assignGrammar),
+                new DeRemerPennelloLALRParsingTable(assignGrammar));
+
+        // 含有ε表达式，需要经过 reads 关系传递
+        Grammar nullableGrammar = new Grammar("S");
+        nullableGrammar.addNonterminal("A");
+        nullableGrammar.addNonterminal("B");
+        nullableGrammar.addTerminal("a");
+        nullableGrammar.addTerminal("b");
+        nullableGrammar.addTerminal("c");
+        nullableGrammar.addTerminal("d");
+        nullableGrammar.addTerminal("e");
+        nullableGrammar.addExpression("S", nullableGrammar.generateExpression("A", "B", "c"));
+        nullableGrammar.addExpression("S", nullableGrammar.generateExpression("d", "S", "e"));
+        nullableGrammar.addExpression("A", nullableGrammar.generateExpression("a", "A"));
+        nullableGrammar.addExpression(new Nonterminal("A"),
+                new Expression(new ProductionSymbol[]{Terminal.EMPTY_STRING}));
+        nullableGrammar.addExpression("B", nullableGrammar.generateExpression("b"));
+        nullableGrammar.addExpression(new Nonterminal("B"),
+                new Expression(new ProductionSymbol[]{Terminal.EMPTY_STRING}));
+        assertSameTable(new LALRParsingTable(nullableGrammar),
+                new DeRemerPennelloLALRParsingTable(nullableGrammar));
+    }
+
+    private static void assertSameTable(LRParsingTable expected, LRParsingTable actual) {
+        assertEquals(expected.getStateCount(), actual.getStateCount());
+        for (int i = 0; i < expected.getStateCount(); i++) {
+            assertArrayEquals(expected.getActionTable()[i], actual.getActionTable()[i]);
+            assertArrayEquals(expected.getGotoTable()[i], actual.getGotoTable()[i]);
+        }
+        assertArrayEquals(expected.getPackedActionTable(), actual.getPackedActionTable());
+    }
 }
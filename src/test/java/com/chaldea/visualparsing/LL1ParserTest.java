@@ -11,11 +11,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class LL1ParserTest {
     private static final Logger logger = LoggerFactory.getLogger(LL1ParserTest.class);
@@ -141,6 +143,55 @@ public class LL1ParserTest {
         assertEquals(fFollow, ll1Parser.follow(grammar.getNonterminal("F")));
     }
 
+    /**
+     * FOLLOW 之间存在循环依赖：A→aB，B→bA|ε
+     */
+    @Test
+    void testCyclicFollow() {
+        Grammar cyclicGrammar = new Grammar("S");
+        cyclicGrammar.addNonterminal("A");
+        cyclicGrammar.addNonterminal("B");
+        cyclicGrammar.addTerminal("a");
+        cyclicGrammar.addTerminal("b");
+        cyclicGrammar.addTerminal("c");
+        cyclicGrammar.addExpression("S", cyclicGrammar.convertStringToExpression("Ac"));
+        cyclicGrammar.addExpression("A", cyclicGrammar.convertStringToExpression("aB"));
+        cyclicGrammar.addExpression("B", cyclicGrammar.convertStringToExpression("bA"));
+        cyclicGrammar.addExpression("B", new Expression(new ProductionSymbol[]{
+                Terminal.EMPTY_STRING
+        }));
+        LL1Parser parser = new LL1Parser(cyclicGrammar);
+        Set<Terminal> follow = new HashSet<>();
+        follow.add(cyclicGrammar.getTerminal("c"));
+        assertEquals(follow, parser.follow(cyclicGrammar.getNonterminal("A")));
+        assertEquals(follow, parser.follow(cyclicGrammar.getNonterminal("B")));
+    }
+
+    @Test
+    void testGrammarAnalysisCache() {
+        Grammar cachedGrammar = new Grammar("S");
+        cachedGrammar.addTerminal("a");
+        cachedGrammar.addTerminal("b");
+        cachedGrammar.addExpression("S", cachedGrammar.convertStringToExpression("a"));
+        GrammarAnalysis analysis = cachedGrammar.getGrammarAnalysis();
+        assertSame(analysis, cachedGrammar.getGrammarAnalysis());
+        LL1Parser parser = new LL1Parser(cachedGrammar);
+        assertEquals(Set.of(cachedGrammar.getTerminal("a")),
+                parser.first(cachedGrammar.getStartSymbol()));
+
+        cachedGrammar.addExpression("S", cachedGrammar.convertStringToExpression("b"));
+        assertNotSame(analysis, cachedGrammar.getGrammarAnalysis());
+        assertEquals(Set.of(cachedGrammar.getTerminal("a"), cachedGrammar.getTerminal("b")),
+                parser.first(cachedGrammar.getStartSymbol()));
+
+        analysis = cachedGrammar.getGrammarAnalysis();
+        cachedGrammar.getProduction(cachedGrammar.getStartSymbol()).eraseExpression(
+                cachedGrammar.convertStringToExpression("a"));
+        assertNotSame(analysis, cachedGrammar.getGrammarAnalysis());
+        assertEquals(Set.of(cachedGrammar.getTerminal("b")),
+                parser.first(cachedGrammar.getStartSymbol()));
+    }
+
     @Test
     void testGeneratePredictiveParsingTable() {
         PredictiveParsingTable table = ll1Parser.generatePredictiveParsingTable();
@@ -149,6 +200,54 @@ public class LL1ParserTest {
         logger.info("table:\n{}", table.toFormattedTableString());
     }
 
+    @Test
+    void testParse() {
+        PredictiveParsingTable table = ll1Parser.generatePredictiveParsingTable();
+        SymbolTable symbolTable = table.getSymbolTable();
+        ProductionIndex productionIndex = table.getProductionIndex();
+        // 空表项不再抛出NullPointerException
+        assertNull(table.get(grammar.getNonterminal("E"), grammar.getTerminal("+")));
+        assertEquals(PredictiveParsingTable.ERROR, table.getProduction(
+                symbolTable.getNonterminalId("E"), symbolTable.getTerminalId("+")));
+        assertEquals(productionIndex.getExpressionIndex(grammar.getNonterminal("F"),
+                        grammar.getProduction(grammar.getNonterminal("F")).getBody().get(1)),
+                table.getProduction(symbolTable.getNonterminalId("F"),
+                        symbolTable.getTerminalId("id")));
+
+        // id+id 的最左推导：E→TE', T→FT', F→id, T'→ε, E'→+TE', T→FT', F→id, T'→ε, E'→ε
+        List<Integer> productions = new ArrayList<>();
+        int[] tokens = toIds(symbolTable, "id", "+", "id");
+        assertEquals(LL1Parser.ACCEPTED, ll1Parser.parse(tokens, 0, tokens.length,
+                (production, position) -> productions.add(production)));
+        assertEquals(List.of(1, 4, 8, 6, 2, 4, 8, 6, 3), productions);
+
+        assertTrue(ll1Parser.accepts(toIds(symbolTable, "(", "id", "*", "id", ")", "+", "id")));
+        assertFalse(ll1Parser.accepts(new int[0]));
+        assertEquals(2, ll1Parser.parse(toIds(symbolTable, "id", "+")));
+        assertEquals(1, ll1Parser.parse(toIds(symbolTable, "id", "id")));
+        assertEquals(3, ll1Parser.parse(toIds(symbolTable, "(", "id", "*", ")")));
+        assertEquals(1, ll1Parser.parse(new int[]{symbolTable.getTerminalId("id"),
+                symbolTable.getEndMarkerId()}));
+
+        // 文法变化后重新生成预测分析表
+        Grammar changedGrammar = (Grammar) grammar.clone();
+        LL1Parser parser = new LL1Parser(changedGrammar);
+        int[] minus = {changedGrammar.getSymbolTable().getTerminalId("id")};
+        assertTrue(parser.accepts(minus));
+        changedGrammar.addTerminal("-");
+        changedGrammar.addExpression("F", changedGrammar.generateExpression("-", "F"));
+        SymbolTable changedSymbolTable = changedGrammar.getSymbolTable();
+        assertTrue(parser.accepts(toIds(changedSymbolTable, "-", "-", "id", "*", "id")));
+    }
+
+    private static int[] toIds(SymbolTable symbolTable, String... input) {
+        int[] ids = new int[input.length];
+        for (int i = 0; i < input.length; i++) {
+            ids[i] = symbolTable.getTerminalId(input[i]);
+        }
+        return ids;
+    }
+
     private static void generateGrammarFile() {
         try {
             GrammarReaderWriter.writeGrammarToFile(grammar, new File("./ll1.gra"));
@@ -2,6 +2,12 @@ package com.chaldea.visualparsing;
 
 import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.GrammarReaderWriter;
+import com.chaldea.visualparsing.parsing.CompactItem;
+import com.chaldea.visualparsing.parsing.CompactItemSet;
+import com.chaldea.visualparsing.parsing.Item;
+import com.chaldea.visualparsing.parsing.LR1Item;
+import com.chaldea.visualparsing.parsing.LR1ItemSet;
+import com.chaldea.visualparsing.parsing.LR1Items;
 import com.chaldea.visualparsing.parsing.LR1Collection;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -10,6 +16,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class LR1CollectionTest {
     private LR1Collection lr1Collection;
@@ -35,6 +45,129 @@ public class LR1CollectionTest {
     void testItemSetList() {
         lr1Collection = new LR1Collection(grammar);
         logger.info("\n" + lr1Collection);
+        assertEquals(10, lr1Collection.size());
+    }
+
+    @Test
+    void testCompactItemSets() {
+        lr1Collection = new LR1Collection(grammar);
+        for (int i = 0; i < lr1Collection.size(); i++) {
+            CompactItemSet compactItemSet = lr1Collection.getCompactItemSet(i);
+            // 同一核心的项合并为一个对象，展开后与编码后的项一一对应
+            LR1ItemSet itemSet = (LR1ItemSet) lr1Collection.get(i);
+            assertEquals(itemSet.getLR1ItemCount(), compactItemSet.size());
+            for (long item : compactItemSet.getKernel()) {
+                assertTrue(CompactItem.point(item) > 0 || i == 0);
+            }
+            for (int j = 0; j < i; j++) {
+                assertNotEquals(lr1Collection.getCompactItemSet(j), compactItemSet);
+            }
+        }
+        // C→c·C,c/d 与 C→c·C,# 核心相同
+        int sameCoreCount = 0;
+        for (int i = 0; i < lr1Collection.size(); i++) {
+            for (int j = i + 1; j < lr1Collection.size(); j++) {
+                if (lr1Collection.getCompactItemSet(i)
+                        .hasSameCore(lr1Collection.getCompactItemSet(j))) {
+                    sameCoreCount++;
+                }
+            }
+        }
+        assertEquals(3, sameCoreCount);
+    }
+
+    @Test
+    void testLookaheadSetItems() {
+        lr1Collection = new LR1Collection(grammar);
+        // I0 中的 C→·cC,c/d
+        LR1ItemSet itemSet = (LR1ItemSet) lr1Collection.get(0);
+        Item core = new Item(grammar.getNonterminal("C"),
+                grammar.generateExpression("c", "C"), 0);
+        LR1Items lr1Items = itemSet.getLR1Items(core);
+        assertNotNull(lr1Items);
+        assertEquals(List.of(grammar.getTerminal("c"), grammar.getTerminal("d")),
+                lr1Items.getLookaheads());
+        assertTrue(itemSet.toString().contains("C→·cC,c/d"));
+
+        // 加入第一分量相同的项时合并向前看符号
+        LR1ItemSet unionSet = new LR1ItemSet(lr1Collection.getSymbolTable());
+        unionSet.addItem(new LR1Item(core.getHead(), core.getExpression(), 0,
+                grammar.getTerminal("c")));
+        assertTrue(unionSet.addItem(new LR1Item(core.getHead(), core.getExpression(), 0,
+                grammar.getTerminal("d"))));
+        assertFalse(unionSet.addItem(new LR1Item(core.getHead(), core.getExpression(), 0,
+                grammar.getTerminal("d"))));
+        assertEquals(1, unionSet.getItemsCopy().size());
+        assertEquals(2, unionSet.getLR1ItemCount());
+        assertEquals(lr1Items, unionSet.getLR1Items(core));
+    }
+
+    @Test
+    void testTransitions() {
+        lr1Collection = new LR1Collection(grammar);
+        int[][] transitions = lr1Collection.getTransitions();
+        assertEquals(lr1Collection.size(), transitions.length);
+        int transitionCount = 0;
+        for (int i = 0; i < transitions.length; i++) {
+            for (int symbol = 0; symbol < transitions[i].length; symbol++) {
+                int target = transitions[i][symbol];
+                if (target == -1) {
+                    continue;
+                }
+                transitionCount++;
+                // GOTO(I,X) 的内核项的点都在X之后
+                for (long item : lr1Collection.getCompactItemSet(target).getKernel()) {
+                    assertEquals(symbol, lr1Collection.getSymbolAfterPoint(
+                            CompactItem.of(CompactItem.production(item),
+                                    CompactItem.point(item) - 1)));
+                }
+            }
+        }
+        assertEquals(lr1Collection.size() - 1 + 4, transitionCount);
+    }
+
+    @Test
+    void testParallelBuild() {
+        // 多层优先级的表达式文法，项集较多，同一层的项集会被拆分为多个任务
+        int levels = 6;
+        Grammar expressionGrammar = new Grammar("E0");
+        for (int i = 1; i <= levels; i++) {
+            expressionGrammar.addNonterminal("E" + i);
+        }
+        for (int i = 0; i < levels; i++) {
+            expressionGrammar.addTerminal("op" + i);
+        }
+        expressionGrammar.addTerminal("(");
+        expressionGrammar.addTerminal(")");
+        expressionGrammar.addTerminal("id");
+        for (int i = 0; i < levels; i++) {
+            expressionGrammar.addExpression("E" + i,
+                    expressionGrammar.generateExpression("E" + i, "op" + i, "E" + (i + 1)));
+            expressionGrammar.addExpression("E" + i,
+                    expressionGrammar.generateExpression("E" + (i + 1)));
+        }
+        expressionGrammar.addExpression("E" + levels,
+                expressionGrammar.generateExpression("(", "E0", ")"));
+        expressionGrammar.addExpression("E" + levels, expressionGrammar.generateExpression("id"));
+
+        LR1Collection sequential = new LR1Collection(expressionGrammar);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            LR1Collection parallel = new LR1Collection(expressionGrammar, pool);
+            logger.info("LR(1)项集数目：" + parallel.size());
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertArrayEquals(sequential.getCompactItemSet(i).getItems(),
+                        parallel.getCompactItemSet(i).getItems());
+                assertArrayEquals(sequential.getTransitions()[i], parallel.getTransitions()[i]);
+            }
+            assertEquals(sequential.toString(), parallel.toString());
+            assertTrue(sequential.getClosureCacheHits() > 0);
+            logger.info("hits: " + sequential.getClosureCacheHits()
+                    + ", misses: " + sequential.getClosureCacheMisses());
+        } finally {
+            pool.shutdown();
+        }
     }
 
     private static void generateGrammarFile() {
@@ -1,14 +1,30 @@
 package com.chaldea.visualparsing;
 
+import com.chaldea.visualparsing.exception.LRConflictException;
 import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.ProductionIndex;
+import com.chaldea.visualparsing.grammar.SymbolTable;
 import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.BuildProgress;
+import com.chaldea.visualparsing.parsing.LALRParsingTable;
 import com.chaldea.visualparsing.parsing.LR1ParsingTable;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import com.chaldea.visualparsing.parsing.MinimalLR1ParsingTable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class LR1ParsingTableTest {
     private static Grammar grammar;
     private static final Logger logger =
@@ -42,4 +58,90 @@ public class LR1ParsingTableTest {
         logger.info("\n" + SLRParsingTableTest.lrParsingTableToString(lr1ParsingTable,
                 actionHeader, gotoHeader));
     }
+
+    @Test
+    void testBuildProgress() {
+        List<Integer> states = new ArrayList<>();
+        LRParsingTable table = BuildProgress.track((stateCount, closures) ->
+                states.add(stateCount), () -> new LR1ParsingTable(grammar));
+        logger.info("进度：" + states);
+        assertFalse(states.isEmpty());
+        assertTrue(states.get(states.size() - 1) <= table.getStateCount());
+
+        // 线程被中断时停止构造
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> BuildProgress.track(
+                    (stateCount, closures) -> {}, () -> new LALRParsingTable(grammar)));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testMinimalLR1() {
+        // 同心项集都可以合并，与LALR的项集数目相同
+        LRParsingTable minimalTable = new MinimalLR1ParsingTable(grammar);
+        assertEquals(new LALRParsingTable(grammar).getStateCount(),
+                minimalTable.getStateCount());
+        assertTrue(accepts(minimalTable, "c", "d", "d"));
+        assertFalse(accepts(minimalTable, "c", "d"));
+
+        // 是LR(1)文法但不是LALR文法
+        Grammar lr1Grammar = new Grammar("S");
+        lr1Grammar.addNonterminal("A");
+        lr1Grammar.addNonterminal("B");
+        lr1Grammar.addTerminal("a");
+        lr1Grammar.addTerminal("b");
+        lr1Grammar.addTerminal("c");
+        lr1Grammar.addTerminal("d");
+        lr1Grammar.addTerminal("e");
+        lr1Grammar.addExpression("S", lr1Grammar.generateExpression("a", "A", "d"));
+        lr1Grammar.addExpression("S", lr1Grammar.generateExpression("b", "B", "d"));
+        lr1Grammar.addExpression("S", lr1Grammar.generateExpression("a", "B", "e"));
+        lr1Grammar.addExpression("S", lr1Grammar.generateExpression("b", "A", "e"));
+        lr1Grammar.addExpression("A", lr1Grammar.generateExpression("c"));
+        lr1Grammar.addExpression("B", lr1Grammar.generateExpression("c"));
+        assertThrows(LRConflictException.class, () -> new LALRParsingTable(lr1Grammar));
+        LRParsingTable canonicalTable = new LR1ParsingTable(lr1Grammar);
+        minimalTable = new MinimalLR1ParsingTable(lr1Grammar);
+        assertTrue(minimalTable.getStateCount() <= canonicalTable.getStateCount());
+        String[][] inputs = {
+                {"a", "c", "d"}, {"b", "c", "d"}, {"a", "c", "e"}, {"b", "c", "e"},
+                {"a", "c"}, {"c", "d"}, {"a", "d"}, {"b", "c", "d", "d"}
+        };
+        for (String[] input : inputs) {
+            assertEquals(accepts(canonicalTable, input), accepts(minimalTable, input));
+        }
+        logger.info("\n" + minimalTable.getLrCollection());
+    }
+
+    /**
+     * 用分析表分析输入串，判断是否接受
+     */
+    static boolean accepts(LRParsingTable table, String... input) {
+        SymbolTable symbolTable = table.getSymbolTable();
+        ProductionIndex productionIndex = table.getGrammar().getProductionIndex();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        int position = 0;
+        while (true) {
+            int terminalId = position < input.length
+                    ? symbolTable.getTerminalId(input[position])
+                    : symbolTable.getEndMarkerId();
+            int code = table.action(stack.peek(), terminalId);
+            if (ActionItem.isShift(code)) {
+                stack.push(ActionItem.numberOf(code));
+                position++;
+            } else if (ActionItem.isReduce(code)) {
+                int production = ActionItem.numberOf(code);
+                for (int i = 0; i < productionIndex.getBodyLength(production); i++) {
+                    stack.pop();
+                }
+                stack.push(table.go(stack.peek(), productionIndex.getHeadId(production)));
+            } else {
+                return ActionItem.isAccept(code);
+            }
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.debug.LRParsingAlgorithm;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.parsing.CompressedParsingTable;
+import com.chaldea.visualparsing.parsing.LALRParsingTable;
+import com.chaldea.visualparsing.parsing.LRParser;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import com.chaldea.visualparsing.parsing.SLRParsingTable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LRParserTest {
+    private static final Logger logger = LoggerFactory.getLogger(LRParserTest.class);
+    private static Grammar grammar;
+
+    @BeforeAll
+    public static void setGrammar() {
+        grammar = new Grammar("E");
+        grammar.addNonterminal("T");
+        grammar.addNonterminal("F");
+        grammar.addTerminal("+");
+        grammar.addTerminal("*");
+        grammar.addTerminal("(");
+        grammar.addTerminal(")");
+        grammar.addTerminal("id");
+        grammar.addExpression("E", grammar.generateExpression("E", "+", "T"));
+        grammar.addExpression("E", grammar.generateExpression("T"));
+        grammar.addExpression("T", grammar.generateExpression("T", "*", "F"));
+        grammar.addExpression("T", grammar.generateExpression("F"));
+        grammar.addExpression("F", grammar.generateExpression("(", "E", ")"));
+        grammar.addExpression("F", grammar.generateExpression("id"));
+    }
+
+    @Test
+    void testParse() {
+        LRParsingTable table = new SLRParsingTable(grammar);
+        LRParser parser = new LRParser(table);
+        SymbolTable symbolTable = table.getSymbolTable();
+        assertTrue(parser.accepts(toIds(symbolTable, "id", "+", "id", "*", "(", "id", ")")));
+        assertFalse(parser.accepts(toIds(symbolTable)));
+        assertEquals(2, parser.parse(toIds(symbolTable, "id", "+"), 0, 2, null));
+        assertEquals(1, parser.parse(toIds(symbolTable, "id", "id"), 0, 2, null));
+        assertEquals(0, parser.parse(new int[]{symbolTable.getEndMarkerId()}, 0, 1, null));
+
+        // id*id 的最右推导的逆序：F→id, T→F, F→id, T→T*F, E→T
+        List<Integer> productions = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        assertEquals(LRParser.ACCEPTED, parser.parse(toIds(symbolTable, "id", "*", "id"), 0, 3,
+                (production, position) -> {
+                    productions.add(production);
+                    positions.add(position);
+                }));
+        assertEquals(List.of(6, 4, 6, 3, 2), productions);
+        assertEquals(List.of(1, 1, 3, 3, 3), positions);
+
+        // 压缩后的分析表与LALR分析表的结果相同
+        LRParser compressedParser = new LRParser(new CompressedParsingTable(table, true),
+                grammar.getProductionIndex());
+        LRParser lalrParser = new LRParser(new LALRParsingTable(grammar));
+        LRParser.StateStack stack = new LRParser.StateStack();
+        String[][] inputs = {
+                {"id"}, {"(", "id", ")"}, {"id", "+"}, {"(", "id"}, {")"}, {"id", "*", "*"}
+        };
+        for (String[] input : inputs) {
+            int[] ids = toIds(symbolTable, input);
+            int expected = parser.parse(ids, 0, ids.length, null);
+            assertEquals(expected, compressedParser.parse(stack, ids, 0, ids.length, null));
+            assertEquals(expected, lalrParser.parse(ids, 0, ids.length, null));
+        }
+    }
+
+    @Test
+    void testSharedParser() {
+        LRParser parser = new LRParser(new SLRParsingTable(grammar));
+        int[] ids = toIds(grammar.getSymbolTable(), longInput(2000));
+        int[] errorIds = ids.clone();
+        errorIds[errorIds.length - 1] = grammar.getSymbolTable().getTerminalId("+");
+        assertTrue(IntStream.range(0, 64).parallel().allMatch(i ->
+                parser.accepts(ids)
+                        && parser.parse(errorIds, 0, errorIds.length, null) == ids.length));
+    }
+
+    @Test
+    void testCompareWithStepwiseAlgorithm() {
+        LRParsingTable table = new SLRParsingTable(grammar);
+        LRParser parser = new LRParser(table);
+        String[] input = longInput(20000);
+        int[] ids = toIds(table.getSymbolTable(), input);
+        List<Terminal> terminals = new ArrayList<>();
+        for (String value : input) {
+            terminals.add(grammar.getTerminal(value));
+        }
+
+        long start = System.nanoTime();
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, terminals);
+        algorithm.reset();
+        while (!algorithm.isExecutionComplete()) {
+            algorithm.executeStep();
+        }
+        long stepwiseTime = System.nanoTime() - start;
+        // 接受时符号栈中只剩下开始符号
+        assertEquals(1, algorithm.getSymbolStack().size());
+
+        int[] reductions = new int[1];
+        parser.parse(ids, 0, ids.length, (production, position) -> reductions[0]++);
+        start = System.nanoTime();
+        assertTrue(parser.accepts(ids));
+        long parserTime = System.nanoTime() - start;
+        logger.info("tokens: {}, reductions: {}, stepwise: {} us, LRParser: {} us", ids.length,
+                reductions[0], stepwiseTime / 1000, parserTime / 1000);
+    }
+
+    /**
+     * id+(id*id)+(id*id)+...
+     */
+    private static String[] longInput(int terms) {
+        List<String> input = new ArrayList<>();
+        input.add("id");
+        for (int i = 0; i < terms; i++) {
+            input.addAll(List.of("+", "(", "id", "*", "id", ")"));
+        }
+        return input.toArray(String[]::new);
+    }
+
+    static int[] toIds(SymbolTable symbolTable, String... input) {
+        int[] ids = new int[input.length];
+        for (int i = 0; i < input.length; i++) {
+            ids[i] = symbolTable.getTerminalId(input[i]);
+        }
+        return ids;
+    }
+}
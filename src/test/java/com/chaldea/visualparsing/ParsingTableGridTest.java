@@ -0,0 +1,46 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.gui.ParsingTableGrid;
+import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.LR1ParsingTable;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParsingTableGridTest {
+    private static final Logger logger = LoggerFactory.getLogger(ParsingTableGridTest.class);
+
+    @Test
+    void testCellText() {
+        Grammar grammar = new Grammar("S");
+        grammar.addNonterminal("C");
+        grammar.addTerminal("c");
+        grammar.addTerminal("d");
+        grammar.addExpression("S", grammar.generateExpression("C", "C"));
+        grammar.addExpression("C", grammar.generateExpression("c", "C"));
+        grammar.addExpression("C", grammar.generateExpression("d"));
+        LRParsingTable table = new LR1ParsingTable(grammar);
+        SymbolTable symbolTable = table.getSymbolTable();
+        int inputSymbolCount = symbolTable.getInputSymbolCount();
+        // 列的序号即统一编码，与稠密存放的ACTION、GOTO表逐项比较
+        for (int state = 0; state < table.getStateCount(); state++) {
+            StringBuilder row = new StringBuilder().append(state);
+            for (int column = 0; column < symbolTable.getSymbolCount(); column++) {
+                String text = ParsingTableGrid.cellText(table, state, column);
+                if (column < inputSymbolCount) {
+                    assertEquals(ActionItem.toString(table.getActionTable()[state][column]), text);
+                } else {
+                    int next = table.getGotoTable()[state][column - inputSymbolCount];
+                    assertEquals(next == -1 ? "" : String.valueOf(next), text);
+                }
+                row.append('\t').append(text);
+            }
+            logger.info(row.toString());
+        }
+    }
+}
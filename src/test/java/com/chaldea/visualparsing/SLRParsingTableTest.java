@@ -4,6 +4,7 @@ import com.chaldea.visualparsing.grammar.Grammar;
 import com.chaldea.visualparsing.grammar.Nonterminal;
 import com.chaldea.visualparsing.grammar.Terminal;
 import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.CompressedParsingTable;
 import com.chaldea.visualparsing.parsing.LRParsingTable;
 import com.chaldea.visualparsing.parsing.SLRParsingTable;
 import org.junit.jupiter.api.BeforeAll;
@@ -11,6 +12,8 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class SLRParsingTableTest {
     private static Grammar grammar;
     private static final Logger logger =
@@ -50,6 +53,100 @@ public class SLRParsingTableTest {
         logger.info('\n' + lrParsingTableToString(slrParsingTable, actionHeader, gotoHeader));
     }
 
+    @Test
+    void testGotoTable() {
+        slrParsingTable = new SLRParsingTable(grammar);
+        int[][] gotoTable = slrParsingTable.getGotoTable();
+        assertEquals(slrParsingTable.getLrCollection().size(), gotoTable.length);
+        int gotoCount = 0;
+        for (int i = 0; i < gotoTable.length; i++) {
+            assertSame(slrParsingTable.getLrCollection().get(i), slrParsingTable.getItemSet(i));
+            for (Nonterminal nonterminal : grammar.getNonterminals()) {
+                int state = slrParsingTable.go(i, nonterminal);
+                assertEquals(state, slrParsingTable.go(i,
+                        slrParsingTable.getSymbolTable().getNonterminalId(nonterminal)));
+                if (state != -1) {
+                    gotoCount++;
+                }
+            }
+        }
+        // 龙书图4.37中GOTO表的非空项
+        assertEquals(9, gotoCount);
+    }
+
+    @Test
+    void testPackedActionTable() {
+        slrParsingTable = new SLRParsingTable(grammar);
+        for (int i = 0; i < slrParsingTable.getLrCollection().size(); i++) {
+            for (Terminal terminal : slrParsingTable.getActionColumnsHeader()) {
+                int terminalId = slrParsingTable.getSymbolTable().getTerminalId(terminal);
+                int code = slrParsingTable.action(i, terminalId);
+                ActionItem actionItem = slrParsingTable.action(i, terminal);
+                assertEquals(actionItem, ActionItem.decode(code));
+                assertEquals(actionItem == null, code == ActionItem.ERROR);
+            }
+        }
+        assertTrue(ActionItem.isAccept(ActionItem.encode(
+                new ActionItem(ActionItem.Action.ACCEPT, -1))));
+        assertEquals(7, ActionItem.numberOf(ActionItem.encode(
+                new ActionItem(ActionItem.Action.SHIFT, 7))));
+    }
+
+    @Test
+    void testCompressedTable() {
+        slrParsingTable = new SLRParsingTable(grammar);
+        CompressedParsingTable exact = new CompressedParsingTable(slrParsingTable, false);
+        CompressedParsingTable compact = new CompressedParsingTable(slrParsingTable, true);
+        int terminalCount = slrParsingTable.getSymbolTable().getInputSymbolCount();
+        int nonterminalCount = slrParsingTable.getSymbolTable().getNonterminalCount();
+        for (int i = 0; i < slrParsingTable.getStateCount(); i++) {
+            for (int j = 0; j < terminalCount; j++) {
+                int code = slrParsingTable.action(i, j);
+                assertEquals(code, exact.action(i, j));
+                if (code != ActionItem.ERROR) {
+                    assertEquals(code, compact.action(i, j));
+                } else {
+                    // 默认规约只会把出错的表项变为规约
+                    int compactCode = compact.action(i, j);
+                    assertTrue(compactCode == ActionItem.ERROR || ActionItem.isReduce(compactCode));
+                }
+            }
+            for (int j = 0; j < nonterminalCount; j++) {
+                int state = slrParsingTable.go(i, j);
+                assertEquals(state, exact.go(i, j));
+                if (state != -1) {
+                    assertEquals(state, compact.go(i, j));
+                }
+            }
+        }
+        logger.info('\n' + exact.getCompressionReport());
+        logger.info('\n' + compact.getCompressionReport());
+        assertTrue(compact.getCompressedSize() < exact.getCompressedSize());
+    }
+
+    @Test
+    void testCompressInPlace() {
+        slrParsingTable = new SLRParsingTable(grammar);
+        ActionItem[][] actionTable = slrParsingTable.getActionTable();
+        int[][] gotoTable = slrParsingTable.getGotoTable();
+        int[] packedActionTable = slrParsingTable.getPackedActionTable();
+        CompressedParsingTable compressed = slrParsingTable.compress(false);
+        assertTrue(slrParsingTable.isCompressed());
+        assertSame(compressed, slrParsingTable.compress(false));
+        assertThrows(IllegalStateException.class, () -> slrParsingTable.compress(true));
+        // 压缩后的查询与压缩前相同，返回数组的方法解码生成新的数组
+        assertEquals(actionTable.length, slrParsingTable.getStateCount());
+        for (int i = 0; i < actionTable.length; i++) {
+            assertArrayEquals(actionTable[i], slrParsingTable.getActionTable()[i]);
+            assertArrayEquals(gotoTable[i], slrParsingTable.getGotoTable()[i]);
+            for (Terminal terminal : slrParsingTable.getActionColumnsHeader()) {
+                assertEquals(actionTable[i][slrParsingTable.getSymbolTable().getTerminalId(terminal)],
+                        slrParsingTable.action(i, terminal));
+            }
+        }
+        assertArrayEquals(packedActionTable, slrParsingTable.getPackedActionTable());
+    }
+
     static String lrParsingTableToString(LRParsingTable table, Terminal[] actionHeader,
                                          Nonterminal[] gotoHeader) {
         StringBuilder stringBuilder = new StringBuilder(512);
@@ -0,0 +1,388 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.debug.ExecutionTrace;
+import com.chaldea.visualparsing.debug.LRParsingAlgorithm;
+import com.chaldea.visualparsing.debug.LRParsingObserver;
+import com.chaldea.visualparsing.debug.PredictiveAnalyticsAlgorithm;
+import com.chaldea.visualparsing.debug.PredictiveAnalyticsObserver;
+import com.chaldea.visualparsing.debug.StepwiseAlgorithm;
+import com.chaldea.visualparsing.debug.StepwiseAlgorithmDebugger;
+import com.chaldea.visualparsing.grammar.Expression;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.Grammars;
+import com.chaldea.visualparsing.grammar.Nonterminal;
+import com.chaldea.visualparsing.grammar.Production;
+import com.chaldea.visualparsing.grammar.ProductionSymbol;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.parsing.ActionItem;
+import com.chaldea.visualparsing.parsing.LL1Parser;
+import com.chaldea.visualparsing.parsing.LRParsingTable;
+import com.chaldea.visualparsing.parsing.SLRParsingTable;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StepwiseAlgorithmDebuggerTest {
+    private static final Logger logger = LoggerFactory.getLogger(StepwiseAlgorithmDebuggerTest.class);
+
+    private static Grammar createLRGrammar() {
+        Grammar grammar = new Grammar("E");
+        grammar.addNonterminal("T");
+        grammar.addNonterminal("F");
+        grammar.addTerminal("+");
+        grammar.addTerminal("*");
+        grammar.addTerminal("(");
+        grammar.addTerminal(")");
+        grammar.addTerminal("id");
+        grammar.addExpression("E", grammar.generateExpression("E", "+", "T"));
+        grammar.addExpression("E", grammar.generateExpression("T"));
+        grammar.addExpression("T", grammar.generateExpression("T", "*", "F"));
+        grammar.addExpression("T", grammar.generateExpression("F"));
+        grammar.addExpression("F", grammar.generateExpression("(", "E", ")"));
+        grammar.addExpression("F", grammar.generateExpression("id"));
+        return grammar;
+    }
+
+    private static Grammar createLL1Grammar() {
+        Grammar grammar = new Grammar("E");
+        grammar.addNonterminal("E'");
+        grammar.addNonterminal("T");
+        for (String terminal : new String[]{"+", "(", ")", "id"}) {
+            grammar.addTerminal(terminal);
+        }
+        grammar.addExpression("E", grammar.generateExpression("T", "E'"));
+        grammar.addExpression("E'", grammar.generateExpression("+", "T", "E'"));
+        grammar.addExpression("E'", new Expression(new ProductionSymbol[]{
+                Terminal.EMPTY_STRING
+        }));
+        grammar.addExpression("T", grammar.generateExpression("(", "E", ")"));
+        grammar.addExpression("T", grammar.generateExpression("id"));
+        return grammar;
+    }
+
+    @Test
+    void testLRSeek() {
+        Grammar grammar = createLRGrammar();
+        LRParsingTable table = new SLRParsingTable(grammar);
+        List<Terminal> input = Grammars.convertStringToTerminalList(grammar,
+                "id" + "+(id*id)*id".repeat(20));
+        Function<LRParsingAlgorithm, String> state = algorithm ->
+                algorithm.getCurrentStepIndex() + " " + algorithm.getSymbolIndex() + " "
+                        + new ArrayList<>(algorithm.getStateStack()) + " "
+                        + new ArrayList<>(algorithm.getSymbolStack());
+        List<String> expected = executeAll(new LRParsingAlgorithm(table, input), state);
+
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, input);
+        StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+        debugger.start();
+        // 没有断点时快进，需要随机访问时显式地补全执行轨迹
+        assertFalse(debugger.isTraceComplete());
+        assertEquals(StepwiseAlgorithmDebugger.UNKNOWN_STEP, debugger.getCurrentStep());
+        debugger.completeTrace();
+        assertTrue(debugger.isTraceComplete());
+        ExecutionTrace trace = debugger.getTrace();
+        assertEquals(expected.size() - 1, trace.getStepCount());
+        assertEquals(expected.size() - 1, debugger.getCurrentStep());
+        assertSeekMatches(debugger, expected, algorithm, state);
+
+        // 每次移入、归约、接受各记录一个动作
+        int accept = trace.getAction(trace.getActionStep(trace.getActionCount() - 1));
+        assertTrue(ActionItem.isAccept(accept));
+        assertEquals(trace.getActionCount(), trace.countActions(trace.getStepCount()));
+        assertTrue(ActionItem.isShift(trace.getAction(trace.getActionStep(0))));
+        assertEquals(ExecutionTrace.NO_ACTION, trace.getAction(0));
+
+        // 从中间继续执行，重新记录之后的步
+        debugger.seek(100);
+        debugger.step();
+        assertEquals(expected.get(101), state.apply(algorithm));
+        debugger.resume();
+        assertTrue(algorithm.isExecutionComplete());
+        // 快进的部分由 stepBack 补全
+        assertFalse(debugger.isTraceComplete());
+        assertEquals(StepwiseAlgorithmDebugger.UNKNOWN_STEP, debugger.getCurrentStep());
+        assertEquals(expected.get(expected.size() - 1), state.apply(algorithm));
+        debugger.stepBack();
+        assertEquals(expected.size() - 1, debugger.getTrace().getStepCount());
+        assertEquals(expected.size() - 2, debugger.getCurrentStep());
+        assertEquals(expected.get(expected.size() - 2), state.apply(algorithm));
+    }
+
+    @Test
+    void testLL1Seek() {
+        Grammar grammar = createLL1Grammar();
+        List<Terminal> input = Grammars.convertStringToTerminalList(grammar,
+                "id" + "+(id+(id+id))".repeat(10));
+        LL1Parser parser = new LL1Parser(grammar);
+        Function<PredictiveAnalyticsAlgorithm, String> state = algorithm ->
+                algorithm.getCurrentStepIndex() + " " + algorithm.getIp() + " "
+                        + new ArrayList<>(algorithm.getStack());
+        List<String> expected = executeAll(new PredictiveAnalyticsAlgorithm(
+                parser.generatePredictiveParsingTable(), grammar.getStartSymbol(), input), state);
+
+        PredictiveAnalyticsAlgorithm algorithm = new PredictiveAnalyticsAlgorithm(
+                parser.generatePredictiveParsingTable(), grammar.getStartSymbol(), input);
+        StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+        // 超出记录的部分继续执行
+        assertEquals(50, debugger.seek(50));
+        assertEquals(expected.get(50), state.apply(algorithm));
+        assertEquals(expected.size() - 1, debugger.seek(Integer.MAX_VALUE));
+        assertSeekMatches(debugger, expected, algorithm, state);
+
+        ExecutionTrace trace = debugger.getTrace();
+        assertEquals(PredictiveAnalyticsAlgorithm.ACCEPT_ACTION,
+                trace.getAction(trace.getActionStep(trace.getActionCount() - 1)));
+        // 第一个动作为 E→TE'
+        assertEquals(1, trace.getAction(trace.getActionStep(0)));
+    }
+
+    @Test
+    void testSeekLongTrace() {
+        Grammar grammar = createLRGrammar();
+        LRParsingTable table = new SLRParsingTable(grammar);
+        List<Terminal> input = Grammars.convertStringToTerminalList(grammar,
+                "id" + "+(id*id)".repeat(30000));
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, input);
+        StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+        long start = System.nanoTime();
+        debugger.start();
+        debugger.completeTrace();
+        long recordTime = System.nanoTime() - start;
+        int stepCount = debugger.getTrace().getStepCount();
+        assertTrue(stepCount > 1_000_000);
+        assertEquals(1, algorithm.getSymbolStack().size());
+
+        Random random = new Random(1);
+        int seeks = 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < seeks; i++) {
+            debugger.seek(random.nextInt(stepCount + 1));
+        }
+        long seekTime = System.nanoTime() - start;
+        debugger.seek(0);
+        assertEquals(List.of(0), new ArrayList<>(algorithm.getStateStack()));
+        assertEquals(0, algorithm.getSymbolIndex());
+        debugger.seek(stepCount);
+        assertTrue(algorithm.isExecutionComplete());
+        logger.info("steps: {}, record: {} ms, {} seeks: {} ms", stepCount,
+                recordTime / 1_000_000, seeks, seekTime / 1_000_000);
+    }
+
+    @Test
+    void testLRFastForward() {
+        Grammar grammar = createLRGrammar();
+        LRParsingTable table = new SLRParsingTable(grammar);
+        for (String input : new String[]{"id+(id*id)*id+id", "id+(id*id))*id", "id+(id*"}) {
+            List<Terminal> terminals = Grammars.convertStringToTerminalList(grammar, input);
+            LRParsingAlgorithm stepwise = new LRParsingAlgorithm(table, terminals);
+            LREvents expected = new LREvents();
+            stepwise.addObserver(expected);
+            executeAll(stepwise, algorithm -> "");
+
+            // 从头快进，以及逐步执行若干步后快进
+            for (int steps : new int[]{0, 1, 17, 30}) {
+                LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, terminals);
+                LREvents events = new LREvents();
+                algorithm.addObserver(events);
+                StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+                debugger.seek(steps);
+                debugger.resume();
+                assertTrue(algorithm.isExecutionComplete());
+                assertEquals(expected.events, events.events, input);
+                assertEquals(expected.states, events.states, input);
+                assertEquals(new ArrayList<>(stepwise.getStateStack()),
+                        new ArrayList<>(algorithm.getStateStack()));
+                assertEquals(-1, events.nextStep);
+                // 需要时补全执行轨迹
+                assertEquals(stepwise.getSymbolIndex(), algorithm.getSymbolIndex());
+                debugger.stepBack();
+                assertFalse(algorithm.isExecutionComplete());
+            }
+        }
+    }
+
+    @Test
+    void testLRNotifyRestoredState() {
+        Grammar grammar = createLRGrammar();
+        LRParsingTable table = new SLRParsingTable(grammar);
+        List<Terminal> input = Grammars.convertStringToTerminalList(grammar, "id+(id*id)*id");
+        // 逐步执行时每一步之后语法分析树的事件、状态图与下一步的位置
+        LRParsingAlgorithm stepwise = new LRParsingAlgorithm(table, input);
+        LREvents stepwiseEvents = new LREvents();
+        stepwise.addObserver(stepwiseEvents);
+        // 执行结束后伪代码中没有下一步，逐步执行时通知的位置超出伪代码的范围，恢复时为-1
+        Function<LREvents, String> view = events -> events.events.stream()
+                .filter(event -> !event.startsWith("step "))
+                .toList() + " " + events.states + " "
+                + (events.nextStep >= 11 ? -1 : events.nextStep);
+        List<String> expected = executeAll(stepwise, algorithm -> view.apply(stepwiseEvents));
+
+        LRParsingAlgorithm algorithm = new LRParsingAlgorithm(table, input);
+        LREvents events = new LREvents();
+        algorithm.addObserver(events);
+        StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+        debugger.start();
+        for (int step = expected.size() - 1; step >= 0; step--) {
+            debugger.seek(step);
+            // 界面清空之后重新通知
+            events.events.clear();
+            events.states.clear();
+            algorithm.notifyRestoredState();
+            assertEquals(expected.get(step), view.apply(events), "step " + step);
+        }
+    }
+
+    @Test
+    void testLL1FastForward() {
+        Grammar grammar = createLL1Grammar();
+        LL1Parser parser = new LL1Parser(grammar);
+        for (String input : new String[]{"id+(id+id)", "id+(id+id))", "id+(", "id)"}) {
+            List<Terminal> terminals = Grammars.convertStringToTerminalList(grammar, input);
+            PredictiveAnalyticsAlgorithm stepwise = new PredictiveAnalyticsAlgorithm(
+                    parser.generatePredictiveParsingTable(), grammar.getStartSymbol(), terminals);
+            LL1Events expected = new LL1Events();
+            stepwise.addObserver(expected);
+            executeAll(stepwise, algorithm -> "");
+
+            for (int steps : new int[]{0, 3, 20}) {
+                PredictiveAnalyticsAlgorithm algorithm = new PredictiveAnalyticsAlgorithm(
+                        parser.generatePredictiveParsingTable(), grammar.getStartSymbol(),
+                        terminals);
+                LL1Events events = new LL1Events();
+                algorithm.addObserver(events);
+                StepwiseAlgorithmDebugger debugger = new StepwiseAlgorithmDebugger(algorithm);
+                debugger.seek(steps);
+                debugger.resume();
+                assertEquals(expected.events, events.events, input);
+                assertEquals(stepwise.getCurrentStepIndex(), algorithm.getCurrentStepIndex());
+                assertEquals(new ArrayList<>(stepwise.getStack()),
+                        new ArrayList<>(algorithm.getStack()));
+                assertEquals(-1, events.nextStep);
+            }
+        }
+    }
+
+    /**
+     * 不记录执行轨迹，依次执行算法的每一步，返回每一步之后的状态
+     */
+    private static <T extends StepwiseAlgorithm> List<String> executeAll(
+            T algorithm, Function<T, String> state) {
+        List<String> states = new ArrayList<>();
+        algorithm.reset();
+        states.add(state.apply(algorithm));
+        while (!algorithm.isExecutionComplete()) {
+            algorithm.executeStep();
+            states.add(state.apply(algorithm));
+        }
+        return states;
+    }
+
+    private static <T extends StepwiseAlgorithm> void assertSeekMatches(
+            StepwiseAlgorithmDebugger debugger, List<String> expected, T algorithm,
+            Function<T, String> state) {
+        // 倒序以及随机的顺序
+        for (int step = expected.size() - 1; step >= 0; step--) {
+            debugger.seek(step);
+            assertEquals(expected.get(step), state.apply(algorithm), "step " + step);
+        }
+        Random random = new Random(0);
+        for (int i = 0; i < 200; i++) {
+            int step = random.nextInt(expected.size());
+            debugger.seek(step);
+            assertEquals(expected.get(step), state.apply(algorithm), "step " + step);
+        }
+    }
+
+    /**
+     * 记录除伪代码位置外的事件，状态图只记录其中的节点
+     */
+    private static class LREvents implements LRParsingObserver {
+        private final List<String> events = new ArrayList<>();
+        private final List<String> states = new ArrayList<>();
+        private int nextStep;
+
+        @Override
+        public void addStepData(ActionItem actionItem) {
+            events.add("step " + ActionItem.toString(actionItem));
+        }
+
+        @Override
+        public void showNextAlgorithmStep(int index) {
+            nextStep = index;
+        }
+
+        @Override
+        public void showException(Exception e) {
+            events.add("exception " + e.getMessage());
+        }
+
+        @Override
+        public void completeExecution() {
+            events.add("complete");
+        }
+
+        @Override
+        public void addNodeToTree(Terminal terminal) {
+            events.add("tree " + terminal);
+        }
+
+        @Override
+        public void addParentNodeToTree(Nonterminal nonterminal, ProductionSymbol... symbols) {
+            events.add("tree " + nonterminal + " " + Arrays.toString(symbols));
+        }
+
+        @Override
+        public void initializeParserState(int state) {
+            states.clear();
+            states.add(String.valueOf(state));
+        }
+
+        @Override
+        public void addNodeToState(String state, ProductionSymbol symbol) {
+            states.add(symbol + " " + state);
+        }
+
+        @Override
+        public void rollbackState(Production production) {
+            rollbackState(production.getBody().get(0).getValue().length);
+        }
+
+        @Override
+        public void rollbackState(int count) {
+            states.subList(states.size() - count, states.size()).clear();
+        }
+    }
+
+    private static class LL1Events implements PredictiveAnalyticsObserver {
+        private final List<String> events = new ArrayList<>();
+        private int nextStep;
+
+        @Override
+        public void addStepData(String action, Nonterminal head, Expression expression) {
+            events.add(action + " " + head + " " + expression);
+        }
+
+        @Override
+        public void showNextAlgorithmStep(int index) {
+            nextStep = index;
+        }
+
+        @Override
+        public void showException(Exception e) {
+            events.add("exception " + e.getClass().getSimpleName() + " " + e.getMessage());
+        }
+
+        @Override
+        public void completeExecution() {
+            events.add("complete");
+        }
+    }
+}
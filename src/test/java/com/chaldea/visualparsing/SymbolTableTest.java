@@ -0,0 +1,67 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+import com.chaldea.visualparsing.grammar.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolTableTest {
+    private static final Logger logger = LoggerFactory.getLogger(SymbolTableTest.class);
+
+    private Grammar grammar;
+
+    @BeforeEach
+    public void setGrammar() {
+        grammar = new Grammar("E");
+        grammar.addNonterminal("T");
+        grammar.addNonterminal("F");
+        grammar.addTerminal("+");
+        grammar.addTerminal("*");
+        grammar.addTerminal("id");
+    }
+
+    @Test
+    void testIds() {
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        logger.info(symbolTable.toString());
+        assertEquals(3, symbolTable.getTerminalCount());
+        assertEquals(3, symbolTable.getEndMarkerId());
+        assertEquals(3, symbolTable.getNonterminalCount());
+        for (int i = 0; i < symbolTable.getInputSymbolCount(); i++) {
+            assertEquals(i, symbolTable.getTerminalId(symbolTable.getTerminal(i)));
+        }
+        for (int i = 0; i < symbolTable.getNonterminalCount(); i++) {
+            assertEquals(i, symbolTable.getNonterminalId(symbolTable.getNonterminal(i)));
+        }
+        assertEquals(Terminal.END_MARKER, symbolTable.getTerminal(symbolTable.getEndMarkerId()));
+        assertEquals(-1, symbolTable.getTerminalId("T"));
+        assertEquals(-1, symbolTable.getNonterminalId("+"));
+    }
+
+    @Test
+    void testSymbolCode() {
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        for (ProductionSymbol symbol : grammar.getProductionSymbols()) {
+            int code = symbolTable.getSymbolCode(symbol);
+            assertEquals(symbol, symbolTable.getSymbol(code));
+            assertEquals(symbol instanceof Terminal, symbolTable.isTerminalCode(code));
+        }
+    }
+
+    @Test
+    void testInvalidation() {
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        assertSame(symbolTable, grammar.getSymbolTable());
+        grammar.addTerminal("(");
+        assertNotSame(symbolTable, grammar.getSymbolTable());
+        assertEquals(new Terminal("("), grammar.getTerminal("("));
+        grammar.removeTerminal(new Terminal("("));
+        assertEquals(-1, grammar.getSymbolTable().getTerminalId("("));
+        assertThrows(UnknownSymbolException.class,
+                () -> grammar.getTerminal(Terminal.END_MARKER.getValue()));
+    }
+}
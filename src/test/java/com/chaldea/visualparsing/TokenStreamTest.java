@@ -0,0 +1,165 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+import com.chaldea.visualparsing.grammar.Expression;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.ProductionSymbol;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.grammar.TokenStream;
+import com.chaldea.visualparsing.grammar.Tokenizer;
+import com.chaldea.visualparsing.parsing.LL1Parser;
+import com.chaldea.visualparsing.parsing.LRParser;
+import com.chaldea.visualparsing.parsing.SLRParsingTable;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenStreamTest {
+    private static final Logger logger = LoggerFactory.getLogger(TokenStreamTest.class);
+
+    @Test
+    void testTokenStream() throws IOException {
+        Grammar grammar = new Grammar("S");
+        grammar.addTerminal("i");
+        grammar.addTerminal("id");
+        grammar.addTerminal("=");
+        grammar.addTerminal("==");
+        grammar.addTerminal("标识符");
+        grammar.addExpression("S", grammar.generateExpression("id"));
+        Tokenizer tokenizer = grammar.getTokenizer();
+        String input = "id==i=标识符id=i".repeat(50);
+        int[] expected = tokenizer.tokenize(input);
+
+        // 缓冲区最小为最长终结符的长度加一，最长匹配会跨过缓冲区末尾
+        for (int bufferSize : new int[]{1, 4, 7, 1024}) {
+            TokenStream stream = new TokenStream(tokenizer, new StringReader(input), bufferSize);
+            List<Integer> ids = new ArrayList<>();
+            int id;
+            while ((id = stream.next()) != TokenStream.EOF) {
+                ids.add(id);
+            }
+            assertArrayEquals(expected, ids.stream().mapToInt(Integer::intValue).toArray());
+            assertEquals(input.length(), stream.getCharCount());
+            assertEquals(expected.length, stream.getTokenCount());
+            assertEquals(input.length() - 1, stream.getTokenStart());
+            assertTrue(stream.isEndOfInput());
+        }
+
+        TokenStream stream = new TokenStream(tokenizer, new StringReader("i==id=x"), 1);
+        for (int i = 0; i < 4; i++) {
+            stream.next();
+        }
+        UnknownSymbolException exception = assertThrows(UnknownSymbolException.class,
+                stream::next);
+        assertTrue(exception.getMessage().contains("6"));
+    }
+
+    @Test
+    void testStreamingParse() throws IOException {
+        Grammar grammar = new Grammar("E");
+        grammar.addNonterminal("T");
+        grammar.addNonterminal("F");
+        grammar.addTerminal("+");
+        grammar.addTerminal("*");
+        grammar.addTerminal("(");
+        grammar.addTerminal(")");
+        grammar.addTerminal("id");
+        grammar.addExpression("E", grammar.generateExpression("E", "+", "T"));
+        grammar.addExpression("E", grammar.generateExpression("T"));
+        grammar.addExpression("T", grammar.generateExpression("T", "*", "F"));
+        grammar.addExpression("T", grammar.generateExpression("F"));
+        grammar.addExpression("F", grammar.generateExpression("(", "E", ")"));
+        grammar.addExpression("F", grammar.generateExpression("id"));
+        LRParser parser = new LRParser(new SLRParsingTable(grammar));
+        Tokenizer tokenizer = grammar.getTokenizer();
+
+        // 输入不会被完整地放在内存中
+        long units = 1_000_000;
+        long[] progressCount = new long[1];
+        try (TokenStream stream = new TokenStream(tokenizer,
+                new RepeatingReader("id", "+(id*id)", units))) {
+            stream.setProgressListener(s -> progressCount[0]++);
+            LRParser.StateStack stack = new LRParser.StateStack();
+            assertEquals(LRParser.ACCEPTED, parser.parse(stack, stream, null));
+            assertEquals(2 + 8 * units, stream.getCharCount());
+            assertEquals(1 + 6 * units, stream.getTokenCount());
+            assertTrue(progressCount[0] > 1);
+            logger.info("chars: {}, tokens: {}, {} ms, {} chars/s, {} tokens/s",
+                    stream.getCharCount(), stream.getTokenCount(),
+                    stream.getElapsedNanos() / 1_000_000,
+                    (long) stream.getCharsPerSecond(), (long) stream.getTokensPerSecond());
+        }
+        assertEquals(4, parser.parse(new TokenStream(tokenizer,
+                new StringReader("id+(id")), null));
+        assertEquals(2, parser.parse(new TokenStream(tokenizer,
+                new StringReader("id+)")), null));
+
+        // 消除左递归后是LL(1)文法
+        Grammar ll1Grammar = new Grammar("E");
+        ll1Grammar.addNonterminal("E'");
+        ll1Grammar.addNonterminal("T");
+        for (String terminal : new String[]{"+", "(", ")", "id"}) {
+            ll1Grammar.addTerminal(terminal);
+        }
+        ll1Grammar.addExpression("E", ll1Grammar.generateExpression("T", "E'"));
+        ll1Grammar.addExpression("E'", ll1Grammar.generateExpression("+", "T", "E'"));
+        ll1Grammar.addExpression("E'", new Expression(new ProductionSymbol[]{
+                Terminal.EMPTY_STRING
+        }));
+        ll1Grammar.addExpression("T", ll1Grammar.generateExpression("(", "E", ")"));
+        ll1Grammar.addExpression("T", ll1Grammar.generateExpression("id"));
+        LL1Parser ll1Parser = new LL1Parser(ll1Grammar);
+        long[] derivations = new long[1];
+        try (TokenStream stream = new TokenStream(ll1Grammar.getTokenizer(),
+                new RepeatingReader("id", "+(id+id)", units / 10))) {
+            assertEquals(LL1Parser.ACCEPTED, ll1Parser.parse(stream,
+                    (production, position) -> derivations[0]++));
+        }
+        // 每个单元：E'→+TE', T→(E), E→TE', T→id, E'→+TE', T→id, E'→ε
+        assertEquals(2 + 7 * units / 10 + 1, derivations[0]);
+        assertEquals(3, ll1Parser.parse(new TokenStream(ll1Grammar.getTokenizer(),
+                new StringReader("id+(")), null));
+    }
+
+    /**
+     * 生成 prefix 后接 count 个 unit 的输入
+     */
+    private static final class RepeatingReader extends Reader {
+        private final String prefix;
+        private final String unit;
+        private final long length;
+        private long position;
+
+        RepeatingReader(String prefix, String unit, long count) {
+            this.prefix = prefix;
+            this.unit = unit;
+            length = prefix.length() + unit.length() * count;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            if (position == length) {
+                return -1;
+            }
+            int n = (int) Math.min(count, length - position);
+            for (int i = 0; i < n; i++, position++) {
+                buffer[offset + i] = position < prefix.length()
+                        ? prefix.charAt((int) position)
+                        : unit.charAt((int) ((position - prefix.length()) % unit.length()));
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
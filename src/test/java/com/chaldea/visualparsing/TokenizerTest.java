@@ -0,0 +1,91 @@
+package com.chaldea.visualparsing;
+
+import com.chaldea.visualparsing.exception.grammar.UnknownSymbolException;
+import com.chaldea.visualparsing.grammar.Grammar;
+import com.chaldea.visualparsing.grammar.Grammars;
+import com.chaldea.visualparsing.grammar.SymbolTable;
+import com.chaldea.visualparsing.grammar.Terminal;
+import com.chaldea.visualparsing.grammar.TokenBuffer;
+import com.chaldea.visualparsing.grammar.Tokenizer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenizerTest {
+    private static final Logger logger = LoggerFactory.getLogger(TokenizerTest.class);
+
+    /**
+     * i 在 id 之前，按正则表达式分支的顺序 id 会被切分为 i 与 d
+     */
+    private static Grammar createGrammar() {
+        Grammar grammar = new Grammar("S");
+        grammar.addTerminal("i");
+        grammar.addTerminal("id");
+        grammar.addTerminal("=");
+        grammar.addTerminal("==");
+        grammar.addTerminal("d");
+        grammar.addTerminal("标识符");
+        grammar.addExpression("S", grammar.generateExpression("id"));
+        return grammar;
+    }
+
+    @Test
+    void testMaximalMunch() {
+        Grammar grammar = createGrammar();
+        SymbolTable symbolTable = grammar.getSymbolTable();
+        Tokenizer tokenizer = grammar.getTokenizer();
+        assertArrayEquals(new int[]{
+                symbolTable.getTerminalId("id"), symbolTable.getTerminalId("=="),
+                symbolTable.getTerminalId("i"), symbolTable.getTerminalId("="),
+                symbolTable.getTerminalId("标识符"), symbolTable.getTerminalId("d")
+        }, tokenizer.tokenize("id==i=标识符d"));
+        assertArrayEquals(new int[0], tokenizer.tokenize(""));
+        assertEquals(4, tokenizer.match("id==", 2, 4));
+        assertEquals(-1, tokenizer.match("x", 0, 1));
+
+        TokenBuffer buffer = new TokenBuffer(1);
+        assertEquals(3, tokenizer.tokenize("xid=标识符", 1, 7, buffer));
+        assertEquals(2, tokenizer.tokenize("i=", 0, 2, buffer));
+        assertEquals(5, buffer.size());
+        assertEquals(List.of(1, 3, 4, 0, 1), List.of(buffer.getStart(0), buffer.getStart(1),
+                buffer.getStart(2), buffer.getStart(3), buffer.getStart(4)));
+        assertEquals(symbolTable.getTerminalId("标识符"), buffer.getId(2));
+
+        assertEquals(List.of(grammar.getTerminal("id"), grammar.getTerminal("="),
+                        grammar.getTerminal("d")),
+                Grammars.convertStringToTerminalList(grammar, "id=d"));
+    }
+
+    @Test
+    void testUnknownSymbol() {
+        Grammar grammar = createGrammar();
+        Tokenizer tokenizer = grammar.getTokenizer();
+        UnknownSymbolException exception = assertThrows(UnknownSymbolException.class,
+                () -> tokenizer.tokenize("id=xyid"));
+        logger.info(exception.getMessage());
+        assertTrue(exception.getMessage().contains("3"));
+        assertTrue(exception.getMessage().endsWith("xy"));
+        // 标识 是 标识符 的前缀，但不是终结符
+        assertThrows(UnknownSymbolException.class, () -> tokenizer.tokenize("标识"));
+        assertThrows(UnknownSymbolException.class,
+                () -> Grammars.convertStringToTerminalList(grammar, "id id"));
+    }
+
+    @Test
+    void testTokenizerCache() {
+        Grammar grammar = createGrammar();
+        Tokenizer tokenizer = grammar.getTokenizer();
+        assertSame(tokenizer, grammar.getTokenizer());
+        grammar.addExpression("S", grammar.generateExpression("i", "d"));
+        assertSame(tokenizer, grammar.getTokenizer());
+
+        grammar.addTerminal(new Terminal("+"));
+        assertNotSame(tokenizer, grammar.getTokenizer());
+        assertEquals(2, grammar.getTokenizer().tokenize("i+").length);
+        assertThrows(UnknownSymbolException.class, () -> tokenizer.tokenize("i+"));
+    }
+}